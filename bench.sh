@@ -0,0 +1,6 @@
+#
+# Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+# This software and all associated files are licensed under GPL-3.0.
+#
+
+java -cp "build/ueransim-1.0.8.jar:build/*:build/lib/*" tr.havelsan.ueransim.app.app.entry.BenchmarkApp "$@"
\ No newline at end of file
@@ -0,0 +1,13 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+/**
+ * Marks the ITMS messages that carry user data. Those can be dropped under overload, see
+ * {@link ItmsOverflowPolicy#DROP_USER_PLANE}.
+ */
+public interface IUserPlaneMessage {
+}
@@ -5,14 +5,87 @@
 
 package tr.havelsan.ueransim.itms;
 
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class Itms {
 
+    private static volatile ItmsExecutor defaultExecutor = new ItmsThreadExecutor();
+    private static volatile ItmsTimerService defaultTimerService = new ItmsTimerWheel();
+    private static volatile int defaultCapacity = 0;
+    private static volatile ItmsOverflowPolicy defaultOverflowPolicy = ItmsOverflowPolicy.DROP_USER_PLANE;
+
     private final ConcurrentHashMap<Integer, ItmsTask> taskMap;
+    private final ItmsExecutor executor;
+    private final ItmsTimerService timerService;
+    private final int capacity;
+    private final ItmsOverflowPolicy overflowPolicy;
 
     public Itms() {
+        this(defaultExecutor, defaultTimerService);
+    }
+
+    public Itms(ItmsExecutor executor) {
+        this(executor, defaultTimerService);
+    }
+
+    public Itms(ItmsExecutor executor, ItmsTimerService timerService) {
         this.taskMap = new ConcurrentHashMap<>();
+        this.executor = executor;
+        this.timerService = timerService;
+        this.capacity = defaultCapacity;
+        this.overflowPolicy = defaultOverflowPolicy;
+    }
+
+    public static ItmsExecutor getDefaultExecutor() {
+        return defaultExecutor;
+    }
+
+    /**
+     * Sets the executor of the ITMS instances that are created after this call.
+     */
+    public static void setDefaultExecutor(ItmsExecutor executor) {
+        defaultExecutor = executor;
+    }
+
+    public static ItmsTimerService getDefaultTimerService() {
+        return defaultTimerService;
+    }
+
+    /**
+     * Sets the timer service of the ITMS instances that are created after this call.
+     */
+    public static void setDefaultTimerService(ItmsTimerService timerService) {
+        defaultTimerService = timerService;
+    }
+
+    /**
+     * Sets the queue capacity and the overflow policy of the tasks of the ITMS instances that are created after this
+     * call. Zero capacity means unbounded.
+     */
+    public static void setDefaultCapacity(int capacity, ItmsOverflowPolicy overflowPolicy) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity < 0");
+        defaultCapacity = capacity;
+        defaultOverflowPolicy = overflowPolicy;
+    }
+
+    public int getDefaultCapacity() {
+        return capacity;
+    }
+
+    public ItmsOverflowPolicy getDefaultOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public ItmsExecutor getExecutor() {
+        return executor;
+    }
+
+    public ItmsTimerService getTimerService() {
+        return timerService;
     }
 
     public void createTask(ItmsTask task) {
@@ -34,6 +107,15 @@ public class Itms {
         return task.receiveMessage(timeout);
     }
 
+    /**
+     * Waits until there is at least one message for the task, then passes it and the messages queued after it to
+     * the consumer, at most {@code max} messages in total. Returns the number of messages received. This amortizes
+     * the wake-up cost over the whole batch when messages arrive faster than they are handled.
+     */
+    public int receiveMessages(ItmsTask task, int max, Consumer<Object> consumer) {
+        return task.receiveMessages(max, consumer);
+    }
+
     public Object receiveMessageNonBlocking(ItmsTask task) {
         return task.receiveMessageNonBlocking();
     }
@@ -49,7 +131,26 @@ public class Itms {
         sendMessage(task, msg);
     }
 
+    /**
+     * Sends the message to the task after the given delay in milliseconds. The returned timer can be used to cancel
+     * the delivery.
+     */
+    public ItmsTimer sendMessageDelayed(int taskId, Object msg, long delayMillis) {
+        return timerService.schedule(delayMillis, () -> sendMessage(taskId, msg));
+    }
+
     public ItmsTask findTask(int taskId) {
         return taskMap.get(taskId);
     }
+
+    /**
+     * Returns a snapshot of the instrumentation of every task, keyed by task ID.
+     */
+    public Map<Integer, ItmsTaskStats> getStats() {
+        var res = new TreeMap<Integer, ItmsTaskStats>();
+        for (var task : taskMap.values()) {
+            res.put(task.taskId, task.getStats());
+        }
+        return res;
+    }
 }
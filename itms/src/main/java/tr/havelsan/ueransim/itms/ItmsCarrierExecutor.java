@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Multiplexes {@link ItmsEventTask}s onto a fixed pool of carrier threads. A task is scheduled on a carrier only
+ * when its queue is non-empty, and at most one carrier runs a task at a time, so the per-task ordering and the
+ * single consumer semantics are kept. Tasks that are still written as a blocking loop get a dedicated thread.
+ */
+public class ItmsCarrierExecutor extends ItmsExecutor {
+
+    static final int IDLE = 0;
+    static final int SCHEDULED = 1;
+    static final int DEAD = 2;
+
+    private final int carrierCount;
+    private final ForkJoinPool pool;
+    private final ItmsThreadExecutor fallback;
+
+    public ItmsCarrierExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ItmsCarrierExecutor(int carrierCount) {
+        if (carrierCount < 1)
+            throw new IllegalArgumentException("carrierCount < 1");
+
+        this.carrierCount = carrierCount;
+        this.fallback = new ItmsThreadExecutor();
+        this.pool = new ForkJoinPool(carrierCount, CarrierThread::new, null, true);
+    }
+
+    @Override
+    void start(ItmsTask task) {
+        if (!(task instanceof ItmsEventTask)) {
+            fallback.start(task);
+            return;
+        }
+        // The state is already SCHEDULED (see ItmsTask), so messages received before start do not cause a
+        // second schedule.
+        task.carrierRun = () -> run((ItmsEventTask) task);
+        pool.execute(task.carrierRun);
+    }
+
+    @Override
+    void onMessage(ItmsTask task) {
+        if (task.carrierRun != null && task.schedState.compareAndSet(IDLE, SCHEDULED)) {
+            pool.execute(task.carrierRun);
+        }
+    }
+
+    private void run(ItmsEventTask task) {
+        bindLogger(task);
+        try {
+            runBatch(task);
+        } finally {
+            unbindLogger();
+        }
+    }
+
+    private void runBatch(ItmsEventTask task) {
+        int handled = 0;
+        try {
+            if (!task.isInitialized) {
+                task.isInitialized = true;
+                task.onStart();
+            }
+
+            task.metrics.onDepth(task.msgQueue.size());
+            handled = task.msgQueue.drain(task.handler, ItmsEventTask.BATCH_LIMIT);
+        } catch (Exception e) {
+            task.schedState.set(DEAD);
+            task.onException(e);
+            var thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            return;
+        }
+
+        if (handled == ItmsEventTask.BATCH_LIMIT) {
+            // Still scheduled, let the other tasks run first.
+            pool.execute(task.carrierRun);
+            return;
+        }
+
+        task.schedState.set(IDLE);
+        if (!task.msgQueue.isEmpty() && task.schedState.compareAndSet(IDLE, SCHEDULED)) {
+            pool.execute(task.carrierRun);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "carrier-pool";
+    }
+
+    @Override
+    public int getCarrierCount() {
+        return carrierCount;
+    }
+
+    private static final class CarrierThread extends ForkJoinWorkerThread {
+
+        CarrierThread(ForkJoinPool pool) {
+            super(pool);
+            setName("itms-carrier-" + getPoolIndex());
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            markInternalThread();
+        }
+    }
+}
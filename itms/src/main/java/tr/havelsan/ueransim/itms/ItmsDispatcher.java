@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Class-keyed message dispatch table. Handlers are registered per message type, and a message is dispatched to the
+ * handler of its own class, or of its nearest registered superclass or interface. The lookup result is cached per
+ * concrete message class, so dispatching takes constant time no matter how many types are registered.
+ * <p>
+ * The dispatcher also counts the dispatched messages per concrete message class.
+ * <p>
+ * All handlers must be registered before the first dispatch. A dispatcher is usually kept in a static field and
+ * shared by all the instances of a task class, hence the handlers take the task or context as their first argument.
+ *
+ * @param <C> type of the context that is passed to the handlers
+ */
+public final class ItmsDispatcher<C> {
+
+    private final Map<Class<?>, BiConsumer<? super C, Object>> handlers;
+    private final ClassValue<Entry<C>> entries;
+    private final Map<Class<?>, Entry<C>> usedEntries;
+    private BiConsumer<? super C, Object> defaultHandler;
+    private volatile boolean isSealed;
+
+    public ItmsDispatcher() {
+        this.handlers = new HashMap<>();
+        this.usedEntries = new ConcurrentHashMap<>();
+        this.defaultHandler = (context, msg) -> {
+        };
+        this.entries = new ClassValue<>() {
+            @Override
+            protected Entry<C> computeValue(Class<?> type) {
+                // Racing computations of the same class must end up with the same counter.
+                return usedEntries.computeIfAbsent(type, t -> new Entry<>(t, findHandler(t)));
+            }
+        };
+    }
+
+    /**
+     * Registers the handler of the given message type.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ItmsDispatcher<C> on(Class<T> type, BiConsumer<? super C, ? super T> handler) {
+        ensureNotSealed();
+        if (handlers.containsKey(type))
+            throw new IllegalStateException("handler already registered for " + type.getSimpleName());
+        handlers.put(type, (BiConsumer<? super C, Object>) handler);
+        return this;
+    }
+
+    /**
+     * Sets the handler of the messages that have no registered handler. By default such messages are ignored.
+     */
+    public ItmsDispatcher<C> otherwise(BiConsumer<? super C, Object> handler) {
+        ensureNotSealed();
+        this.defaultHandler = handler;
+        return this;
+    }
+
+    /**
+     * Passes the message to its handler. Returns false if the message has no registered handler, in which case the
+     * default handler is called.
+     */
+    public boolean dispatch(C context, Object msg) {
+        if (!isSealed)
+            isSealed = true;
+
+        var entry = entries.get(msg.getClass());
+        entry.count.increment();
+        if (entry.handler == null) {
+            defaultHandler.accept(context, msg);
+            return false;
+        }
+        entry.handler.accept(context, msg);
+        return true;
+    }
+
+    /**
+     * Returns the number of dispatched messages of the given concrete class.
+     */
+    public long getCount(Class<?> type) {
+        var entry = usedEntries.get(type);
+        return entry == null ? 0 : entry.count.sum();
+    }
+
+    /**
+     * Returns the number of dispatched messages per concrete message class.
+     */
+    public Map<Class<?>, Long> getCounts() {
+        var counts = new LinkedHashMap<Class<?>, Long>();
+        for (var entry : usedEntries.values()) {
+            counts.put(entry.type, entry.count.sum());
+        }
+        return counts;
+    }
+
+    private BiConsumer<? super C, Object> findHandler(Class<?> type) {
+        for (var t = type; t != null; t = t.getSuperclass()) {
+            var handler = handlers.get(t);
+            if (handler != null)
+                return handler;
+            for (var i : t.getInterfaces()) {
+                handler = findInterfaceHandler(i);
+                if (handler != null)
+                    return handler;
+            }
+        }
+        return null;
+    }
+
+    private BiConsumer<? super C, Object> findInterfaceHandler(Class<?> type) {
+        var handler = handlers.get(type);
+        if (handler != null)
+            return handler;
+        for (var i : type.getInterfaces()) {
+            handler = findInterfaceHandler(i);
+            if (handler != null)
+                return handler;
+        }
+        return null;
+    }
+
+    private void ensureNotSealed() {
+        if (isSealed)
+            throw new IllegalStateException("handlers must be registered before the first dispatch");
+    }
+
+    private static final class Entry<C> {
+        final Class<?> type;
+        final BiConsumer<? super C, Object> handler;
+        final LongAdder count;
+
+        Entry(Class<?> type, BiConsumer<? super C, Object> handler) {
+            this.type = type;
+            this.handler = handler;
+            this.count = new LongAdder();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.function.Consumer;
+
+/**
+ * An ITMS task that is written as a message handler instead of a blocking loop. Such tasks do not need a
+ * thread of their own, the executor calls {@link #onMessage(Object)} only when there is a message to process.
+ * Messages are still handled one at a time and in the order they are received, but the executors take them
+ * from the queue in batches, so a busy task is woken up once per batch instead of once per message.
+ */
+public abstract class ItmsEventTask extends ItmsTask {
+
+    // Maximum number of messages handled in one go.
+    static final int BATCH_LIMIT = 64;
+
+    final Consumer<Object> handler = this::handle;
+    boolean isInitialized;
+
+    protected ItmsEventTask(Itms itms, int taskId) {
+        super(itms, taskId);
+    }
+
+    /**
+     * Called once before the first message is handled.
+     */
+    protected void onStart() {
+    }
+
+    protected abstract void onMessage(Object msg);
+
+    private void handle(Object msg) {
+        if (!metrics.sampleHandler()) {
+            onMessage(msg);
+            return;
+        }
+        long start = System.nanoTime();
+        onMessage(msg);
+        metrics.recordHandler(msg.getClass(), System.nanoTime() - start);
+    }
+
+    @Override
+    public final void main() {
+        onStart();
+        while (true) {
+            itms.receiveMessages(this, BATCH_LIMIT, handler);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import tr.havelsan.ueransim.utils.console.Log;
+
+/**
+ * Decides on which threads the ITMS tasks are executed.
+ */
+public abstract class ItmsExecutor {
+
+    // Set on the threads that run the tasks and the timers, see canBlockProducer()
+    private static final ThreadLocal<Boolean> INTERNAL_THREAD = new ThreadLocal<>();
+
+    /**
+     * Binds the logger of the given task to the current thread, before the task runs on it. The thread may have
+     * run another task before.
+     */
+    static void bindLogger(ItmsTask task) {
+        Log.bind(task.getLogger());
+    }
+
+    /**
+     * Unbinds the logger of the task that has run on the current thread, so that the thread does not log with it
+     * while it runs something else.
+     */
+    static void unbindLogger() {
+        Log.bind(null);
+    }
+
+    /**
+     * Marks the current thread as a thread that runs the tasks or the timers, so that it never waits for room in a
+     * task queue.
+     */
+    static void markInternalThread() {
+        INTERNAL_THREAD.set(Boolean.TRUE);
+    }
+
+    /**
+     * Starts executing the given task. Called once per task.
+     */
+    abstract void start(ItmsTask task);
+
+    /**
+     * Called by the producer after a message is put into the task's queue.
+     */
+    abstract void onMessage(ItmsTask task);
+
+    /**
+     * Returns false if the current thread must not wait for room in a full task queue, because the task could not
+     * make room meanwhile. The threads of the tasks and the timers never wait: a task that waits for another one can
+     * deadlock with it, and a waiting timer thread stops all timers.
+     */
+    boolean canBlockProducer() {
+        return INTERNAL_THREAD.get() == null;
+    }
+
+    /**
+     * Human readable name of the execution mode.
+     */
+    public abstract String getName();
+
+    /**
+     * Number of threads that the tasks are multiplexed on, or 0 if every task owns a dedicated thread.
+     */
+    public abstract int getCarrierCount();
+}
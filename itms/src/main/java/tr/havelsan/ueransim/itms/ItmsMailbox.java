@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free, unbounded, multi-producer single-consumer message queue of an ITMS task.
+ * <p>
+ * Messages are stored in array segments. A producer claims a slot with a single atomic increment and writes the
+ * message into it. When a segment is full the producers link an overflow segment after it, so a node is allocated
+ * only once per {@link #SEGMENT_SIZE} messages and no lock is taken on the send path. Since most tasks hold a few
+ * messages at a time, the first segments are smaller: the first two have {@link #FIRST_SEGMENT_SIZE} slots, and each
+ * next one is twice as large, up to {@link #SEGMENT_SIZE}.
+ * <p>
+ * Only one thread may consume at a time. A consumer that finds the mailbox empty spins for a short while and then
+ * parks. Producers unpark it only if it is actually parked.
+ * <p>
+ * The oldest messages can be discarded on behalf of the producers, see {@link #discardOldest()}.
+ * <p>
+ * A bounded mailbox counts its messages, so that the producers reserve a slot before they offer a message, see
+ * {@link #tryReserve(int)}. The reservation is released when the consumer takes the message.
+ * <p>
+ * Optionally the mailbox measures how long the messages wait in it. Only one of every
+ * {@link ItmsTaskMetrics#SAMPLE_RATE} messages is timestamped, the timestamps are kept in the segments. The array of
+ * the timestamps of a segment is allocated when its first timestamp is taken.
+ */
+public final class ItmsMailbox {
+
+    static final int FIRST_SEGMENT_SHIFT = 4;
+    static final int FIRST_SEGMENT_SIZE = 1 << FIRST_SEGMENT_SHIFT;
+    static final int SEGMENT_SHIFT = 10;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    // Number of the segments that are smaller than SEGMENT_SIZE
+    private static final int SMALL_SEGMENTS = SEGMENT_SHIFT - FIRST_SEGMENT_SHIFT + 1;
+
+    private static final int SPIN_TRIES = 128;
+    private static final int YIELD_TRIES = 16;
+
+    private static final AtomicLongFieldUpdater<ItmsMailbox> CONSUMER_INDEX
+            = AtomicLongFieldUpdater.newUpdater(ItmsMailbox.class, "consumerIndex");
+
+    private final AtomicLong producerIndex;
+    private final AtomicLong discardRequests;
+    // Messages that are reserved and not yet taken, if the mailbox is bounded
+    private final AtomicInteger reservedCount;
+    private boolean isBounded;
+    private final ItmsHistogram dwellTime;
+    // Newest segment known by the producers. Only a hint, it may lag behind or be ahead of a given producer.
+    private volatile Segment producerSegment;
+    // Owned by the consumer. Producers read it to find a segment that is not consumed yet.
+    private volatile Segment consumerSegment;
+    private volatile long consumerIndex;
+    private volatile long discardedCount;
+    private volatile Thread waiter;
+
+    public ItmsMailbox() {
+        this(null);
+    }
+
+    /**
+     * Creates a mailbox that records the sampled waiting times of the messages in nanoseconds into the given
+     * histogram, if it is not null.
+     */
+    public ItmsMailbox(ItmsHistogram dwellTime) {
+        var segment = new Segment(0);
+        this.dwellTime = dwellTime;
+        this.producerIndex = new AtomicLong();
+        this.discardRequests = new AtomicLong();
+        this.reservedCount = new AtomicInteger();
+        this.producerSegment = segment;
+        this.consumerSegment = segment;
+    }
+
+    //======================================================================================================
+    //                                          PRODUCER SIDE
+    //======================================================================================================
+
+    public void offer(Object msg) {
+        Objects.requireNonNull(msg);
+
+        long index = producerIndex.getAndIncrement();
+        long segmentId = segmentId(index);
+
+        var segment = producerSegment;
+        if (segment.id > segmentId) {
+            // The slot is not consumed yet, hence the consumer's segment can not be ahead of it.
+            segment = consumerSegment;
+        }
+        while (segment.id < segmentId) {
+            var next = segment.next.get();
+            if (next == null) {
+                var created = new Segment(segment.id + 1);
+                next = segment.next.compareAndSet(null, created) ? created : segment.next.get();
+            }
+            segment = next;
+        }
+        if (producerSegment.id < segmentId) {
+            producerSegment = segment;
+        }
+
+        int offset = (int) (index - segment.base);
+        if (dwellTime != null && (offset & ItmsTaskMetrics.SAMPLE_MASK) == 0) {
+            // Published to the consumer by the volatile write of the slot
+            segment.stamps()[offset >> ItmsTaskMetrics.SAMPLE_SHIFT] = System.nanoTime();
+        }
+        segment.slots.set(offset, msg);
+
+        var thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Requests the oldest message in the mailbox to be discarded. Since only the consumer may take messages, the
+     * message is discarded when the consumer reaches it, but it is excluded from {@link #size()} right away. In a
+     * bounded mailbox, the reservation of the discarded message passes to the message that the producer offers next.
+     */
+    public void discardOldest() {
+        discardRequests.incrementAndGet();
+    }
+
+    /**
+     * Reserves a slot for a message if fewer than the given number of messages are reserved, and returns false
+     * otherwise. Only for a bounded mailbox.
+     */
+    boolean tryReserve(int capacity) {
+        while (true) {
+            int count = reservedCount.get();
+            if (count >= capacity)
+                return false;
+            if (reservedCount.compareAndSet(count, count + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Reserves a slot for a message regardless of the capacity. Only for a bounded mailbox.
+     */
+    void reserve() {
+        reservedCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of the reserved slots, which is the number of messages in a bounded mailbox, including the
+     * ones whose producers have not offered them yet.
+     */
+    int getReservedCount() {
+        return reservedCount.get();
+    }
+
+    /**
+     * Makes the mailbox count its messages. Must be called before any message is offered.
+     */
+    void setBounded(boolean isBounded) {
+        this.isBounded = isBounded;
+    }
+
+    //======================================================================================================
+    //                                          CONSUMER SIDE
+    //======================================================================================================
+
+    /**
+     * Returns the next message, or null if the mailbox is empty. Must be called only by the consumer.
+     */
+    public Object poll() {
+        var msg = pollNext();
+        while (msg != null && discardRequests.get() != discardedCount) {
+            discardedCount++;
+            msg = pollNext();
+        }
+        if (msg != null && isBounded) {
+            reservedCount.decrementAndGet();
+        }
+        return msg;
+    }
+
+    private Object pollNext() {
+        long index = consumerIndex;
+        var segment = consumerSegment;
+
+        if (segment.id != segmentId(index)) {
+            var next = segment.next.get();
+            if (next == null) {
+                if (producerIndex.get() <= index)
+                    return null;
+                // The slot is claimed but the producer has not linked the segment yet.
+                for (int i = 0; (next = segment.next.get()) == null; i++) {
+                    backOff(i);
+                }
+            }
+            segment = next;
+            consumerSegment = next;
+        }
+
+        int offset = (int) (index - segment.base);
+        var msg = segment.slots.get(offset);
+        if (msg == null) {
+            if (producerIndex.get() <= index)
+                return null;
+            // The slot is claimed but the producer has not written the message yet.
+            for (int i = 0; (msg = segment.slots.get(offset)) == null; i++) {
+                backOff(i);
+            }
+        }
+
+        if (dwellTime != null && (offset & ItmsTaskMetrics.SAMPLE_MASK) == 0) {
+            dwellTime.record(System.nanoTime() - segment.stamps[offset >> ItmsTaskMetrics.SAMPLE_SHIFT]);
+        }
+
+        segment.slots.lazySet(offset, null);
+        CONSUMER_INDEX.lazySet(this, index + 1);
+        return msg;
+    }
+
+    /**
+     * Passes the messages that are currently in the mailbox to the given consumer, at most {@code max} of them,
+     * without waiting. Returns the number of messages drained. Must be called only by the consumer.
+     */
+    public int drain(Consumer<Object> consumer, int max) {
+        int count = 0;
+        Object msg;
+        while (count < max && (msg = poll()) != null) {
+            count++;
+            consumer.accept(msg);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the next message, waiting if necessary. Must be called only by the consumer.
+     */
+    public Object take() throws InterruptedException {
+        var msg = pollSpinning();
+        if (msg != null)
+            return msg;
+
+        waiter = Thread.currentThread();
+        try {
+            while ((msg = poll()) == null) {
+                LockSupport.park(this);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            waiter = null;
+        }
+        return msg;
+    }
+
+    /**
+     * Returns the next message, waiting up to the given time if necessary, or null if the time elapsed. Must be
+     * called only by the consumer.
+     */
+    public Object poll(long timeout, TimeUnit unit) throws InterruptedException {
+        var msg = pollSpinning();
+        if (msg != null)
+            return msg;
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        waiter = Thread.currentThread();
+        try {
+            while ((msg = poll()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0)
+                    return null;
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        } finally {
+            waiter = null;
+        }
+        return msg;
+    }
+
+    private Object pollSpinning() {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            var msg = poll();
+            if (msg != null)
+                return msg;
+            Thread.onSpinWait();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ID of the segment of the slot with the given index.
+     */
+    static long segmentId(long index) {
+        if (index >= SEGMENT_SIZE)
+            return (index >>> SEGMENT_SHIFT) + SMALL_SEGMENTS - 1;
+        if (index < FIRST_SEGMENT_SIZE)
+            return 0;
+        return 63 - Long.numberOfLeadingZeros(index) - FIRST_SEGMENT_SHIFT + 1;
+    }
+
+    private static void backOff(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1000);
+        }
+    }
+
+    //======================================================================================================
+    //                                          STATUS
+    //======================================================================================================
+
+    public boolean isEmpty() {
+        return producerIndex.get() == consumerIndex;
+    }
+
+    /**
+     * Returns the number of messages in the mailbox. The value is exact only when no producer is active.
+     */
+    public int size() {
+        long size = producerIndex.get() - consumerIndex - (discardRequests.get() - discardedCount);
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size));
+    }
+
+    /**
+     * Returns the number of messages taken from the mailbox so far, excluding the discarded ones.
+     */
+    public long getConsumedCount() {
+        return consumerIndex - discardedCount;
+    }
+
+    /**
+     * Returns the number of messages discarded so far, see {@link #discardOldest()}.
+     */
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    private static final class Segment {
+        private static final AtomicReferenceFieldUpdater<Segment, long[]> STAMPS
+                = AtomicReferenceFieldUpdater.newUpdater(Segment.class, long[].class, "stamps");
+
+        final long id;
+        // Index of the first slot
+        final long base;
+        final AtomicReferenceArray<Object> slots;
+        final AtomicReference<Segment> next;
+        volatile long[] stamps;
+
+        Segment(long id) {
+            int size;
+            if (id >= SMALL_SEGMENTS) {
+                this.base = (id - SMALL_SEGMENTS + 1) << SEGMENT_SHIFT;
+                size = SEGMENT_SIZE;
+            } else if (id > 0) {
+                this.base = 1L << (id + FIRST_SEGMENT_SHIFT - 1);
+                size = (int) base;
+            } else {
+                this.base = 0;
+                size = FIRST_SEGMENT_SIZE;
+            }
+            this.id = id;
+            this.slots = new AtomicReferenceArray<>(size);
+            this.next = new AtomicReference<>();
+        }
+
+        /**
+         * Returns the timestamps of the segment, allocating them if necessary. Called by the producers.
+         */
+        long[] stamps() {
+            var res = stamps;
+            if (res == null) {
+                var created = new long[slots.length() >> ItmsTaskMetrics.SAMPLE_SHIFT];
+                res = STAMPS.compareAndSet(this, null, created) ? created : stamps;
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the ITMS instances of the nodes, for polling the instrumentation of their tasks.
+ */
+public final class ItmsMonitor {
+
+    private static final ConcurrentHashMap<String, Itms> nodes = new ConcurrentHashMap<>();
+
+    private ItmsMonitor() {
+    }
+
+    public static void register(String nodeName, Itms itms) {
+        nodes.put(nodeName, itms);
+    }
+
+    public static void unregister(String nodeName) {
+        nodes.remove(nodeName);
+    }
+
+    /**
+     * Returns the statistics of every task, keyed by node name and then by ITMS task ID.
+     */
+    public static Map<String, Map<Integer, ItmsTaskStats>> snapshot() {
+        var res = new TreeMap<String, Map<Integer, ItmsTaskStats>>();
+        for (var entry : nodes.entrySet()) {
+            res.put(entry.getKey(), entry.getValue().getStats());
+        }
+        return res;
+    }
+
+    /**
+     * Returns the statistics of the tasks of the given node keyed by ITMS task ID, or null if there is no such node.
+     */
+    public static Map<Integer, ItmsTaskStats> snapshot(String nodeName) {
+        var itms = nodes.get(nodeName);
+        return itms == null ? null : itms.getStats();
+    }
+}
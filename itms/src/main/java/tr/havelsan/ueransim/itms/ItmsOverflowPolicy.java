@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+/**
+ * What happens when a message is sent to an ITMS task whose queue is full.
+ */
+public enum ItmsOverflowPolicy {
+    /**
+     * The sender waits until there is room in the queue. Only the threads outside of the ITMS wait, e.g. the ones
+     * that receive from the network. The messages that the tasks and the timers send are queued anyway, like the
+     * signalling in {@link #DROP_USER_PLANE}, since those senders could deadlock with the task.
+     */
+    BLOCK,
+    /**
+     * The message being sent is dropped.
+     */
+    DROP_NEWEST,
+    /**
+     * The oldest message in the queue is dropped to make room for the message being sent.
+     */
+    DROP_OLDEST,
+    /**
+     * The message being sent is dropped if it is a {@link IUserPlaneMessage}. Other messages are queued anyway, so
+     * the signalling is never lost.
+     */
+    DROP_USER_PLANE
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import tr.havelsan.ueransim.utils.IClock;
+import tr.havelsan.ueransim.utils.console.Log;
+
+import java.util.PriorityQueue;
+
+/**
+ * Discrete-event simulation of the ITMS tasks. All {@link ItmsEventTask}s and the timers of
+ * {@link #getTimerService()} run on a single thread, in the order of a virtual clock, so a run does not depend on
+ * the thread scheduling of the machine and it is repeated exactly as long as its inputs are the same.
+ * <p>
+ * Nothing runs by itself: the events are executed by the driving thread when it calls {@link #runFor(long)}, and the
+ * virtual clock jumps from one event to the next, so waiting for a timer takes no real time. The executor is also a
+ * {@link IClock}, hence it can be installed as the clock of Utils so that sleeping on the driving thread advances
+ * the simulation. The driving thread is the one that creates the executor, unless another one is set with
+ * {@link #setDriver(Thread)}.
+ * <p>
+ * Tasks that are still written as a blocking loop cannot be simulated and get a dedicated thread. Messages that
+ * those tasks send to the simulated tasks are handled at the virtual time they arrive.
+ */
+public class ItmsSimExecutor extends ItmsExecutor implements IClock {
+
+    private final PriorityQueue<Event> events;
+    private final ItmsThreadExecutor fallback;
+    private final ItmsTimerService timerService;
+
+    // Guarded by this
+    private long now;
+    private long sequence;
+    private boolean isRunning;
+    private Thread driver;
+
+    public ItmsSimExecutor() {
+        this.events = new PriorityQueue<>();
+        this.fallback = new ItmsThreadExecutor();
+        this.timerService = new SimTimerService();
+        this.driver = Thread.currentThread();
+    }
+
+    /**
+     * Sets the thread that drives the simulation. Must not be called while the simulation runs.
+     */
+    public synchronized void setDriver(Thread thread) {
+        if (isRunning)
+            throw new IllegalStateException("simulation is running");
+        driver = thread;
+    }
+
+    /**
+     * Returns the timer service that runs on the virtual clock of this executor.
+     */
+    public ItmsTimerService getTimerService() {
+        return timerService;
+    }
+
+    @Override
+    public synchronized long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Runs the simulation for the given time on the driving thread. Other threads really sleep, since they are not
+     * part of the simulation.
+     */
+    @Override
+    public void sleep(long ms) {
+        if (isDriver(Thread.currentThread())) {
+            runFor(ms);
+        } else {
+            IClock.SYSTEM.sleep(ms);
+        }
+    }
+
+    /**
+     * Executes the events of the next given milliseconds of virtual time, then sets the clock to the end of that
+     * period.
+     */
+    public void runFor(long ms) {
+        long until;
+        synchronized (this) {
+            until = now + Math.max(0, ms);
+        }
+        runUntil(until);
+    }
+
+    /**
+     * Executes the events that are due at the current virtual time, including the ones they cause, without
+     * advancing the clock.
+     */
+    public void runPending() {
+        runUntil(currentTimeMillis());
+    }
+
+    /**
+     * Executes the events until the given virtual time, then sets the clock to that time. A call that is made by an
+     * event handler only advances the clock, as if the handler was busy for that long.
+     */
+    public void runUntil(long time) {
+        var thread = Thread.currentThread();
+
+        synchronized (this) {
+            if (driver != thread)
+                throw new IllegalStateException("simulation is driven by another thread");
+            if (isRunning) {
+                if (time > now) {
+                    now = time;
+                }
+                return;
+            }
+            isRunning = true;
+        }
+
+        // The tasks bind their own loggers to this thread, the caller's logger is put back after them.
+        var callerLogger = Log.current();
+        try {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = events.peek();
+                    if (event == null || event.time > time)
+                        break;
+                    events.poll();
+                    if (event.time > now) {
+                        now = event.time;
+                    }
+                }
+                // The timers that do not belong to a task log with the caller's logger.
+                Log.bind(callerLogger);
+                event.action.run();
+            }
+        } finally {
+            synchronized (this) {
+                if (time > now) {
+                    now = time;
+                }
+                isRunning = false;
+            }
+            Log.bind(callerLogger);
+        }
+    }
+
+    /**
+     * Returns the number of events waiting to be executed, including the cancelled timers that are not yet due.
+     */
+    public synchronized int getPendingEventCount() {
+        return events.size();
+    }
+
+    @Override
+    void start(ItmsTask task) {
+        if (!(task instanceof ItmsEventTask)) {
+            fallback.start(task);
+            return;
+        }
+        // The state is already SCHEDULED (see ItmsTask), so messages received before start do not cause a
+        // second schedule.
+        task.carrierRun = () -> run((ItmsEventTask) task);
+        post(currentTimeMillis(), task.carrierRun);
+    }
+
+    @Override
+    void onMessage(ItmsTask task) {
+        if (task.carrierRun != null && task.schedState.compareAndSet(ItmsCarrierExecutor.IDLE, ItmsCarrierExecutor.SCHEDULED)) {
+            post(currentTimeMillis(), task.carrierRun);
+        }
+    }
+
+    private void run(ItmsEventTask task) {
+        bindLogger(task);
+
+        int handled;
+        try {
+            if (!task.isInitialized) {
+                task.isInitialized = true;
+                task.onStart();
+            }
+
+            task.metrics.onDepth(task.msgQueue.size());
+            handled = task.msgQueue.drain(task.handler, ItmsEventTask.BATCH_LIMIT);
+        } catch (Exception e) {
+            task.schedState.set(ItmsCarrierExecutor.DEAD);
+            task.onException(e);
+            var thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            return;
+        }
+
+        if (handled == ItmsEventTask.BATCH_LIMIT) {
+            // Still scheduled, let the other tasks run first.
+            post(currentTimeMillis(), task.carrierRun);
+            return;
+        }
+
+        task.schedState.set(ItmsCarrierExecutor.IDLE);
+        if (!task.msgQueue.isEmpty() && task.schedState.compareAndSet(ItmsCarrierExecutor.IDLE, ItmsCarrierExecutor.SCHEDULED)) {
+            post(currentTimeMillis(), task.carrierRun);
+        }
+    }
+
+    private synchronized void post(long time, Runnable action) {
+        events.add(new Event(Math.max(time, now), sequence++, action));
+    }
+
+    @Override
+    boolean canBlockProducer() {
+        // The simulated tasks run on the driving thread only.
+        return !isDriver(Thread.currentThread()) && super.canBlockProducer();
+    }
+
+    private synchronized boolean isDriver(Thread thread) {
+        return driver == thread;
+    }
+
+    @Override
+    public String getName() {
+        return "simulation";
+    }
+
+    @Override
+    public int getCarrierCount() {
+        return 1;
+    }
+
+    private final class SimTimerService extends ItmsTimerService {
+
+        @Override
+        public ItmsTimer schedule(long delayMillis, Runnable action) {
+            synchronized (ItmsSimExecutor.this) {
+                var timer = new ItmsTimer(this, now + Math.max(0, delayMillis), action);
+                post(timer.deadline, timer::expire);
+                return timer;
+            }
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return ItmsSimExecutor.this.currentTimeMillis();
+        }
+
+        @Override
+        void onCancel(ItmsTimer timer) {
+            // The event stays in the queue until it is due, and then expire() does nothing.
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        final long time;
+        final long sequence;
+        final Runnable action;
+
+        Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (time != other.time)
+                return Long.compare(time, other.time);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
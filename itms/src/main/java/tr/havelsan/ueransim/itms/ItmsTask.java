@@ -5,31 +5,44 @@
 
 package tr.havelsan.ueransim.itms;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import tr.havelsan.ueransim.utils.console.Logger;
+
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 public abstract class ItmsTask {
 
+    private static final long BLOCK_PARK_NANOS = 50_000;
+
     public final int taskId;
-    public final BlockingQueue<Object> msgQueue;
-    public final Thread thread;
+    public final ItmsMailbox msgQueue;
     protected final Itms itms;
+    final ItmsTaskMetrics metrics;
+
+    // Used by the executors
+    final ItmsExecutor executor;
+    final AtomicInteger schedState;
+    volatile Runnable carrierRun;
+    volatile Thread thread;
 
+    private Logger logger;
     private boolean isStarted;
+    private int capacity;
+    private ItmsOverflowPolicy overflowPolicy;
 
     protected ItmsTask(Itms itms, int taskId) {
         this.itms = itms;
         this.taskId = taskId;
-        this.msgQueue = new LinkedBlockingQueue<>();
-        this.thread = new Thread(() -> {
-            try {
-                main();
-            } catch (Exception e) {
-                onException(e);
-                throw e;
-            }
-        });
+        this.metrics = new ItmsTaskMetrics();
+        this.msgQueue = new ItmsMailbox(metrics.dwellTime);
+        this.executor = itms.getExecutor();
+        this.schedState = new AtomicInteger(ItmsCarrierExecutor.SCHEDULED);
+        this.capacity = itms.getDefaultCapacity();
+        this.overflowPolicy = itms.getDefaultOverflowPolicy();
+        this.msgQueue.setBounded(capacity > 0);
     }
 
     public abstract void main();
@@ -38,16 +51,85 @@ public abstract class ItmsTask {
         if (isStarted)
             throw new IllegalStateException("ITMS task already started");
         isStarted = true;
-        thread.start();
+        executor.start(this);
     }
 
     void putMessage(Object msg) {
-        msgQueue.add(msg);
+        if (capacity > 0 && !msgQueue.tryReserve(capacity) && !handleOverflow(msg)) {
+            metrics.onDrop();
+            return;
+        }
+        msgQueue.offer(msg);
+        executor.onMessage(this);
+    }
+
+    /**
+     * Called when the queue is full. Returns false if the message must be dropped, and true if it has a slot.
+     */
+    private boolean handleOverflow(Object msg) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                if (executor.canBlockProducer()) {
+                    return awaitCapacity();
+                }
+                return exceedCapacity();
+            case DROP_OLDEST:
+                // The message takes the slot of the discarded one.
+                msgQueue.discardOldest();
+                metrics.onDrop();
+                return true;
+            case DROP_USER_PLANE:
+                return !(msg instanceof IUserPlaneMessage) && exceedCapacity();
+            case DROP_NEWEST:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Queues a message beyond the capacity, because its sender must neither wait nor drop it.
+     */
+    private boolean exceedCapacity() {
+        msgQueue.reserve();
+        metrics.onExceed();
+        return true;
+    }
+
+    /**
+     * Waits until a slot is reserved. Returns false if the thread is interrupted meanwhile.
+     */
+    private boolean awaitCapacity() {
+        var blocker = new ForkJoinPool.ManagedBlocker() {
+            boolean isReserved;
+
+            @Override
+            public boolean block() {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                return isReleasable();
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (!isReserved) {
+                    isReserved = msgQueue.tryReserve(capacity);
+                }
+                return isReserved;
+            }
+        };
+        // Lets a carrier pool compensate for the blocked thread.
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return blocker.isReserved;
     }
 
     Object receiveMessage() {
         try {
-            return msgQueue.take();
+            var msg = msgQueue.take();
+            metrics.onDepth(msgQueue.size() + 1);
+            return msg;
         } catch (InterruptedException e) {
             onException(e);
             throw new RuntimeException(e);
@@ -56,18 +138,83 @@ public abstract class ItmsTask {
 
     Object receiveMessage(int timeout) {
         try {
-            return msgQueue.poll(timeout, TimeUnit.MILLISECONDS);
+            var msg = msgQueue.poll(timeout, TimeUnit.MILLISECONDS);
+            if (msg != null) {
+                metrics.onDepth(msgQueue.size() + 1);
+            }
+            return msg;
         } catch (InterruptedException e) {
             onException(e);
             throw new RuntimeException(e);
         }
     }
 
+    int receiveMessages(int max, Consumer<Object> consumer) {
+        if (max < 1)
+            throw new IllegalArgumentException("max < 1");
+        consumer.accept(receiveMessage());
+        return 1 + msgQueue.drain(consumer, max - 1);
+    }
+
     Object receiveMessageNonBlocking() {
-        return msgQueue.poll();
+        var msg = msgQueue.poll();
+        if (msg != null) {
+            metrics.onDepth(msgQueue.size() + 1);
+        }
+        return msg;
     }
 
-    private void onException(Exception e) {
+    void onException(Exception e) {
         // TODO
     }
+
+    /**
+     * Returns the logger that is used while this task is executing.
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Sets the logger that is used while this task is executing. Must be called before the task is started.
+     */
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Limits the number of messages in the queue of this task. Zero means unbounded. Must be called before the task
+     * is started.
+     */
+    public void setCapacity(int capacity, ItmsOverflowPolicy overflowPolicy) {
+        if (isStarted)
+            throw new IllegalStateException("ITMS task already started");
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity < 0");
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.msgQueue.setBounded(capacity > 0);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public ItmsOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Returns a snapshot of the instrumentation of this task.
+     */
+    public ItmsTaskStats getStats() {
+        return metrics.snapshot(this);
+    }
+
+    /**
+     * Returns the thread that is dedicated to this task, or null if the task does not have its own thread.
+     */
+    public Thread getThread() {
+        return thread;
+    }
 }
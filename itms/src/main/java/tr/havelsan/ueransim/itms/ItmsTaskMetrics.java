@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation of an ITMS task, kept cheap enough to stay on during load tests.
+ * <p>
+ * The dropped messages, and the ones that are queued beyond the capacity, are counted by the senders, see
+ * {@link ItmsOverflowPolicy}.
+ * <p>
+ * The queue depth and the throughput are derived from the indices that the mailbox maintains anyway. The high-water
+ * depth is sampled by the consumer each time it wakes up. The dwell time in the queue and the handler execution time
+ * are measured for one of every {@link #SAMPLE_RATE} messages only.
+ */
+final class ItmsTaskMetrics {
+
+    static final int SAMPLE_SHIFT = 4;
+    static final int SAMPLE_RATE = 1 << SAMPLE_SHIFT;
+    static final int SAMPLE_MASK = SAMPLE_RATE - 1;
+
+    final ItmsHistogram dwellTime;
+    final ConcurrentHashMap<Class<?>, ItmsHistogram> handlerTimes;
+    private final LongAdder droppedCount;
+    private final LongAdder exceededCount;
+    private final long startNanos;
+    private volatile int highWaterDepth;
+
+    // Owned by the consumer
+    private long handledCount;
+
+    // Guarded by this, used to calculate the rate since the previous snapshot
+    private long lastConsumed;
+    private long lastNanos;
+
+    ItmsTaskMetrics() {
+        this.dwellTime = new ItmsHistogram();
+        this.handlerTimes = new ConcurrentHashMap<>();
+        this.droppedCount = new LongAdder();
+        this.exceededCount = new LongAdder();
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+    }
+
+    void onDepth(int depth) {
+        if (depth > highWaterDepth) {
+            highWaterDepth = depth;
+        }
+    }
+
+    void onDrop() {
+        droppedCount.increment();
+    }
+
+    void onExceed() {
+        exceededCount.increment();
+    }
+
+    boolean sampleHandler() {
+        return (handledCount++ & SAMPLE_MASK) == 0;
+    }
+
+    void recordHandler(Class<?> type, long nanos) {
+        var histogram = handlerTimes.get(type);
+        if (histogram == null) {
+            histogram = handlerTimes.computeIfAbsent(type, t -> new ItmsHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    synchronized ItmsTaskStats snapshot(ItmsTask task) {
+        var queue = task.msgQueue;
+        long consumed = queue.getConsumedCount();
+        long now = System.nanoTime();
+
+        double rate = 0;
+        if (now > lastNanos) {
+            rate = (consumed - lastConsumed) * 1e9 / (now - lastNanos);
+        }
+        lastConsumed = consumed;
+        lastNanos = now;
+
+        var handlers = new LinkedHashMap<String, ItmsTaskStats.Timing>();
+        for (var entry : handlerTimes.entrySet()) {
+            handlers.put(entry.getKey().getSimpleName(), ItmsTaskStats.Timing.of(entry.getValue()));
+        }
+
+        return new ItmsTaskStats(task.taskId, task.getClass().getSimpleName(), queue.size(), highWaterDepth,
+                task.getCapacity(), consumed, droppedCount.sum(), exceededCount.sum(), rate,
+                (now - startNanos) / 1_000_000, ItmsTaskStats.Timing.of(dwellTime), handlers);
+    }
+}
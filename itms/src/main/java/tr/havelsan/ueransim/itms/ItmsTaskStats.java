@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the instrumentation of an ITMS task.
+ */
+public final class ItmsTaskStats {
+    public final int taskId;
+    public final String taskName;
+    // Messages currently in the queue
+    public final int depth;
+    // Largest queue depth seen by the task so far
+    public final int highWaterDepth;
+    // Queue capacity, or 0 if unbounded
+    public final int capacity;
+    // Messages taken from the queue so far
+    public final long receivedCount;
+    // Messages dropped because the queue was full
+    public final long droppedCount;
+    // Messages queued beyond the capacity, because their senders must neither wait nor drop them
+    public final long exceededCount;
+    // Messages taken from the queue per second, since the previous snapshot of the task
+    public final double messagesPerSecond;
+    public final long uptimeMillis;
+    // Time between sending a message and its receipt by the task (sampled)
+    public final Timing dwellTime;
+    // Execution time of the handler per message class (sampled, event tasks only)
+    public final Map<String, Timing> handlerTimes;
+
+    public ItmsTaskStats(int taskId, String taskName, int depth, int highWaterDepth, int capacity, long receivedCount,
+                         long droppedCount, long exceededCount, double messagesPerSecond, long uptimeMillis,
+                         Timing dwellTime, Map<String, Timing> handlerTimes) {
+        this.taskId = taskId;
+        this.taskName = taskName;
+        this.depth = depth;
+        this.highWaterDepth = highWaterDepth;
+        this.capacity = capacity;
+        this.receivedCount = receivedCount;
+        this.droppedCount = droppedCount;
+        this.exceededCount = exceededCount;
+        this.messagesPerSecond = messagesPerSecond;
+        this.uptimeMillis = uptimeMillis;
+        this.dwellTime = dwellTime;
+        this.handlerTimes = handlerTimes;
+    }
+
+    /**
+     * Summary of a time histogram, in microseconds.
+     */
+    public static final class Timing {
+        public final long sampleCount;
+        public final double meanMicros;
+        public final double p50Micros;
+        public final double p99Micros;
+        public final double maxMicros;
+
+        public Timing(long sampleCount, double meanMicros, double p50Micros, double p99Micros, double maxMicros) {
+            this.sampleCount = sampleCount;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        static Timing of(ItmsHistogram nanos) {
+            return new Timing(nanos.getCount(), nanos.getMean() / 1000.0, nanos.getPercentile(50) / 1000.0,
+                    nanos.getPercentile(99) / 1000.0, nanos.getMax() / 1000.0);
+        }
+    }
+}
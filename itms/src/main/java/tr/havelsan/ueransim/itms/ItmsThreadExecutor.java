@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+/**
+ * Runs every task on its own platform thread.
+ */
+public class ItmsThreadExecutor extends ItmsExecutor {
+
+    Thread newThread(Runnable runnable) {
+        return new Thread(runnable);
+    }
+
+    @Override
+    void start(ItmsTask task) {
+        var thread = newThread(() -> {
+            markInternalThread();
+            bindLogger(task);
+            try {
+                task.main();
+            } catch (Exception e) {
+                task.onException(e);
+                throw e;
+            }
+        });
+        task.thread = thread;
+        thread.start();
+    }
+
+    @Override
+    void onMessage(ItmsTask task) {
+        // the task thread is already blocked on its own queue
+    }
+
+    @Override
+    public String getName() {
+        return "thread-per-task";
+    }
+
+    @Override
+    public int getCarrierCount() {
+        return 0;
+    }
+}
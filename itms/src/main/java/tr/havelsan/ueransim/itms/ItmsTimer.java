@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle of an action that is scheduled on an {@link ItmsTimerService}.
+ */
+public final class ItmsTimer {
+
+    static final int PENDING = 0;
+    static final int EXPIRED = 1;
+    static final int CANCELLED = 2;
+
+    final ItmsTimerService service;
+    final long deadline;
+    final Runnable action;
+    final AtomicInteger state;
+
+    // Used by the timer service that owns this timer
+    ItmsTimer prev;
+    ItmsTimer next;
+    int slot = -1;
+
+    ItmsTimer(ItmsTimerService service, long deadline, Runnable action) {
+        this.service = service;
+        this.deadline = deadline;
+        this.action = action;
+        this.state = new AtomicInteger(PENDING);
+    }
+
+    /**
+     * Cancels the timer. Returns false if the timer has already expired or cancelled.
+     */
+    public boolean cancel() {
+        if (!state.compareAndSet(PENDING, CANCELLED))
+            return false;
+        service.onCancel(this);
+        return true;
+    }
+
+    public boolean isPending() {
+        return state.get() == PENDING;
+    }
+
+    /**
+     * Returns the time of expiry in milliseconds, on the clock of the timer service.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    boolean expire() {
+        if (!state.compareAndSet(PENDING, EXPIRED))
+            return false;
+        action.run();
+        return true;
+    }
+}
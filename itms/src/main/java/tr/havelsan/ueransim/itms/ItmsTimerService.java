@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+/**
+ * Runs actions after a given delay. The actions are run on a thread of the timer service, hence they must be short
+ * and must not block, usually they just send a message to a task.
+ */
+public abstract class ItmsTimerService {
+
+    /**
+     * Schedules the action to be run after the given delay in milliseconds.
+     */
+    public abstract ItmsTimer schedule(long delayMillis, Runnable action);
+
+    /**
+     * Returns the current time of the clock the timer service works with, in milliseconds.
+     */
+    public abstract long currentTimeMillis();
+
+    /**
+     * Called after a pending timer of this service is cancelled.
+     */
+    abstract void onCancel(ItmsTimer timer);
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hierarchical timing wheel with a resolution of one millisecond.
+ * <p>
+ * Each level of the wheel has 64 slots, and a slot of a level spans 64 times as long as a slot of the level below.
+ * A timer is put into the lowest level that can hold its deadline, and it is moved to the lower levels as the time
+ * approaches its deadline. Hence scheduling and cancelling take constant time and a timer is moved at most once
+ * per level.
+ * <p>
+ * The wheel is owned by a single thread that is started with the first scheduled timer. Other threads hand the
+ * timers over with a lock-free mailbox. The thread sleeps until the next slot that has a timer in it, so it does
+ * not wake up every millisecond.
+ */
+public class ItmsTimerWheel extends ItmsTimerService {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // Enough levels to cover any non-negative deadline
+    private static final int LEVELS = (Long.SIZE + WHEEL_BITS - 1) / WHEEL_BITS;
+    private static final long MAX_DELAY = Long.MAX_VALUE >> 2;
+
+    private final String name;
+    private final long startNanos;
+    private final ItmsMailbox commands;
+    private final AtomicBoolean isStarted;
+
+    // Owned by the wheel thread
+    private final ItmsTimer[] slots;
+    private final int[] levelCounts;
+    private long currentTick;
+
+    public ItmsTimerWheel() {
+        this("itms-timer-wheel");
+    }
+
+    public ItmsTimerWheel(String name) {
+        this.name = name;
+        this.startNanos = System.nanoTime();
+        this.commands = new ItmsMailbox();
+        this.isStarted = new AtomicBoolean();
+        this.slots = new ItmsTimer[LEVELS * WHEEL_SIZE];
+        this.levelCounts = new int[LEVELS];
+    }
+
+    @Override
+    public ItmsTimer schedule(long delayMillis, Runnable action) {
+        long delay = Math.max(0, Math.min(delayMillis, MAX_DELAY));
+        var timer = new ItmsTimer(this, currentTimeMillis() + delay, action);
+
+        if (!isStarted.get() && isStarted.compareAndSet(false, true)) {
+            var thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        commands.offer(timer);
+        return timer;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    void onCancel(ItmsTimer timer) {
+        // The wheel thread unlinks the timer, so that the slots are not touched by other threads.
+        commands.offer(timer);
+    }
+
+    //======================================================================================================
+    //                                          WHEEL THREAD
+    //======================================================================================================
+
+    private void run() {
+        ItmsExecutor.markInternalThread();
+        while (true) {
+            Object command;
+            while ((command = commands.poll()) != null) {
+                handleCommand((ItmsTimer) command);
+            }
+
+            long now = currentTimeMillis();
+            advance(now);
+
+            long next = nextEventTick();
+            try {
+                if (next == Long.MAX_VALUE) {
+                    command = commands.take();
+                } else {
+                    long wait = next - currentTimeMillis();
+                    if (wait <= 0)
+                        continue;
+                    command = commands.poll(wait, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (command != null) {
+                handleCommand((ItmsTimer) command);
+            }
+        }
+    }
+
+    private void handleCommand(ItmsTimer timer) {
+        if (timer.slot >= 0) {
+            // Cancellation of a timer in the wheel
+            if (!timer.isPending()) {
+                unlink(timer);
+            }
+            return;
+        }
+        // Otherwise a new timer, unless it is already cancelled
+        if (timer.isPending()) {
+            insert(timer);
+        }
+    }
+
+    private void insert(ItmsTimer timer) {
+        long deadline = timer.deadline;
+        if (deadline <= currentTick) {
+            expire(timer);
+            return;
+        }
+
+        // The lowest level whose slot span covers both the current tick and the deadline
+        int level = 0;
+        while (level < LEVELS - 1 && (deadline >>> (WHEEL_BITS * (level + 1))) != (currentTick >>> (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        link(timer, level * WHEEL_SIZE + (int) ((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+    }
+
+    private void advance(long now) {
+        while (true) {
+            long next = nextEventTick();
+            if (next > now) {
+                if (now > currentTick) {
+                    currentTick = now;
+                }
+                return;
+            }
+            currentTick = next;
+
+            // Move the timers of the higher levels down, then expire the ones of the lowest level.
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = WHEEL_BITS * level;
+                if (levelCounts[level] != 0 && (next & ((1L << shift) - 1)) == 0) {
+                    var timer = detach(level * WHEEL_SIZE + (int) ((next >>> shift) & WHEEL_MASK));
+                    while (timer != null) {
+                        var following = timer.next;
+                        timer.next = null;
+                        insert(timer);
+                        timer = following;
+                    }
+                }
+            }
+
+            var timer = detach((int) (next & WHEEL_MASK));
+            while (timer != null) {
+                var following = timer.next;
+                timer.next = null;
+                expire(timer);
+                timer = following;
+            }
+        }
+    }
+
+    /**
+     * Returns the first tick at which a non-empty slot is processed, or Long.MAX_VALUE if the wheel is empty.
+     */
+    private long nextEventTick() {
+        long result = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            if (levelCounts[level] == 0)
+                continue;
+            int shift = WHEEL_BITS * level;
+            long base = currentTick >>> shift;
+            for (int k = 1; k <= WHEEL_SIZE; k++) {
+                if (slots[level * WHEEL_SIZE + (int) ((base + k) & WHEEL_MASK)] != null) {
+                    result = Math.min(result, (base + k) << shift);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void expire(ItmsTimer timer) {
+        try {
+            timer.expire();
+        } catch (Exception e) {
+            var thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private void link(ItmsTimer timer, int slot) {
+        var head = slots[slot];
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        slots[slot] = timer;
+        levelCounts[slot / WHEEL_SIZE]++;
+    }
+
+    private void unlink(ItmsTimer timer) {
+        int slot = timer.slot;
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = -1;
+        levelCounts[slot / WHEEL_SIZE]--;
+    }
+
+    /**
+     * Empties the slot and returns its timers as a list linked by the next fields.
+     */
+    private ItmsTimer detach(int slot) {
+        var head = slots[slot];
+        slots[slot] = null;
+        for (var timer = head; timer != null; timer = timer.next) {
+            timer.prev = null;
+            timer.slot = -1;
+            levelCounts[slot / WHEEL_SIZE]--;
+        }
+        return head;
+    }
+}
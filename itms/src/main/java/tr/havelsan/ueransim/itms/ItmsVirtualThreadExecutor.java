@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs every task on its own virtual thread. The blocking receive methods park the virtual thread, so the task
+ * loops stay unchanged while the number of platform (carrier) threads stays bounded.
+ * <p>
+ * Virtual threads require Java 21 or later at runtime. They are looked up reflectively, so the project can still
+ * be built for older releases. Use {@link #isSupported()} before creating an instance.
+ */
+public class ItmsVirtualThreadExecutor extends ItmsThreadExecutor {
+
+    private static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+    private static final String MAX_POOL_SIZE_PROPERTY = "jdk.virtualThreadScheduler.maxPoolSize";
+
+    private final ThreadFactory factory;
+    private final int carrierCount;
+
+    public ItmsVirtualThreadExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The carrier count is only applied if the virtual thread scheduler has not been configured already, either
+     * by a command line property or by a virtual thread created before.
+     */
+    public ItmsVirtualThreadExecutor(int carrierCount) {
+        if (carrierCount < 1)
+            throw new IllegalArgumentException("carrierCount < 1");
+
+        if (System.getProperty(PARALLELISM_PROPERTY) == null) {
+            System.setProperty(PARALLELISM_PROPERTY, String.valueOf(carrierCount));
+        }
+        if (System.getProperty(MAX_POOL_SIZE_PROPERTY) == null) {
+            System.setProperty(MAX_POOL_SIZE_PROPERTY, System.getProperty(PARALLELISM_PROPERTY));
+        }
+
+        this.carrierCount = Integer.parseInt(System.getProperty(PARALLELISM_PROPERTY));
+        this.factory = createFactory();
+        if (this.factory == null)
+            throw new UnsupportedOperationException("virtual threads are not supported by this Java runtime");
+    }
+
+    public static boolean isSupported() {
+        return createFactory() != null;
+    }
+
+    private static ThreadFactory createFactory() {
+        // Equivalent of: Thread.ofVirtual().name("itms-virtual-", 0).factory()
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            var builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "itms-virtual-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    Thread newThread(Runnable runnable) {
+        return factory.newThread(runnable);
+    }
+
+    @Override
+    public String getName() {
+        return "virtual-thread";
+    }
+
+    @Override
+    public int getCarrierCount() {
+        return carrierCount;
+    }
+}
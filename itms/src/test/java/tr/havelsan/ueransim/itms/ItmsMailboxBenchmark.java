@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ITMS mailbox with the previously used LinkedBlockingQueue, with a single consumer and 1, 4 and 16
+ * producers. Run it with:
+ * <pre>
+ * mvn -pl itms test-compile
+ * java -cp "itms/target/test-classes:itms/target/classes:build/lib/*" org.openjdk.jmh.Main ItmsMailboxBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItmsMailboxBenchmark {
+
+    private static final int MESSAGES = 1 << 16;
+    private static final Object MESSAGE = new Object();
+
+    @Param({"1", "4", "16"})
+    public int producers;
+
+    @Param({"LinkedBlockingQueue", "ItmsMailbox"})
+    public String queue;
+
+    private ExecutorService producerPool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        producerPool = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerPool.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void transfer(Blackhole blackhole) throws InterruptedException {
+        int perProducer = MESSAGES / producers;
+
+        if (queue.equals("ItmsMailbox")) {
+            var mailbox = new ItmsMailbox();
+            for (int p = 0; p < producers; p++) {
+                producerPool.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) mailbox.offer(MESSAGE);
+                });
+            }
+            for (int i = 0; i < MESSAGES; i++) blackhole.consume(mailbox.take());
+        } else {
+            var blockingQueue = new LinkedBlockingQueue<>();
+            for (int p = 0; p < producers; p++) {
+                producerPool.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) blockingQueue.add(MESSAGE);
+                });
+            }
+            for (int i = 0; i < MESSAGES; i++) blackhole.consume(blockingQueue.take());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.console.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Test_ItmsCarrierExecutor {
+
+    private static final int TASKS = 100;
+    private static final int PRODUCERS = 4;
+    private static final int MESSAGES = 2000;
+
+    @Test
+    public void testOrderAndSingleConsumer() throws Exception {
+        var executor = new ItmsCarrierExecutor(4);
+        var done = new CountDownLatch(TASKS);
+        var errors = new AtomicInteger();
+
+        var tasks = new CheckingTask[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            var itms = new Itms(executor);
+            tasks[i] = new CheckingTask(itms, done, errors);
+            itms.createTask(tasks[i]);
+            itms.startTask(tasks[i]);
+        }
+
+        var producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers[p] = new Thread(() -> {
+                for (int seq = 0; seq < MESSAGES; seq++) {
+                    for (var task : tasks) {
+                        task.itms.sendMessage(task, new int[]{producer, seq});
+                    }
+                }
+            });
+            producers[p].start();
+        }
+
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, errors.get());
+        for (var task : tasks) {
+            Assert.assertEquals(1, task.startCount);
+        }
+    }
+
+    @Test
+    public void testLoggerOfTask() throws Exception {
+        // A single carrier runs both tasks, one after the other.
+        var executor = new ItmsCarrierExecutor(1);
+        var done = new CountDownLatch(200);
+        var errors = new AtomicInteger();
+
+        var tasks = new ItmsEventTask[2];
+        for (int i = 0; i < tasks.length; i++) {
+            var itms = new Itms(executor);
+            var logger = new Logger("task-" + i);
+            tasks[i] = new ItmsEventTask(itms, 1) {
+                @Override
+                protected void onMessage(Object msg) {
+                    if (Log.current() != logger)
+                        errors.incrementAndGet();
+                    done.countDown();
+                }
+            };
+            tasks[i].setLogger(logger);
+            itms.createTask(tasks[i]);
+            itms.startTask(tasks[i]);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            for (var task : tasks) {
+                task.itms.sendMessage(task, i);
+            }
+        }
+
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, errors.get());
+    }
+
+    private static class CheckingTask extends ItmsEventTask {
+        private final CountDownLatch done;
+        private final AtomicInteger errors;
+        private final AtomicBoolean inHandler = new AtomicBoolean();
+        private final int[] lastSeq = new int[PRODUCERS];
+        private int received;
+        private int startCount;
+
+        CheckingTask(Itms itms, CountDownLatch done, AtomicInteger errors) {
+            super(itms, 1);
+            this.done = done;
+            this.errors = errors;
+            Arrays.fill(lastSeq, -1);
+        }
+
+        @Override
+        protected void onStart() {
+            startCount++;
+        }
+
+        @Override
+        protected void onMessage(Object msg) {
+            if (!inHandler.compareAndSet(false, true))
+                errors.incrementAndGet();
+
+            var m = (int[]) msg;
+            if (lastSeq[m[0]] + 1 != m[1])
+                errors.incrementAndGet();
+            lastSeq[m[0]] = m[1];
+
+            if (++received == PRODUCERS * MESSAGES)
+                done.countDown();
+
+            inHandler.set(false);
+        }
+    }
+}
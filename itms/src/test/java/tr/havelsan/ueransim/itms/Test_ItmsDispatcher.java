@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+public class Test_ItmsDispatcher {
+
+    private static class Base {
+    }
+
+    private static class Derived extends Base {
+    }
+
+    private interface Marker {
+    }
+
+    private static class Marked implements Marker {
+    }
+
+    @Test
+    public void testDispatch() {
+        var log = new ArrayList<String>();
+
+        var dispatcher = new ItmsDispatcher<ArrayList<String>>()
+                .on(String.class, (l, s) -> l.add("string:" + s))
+                .on(Base.class, (l, b) -> l.add("base"))
+                .on(Marker.class, (l, m) -> l.add("marker"))
+                .otherwise((l, o) -> l.add("other"));
+
+        Assert.assertTrue(dispatcher.dispatch(log, "a"));
+        Assert.assertTrue(dispatcher.dispatch(log, new Base()));
+        Assert.assertTrue(dispatcher.dispatch(log, new Derived()));
+        Assert.assertTrue(dispatcher.dispatch(log, new Marked()));
+        Assert.assertFalse(dispatcher.dispatch(log, 5));
+        Assert.assertTrue(dispatcher.dispatch(log, "b"));
+
+        Assert.assertEquals(6, log.size());
+        Assert.assertEquals("string:a", log.get(0));
+        Assert.assertEquals("base", log.get(1));
+        Assert.assertEquals("base", log.get(2));
+        Assert.assertEquals("marker", log.get(3));
+        Assert.assertEquals("other", log.get(4));
+        Assert.assertEquals("string:b", log.get(5));
+
+        Assert.assertEquals(2, dispatcher.getCount(String.class));
+        Assert.assertEquals(1, dispatcher.getCount(Derived.class));
+        Assert.assertEquals(1, dispatcher.getCount(Integer.class));
+        Assert.assertEquals(0, dispatcher.getCount(Long.class));
+        Assert.assertEquals(5, dispatcher.getCounts().size());
+    }
+
+    @Test
+    public void testRegistrationAfterDispatch() {
+        var dispatcher = new ItmsDispatcher<Object>().on(String.class, (c, s) -> {
+        });
+        dispatcher.dispatch(null, "a");
+        try {
+            dispatcher.on(Integer.class, (c, i) -> {
+            });
+            Assert.fail("registration after the first dispatch must fail");
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class Test_ItmsMailbox {
+
+    @Test
+    public void testSingleThreaded() {
+        var mailbox = new ItmsMailbox();
+        Assert.assertTrue(mailbox.isEmpty());
+        Assert.assertNull(mailbox.poll());
+
+        // cross a few segment boundaries
+        int count = ItmsMailbox.SEGMENT_SIZE * 3 + 7;
+        for (int i = 0; i < count; i++) {
+            mailbox.offer(i);
+        }
+        Assert.assertEquals(count, mailbox.size());
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, mailbox.poll());
+        }
+        Assert.assertTrue(mailbox.isEmpty());
+        Assert.assertNull(mailbox.poll());
+    }
+
+    @Test
+    public void testSegmentIds() {
+        // The small segments, then the full ones
+        long[] firstIndices = {0, 16, 32, 64, 128, 256, 512, 1024, 2048};
+        for (int id = 0; id < firstIndices.length; id++) {
+            Assert.assertEquals(id, ItmsMailbox.segmentId(firstIndices[id]));
+            if (id > 0) {
+                Assert.assertEquals(id - 1, ItmsMailbox.segmentId(firstIndices[id] - 1));
+            }
+        }
+        Assert.assertEquals(ItmsMailbox.FIRST_SEGMENT_SIZE, firstIndices[1]);
+        Assert.assertEquals(ItmsMailbox.SEGMENT_SIZE, firstIndices[7]);
+    }
+
+    @Test
+    public void testDrain() {
+        var mailbox = new ItmsMailbox();
+        var received = new ArrayList<Object>();
+        Assert.assertEquals(0, mailbox.drain(received::add, 10));
+
+        int count = ItmsMailbox.SEGMENT_SIZE + 20;
+        for (int i = 0; i < count; i++) {
+            mailbox.offer(i);
+        }
+
+        Assert.assertEquals(10, mailbox.drain(received::add, 10));
+        Assert.assertEquals(count - 10, mailbox.drain(received::add, Integer.MAX_VALUE));
+        Assert.assertTrue(mailbox.isEmpty());
+
+        Assert.assertEquals(count, received.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testDiscardOldest() {
+        var mailbox = new ItmsMailbox();
+        for (int i = 0; i < 5; i++) {
+            mailbox.offer(i);
+        }
+        mailbox.discardOldest();
+        mailbox.discardOldest();
+        Assert.assertEquals(3, mailbox.size());
+
+        Assert.assertEquals(2, mailbox.poll());
+        mailbox.offer(5);
+        mailbox.discardOldest();
+        Assert.assertEquals(4, mailbox.poll());
+        Assert.assertEquals(5, mailbox.poll());
+        Assert.assertNull(mailbox.poll());
+
+        Assert.assertEquals(3, mailbox.getDiscardedCount());
+        Assert.assertEquals(3, mailbox.getConsumedCount());
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        int producers = 8;
+        int messages = 100_000;
+
+        var mailbox = new ItmsMailbox();
+        var threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads[p] = new Thread(() -> {
+                for (int seq = 0; seq < messages; seq++) {
+                    mailbox.offer(new int[]{producer, seq});
+                }
+            });
+            threads[p].start();
+        }
+
+        var lastSeq = new int[producers];
+        Arrays.fill(lastSeq, -1);
+
+        for (int i = 0; i < producers * messages; i++) {
+            var msg = (int[]) mailbox.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(msg);
+            Assert.assertEquals(lastSeq[msg[0]] + 1, msg[1]);
+            lastSeq[msg[0]] = msg[1];
+        }
+
+        for (var thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void testWaiting() throws Exception {
+        var mailbox = new ItmsMailbox();
+        Assert.assertNull(mailbox.poll(20, TimeUnit.MILLISECONDS));
+
+        var producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            mailbox.offer("hello");
+        });
+        producer.start();
+
+        Assert.assertEquals("hello", mailbox.take());
+        producer.join();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Test_ItmsOverflowPolicy {
+
+    private static final int CAPACITY = 4;
+
+    @Test
+    public void testDropNewest() {
+        var received = run(ItmsOverflowPolicy.DROP_NEWEST, 1, 2, 3, 4, 5, 6);
+        Assert.assertEquals(List.of(1, 2, 3, 4), received.messages);
+        Assert.assertEquals(2, received.stats.droppedCount);
+    }
+
+    @Test
+    public void testDropOldest() {
+        var received = run(ItmsOverflowPolicy.DROP_OLDEST, 1, 2, 3, 4, 5, 6);
+        Assert.assertEquals(List.of(3, 4, 5, 6), received.messages);
+        Assert.assertEquals(2, received.stats.droppedCount);
+        Assert.assertEquals(4, received.stats.receivedCount);
+    }
+
+    @Test
+    public void testDropUserPlane() {
+        var received = run(ItmsOverflowPolicy.DROP_USER_PLANE, 1, 2, 3, new Data(4), new Data(5), 6, new Data(7));
+        Assert.assertEquals(List.of(1, 2, 3, new Data(4), 6), received.messages);
+        Assert.assertEquals(2, received.stats.droppedCount);
+        Assert.assertEquals(CAPACITY + 1, received.stats.highWaterDepth);
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        var itms = new Itms(new ItmsThreadExecutor());
+        var gate = new CountDownLatch(1);
+        var received = new ArrayList<Object>();
+        var task = new ItmsEventTask(itms, 1) {
+            @Override
+            protected void onMessage(Object msg) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                synchronized (received) {
+                    received.add(msg);
+                }
+            }
+        };
+        task.setCapacity(CAPACITY, ItmsOverflowPolicy.BLOCK);
+        itms.createTask(task);
+        itms.startTask(task);
+
+        var done = new CountDownLatch(1);
+        var producer = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                itms.sendMessage(task, i);
+            }
+            done.countDown();
+        });
+        producer.start();
+
+        // The producer can not get ahead of the stuck task by more than the capacity.
+        Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(task.msgQueue.size() <= CAPACITY);
+
+        gate.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        producer.join();
+        Assert.assertEquals(0, task.getStats().droppedCount);
+    }
+
+    @Test
+    public void testBlockIsNotForTasks() throws Exception {
+        var itms = new Itms(new ItmsCarrierExecutor(2));
+        var gate = new CountDownLatch(1);
+        var received = new CountDownLatch(20);
+        var target = new ItmsEventTask(itms, 1) {
+            @Override
+            protected void onMessage(Object msg) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                received.countDown();
+            }
+        };
+        target.setCapacity(CAPACITY, ItmsOverflowPolicy.BLOCK);
+        var done = new CountDownLatch(1);
+        var sender = new ItmsEventTask(itms, 2) {
+            @Override
+            protected void onMessage(Object msg) {
+                for (int i = 0; i < 20; i++) {
+                    itms.sendMessage(target, i);
+                }
+                done.countDown();
+            }
+        };
+        itms.createTask(target);
+        itms.createTask(sender);
+        itms.startTask(target);
+        itms.startTask(sender);
+
+        // A task does not wait for the stuck task, the messages are queued anyway.
+        itms.sendMessage(sender, "send");
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        gate.countDown();
+        Assert.assertTrue(received.await(10, TimeUnit.SECONDS));
+        var stats = target.getStats();
+        Assert.assertEquals(0, stats.droppedCount);
+        // All but the capacity and the message being handled are beyond the capacity.
+        Assert.assertTrue(stats.exceededCount >= 20 - CAPACITY - 1 && stats.exceededCount <= 20 - CAPACITY);
+    }
+
+    @Test
+    public void testCapacityWithConcurrentSenders() throws Exception {
+        for (var policy : List.of(ItmsOverflowPolicy.DROP_NEWEST, ItmsOverflowPolicy.DROP_OLDEST)) {
+            var itms = new Itms(new ItmsThreadExecutor());
+            var received = new AtomicLong();
+            var task = new ItmsEventTask(itms, 1) {
+                @Override
+                protected void onMessage(Object msg) {
+                    received.incrementAndGet();
+                }
+            };
+            task.setCapacity(CAPACITY, policy);
+            itms.createTask(task);
+            itms.startTask(task);
+
+            var overflows = new AtomicInteger();
+            var senders = new ArrayList<Thread>();
+            for (int i = 0; i < 8; i++) {
+                senders.add(new Thread(() -> {
+                    for (int j = 0; j < 5000; j++) {
+                        itms.sendMessage(task, j);
+                        if (task.msgQueue.size() > CAPACITY || task.msgQueue.getReservedCount() > CAPACITY) {
+                            overflows.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (var sender : senders) sender.start();
+            for (var sender : senders) sender.join();
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (received.get() + task.getStats().droppedCount < 8 * 5000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            var stats = task.getStats();
+            Assert.assertEquals(0, overflows.get());
+            // The depth that the task sees includes the message that it has just taken.
+            Assert.assertTrue(stats.highWaterDepth <= CAPACITY + 1);
+            Assert.assertEquals(0, stats.exceededCount);
+            // Every message is either handled or dropped, and each overflow drops exactly one.
+            Assert.assertEquals(8 * 5000, received.get() + stats.droppedCount);
+        }
+    }
+
+    private static Received run(ItmsOverflowPolicy policy, Object... messages) {
+        var executor = new ItmsSimExecutor();
+        var itms = new Itms(executor, executor.getTimerService());
+        var received = new Received();
+        var task = new ItmsEventTask(itms, 1) {
+            @Override
+            protected void onMessage(Object msg) {
+                received.messages.add(msg);
+            }
+        };
+        task.setCapacity(CAPACITY, policy);
+        itms.createTask(task);
+        itms.startTask(task);
+
+        // Nothing is consumed until the simulation runs, so the queue fills up.
+        for (var msg : messages) {
+            itms.sendMessage(task, msg);
+        }
+        executor.runPending();
+
+        received.stats = task.getStats();
+        return received;
+    }
+
+    private static class Received {
+        final List<Object> messages = new ArrayList<>();
+        ItmsTaskStats stats;
+    }
+
+    private static class Data implements IUserPlaneMessage {
+        final int value;
+
+        Data(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Data && ((Data) obj).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Data" + value;
+        }
+    }
+}
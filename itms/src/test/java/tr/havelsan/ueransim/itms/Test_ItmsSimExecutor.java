@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class Test_ItmsSimExecutor {
+
+    private static final int TASKS = 50;
+
+    @Test
+    public void testDeterminism() {
+        var first = simulate(42);
+        var second = simulate(42);
+        var other = simulate(43);
+
+        Assert.assertTrue(first.size() > 1000);
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first, other);
+    }
+
+    @Test
+    public void testVirtualTime() {
+        var executor = new ItmsSimExecutor();
+        var timers = executor.getTimerService();
+        var expiries = new ArrayList<Long>();
+
+        timers.schedule(3_600_000, () -> expiries.add(timers.currentTimeMillis()));
+        timers.schedule(500, () -> expiries.add(timers.currentTimeMillis()));
+        timers.schedule(700, () -> expiries.add(timers.currentTimeMillis())).cancel();
+
+        long start = System.currentTimeMillis();
+        executor.runFor(1000);
+        Assert.assertEquals(List.of(500L), expiries);
+        Assert.assertEquals(1000, executor.currentTimeMillis());
+
+        executor.sleep(7_200_000);
+        Assert.assertEquals(List.of(500L, 3_600_000L), expiries);
+        Assert.assertEquals(7_201_000, executor.currentTimeMillis());
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testDriver() throws Exception {
+        var executor = new ItmsSimExecutor();
+        Assert.assertFalse(executor.canBlockProducer());
+
+        // Another thread is not the driver before the simulation runs either.
+        var results = new ArrayList<Object>();
+        var other = new Thread(() -> {
+            results.add(executor.canBlockProducer());
+            try {
+                executor.runPending();
+            } catch (IllegalStateException e) {
+                results.add(e.getMessage());
+            }
+        });
+        other.start();
+        other.join();
+        Assert.assertEquals(List.of(true, "simulation is driven by another thread"), results);
+
+        executor.setDriver(other);
+        Assert.assertTrue(executor.canBlockProducer());
+    }
+
+    private static List<String> simulate(long seed) {
+        var executor = new ItmsSimExecutor();
+        var random = new Random(seed);
+        var trace = new ArrayList<String>();
+
+        var tasks = new PingPongTask[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            var itms = new Itms(executor, executor.getTimerService());
+            tasks[i] = new PingPongTask(itms, i, tasks, random, trace);
+            itms.createTask(tasks[i]);
+            itms.startTask(tasks[i]);
+        }
+        executor.runFor(60_000);
+        return trace;
+    }
+
+    private static class PingPongTask extends ItmsEventTask {
+        private final int index;
+        private final PingPongTask[] tasks;
+        private final Random random;
+        private final List<String> trace;
+
+        PingPongTask(Itms itms, int index, PingPongTask[] tasks, Random random, List<String> trace) {
+            super(itms, 1);
+            this.index = index;
+            this.tasks = tasks;
+            this.random = random;
+            this.trace = trace;
+        }
+
+        @Override
+        protected void onStart() {
+            itms.sendMessageDelayed(taskId, index, random.nextInt(1000));
+        }
+
+        @Override
+        protected void onMessage(Object msg) {
+            trace.add(itms.getTimerService().currentTimeMillis() + ":" + index + ":" + msg);
+
+            // Either forward the token to a random task right away, or keep it for a random time.
+            var target = tasks[random.nextInt(tasks.length)];
+            if (random.nextBoolean()) {
+                target.itms.sendMessage(target, msg);
+            } else {
+                target.itms.sendMessageDelayed(target.taskId, msg, random.nextInt(1000));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+public class Test_ItmsTaskMetrics {
+
+    @Test
+    public void testStats() {
+        var executor = new ItmsSimExecutor();
+        var itms = new Itms(executor, executor.getTimerService());
+        var task = new ItmsEventTask(itms, ItmsId.UE_TASK_NAS) {
+            @Override
+            protected void onMessage(Object msg) {
+            }
+        };
+        itms.createTask(task);
+        itms.startTask(task);
+
+        for (int i = 0; i < 100; i++) {
+            itms.sendMessage(task, i);
+        }
+        itms.sendMessage(task, "text");
+
+        var before = task.getStats();
+        Assert.assertEquals(101, before.depth);
+        Assert.assertEquals(0, before.receivedCount);
+
+        executor.runPending();
+
+        ItmsMonitor.register("test-node", itms);
+        var node = ItmsMonitor.snapshot().get("test-node");
+        ItmsMonitor.unregister("test-node");
+        Assert.assertEquals(1, node.size());
+
+        var stats = node.get(ItmsId.UE_TASK_NAS);
+        Assert.assertEquals(ItmsId.UE_TASK_NAS, stats.taskId);
+        Assert.assertEquals(0, stats.depth);
+        Assert.assertEquals(101, stats.highWaterDepth);
+        Assert.assertEquals(101, stats.receivedCount);
+        Assert.assertTrue(stats.messagesPerSecond > 0);
+
+        // One of every 16 messages is sampled: 0, 16, ..., 96 are integers and none is the string.
+        Assert.assertEquals(7, stats.dwellTime.sampleCount);
+        Assert.assertEquals(7, stats.handlerTimes.get("Integer").sampleCount);
+        Assert.assertNull(stats.handlerTimes.get("String"));
+    }
+
+    @Test
+    public void testHistogram() {
+        var histogram = new ItmsHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 1e-9);
+
+        long p50 = histogram.getPercentile(50);
+        Assert.assertTrue(p50 >= 500 && p50 < 1000);
+        Assert.assertEquals(1000, histogram.getPercentile(100));
+        Assert.assertEquals(0, new ItmsHistogram().getPercentile(99));
+    }
+}
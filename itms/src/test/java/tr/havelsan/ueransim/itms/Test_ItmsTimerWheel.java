@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.itms;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Test_ItmsTimerWheel {
+
+    @Test
+    public void testExpiry() throws Exception {
+        var wheel = new ItmsTimerWheel();
+
+        // Delays that end up in different levels of the wheel
+        long[] delays = {0, 1, 7, 63, 64, 65, 130, 700, 1500, 4100};
+        var expiredAt = new AtomicLongArray(delays.length);
+        var latch = new CountDownLatch(delays.length);
+
+        for (int i = 0; i < delays.length; i++) {
+            int index = i;
+            wheel.schedule(delays[i], () -> {
+                expiredAt.set(index, wheel.currentTimeMillis());
+                latch.countDown();
+            });
+        }
+        long start = wheel.currentTimeMillis();
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < delays.length; i++) {
+            long elapsed = expiredAt.get(i) - start;
+            Assert.assertTrue("expired too early: " + delays[i], elapsed >= delays[i] - 1);
+            Assert.assertTrue("expired too late: " + delays[i], elapsed <= delays[i] + 50);
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        var wheel = new ItmsTimerWheel();
+        var fired = new AtomicLongArray(3);
+        var latch = new CountDownLatch(1);
+
+        var t1 = wheel.schedule(100, () -> fired.incrementAndGet(0));
+        var t2 = wheel.schedule(3000, () -> fired.incrementAndGet(1));
+        wheel.schedule(300, () -> {
+            fired.incrementAndGet(2);
+            latch.countDown();
+        });
+
+        Assert.assertTrue(t1.cancel());
+        Assert.assertFalse(t1.cancel());
+        Thread.sleep(50);
+        Assert.assertTrue(t2.cancel());
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        Assert.assertEquals(0, fired.get(0));
+        Assert.assertEquals(0, fired.get(1));
+        Assert.assertEquals(1, fired.get(2));
+    }
+
+    @Test
+    public void testManyTimers() throws Exception {
+        var wheel = new ItmsTimerWheel();
+        int count = 20_000;
+        var latch = new CountDownLatch(count / 2);
+        var timers = new ItmsTimer[count];
+
+        for (int i = 0; i < count; i++) {
+            timers[i] = wheel.schedule(i % 500, latch::countDown);
+        }
+        for (int i = 1; i < count; i += 2) {
+            timers[i].cancel();
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assert.assertEquals(0, latch.getCount());
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(timers[i].isPending());
+        }
+    }
+}
@@ -30,6 +30,10 @@ public final class ImplicitTypedObject {
         return Math.toIntExact(getLong(key));
     }
 
+    public double getDouble(String key) {
+        return ((Number) get(key)).doubleValue();
+    }
+
     public boolean getBool(String key) {
         return (boolean) get(key);
     }
@@ -19,8 +19,67 @@ import tr.havelsan.ueransim.utils.bits.Bit4;
 import tr.havelsan.ueransim.utils.exceptions.ReservedOrInvalidValueException;
 import tr.havelsan.ueransim.utils.octets.OctetString;
 
+import java.util.function.Supplier;
+
 public class NasDecoder {
 
+    // Message constructors indexed by the message type value
+    private static final Supplier<PlainMmMessage>[] MM_MESSAGES = newMessageTable();
+    private static final Supplier<PlainSmMessage>[] SM_MESSAGES = newMessageTable();
+
+    static {
+        MM_MESSAGES[EMessageType.AUTHENTICATION_REQUEST.intValue()] = AuthenticationRequest::new;
+        MM_MESSAGES[EMessageType.REGISTRATION_REQUEST.intValue()] = RegistrationRequest::new;
+        MM_MESSAGES[EMessageType.AUTHENTICATION_RESPONSE.intValue()] = AuthenticationResponse::new;
+        MM_MESSAGES[EMessageType.IDENTITY_REQUEST.intValue()] = IdentityRequest::new;
+        MM_MESSAGES[EMessageType.IDENTITY_RESPONSE.intValue()] = IdentityResponse::new;
+        MM_MESSAGES[EMessageType.REGISTRATION_ACCEPT.intValue()] = RegistrationAccept::new;
+        MM_MESSAGES[EMessageType.REGISTRATION_COMPLETE.intValue()] = RegistrationComplete::new;
+        MM_MESSAGES[EMessageType.AUTHENTICATION_RESULT.intValue()] = AuthenticationResult::new;
+        MM_MESSAGES[EMessageType.REGISTRATION_REJECT.intValue()] = RegistrationReject::new;
+        MM_MESSAGES[EMessageType.AUTHENTICATION_FAILURE.intValue()] = AuthenticationFailure::new;
+        MM_MESSAGES[EMessageType.AUTHENTICATION_REJECT.intValue()] = AuthenticationReject::new;
+        MM_MESSAGES[EMessageType.DEREGISTRATION_ACCEPT_UE_ORIGINATING.intValue()] = DeRegistrationAcceptUeOriginating::new;
+        MM_MESSAGES[EMessageType.DEREGISTRATION_ACCEPT_UE_TERMINATED.intValue()] = DeRegistrationAcceptUeTerminated::new;
+        MM_MESSAGES[EMessageType.DEREGISTRATION_REQUEST_UE_ORIGINATING.intValue()] = DeRegistrationRequestUeOriginating::new;
+        MM_MESSAGES[EMessageType.DEREGISTRATION_REQUEST_UE_TERMINATED.intValue()] = DeRegistrationRequestUeTerminated::new;
+        MM_MESSAGES[EMessageType.SERVICE_REQUEST.intValue()] = ServiceRequest::new;
+        MM_MESSAGES[EMessageType.SERVICE_REJECT.intValue()] = ServiceReject::new;
+        MM_MESSAGES[EMessageType.SERVICE_ACCEPT.intValue()] = ServiceAccept::new;
+        MM_MESSAGES[EMessageType.CONFIGURATION_UPDATE_COMMAND.intValue()] = ConfigurationUpdateCommand::new;
+        MM_MESSAGES[EMessageType.CONFIGURATION_UPDATE_COMPLETE.intValue()] = ConfigurationUpdateComplete::new;
+        MM_MESSAGES[EMessageType.SECURITY_MODE_COMMAND.intValue()] = SecurityModeCommand::new;
+        MM_MESSAGES[EMessageType.SECURITY_MODE_COMPLETE.intValue()] = SecurityModeComplete::new;
+        MM_MESSAGES[EMessageType.SECURITY_MODE_REJECT.intValue()] = SecurityModeReject::new;
+        MM_MESSAGES[EMessageType.FIVEG_MM_STATUS.intValue()] = FiveGMmStatus::new;
+        MM_MESSAGES[EMessageType.NOTIFICATION.intValue()] = Notification::new;
+        MM_MESSAGES[EMessageType.NOTIFICATION_RESPONSE.intValue()] = NotificationResponse::new;
+        MM_MESSAGES[EMessageType.UL_NAS_TRANSPORT.intValue()] = UlNasTransport::new;
+        MM_MESSAGES[EMessageType.DL_NAS_TRANSPORT.intValue()] = DlNasTransport::new;
+
+        SM_MESSAGES[EMessageType.PDU_SESSION_ESTABLISHMENT_REQUEST.intValue()] = PduSessionEstablishmentRequest::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_ESTABLISHMENT_ACCEPT.intValue()] = PduSessionEstablishmentAccept::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_ESTABLISHMENT_REJECT.intValue()] = PduSessionEstablishmentReject::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_AUTHENTICATION_COMMAND.intValue()] = PduSessionAuthenticationCommand::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_AUTHENTICATION_COMPLETE.intValue()] = PduSessionAuthenticationComplete::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_AUTHENTICATION_RESULT.intValue()] = PduSessionAuthenticationResult::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_MODIFICATION_REQUEST.intValue()] = PduSessionModificationRequest::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_MODIFICATION_REJECT.intValue()] = PduSessionModificationReject::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_MODIFICATION_COMMAND.intValue()] = PduSessionModificationCommand::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_MODIFICATION_COMPLETE.intValue()] = PduSessionModificationComplete::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_MODIFICATION_COMMAND_REJECT.intValue()] = PduSessionModificationCommandReject::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_RELEASE_REQUEST.intValue()] = PduSessionReleaseRequest::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_RELEASE_REJECT.intValue()] = PduSessionReleaseReject::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_RELEASE_COMMAND.intValue()] = PduSessionReleaseCommand::new;
+        SM_MESSAGES[EMessageType.PDU_SESSION_RELEASE_COMPLETE.intValue()] = PduSessionReleaseComplete::new;
+        SM_MESSAGES[EMessageType.FIVEG_SM_STATUS.intValue()] = FiveGSmStatus::new;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T>[] newMessageTable() {
+        return (Supplier<T>[]) new Supplier<?>[256];
+    }
+
     public static NasMessage nasPdu(byte[] data) {
         if (data == null) {
             return null;
@@ -75,112 +134,24 @@ public class NasDecoder {
     }
 
     private static PlainMmMessage decodePlainMmMessage(OctetInputStream stream, EMessageType messageType) {
-        PlainMmMessage message;
-
-        if (messageType.equals(EMessageType.AUTHENTICATION_REQUEST)) {
-            message = new AuthenticationRequest();
-        } else if (messageType.equals(EMessageType.REGISTRATION_REQUEST)) {
-            message = new RegistrationRequest();
-        } else if (messageType.equals(EMessageType.AUTHENTICATION_RESPONSE)) {
-            message = new AuthenticationResponse();
-        } else if (messageType.equals(EMessageType.IDENTITY_REQUEST)) {
-            message = new IdentityRequest();
-        } else if (messageType.equals(EMessageType.IDENTITY_RESPONSE)) {
-            message = new IdentityResponse();
-        } else if (messageType.equals(EMessageType.REGISTRATION_ACCEPT)) {
-            message = new RegistrationAccept();
-        } else if (messageType.equals(EMessageType.REGISTRATION_COMPLETE)) {
-            message = new RegistrationComplete();
-        } else if (messageType.equals(EMessageType.AUTHENTICATION_RESULT)) {
-            message = new AuthenticationResult();
-        } else if (messageType.equals(EMessageType.REGISTRATION_REJECT)) {
-            message = new RegistrationReject();
-        } else if (messageType.equals(EMessageType.AUTHENTICATION_FAILURE)) {
-            message = new AuthenticationFailure();
-        } else if (messageType.equals(EMessageType.AUTHENTICATION_REJECT)) {
-            message = new AuthenticationReject();
-        } else if (messageType.equals(EMessageType.DEREGISTRATION_ACCEPT_UE_ORIGINATING)) {
-            message = new DeRegistrationAcceptUeOriginating();
-        } else if (messageType.equals(EMessageType.DEREGISTRATION_ACCEPT_UE_TERMINATED)) {
-            message = new DeRegistrationAcceptUeTerminated();
-        } else if (messageType.equals(EMessageType.DEREGISTRATION_REQUEST_UE_ORIGINATING)) {
-            message = new DeRegistrationRequestUeOriginating();
-        } else if (messageType.equals(EMessageType.DEREGISTRATION_REQUEST_UE_TERMINATED)) {
-            message = new DeRegistrationRequestUeTerminated();
-        } else if (messageType.equals(EMessageType.SERVICE_REQUEST)) {
-            message = new ServiceRequest();
-        } else if (messageType.equals(EMessageType.SERVICE_REJECT)) {
-            message = new ServiceReject();
-        } else if (messageType.equals(EMessageType.SERVICE_ACCEPT)) {
-            message = new ServiceAccept();
-        } else if (messageType.equals(EMessageType.CONFIGURATION_UPDATE_COMMAND)) {
-            message = new ConfigurationUpdateCommand();
-        } else if (messageType.equals(EMessageType.CONFIGURATION_UPDATE_COMPLETE)) {
-            message = new ConfigurationUpdateComplete();
-        } else if (messageType.equals(EMessageType.SECURITY_MODE_COMMAND)) {
-            message = new SecurityModeCommand();
-        } else if (messageType.equals(EMessageType.SECURITY_MODE_COMPLETE)) {
-            message = new SecurityModeComplete();
-        } else if (messageType.equals(EMessageType.SECURITY_MODE_REJECT)) {
-            message = new SecurityModeReject();
-        } else if (messageType.equals(EMessageType.FIVEG_MM_STATUS)) {
-            message = new FiveGMmStatus();
-        } else if (messageType.equals(EMessageType.NOTIFICATION)) {
-            message = new Notification();
-        } else if (messageType.equals(EMessageType.NOTIFICATION_RESPONSE)) {
-            message = new NotificationResponse();
-        } else if (messageType.equals(EMessageType.UL_NAS_TRANSPORT)) {
-            message = new UlNasTransport();
-        } else if (messageType.equals(EMessageType.DL_NAS_TRANSPORT)) {
-            message = new DlNasTransport();
-        } else {
+        var constructor = MM_MESSAGES[messageType.intValue()];
+        if (constructor == null) {
             throw new ReservedOrInvalidValueException("Message Type", messageType);
         }
 
+        PlainMmMessage message = constructor.get();
         message = message.decodeMessage(stream);
 
         return message;
     }
 
     private static PlainSmMessage decodePlainSmMessage(OctetInputStream stream, EMessageType messageType) {
-        PlainSmMessage message;
-
-        if (messageType.equals(EMessageType.PDU_SESSION_ESTABLISHMENT_REQUEST)) {
-            message = new PduSessionEstablishmentRequest();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_ESTABLISHMENT_ACCEPT)) {
-            message = new PduSessionEstablishmentAccept();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_ESTABLISHMENT_REJECT)) {
-            message = new PduSessionEstablishmentReject();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_AUTHENTICATION_COMMAND)) {
-            message = new PduSessionAuthenticationCommand();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_AUTHENTICATION_COMPLETE)) {
-            message = new PduSessionAuthenticationComplete();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_AUTHENTICATION_RESULT)) {
-            message = new PduSessionAuthenticationResult();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_MODIFICATION_REQUEST)) {
-            message = new PduSessionModificationRequest();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_MODIFICATION_REJECT)) {
-            message = new PduSessionModificationReject();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_MODIFICATION_COMMAND)) {
-            message = new PduSessionModificationCommand();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_MODIFICATION_COMPLETE)) {
-            message = new PduSessionModificationComplete();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_MODIFICATION_COMMAND_REJECT)) {
-            message = new PduSessionModificationCommandReject();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_RELEASE_REQUEST)) {
-            message = new PduSessionReleaseRequest();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_RELEASE_REJECT)) {
-            message = new PduSessionReleaseReject();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_RELEASE_COMMAND)) {
-            message = new PduSessionReleaseCommand();
-        } else if (messageType.equals(EMessageType.PDU_SESSION_RELEASE_COMPLETE)) {
-            message = new PduSessionReleaseComplete();
-        } else if (messageType.equals(EMessageType.FIVEG_SM_STATUS)) {
-            message = new FiveGSmStatus();
-        } else {
+        var constructor = SM_MESSAGES[messageType.intValue()];
+        if (constructor == null) {
             throw new ReservedOrInvalidValueException("Message Type", messageType);
         }
 
+        PlainSmMessage message = constructor.get();
         message = message.decodeMessage(stream);
         return message;
     }
@@ -41,17 +41,28 @@ public class MockedSctpClient implements ISctpClient {
         receiving = true;
 
         while (receiving && isOpen) {
-            while (true) {
-                var entry = queue.poll();
-                if (entry == null) break;
-
-                byte[] response = new byte[entry.length];
-                for (int i = 0; i < response.length; i++) {
-                    response[i] = entry[i];
-                }
-                handler.handleSCTPMessage(response, 0);
+            receivePending(handler);
+        }
+    }
+
+    /**
+     * Passes the messages that the mocked remote has responded so far to the handler, without waiting for more.
+     * Returns the number of messages received.
+     */
+    public int receivePending(ISctpHandler handler) throws Exception {
+        int count = 0;
+        while (true) {
+            var entry = queue.poll();
+            if (entry == null) break;
+
+            byte[] response = new byte[entry.length];
+            for (int i = 0; i < response.length; i++) {
+                response[i] = entry[i];
             }
+            handler.handleSCTPMessage(response, 0);
+            count++;
         }
+        return count;
     }
 
     @Override
@@ -9,8 +9,8 @@ import tr.havelsan.ueransim.app.app.UeRanSim;
 import tr.havelsan.ueransim.app.common.simctx.AirSimContext;
 import tr.havelsan.ueransim.app.utils.ConfigUtils;
 import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsMonitor;
 import tr.havelsan.ueransim.itms.ItmsTask;
-import tr.havelsan.ueransim.utils.console.Log;
 
 public class AirNode {
 
@@ -19,16 +19,18 @@ public class AirNode {
     }
 
     public static void run(AirSimContext ctx) {
-        ctx.logger = ConfigUtils.createLoggerFor(ConfigUtils.generateNodeName(ctx));
+        var nodeName = ConfigUtils.generateNodeName(ctx);
+        ctx.logger = ConfigUtils.createLoggerFor(ctx);
 
         var itms = ctx.itms;
+        ItmsMonitor.register(nodeName, itms);
 
         var tasks = new ItmsTask[]{
                 new TunBridgeTask(itms, ItmsId.AIR_TASK_TB, ctx),
         };
 
         for (var task : tasks) {
-            Log.registerLogger(task.thread, ctx.logger);
+            task.setLogger(ctx.logger);
         }
         for (var task : tasks) {
             itms.createTask(task);
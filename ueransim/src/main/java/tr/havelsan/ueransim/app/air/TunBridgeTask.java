@@ -24,9 +24,13 @@ import java.io.IOException;
 import java.net.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class TunBridgeTask extends ItmsTask {
 
+    // Maximum number of messages handled per wake-up
+    private static final int BATCH_SIZE = 64;
+
     private final AirSimContext ctx;
     private final Map<Integer, TargetPduSession> ipRoute;
 
@@ -50,24 +54,33 @@ public class TunBridgeTask extends ItmsTask {
         try {
             bridge = new DatagramSocket(49972, localhost);
         } catch (SocketException e) {
-            Log.error(Tag.CONNECTION, "TUN Bridge connection could not established: " + e.getMessage());
-            System.exit(1);
-            return;
+            if (!ctx.sim.isShard()) {
+                Log.error(Tag.CONNECTION, "TUN Bridge connection could not established: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            // The workers on the same host share one TUN bridge, the one of the worker that binds it first.
+            Log.warning(Tag.CONNECTION, "TUN Bridge is not started, it is used by another worker: " + e.getMessage());
         }
 
-        Log.info(Tag.CONNECTION, "TUN Bridge has been started.");
+        if (bridge != null) {
+            Log.info(Tag.CONNECTION, "TUN Bridge has been started.");
 
-        var receiverThread = new Thread(this::receiverThread);
-        Log.registerLogger(receiverThread, Log.getLoggerOrDefault(thread));
-        receiverThread.start();
+            var receiverThread = new Thread(Log.withLogger(getLogger(), this::receiverThread));
+            receiverThread.start();
+        }
 
+        Consumer<Object> handler = this::handleMessage;
         while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwPduSessionEstablishment) {
-                handleSessionEstablishment((IwPduSessionEstablishment) msg);
-            } else if (msg instanceof IwDownlinkData) {
-                handleDownlinkData((IwDownlinkData) msg);
-            }
+            itms.receiveMessages(this, BATCH_SIZE, handler);
+        }
+    }
+
+    private void handleMessage(Object msg) {
+        if (msg instanceof IwPduSessionEstablishment) {
+            handleSessionEstablishment((IwPduSessionEstablishment) msg);
+        } else if (msg instanceof IwDownlinkData) {
+            handleDownlinkData((IwDownlinkData) msg);
         }
     }
 
@@ -132,7 +145,7 @@ public class TunBridgeTask extends ItmsTask {
 
         var ue = ctx.sim.findUe(target.ueId);
         if (ue == null) {
-            Log.error(Tag.TUN, "UE with id '%s' not found.", target.ueId);
+            Log.error(Tag.TUN, "UE with handle %d not found.", target.ueId);
             return;
         }
 
@@ -140,6 +153,9 @@ public class TunBridgeTask extends ItmsTask {
     }
 
     private void handleDownlinkData(IwDownlinkData msg) {
+        if (bridge == null)
+            return;
+
         var data = msg.ipPacket.toByteArray();
         var pck = new DatagramPacket(data, data.length, localhost, 49971);
 
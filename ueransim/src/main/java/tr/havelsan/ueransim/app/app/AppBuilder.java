@@ -7,25 +7,42 @@ package tr.havelsan.ueransim.app.app;
 
 import tr.havelsan.ueransim.app.app.listeners.INodeMessagingListener;
 import tr.havelsan.ueransim.app.app.listeners.LoadTestMessagingListener;
+import tr.havelsan.ueransim.app.app.stats.ResultSink;
+import tr.havelsan.ueransim.app.common.configs.ArrivalConfig;
 import tr.havelsan.ueransim.app.common.configs.LoadTestConfig;
+import tr.havelsan.ueransim.app.common.enums.EArrivalProcess;
+import tr.havelsan.ueransim.app.common.enums.EExecutionMode;
+import tr.havelsan.ueransim.app.common.enums.EUeDistribution;
 import tr.havelsan.ueransim.app.common.testcmd.TestCmd;
 import tr.havelsan.ueransim.app.utils.ConfigUtils;
 import tr.havelsan.ueransim.app.utils.MtsInitializer;
+import tr.havelsan.ueransim.itms.Itms;
+import tr.havelsan.ueransim.itms.ItmsCarrierExecutor;
+import tr.havelsan.ueransim.itms.ItmsExecutor;
+import tr.havelsan.ueransim.itms.ItmsOverflowPolicy;
+import tr.havelsan.ueransim.itms.ItmsSimExecutor;
+import tr.havelsan.ueransim.itms.ItmsThreadExecutor;
+import tr.havelsan.ueransim.itms.ItmsVirtualThreadExecutor;
 import tr.havelsan.ueransim.mts.ImplicitTypedObject;
 import tr.havelsan.ueransim.mts.MtsContext;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+import tr.havelsan.ueransim.utils.Utils;
+import tr.havelsan.ueransim.utils.console.AsyncLogAppender;
 import tr.havelsan.ueransim.utils.console.BaseConsole;
+import tr.havelsan.ueransim.utils.console.BinaryEventLog;
 import tr.havelsan.ueransim.utils.console.Console;
 import tr.havelsan.ueransim.utils.console.Log;
 import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.console.ShardedLogStore;
 import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,7 +51,16 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class AppBuilder {
 
     private static final AtomicBoolean isBuilt = new AtomicBoolean(false);
+    private static final DateTimeFormatter LOG_DIRECTORY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
     private final List<INodeMessagingListener> messagingListeners;
+    private String profile;
+    private Integer numberOfUes;
+    private ArrivalConfig arrival;
+    private String resultsDirectory;
+    private boolean isShard;
+    private int shardIndex;
+    private long supiOffset;
+    private double rateFactor = 1;
 
     public AppBuilder() {
         this.messagingListeners = new ArrayList<>();
@@ -49,6 +75,52 @@ public class AppBuilder {
         return this;
     }
 
+    /**
+     * Uses the given profile instead of the selected profile of profile.yaml.
+     */
+    public AppBuilder setProfile(String profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    /**
+     * Uses the given number of UEs instead of the one in testing.yaml.
+     */
+    public AppBuilder setNumberOfUes(int numberOfUes) {
+        this.numberOfUes = numberOfUes;
+        return this;
+    }
+
+    /**
+     * Uses the given arrival process instead of the one in testing.yaml.
+     */
+    public AppBuilder setArrival(ArrivalConfig arrival) {
+        this.arrival = arrival;
+        return this;
+    }
+
+    /**
+     * Uses the given results directory instead of the one in testing.yaml.
+     */
+    public AppBuilder setResultsDirectory(String resultsDirectory) {
+        this.resultsDirectory = resultsDirectory;
+        return this;
+    }
+
+    /**
+     * Makes this process the given shard of a coordinated run, see
+     * {@link tr.havelsan.ueransim.app.app.shard.ShardCoordinator}. The SUPIs start at the given offset after the one
+     * in ue.yaml, and the gNB IDs at the shard index times the number of gNBs, so that the shards do not overlap.
+     * The arrival rates are multiplied by the given factor, the share of this process in the run.
+     */
+    public AppBuilder setShard(int shardIndex, long supiOffset, double rateFactor) {
+        this.isShard = true;
+        this.shardIndex = shardIndex;
+        this.supiOffset = supiOffset;
+        this.rateFactor = rateFactor;
+        return this;
+    }
+
     //======================================================================================================
     //                                          BUILDER
     //======================================================================================================
@@ -60,19 +132,131 @@ public class AppBuilder {
         new File("logs").mkdir();
 
         ConfigUtils.loggingToFile(Logger.GLOBAL, Logger.GLOBAL.getLoggerName(), true);
-        Log.registerLogger(Thread.currentThread(), Logger.GLOBAL);
+        Log.bind(Logger.GLOBAL);
 
         Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: All global logs are written to: logs/%s.log", Logger.GLOBAL.getLoggerName());
-        Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: All logs of UEs and gNBs are written to their own log files: logs/*");
         Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: All load testing logs are written to: logs/loadtest.log");
 
+        configureLogging();
+
+        var appConfig = new AppConfig(profile);
         var loadTestConsole = createLoadTestingConsole();
         var testCases = createTestCases();
         var loadTesting = createLoadTestingConfig();
 
-        this.messagingListeners.add(new LoadTestMessagingListener(loadTestConsole));
+        var executor = createExecutor(loadTesting);
+        Itms.setDefaultExecutor(executor);
+        if (executor instanceof ItmsSimExecutor) {
+            var simulation = (ItmsSimExecutor) executor;
+            Itms.setDefaultTimerService(simulation.getTimerService());
+            Utils.setClock(simulation);
+        }
+
+        Itms.setDefaultCapacity(loadTesting.queueCapacity, loadTesting.overflowPolicy);
+        if (loadTesting.queueCapacity > 0) {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: ITMS queue capacity: %d (%s)", loadTesting.queueCapacity, loadTesting.overflowPolicy);
+        }
+        if (executor.getCarrierCount() > 0) {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: ITMS execution mode: %s (%d carrier threads)", executor.getName(), executor.getCarrierCount());
+        } else {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: ITMS execution mode: %s", executor.getName());
+        }
+
+        var loadTestListener = new LoadTestMessagingListener(loadTestConsole, loadTesting.numberOfUes, Itms.getDefaultTimerService());
+
+        ResultSink resultSink;
+        try {
+            resultSink = new ResultSink(Paths.get(loadTesting.resultsDirectory), loadTestListener,
+                    Itms.getDefaultTimerService(), loadTesting.numberOfUes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(resultSink::close));
+        Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: Load testing results are written to: %s", resultSink.getDirectory());
+
+        return new UeRanSim(appConfig, messagingListeners, loadTestListener, resultSink, testCases, loadTesting);
+    }
+
+    private void configureLogging() {
+        var testingMts = new MtsContext();
+        MtsInitializer.initTestingMts(testingMts);
+        testingMts.setTypeKeyword("@cmd");
+        var testing = (ImplicitTypedObject) testingMts.decoder.decode("config/testing.yaml");
+
+        var logging = (ImplicitTypedObject) testing.get("logging");
+        if (logging != null && logging.get("store") != null) {
+            configureLogStore((ImplicitTypedObject) logging.get("store"));
+        } else {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: All logs of UEs and gNBs are written to their own log files: logs/*. Set logging.store in testing.yaml for large numbers of UEs.");
+        }
+        if (logging != null && logging.get("event-log") != null) {
+            configureEventLog((ImplicitTypedObject) logging.get("event-log"));
+        }
+
+        if (logging == null)
+            return;
+
+        if (logging.get("max-open-files") != null) {
+            AsyncLogAppender.getDefault().setMaxOpenFiles(logging.getInt("max-open-files"));
+        }
+
+        if (logging.get("min-severity") != null) {
+            Logger.setDefaultMinSeverity(Severity.valueOf(logging.getString("min-severity")));
+        }
+        if (logging.get("tags") != null) {
+            for (var entry : ((ImplicitTypedObject) logging.get("tags")).getParameters().entrySet()) {
+                Logger.setDefaultMinSeverity(Tag.valueOf(entry.getKey()), Severity.valueOf((String) entry.getValue()));
+            }
+        }
+        if (logging.get("loggers") != null) {
+            for (var entry : ((ImplicitTypedObject) logging.get("loggers")).getParameters().entrySet()) {
+                ConfigUtils.setMinSeverity(entry.getKey(), Severity.valueOf((String) entry.getValue()));
+            }
+        }
+        ConfigUtils.applyMinSeverity(Logger.GLOBAL);
+    }
+
+    private void configureEventLog(ImplicitTypedObject eventLog) {
+        long segmentSize = 64;
+        if (eventLog.get("segment-size-mb") != null) {
+            segmentSize = eventLog.getLong("segment-size-mb");
+        }
+
+        var directory = logDirectory("events");
+        BinaryEventLog log;
+        try {
+            log = new BinaryEventLog(directory, Math.toIntExact(segmentSize * 1024 * 1024));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        ConfigUtils.setEventLog(log);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+        Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: NAS and NGAP dumps of UEs and gNBs are recorded to the event log: %s", directory);
+    }
+
+    private void configureLogStore(ImplicitTypedObject store) {
+        int shards = 8;
+        if (store.get("shards") != null) {
+            shards = store.getInt("shards");
+        }
+        long maxFileSize = 256;
+        if (store.get("max-file-size-mb") != null) {
+            maxFileSize = store.getLong("max-file-size-mb");
+        }
+
+        var directory = logDirectory("nodes");
+        ConfigUtils.setLogStore(new ShardedLogStore(AsyncLogAppender.getDefault(), directory, shards,
+                maxFileSize * 1024 * 1024));
+        Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: All logs of UEs and gNBs are written to the log store: %s", directory);
+    }
 
-        return new UeRanSim(messagingListeners, testCases, loadTesting);
+    /**
+     * Returns a new directory under the logs with the given prefix, the start time and the process ID. The workers
+     * of a coordinated run on the same host have directories of their own.
+     */
+    private static Path logDirectory(String prefix) {
+        return Paths.get("logs", prefix + "-" + LocalDateTime.now().format(LOG_DIRECTORY_FORMAT) + "-"
+                + ProcessHandle.current().pid());
     }
 
     private LoadTestConfig createLoadTestingConfig() {
@@ -81,7 +265,141 @@ public class AppBuilder {
         testingMts.setTypeKeyword("@cmd");
         var testing = (ImplicitTypedObject) testingMts.decoder.decode("config/testing.yaml");
 
-        return new LoadTestConfig(((ImplicitTypedObject) testing.get("load-testing")).getInt("number-of-UE"));
+        var loadTesting = (ImplicitTypedObject) testing.get("load-testing");
+
+        int numberOfGnbs = 1;
+        if (loadTesting.get("number-of-gNB") != null) {
+            numberOfGnbs = loadTesting.getInt("number-of-gNB");
+        }
+
+        var ueDistribution = EUeDistribution.ROUND_ROBIN;
+        if (loadTesting.get("ue-distribution") != null) {
+            ueDistribution = EUeDistribution.valueOf(loadTesting.getString("ue-distribution"));
+        }
+
+        var weights = loadTesting.get("gnb-weights") != null ? (Object[]) loadTesting.get("gnb-weights") : new Object[0];
+        var gnbWeights = new int[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            gnbWeights[i] = ((Number) weights[i]).intValue();
+        }
+
+        var executionMode = EExecutionMode.CARRIER;
+        if (loadTesting.get("execution-mode") != null) {
+            executionMode = EExecutionMode.valueOf(loadTesting.getString("execution-mode"));
+        }
+
+        int carrierThreads = 0;
+        if (loadTesting.get("carrier-threads") != null) {
+            carrierThreads = loadTesting.getInt("carrier-threads");
+        }
+
+        long simulationSeed = 0;
+        if (loadTesting.get("simulation-seed") != null) {
+            simulationSeed = loadTesting.getInt("simulation-seed");
+        }
+        // The shards of a coordinated run do not repeat each other's random numbers.
+        simulationSeed += shardIndex;
+
+        int queueCapacity = 0;
+        if (loadTesting.get("queue-capacity") != null) {
+            queueCapacity = loadTesting.getInt("queue-capacity");
+        }
+
+        var overflowPolicy = ItmsOverflowPolicy.DROP_USER_PLANE;
+        if (loadTesting.get("queue-overflow-policy") != null) {
+            overflowPolicy = ItmsOverflowPolicy.valueOf(loadTesting.getString("queue-overflow-policy"));
+        }
+
+        int eventRingCapacity = 65536;
+        if (loadTesting.get("event-ring-capacity") != null) {
+            eventRingCapacity = loadTesting.getInt("event-ring-capacity");
+        }
+
+        ArrivalConfig arrival;
+        if (this.arrival != null) {
+            arrival = this.arrival;
+        } else if (loadTesting.get("arrival") != null) {
+            arrival = createArrivalConfig((ImplicitTypedObject) loadTesting.get("arrival"));
+        } else {
+            arrival = new ArrivalConfig(EArrivalProcess.IMMEDIATE, 0, 0, 0, new double[0], new double[0], 0, 30000);
+        }
+        if (rateFactor != 1) {
+            arrival = arrival.scaled(rateFactor);
+        }
+
+        var resultsDirectory = "results";
+        if (this.resultsDirectory != null) {
+            resultsDirectory = this.resultsDirectory;
+        } else if (loadTesting.get("results-directory") != null) {
+            resultsDirectory = loadTesting.getString("results-directory");
+        }
+
+        int numberOfUes = this.numberOfUes != null ? this.numberOfUes : loadTesting.getInt("number-of-UE");
+
+        return new LoadTestConfig(numberOfUes, numberOfGnbs, ueDistribution, gnbWeights, executionMode, carrierThreads,
+                simulationSeed, queueCapacity, overflowPolicy, eventRingCapacity, arrival, resultsDirectory, supiOffset,
+                shardIndex * numberOfGnbs, isShard);
+    }
+
+    private ArrivalConfig createArrivalConfig(ImplicitTypedObject arrival) {
+        var process = EArrivalProcess.valueOf(arrival.getString("process"));
+
+        double rate = 0;
+        if (arrival.get("rate") != null) {
+            rate = arrival.getDouble("rate");
+        }
+
+        double rampStartRate = 0;
+        if (arrival.get("ramp-start-rate") != null) {
+            rampStartRate = arrival.getDouble("ramp-start-rate");
+        }
+
+        double rampDuration = 0;
+        if (arrival.get("ramp-duration") != null) {
+            rampDuration = arrival.getDouble("ramp-duration");
+        }
+
+        var steps = arrival.get("steps") != null ? (Object[]) arrival.get("steps") : new Object[0];
+        var stepDurations = new double[steps.length];
+        var stepRates = new double[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            var step = (ImplicitTypedObject) steps[i];
+            stepDurations[i] = step.getDouble("duration");
+            stepRates[i] = step.getDouble("rate");
+        }
+
+        int maxInFlight = 0;
+        if (arrival.get("max-in-flight") != null) {
+            maxInFlight = arrival.getInt("max-in-flight");
+        }
+
+        int inFlightTimeout = 30000;
+        if (arrival.get("in-flight-timeout") != null) {
+            inFlightTimeout = arrival.getInt("in-flight-timeout");
+        }
+
+        return new ArrivalConfig(process, rate, rampStartRate, rampDuration, stepDurations, stepRates, maxInFlight,
+                inFlightTimeout);
+    }
+
+    private ItmsExecutor createExecutor(LoadTestConfig loadTesting) {
+        int carriers = loadTesting.carrierThreads > 0 ? loadTesting.carrierThreads : Runtime.getRuntime().availableProcessors();
+
+        switch (loadTesting.executionMode) {
+            case THREAD:
+                return new ItmsThreadExecutor();
+            case SIMULATION:
+                return new ItmsSimExecutor();
+            case VIRTUAL:
+                if (ItmsVirtualThreadExecutor.isSupported()) {
+                    return new ItmsVirtualThreadExecutor(carriers);
+                }
+                Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: Virtual threads are not supported by this Java runtime, using carrier mode instead");
+                return new ItmsCarrierExecutor(carriers);
+            case CARRIER:
+            default:
+                return new ItmsCarrierExecutor(carriers);
+        }
     }
 
     private LinkedHashMap<String, List<TestCmd>> createTestCases() {
@@ -108,15 +426,7 @@ public class AppBuilder {
     private BaseConsole createLoadTestingConsole() {
         var loadTestConsole = new BaseConsole();
         loadTestConsole.setStandardPrintEnabled(false);
-        loadTestConsole.addPrintHandler(str -> {
-            final Path path = Paths.get("logs/loadtest.log");
-            try {
-                Files.write(path, str.getBytes(StandardCharsets.UTF_8),
-                        Files.exists(path) ? StandardOpenOption.APPEND : StandardOpenOption.CREATE);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        loadTestConsole.addPrintHandler(AsyncLogAppender.getDefault().open(Paths.get("logs/loadtest.log"))::appendText);
         loadTestConsole.printDiv();
         return loadTestConsole;
     }
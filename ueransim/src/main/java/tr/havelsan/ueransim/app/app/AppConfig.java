@@ -6,6 +6,7 @@
 package tr.havelsan.ueransim.app.app;
 
 import tr.havelsan.ueransim.app.common.configs.GnbConfig;
+import tr.havelsan.ueransim.app.common.configs.MockCoreConfig;
 import tr.havelsan.ueransim.app.common.configs.UeConfig;
 import tr.havelsan.ueransim.app.utils.MtsInitializer;
 import tr.havelsan.ueransim.mts.ImplicitTypedObject;
@@ -18,17 +19,27 @@ public class AppConfig {
 
     public final MtsContext mts;
     private final String profile;
+    private final ImplicitTypedObject general;
 
     public AppConfig() {
+        this(null);
+    }
+
+    /**
+     * Creates the configuration of the given profile, or of the selected profile in profile.yaml if it is null.
+     */
+    public AppConfig(String profile) {
         this.mts = new MtsContext();
         MtsInitializer.initDefaultMts(this.mts);
 
-        var root = (ImplicitTypedObject) mts.decoder.decode("config/profile.yaml");
-        var profile = root.getString("selected-profile");
+        if (profile == null) {
+            var root = (ImplicitTypedObject) mts.decoder.decode("config/profile.yaml");
+            profile = root.getString("selected-profile");
+        }
         this.profile = "config/" + profile + "/";
         Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: Selected profile: \"%s\"", profile);
 
-        var general = (ImplicitTypedObject) mts.decoder.decode(this.profile + "general.yaml");
+        this.general = (ImplicitTypedObject) mts.decoder.decode(this.profile + "general.yaml");
         Constants.USE_LONG_MNC = general.getBool("use-long-mnc");
         Constants.TREAT_ERRORS_AS_FATAL = general.getBool("treat-errors-as-fatal");
     }
@@ -40,4 +51,16 @@ public class AppConfig {
     public UeConfig createUeConfig() {
         return mts.constructor.construct(UeConfig.class, ((ImplicitTypedObject) mts.decoder.decode(profile + "ue.yaml")), true);
     }
+
+    /**
+     * Returns the configuration of the in-process core network, or null if the profile uses a real core network.
+     */
+    public MockCoreConfig createMockCoreConfig() {
+        if (general.get("mock-core") == null)
+            return null;
+        var mockCore = (ImplicitTypedObject) general.get("mock-core");
+        var subscription = createUeConfig();
+        return new MockCoreConfig(subscription.key, subscription.op, subscription.amf,
+                mockCore.getString("upf-address"), mockCore.getString("ue-address-pool"));
+    }
 }
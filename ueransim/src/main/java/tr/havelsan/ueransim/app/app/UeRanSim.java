@@ -7,25 +7,39 @@ package tr.havelsan.ueransim.app.app;
 
 import tr.havelsan.ueransim.app.air.AirNode;
 import tr.havelsan.ueransim.app.app.listeners.INodeMessagingListener;
+import tr.havelsan.ueransim.app.app.listeners.LoadTestMessagingListener;
+import tr.havelsan.ueransim.app.app.listeners.MessagingEventBus;
+import tr.havelsan.ueransim.app.app.load.LoadGenerator;
+import tr.havelsan.ueransim.app.app.load.UeDistributor;
+import tr.havelsan.ueransim.app.app.stats.ResultSink;
 import tr.havelsan.ueransim.app.common.Supi;
+import tr.havelsan.ueransim.app.common.configs.GnbConfig;
 import tr.havelsan.ueransim.app.common.configs.LoadTestConfig;
 import tr.havelsan.ueransim.app.common.configs.UeConfig;
+import tr.havelsan.ueransim.app.common.enums.EExecutionMode;
 import tr.havelsan.ueransim.app.common.itms.IwUeTestCommand;
 import tr.havelsan.ueransim.app.common.simctx.AirSimContext;
 import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
+import tr.havelsan.ueransim.app.common.simctx.SimContextTable;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.app.common.testcmd.*;
 import tr.havelsan.ueransim.app.gnb.GnbNode;
 import tr.havelsan.ueransim.app.gnb.app.GnbAppTask;
+import tr.havelsan.ueransim.app.gnb.sctp.MockCore;
 import tr.havelsan.ueransim.app.ue.UeNode;
+import tr.havelsan.ueransim.itms.Itms;
 import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsSimExecutor;
 import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.Utils;
+import tr.havelsan.ueransim.utils.console.Console;
 import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
 
 import java.math.BigInteger;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class UeRanSim {
 
@@ -34,20 +48,60 @@ public class UeRanSim {
     private final LoadTestConfig loadTesting;
     private final HashMap<UUID, GnbSimContext> gnbMap;
     private final HashMap<UUID, UeSimContext> ueMap;
+    private final ItmsSimExecutor simulation;
+    private final Random idRandom;
+    private final LoadGenerator loadGenerator;
     private final AirSimContext airCtx;
+    private final SimContextTable contextTable;
+    // Listeners that are triggered on the thread of the message, and the ones that are triggered by the event bus
     private final List<INodeMessagingListener> messagingListeners;
+    private final MessagingEventBus eventBus;
+    private final LoadTestMessagingListener loadTestListener;
+    private final ResultSink resultSink;
+    private final MockCore mockCore;
 
-    UeRanSim(List<INodeMessagingListener> messagingListeners,
+    UeRanSim(AppConfig appConfig,
+             List<INodeMessagingListener> messagingListeners,
+             LoadTestMessagingListener loadTestListener,
+             ResultSink resultSink,
              LinkedHashMap<String, List<TestCmd>> testCases,
              LoadTestConfig loadTesting) {
 
         this.testCases = testCases;
+        this.loadTestListener = loadTestListener;
+        this.resultSink = resultSink;
         this.loadTesting = loadTesting;
-        this.appConfig = new AppConfig();
-        this.gnbMap = new HashMap<>();
-        this.ueMap = new HashMap<>();
-        this.messagingListeners = new ArrayList<>(messagingListeners);
+        this.appConfig = appConfig;
+        this.gnbMap = new LinkedHashMap<>();
+        this.contextTable = new SimContextTable();
+        this.ueMap = new LinkedHashMap<>();
+        this.simulation = loadTesting.executionMode == EExecutionMode.SIMULATION ? (ItmsSimExecutor) Itms.getDefaultExecutor() : null;
+        this.idRandom = simulation != null ? new Random(loadTesting.simulationSeed) : null;
+        // The load testing measurements and the arrivals cannot afford dropped events, and they are cheap enough to
+        // run on the task threads. The simulation triggers all listeners in order, to be repeatable.
+        this.messagingListeners = new ArrayList<>();
+        this.messagingListeners.add(loadTestListener);
+        if (simulation != null || messagingListeners.isEmpty()) {
+            this.messagingListeners.addAll(messagingListeners);
+            this.eventBus = null;
+        } else {
+            this.eventBus = new MessagingEventBus(messagingListeners, loadTesting.eventRingCapacity);
+            this.eventBus.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(eventBus::stop, "messaging-event-bus-shutdown"));
+        }
+        this.loadGenerator = new LoadGenerator(loadTesting.arrival, Itms.getDefaultTimerService(), simulation,
+                simulation != null ? new Random(loadTesting.simulationSeed) : new Random(), loadTestListener::discard);
+        this.messagingListeners.add(loadGenerator);
+
+        var mockCoreConfig = appConfig.createMockCoreConfig();
+        this.mockCore = mockCoreConfig == null ? null : new MockCore(mockCoreConfig,
+                simulation != null ? new Random(loadTesting.simulationSeed) : new Random());
+        if (mockCore != null) {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: The core network is mocked in-process.");
+        }
+
         this.airCtx = AirNode.createContext(this);
+        contextTable.put(airCtx);
         AirNode.run(airCtx);
 
         initialize();
@@ -56,29 +110,112 @@ public class UeRanSim {
     private void initialize() {
         var numberOfUe = loadTesting.numberOfUes;
 
-        var gnbContext = GnbNode.createContext(this, appConfig.createGnbConfig());
-        gnbMap.put(gnbContext.ctxId, gnbContext);
-        GnbNode.run(gnbContext);
+        long startTime = System.nanoTime();
+
+        // The gNBs are all started before waiting, so that their NG Setups run concurrently.
+        var gnbTemplate = appConfig.createGnbConfig();
+        var gnbContexts = new GnbSimContext[loadTesting.numberOfGnbs];
+        for (int i = 0; i < gnbContexts.length; i++) {
+            gnbContexts[i] = GnbNode.createContext(this, nthGnbConfig(gnbTemplate, loadTesting.gnbOffset + i));
+            synchronized (this) {
+                gnbMap.put(gnbContexts[i].ctxId, gnbContexts[i]);
+            }
+            contextTable.put(gnbContexts[i]);
+        }
+        for (var gnbContext : gnbContexts) {
+            GnbNode.run(gnbContext);
+        }
 
-        while (!((GnbAppTask) gnbContext.itms.findTask(ItmsId.GNB_TASK_APP)).isInitialSctpReady()) {
-            // just wait until the gNB says my initial SCTP connection is ready.
-            Utils.sleep(100);
+        for (var gnbContext : gnbContexts) {
+            while (!((GnbAppTask) gnbContext.itms.findTask(ItmsId.GNB_TASK_APP)).isInitialSctpReady()) {
+                // just wait until the gNB says my initial SCTP connection is ready.
+                Utils.sleep(100);
+            }
         }
+        long gnbTime = System.nanoTime();
+
+        // The UE configurations only differ in SUPI, so ue.yaml is parsed once.
+        var template = appConfig.createUeConfig();
+        long templateTime = System.nanoTime();
+
+        var configs = new UeConfig[numberOfUe];
+        IntStream.range(0, numberOfUe).parallel().forEach(i -> {
+            configs[i] = new UeConfig(template.key, template.op, template.amf, template.imei,
+                    nthSupi(template.supi, loadTesting.supiOffset + i), template.plmn, template.smsOverNasSupported,
+                    template.requestedNssai, template.dnn);
+        });
+        long configTime = System.nanoTime();
 
+        // The IDs and handles are taken serially, so that they do not depend on the thread scheduling in the
+        // simulation.
+        var ids = new UUID[numberOfUe];
+        var handles = new int[numberOfUe];
         for (int i = 0; i < numberOfUe; i++) {
-            var ref = appConfig.createUeConfig();
-            var imsiNumber = Utils.padLeft(new BigInteger(ref.supi.value).add(BigInteger.valueOf(i)).toString(), 15, '0');
-            var supi = new Supi("imsi", imsiNumber).toString();
-            var config = new UeConfig(ref.key, ref.op, ref.amf, ref.imei, Supi.parse(supi), ref.plmn,
-                    ref.smsOverNasSupported, ref.requestedNssai, ref.dnn);
+            ids[i] = newContextId();
+            handles[i] = allocateHandle();
+        }
+        var distributor = new UeDistributor(loadTesting.ueDistribution, gnbContexts.length, loadTesting.gnbWeights);
+        var contexts = new UeSimContext[numberOfUe];
+        IntStream.range(0, numberOfUe).parallel().forEach(i -> {
+            contexts[i] = UeNode.createContext(this, configs[i], ids[i], handles[i]);
+            contexts[i].index = i;
+            contexts[i].connectedGnb = gnbContexts[distributor.gnbIndexOf(i, configs[i].supi)].handle;
+            contextTable.put(contexts[i]);
+        });
+        synchronized (this) {
+            for (var ueContext : contexts) {
+                ueMap.put(ueContext.ctxId, ueContext);
+            }
+        }
+        long contextTime = System.nanoTime();
 
-            var ueContext = UeNode.createContext(this, config);
+        // The tasks of a UE are started when it receives its first test command, see LoadGenerator.
+        Console.println(AnsiPalette.PAINT_IMPORTANT_INFO,
+                "INFO: Bootstrap of %d UEs and %d gNBs: gNBs ready %d ms, UE template %d ms, UE configs %d ms, UE contexts %d ms",
+                numberOfUe, gnbContexts.length, millis(startTime, gnbTime), millis(gnbTime, templateTime),
+                millis(templateTime, configTime), millis(configTime, contextTime));
+    }
 
-            ueMap.put(ueContext.ctxId, ueContext);
-            UeNode.run(ueContext);
+    /**
+     * Returns the configuration of the gNB with the given index, where the gNB ID and the GTP port are incremented by
+     * the index. The NCI starts with the new gNB ID and keeps the cell ID of the template.
+     */
+    static GnbConfig nthGnbConfig(GnbConfig template, int n) {
+        int nciLength = template.nci.bitLength();
+        int cellIdLength = nciLength - template.gnbIdLength;
+        long gnbId = (template.gnbId + n) & ((1L << template.gnbIdLength) - 1);
+        long nci = (gnbId << cellIdLength) | (template.nci.longValue() & ((1L << cellIdLength) - 1));
+        return new GnbConfig((int) gnbId, template.tac, Utils.padLeft(Long.toBinaryString(nci), nciLength, '0'),
+                template.gnbPlmn, template.amfConfigs, template.supportedTAs, template.ignoreStreamIds,
+                template.host, template.gtpPort + n, template.gnbIdLength);
+    }
 
-            ueContext.connectedGnb = gnbContext.ctxId;
+    /**
+     * Returns the SUPI that is the given number after the template SUPI. The IMSI is kept as 15 digits.
+     */
+    private static Supi nthSupi(Supi template, long n) {
+        String imsi;
+        if (template.value.length() < 19) {
+            imsi = Long.toString(Long.parseLong(template.value) + n);
+        } else {
+            imsi = new BigInteger(template.value).add(BigInteger.valueOf(n)).toString();
         }
+        return new Supi("imsi", Utils.padLeft(imsi, 15, '0'));
+    }
+
+    private static long millis(long startNanos, long endNanos) {
+        return (endNanos - startNanos) / 1_000_000;
+    }
+
+    /**
+     * Sends a test command to all UEs at the arrival rate of the load testing configuration.
+     */
+    private void sendToAllUes(TestCmd command) {
+        List<UeSimContext> ues;
+        synchronized (this) {
+            ues = new ArrayList<>(ueMap.values());
+        }
+        loadGenerator.run(command, ues);
     }
 
     public String[] testCaseNames() {
@@ -90,6 +227,10 @@ public class UeRanSim {
         if (testCmds == null) {
             throw new RuntimeException("test case not found: " + testName);
         }
+        if (simulation != null) {
+            // The thread that runs the test case drives the simulation, e.g. a thread of the web interface.
+            simulation.setDriver(Thread.currentThread());
+        }
 
         for (var command : testCmds) {
             if (command instanceof TestCmd_Sleep) {
@@ -102,17 +243,90 @@ public class UeRanSim {
                     Utils.sleep(cmd.duration * 1000);
                 }
             } else if (command instanceof TestCmd_InitialRegistration) {
-                ueMap.values().forEach(ue -> ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command)));
+                sendToAllUes(command);
             } else if (command instanceof TestCmd_PeriodicRegistration) {
-                ueMap.values().forEach(ue -> ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command)));
+                sendToAllUes(command);
             } else if (command instanceof TestCmd_Deregistration) {
-                ueMap.values().forEach(ue -> ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command)));
+                sendToAllUes(command);
             } else if (command instanceof TestCmd_PduSessionEstablishment) {
-                ueMap.values().forEach(ue -> ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command)));
+                sendToAllUes(command);
             } else if (command instanceof TestCmd_Ping) {
-                ueMap.values().forEach(ue -> ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command)));
+                sendToAllUes(command);
+            }
+        }
+
+        if (simulation != null) {
+            // Nothing runs by itself in the simulation, so let the commands that are not followed by a sleep be handled.
+            simulation.runPending();
+        }
+
+        loadTestListener.printSummary();
+        resultSink.writeSummary();
+
+        long dropped = getDroppedEventCount();
+        if (dropped > 0) {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: %d messaging events are dropped, the listeners are slower than the nodes", dropped);
+        }
+    }
+
+    /**
+     * Returns true if the tasks are run by a deterministic simulation on a virtual clock instead of real threads.
+     */
+    public boolean isSimulation() {
+        return simulation != null;
+    }
+
+    /**
+     * Returns true if this process is a worker of a coordinated run, see
+     * {@link tr.havelsan.ueransim.app.app.shard.ShardCoordinator}.
+     */
+    public boolean isShard() {
+        return loadTesting.isShard;
+    }
+
+    /**
+     * Returns the in-process core network that the gNBs connect to instead of the configured AMFs, or null if the
+     * core network is not mocked.
+     */
+    public MockCore getMockCore() {
+        return mockCore;
+    }
+
+    /**
+     * Returns an ID for a new UE, gNB or air context. The IDs are random, but in the simulation they only depend
+     * on the simulation seed so that a run can be repeated exactly.
+     */
+    public UUID newContextId() {
+        synchronized (this) {
+            if (idRandom != null) {
+                return new UUID(idRandom.nextLong(), idRandom.nextLong());
             }
         }
+        return UUID.randomUUID();
+    }
+
+    /**
+     * Returns a handle for a new UE, gNB or air context, see {@link SimContextTable}.
+     */
+    public int allocateHandle() {
+        return contextTable.allocate();
+    }
+
+    /**
+     * Returns the UE with the given handle, or null. Unlike the lookup by ID, this does not lock, so it is the one
+     * to use for the messages between the nodes.
+     */
+    public UeSimContext findUe(int handle) {
+        var ctx = contextTable.get(handle);
+        return ctx instanceof UeSimContext ? (UeSimContext) ctx : null;
+    }
+
+    /**
+     * Returns the gNB with the given handle, or null, see {@link #findUe(int)}.
+     */
+    public GnbSimContext findGnb(int handle) {
+        var ctx = contextTable.get(handle);
+        return ctx instanceof GnbSimContext ? (GnbSimContext) ctx : null;
     }
 
     public UeSimContext findUe(UUID id) {
@@ -147,19 +361,42 @@ public class UeRanSim {
         return res;
     }
 
+    public LoadTestMessagingListener getLoadTestListener() {
+        return loadTestListener;
+    }
+
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
     public AirSimContext getAirCtx() {
         return airCtx;
     }
 
     public void triggerOnSend(BaseSimContext ctx, Object msg) {
+        long time = Utils.currentTimeMillis();
         for (var listener : messagingListeners) {
-            listener.onSend(ctx, msg);
+            listener.onSend(ctx, msg, time);
+        }
+        if (eventBus != null) {
+            eventBus.publishSend(ctx, msg, time);
         }
     }
 
     public void triggerOnReceive(BaseSimContext ctx, Object msg) {
+        long time = Utils.currentTimeMillis();
         for (var listener : messagingListeners) {
-            listener.onReceive(ctx, msg);
+            listener.onReceive(ctx, msg, time);
         }
+        if (eventBus != null) {
+            eventBus.publishReceive(ctx, msg, time);
+        }
+    }
+
+    /**
+     * Returns the number of messaging events that the listeners of AppBuilder missed because they were too slow.
+     */
+    public long getDroppedEventCount() {
+        return eventBus != null ? eventBus.getDroppedCount() : 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.entry;
+
+import tr.havelsan.ueransim.app.app.AppBuilder;
+import tr.havelsan.ueransim.app.app.UeRanSim;
+import tr.havelsan.ueransim.app.app.shard.ShardAssignment;
+import tr.havelsan.ueransim.app.app.shard.ShardCoordinator;
+import tr.havelsan.ueransim.app.app.shard.ShardWorker;
+import tr.havelsan.ueransim.app.app.stats.ResultSink;
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+import tr.havelsan.ueransim.app.common.configs.ArrivalConfig;
+import tr.havelsan.ueransim.app.common.enums.EArrivalProcess;
+import tr.havelsan.ueransim.app.common.enums.EProcedure;
+import tr.havelsan.ueransim.utils.console.Console;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-interactive entry point for scripted capacity runs. Runs a test case of testing.yaml, prints the summary
+ * statistics, and exits with one of the following status codes:
+ * <ul>
+ *     <li>0: The thresholds are met</li>
+ *     <li>1: A threshold is not met, or the time limit is reached</li>
+ *     <li>2: Invalid arguments</li>
+ * </ul>
+ * With --workers, the UEs are split between worker processes that run this class with --coordinator, see
+ * {@link ShardCoordinator}, and the thresholds apply to their merged results.
+ */
+public class BenchmarkApp {
+
+    private static final int EXIT_PASS = 0;
+    private static final int EXIT_FAIL = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: BenchmarkApp --scenario <test case> [options]",
+            "  --profile <name>                 Profile in the config directory, instead of the selected profile",
+            "  --ues <count>                    Number of UEs, instead of the one in testing.yaml",
+            "  --arrival <spec>                 Arrival process, instead of the one in testing.yaml:",
+            "                                     immediate | constant:<rate> | poisson:<rate>",
+            "                                     | ramp:<start rate>:<rate>:<seconds> | step:<seconds>@<rate>,...",
+            "  --max-in-flight <count>          Maximum number of UEs in flight, with --arrival",
+            "  --duration <seconds>             Time limit of the test case, 0 means no limit",
+            "  --output <directory>             Results directory, instead of the one in testing.yaml",
+            "  --max-p99 <PROCEDURE>=<ms>       Fails if the p99 latency of the procedure is higher",
+            "  --min-success-rate <PROCEDURE>=<percent>",
+            "                                   Fails if the success rate of the procedure is lower",
+            "Sharded runs:",
+            "  --workers <count>                Splits the UEs between the given number of worker processes on this",
+            "                                   host, and merges their results. Requires --ues",
+            "  --remote-workers <count>         Same as --workers, but waits for workers started on other hosts",
+            "  --port <port>                    Port of the coordinator for the workers, 0 for any free port",
+            "  --coordinator <host>:<port>      Runs as a worker of the given coordinator, which gives the other options",
+            "Procedures: NG_SETUP, REGISTRATION, AUTHENTICATION, SECURITY_MODE_CONTROL, PDU_SESSION_ESTABLISHMENT,",
+            "            DEREGISTRATION, PHASE_1, PHASE_2, PHASE_3");
+
+    public static void main(String[] args) {
+        String scenario = null;
+        long duration = 0;
+        var maxP99 = new LinkedHashMap<EProcedure, Long>();
+        var minSuccessRate = new LinkedHashMap<EProcedure, Double>();
+        int maxInFlight = 0;
+        String arrivalSpec = null;
+        String profile = null;
+        Integer numberOfUes = null;
+        String output = null;
+        int workers = 0;
+        boolean isRemote = false;
+        int port = 0;
+        String coordinator = null;
+        var builder = new AppBuilder();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                var option = args[i];
+                if (i + 1 >= args.length)
+                    throw new IllegalArgumentException("missing value of " + option);
+                var value = args[++i];
+
+                switch (option) {
+                    case "--scenario":
+                        scenario = value;
+                        break;
+                    case "--profile":
+                        profile = value;
+                        builder.setProfile(value);
+                        break;
+                    case "--ues":
+                        numberOfUes = Integer.parseInt(value);
+                        builder.setNumberOfUes(numberOfUes);
+                        break;
+                    case "--arrival":
+                        arrivalSpec = value;
+                        break;
+                    case "--max-in-flight":
+                        maxInFlight = Integer.parseInt(value);
+                        break;
+                    case "--duration":
+                        duration = Long.parseLong(value);
+                        break;
+                    case "--output":
+                        output = value;
+                        builder.setResultsDirectory(value);
+                        break;
+                    case "--workers":
+                        workers = Integer.parseInt(value);
+                        isRemote = false;
+                        break;
+                    case "--remote-workers":
+                        workers = Integer.parseInt(value);
+                        isRemote = true;
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(value);
+                        break;
+                    case "--coordinator":
+                        coordinator = value;
+                        break;
+                    case "--max-p99": {
+                        var pair = value.split("=", 2);
+                        maxP99.put(EProcedure.valueOf(pair[0]), Long.parseLong(pair[1]));
+                        break;
+                    }
+                    case "--min-success-rate": {
+                        var pair = value.split("=", 2);
+                        minSuccessRate.put(EProcedure.valueOf(pair[0]), Double.parseDouble(pair[1]));
+                        break;
+                    }
+                    default:
+                        throw new IllegalArgumentException("unknown option " + option);
+                }
+            }
+            if (scenario == null && coordinator == null)
+                throw new IllegalArgumentException("--scenario is required");
+            if (workers > 0 && numberOfUes == null)
+                throw new IllegalArgumentException("--ues is required with --workers");
+            if (arrivalSpec != null) {
+                builder.setArrival(parseArrival(arrivalSpec, maxInFlight));
+            } else if (maxInFlight != 0) {
+                throw new IllegalArgumentException("--max-in-flight requires --arrival");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+            return;
+        }
+
+        if (coordinator != null) {
+            runWorker(coordinator, builder);
+            return;
+        }
+
+        RunSummary summary;
+        boolean isCompleted;
+        if (workers > 0) {
+            var assignments = ShardAssignment.split(numberOfUes, workers);
+            var directory = Paths.get(output != null ? output : "results",
+                    "sharded-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+            for (var assignment : assignments) {
+                assignment.scenario = scenario;
+                assignment.arrivalSpec = arrivalSpec;
+                assignment.maxInFlight = maxInFlight;
+                assignment.durationSeconds = duration;
+                assignment.resultsDirectory = directory.resolve("worker-" + assignment.index).toString();
+            }
+
+            var results = runCoordinator(assignments, isRemote, port, profile, directory);
+            if (results == null) {
+                System.exit(EXIT_FAIL);
+                return;
+            }
+            summary = ShardCoordinator.merge(results);
+            isCompleted = results.stream().allMatch(result -> result.isCompleted);
+            try {
+                ResultSink.writeSummary(directory, summary);
+            } catch (IOException e) {
+                Console.println(AnsiPalette.PAINT_LOG_ERROR, "ERROR: The merged summary could not be written: %s", e.getMessage());
+            }
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: Merged results of %d workers are written to: %s", workers, directory);
+        } else {
+            BaseApp.main(args);
+
+            var ueransim = builder.build();
+            if (!List.of(ueransim.testCaseNames()).contains(scenario)) {
+                System.err.println("Test case not found: " + scenario);
+                System.exit(EXIT_USAGE);
+                return;
+            }
+
+            isCompleted = runScenario(ueransim, scenario, duration);
+            summary = ueransim.getResultSink().close();
+        }
+
+        printSummary(summary);
+        var failures = checkThresholds(summary, maxP99, minSuccessRate);
+        if (!isCompleted) {
+            failures.add(String.format("the test case is not completed in %d s", duration));
+        }
+
+        for (var failure : failures) {
+            Console.println(AnsiPalette.PAINT_LOG_ERROR, "FAIL: %s", failure);
+        }
+        if (failures.isEmpty()) {
+            Console.println(AnsiPalette.PAINT_LOG_SUCCESS, "PASS");
+        }
+        System.exit(failures.isEmpty() ? EXIT_PASS : EXIT_FAIL);
+    }
+
+    /**
+     * Runs the given assignments on the workers, and returns their results, or null if the run fails.
+     */
+    private static List<ShardCoordinator.ShardResult> runCoordinator(ShardAssignment[] assignments, boolean isRemote,
+                                                                    int port, String profile, Path directory) {
+        try (var coordinator = new ShardCoordinator(assignments.length, port)) {
+            Files.createDirectories(directory);
+            if (isRemote) {
+                Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: Waiting for %d workers on port %d",
+                        assignments.length, coordinator.getPort());
+            } else {
+                var workerArgs = profile != null ? List.of("--profile", profile) : List.<String>of();
+                coordinator.launchLocalWorkers(BenchmarkApp.class.getName(), workerArgs, directory);
+                Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: Launched %d workers, their output is written to: %s",
+                        assignments.length, directory);
+            }
+            return coordinator.run(assignments);
+        } catch (IOException e) {
+            Console.println(AnsiPalette.PAINT_LOG_ERROR, "ERROR: Sharded run failed: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Runs the shard that the coordinator at the given address assigns to this process, and exits.
+     */
+    private static void runWorker(String address, AppBuilder builder) {
+        try (var worker = ShardWorker.connect(address)) {
+            var assignment = worker.receiveAssignment();
+            builder.setShard(assignment.index, assignment.supiOffset, assignment.rateFactor);
+            builder.setNumberOfUes(assignment.numberOfUes);
+            builder.setResultsDirectory(assignment.resultsDirectory);
+            if (assignment.arrivalSpec != null) {
+                builder.setArrival(parseArrival(assignment.arrivalSpec, assignment.maxInFlight));
+            }
+
+            BaseApp.main(new String[0]);
+            var ueransim = builder.build();
+            if (!List.of(ueransim.testCaseNames()).contains(assignment.scenario)) {
+                System.err.println("Test case not found: " + assignment.scenario);
+                System.exit(EXIT_USAGE);
+                return;
+            }
+            Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "INFO: Worker %d of %d is ready with %d UEs",
+                    assignment.index, assignment.numberOfWorkers, assignment.numberOfUes);
+
+            worker.awaitStart();
+            boolean isCompleted = runScenario(ueransim, assignment.scenario, assignment.durationSeconds);
+            worker.sendResult(ueransim.getResultSink().close(), isCompleted);
+        } catch (IOException e) {
+            System.err.println("Connection to the coordinator failed: " + e.getMessage());
+            System.exit(EXIT_FAIL);
+            return;
+        }
+        System.exit(EXIT_PASS);
+    }
+
+    /**
+     * Runs the test case and returns false if it is not completed in the time limit. The time limit does not apply to
+     * the simulation mode, where the test case has to run on the thread that drives the simulation.
+     */
+    private static boolean runScenario(UeRanSim ueransim, String scenario, long duration) {
+        if (duration <= 0 || ueransim.isSimulation()) {
+            ueransim.runTest(scenario);
+            return true;
+        }
+
+        var thread = new Thread(Log.withLogger(Logger.GLOBAL, () -> ueransim.runTest(scenario)), "benchmark");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            thread.join(duration * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+
+    private static ArrivalConfig parseArrival(String spec, int maxInFlight) {
+        var parts = spec.split(":");
+        var process = EArrivalProcess.valueOf(parts[0].toUpperCase());
+        int timeout = 30000;
+
+        switch (process) {
+            case IMMEDIATE:
+                return new ArrivalConfig(process, 0, 0, 0, new double[0], new double[0], maxInFlight, timeout);
+            case CONSTANT:
+            case POISSON:
+                return new ArrivalConfig(process, Double.parseDouble(parts[1]), 0, 0, new double[0], new double[0],
+                        maxInFlight, timeout);
+            case RAMP:
+                return new ArrivalConfig(process, Double.parseDouble(parts[2]), Double.parseDouble(parts[1]),
+                        Double.parseDouble(parts[3]), new double[0], new double[0], maxInFlight, timeout);
+            case STEP: {
+                var steps = parts[1].split(",");
+                var durations = new double[steps.length];
+                var rates = new double[steps.length];
+                for (int i = 0; i < steps.length; i++) {
+                    var step = steps[i].split("@");
+                    durations[i] = Double.parseDouble(step[0]);
+                    rates[i] = Double.parseDouble(step[1]);
+                }
+                return new ArrivalConfig(process, 0, 0, 0, durations, rates, maxInFlight, timeout);
+            }
+            default:
+                throw new IllegalArgumentException("unknown arrival process: " + parts[0]);
+        }
+    }
+
+    private static void printSummary(RunSummary summary) {
+        Console.println(AnsiPalette.PAINT_DIVIDER, "-----------------------------------------------------------------------------");
+        Console.println(AnsiPalette.PAINT_IMPORTANT_INFO, "Summary of %d UEs in %d ms", summary.numberOfUes, summary.durationMillis);
+        for (var item : summary.procedures) {
+            Console.println(null, "%-26s attempts %d, success %d, failure %d, in-flight %d, success rate %.2f%%, " +
+                            "latency ms: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d",
+                    item.procedure, item.attempts, item.successes, item.failures, item.inFlight,
+                    item.getSuccessRate(), item.p50Millis, item.p90Millis, item.p99Millis, item.p999Millis,
+                    item.maxMillis);
+        }
+    }
+
+    private static List<String> checkThresholds(RunSummary summary, Map<EProcedure, Long> maxP99,
+                                                Map<EProcedure, Double> minSuccessRate) {
+        var failures = new ArrayList<String>();
+
+        for (var entry : maxP99.entrySet()) {
+            var item = summary.find(entry.getKey().name());
+            if (item == null || item.successes == 0) {
+                failures.add(String.format("%s has no successful attempt", entry.getKey()));
+            } else if (item.p99Millis > entry.getValue()) {
+                failures.add(String.format("p99 of %s is %d ms, above %d ms", entry.getKey(), item.p99Millis,
+                        entry.getValue()));
+            }
+        }
+
+        for (var entry : minSuccessRate.entrySet()) {
+            var item = summary.find(entry.getKey().name());
+            if (item == null || item.attempts == 0) {
+                failures.add(String.format("%s has no attempt", entry.getKey()));
+                continue;
+            }
+            // The attempts that are still in flight count as failures.
+            double rate = 100.0 * item.successes / item.attempts;
+            if (rate < entry.getValue()) {
+                failures.add(String.format("success rate of %s is %.2f%%, below %.2f%%", entry.getKey(), rate,
+                        entry.getValue()));
+            }
+        }
+
+        return failures;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.entry;
+
+import tr.havelsan.ueransim.app.utils.EventLogging;
+import tr.havelsan.ueransim.utils.console.BinaryEventLog;
+import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.jcolor.AnsiColor;
+import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Renders the event log of a run as the lines that the loggers of the nodes would have written, see
+ * {@link EventLogging}. Exits with 0 on success, 1 if the node is not in the log or the log cannot be read, and 2
+ * for invalid arguments.
+ */
+public class EventLogDecodeApp {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAIL = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: EventLogDecodeApp [--no-color] <event log directory> [<node name or handle> [<output file>]]",
+            "  Writes the events of the node into the output file, or to the standard output.",
+            "  Writes the events of all nodes, each line starting with the name of its node, if no node is given.");
+
+    public static void main(String[] args) {
+        var arguments = new ArrayList<>(Arrays.asList(args));
+        boolean isColored = !arguments.remove("--no-color");
+        if (arguments.size() < 1 || arguments.size() > 3) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        var directory = Paths.get(arguments.get(0));
+        if (!Files.isRegularFile(directory.resolve(BinaryEventLog.NODES_FILE))) {
+            System.err.println("ERROR: Not an event log: " + directory);
+            System.exit(EXIT_USAGE);
+        }
+
+        try {
+            var nodes = BinaryEventLog.readNodes(directory);
+            int handle = -1;
+            if (arguments.size() >= 2) {
+                for (var entry : nodes.entrySet()) {
+                    if (entry.getValue().equals(arguments.get(1)) || entry.getKey().toString().equals(arguments.get(1))) {
+                        handle = entry.getKey();
+                    }
+                }
+                if (handle < 0) {
+                    System.err.println("ERROR: Node is not in the event log: " + arguments.get(1));
+                    System.exit(EXIT_FAIL);
+                }
+            }
+
+            var output = arguments.size() == 3 ? new FileOutputStream(Path.of(arguments.get(2)).toFile()) : System.out;
+            int selected = handle;
+            String colorCode = AnsiColor.generateCode(AnsiPalette.PAINT_LOG_NORMAL);
+
+            try (var out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                BinaryEventLog.read(directory, record -> {
+                    if (selected >= 0 && record.handle != selected)
+                        return;
+                    for (var str : EventLogging.render(record)) {
+                        var line = Logger.formatLine(record.time, record.severity, record.depth, record.tag, str);
+                        if (isColored) {
+                            line = AnsiColor.colorize(line, colorCode);
+                        }
+                        if (selected < 0) {
+                            line = nodes.getOrDefault(record.handle, Integer.toString(record.handle)) + " " + line;
+                        }
+                        out.println(line);
+                    }
+                });
+                if (out.checkError())
+                    throw new UncheckedIOException(new IOException("output could not be written"));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("ERROR: Event log could not be read: " + e);
+            System.exit(EXIT_FAIL);
+        }
+        System.exit(EXIT_OK);
+    }
+}
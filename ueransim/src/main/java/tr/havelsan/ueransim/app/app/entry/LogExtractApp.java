@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.entry;
+
+import tr.havelsan.ueransim.utils.console.ShardedLogStore;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Extracts the log of a node from a log store, see {@link ShardedLogStore}. Without a node, lists the nodes in the
+ * store. Exits with 0 on success, 1 if the node is not in the store or the store cannot be read, and 2 for invalid
+ * arguments.
+ */
+public class LogExtractApp {
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAIL = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: LogExtractApp <store directory> [<node name or handle> [<output file>]]",
+            "  Writes the log of the node into the output file, or to the standard output.",
+            "  Lists the handles and names of the nodes if no node is given.");
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        var directory = Paths.get(args[0]);
+        if (!Files.isRegularFile(directory.resolve(ShardedLogStore.NODES_FILE))) {
+            System.err.println("ERROR: Not a log store: " + directory);
+            System.exit(EXIT_USAGE);
+        }
+
+        try {
+            if (args.length == 1) {
+                for (var entry : ShardedLogStore.readNodes(directory).entrySet()) {
+                    System.out.println(entry.getKey() + "\t" + entry.getValue());
+                }
+                System.exit(EXIT_OK);
+            }
+
+            int handle = ShardedLogStore.findHandle(directory, args[1]);
+            if (handle < 0) {
+                System.err.println("ERROR: Node is not in the log store: " + args[1]);
+                System.exit(EXIT_FAIL);
+            }
+
+            try (OutputStream out = new BufferedOutputStream(args.length == 3
+                    ? new FileOutputStream(Path.of(args[2]).toFile()) : System.out)) {
+                ShardedLogStore.extract(directory, handle, out);
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Log store could not be read: " + e);
+            System.exit(EXIT_FAIL);
+        }
+        System.exit(EXIT_OK);
+    }
+}
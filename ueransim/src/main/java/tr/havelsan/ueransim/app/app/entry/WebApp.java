@@ -14,6 +14,7 @@ import tr.havelsan.ueransim.app.app.UeRanSim;
 import tr.havelsan.ueransim.app.app.listeners.StepperMessagingListener;
 import tr.havelsan.ueransim.app.common.sw.*;
 import tr.havelsan.ueransim.app.utils.SocketWrapperSerializer;
+import tr.havelsan.ueransim.itms.ItmsMonitor;
 import tr.havelsan.ueransim.utils.console.Log;
 import tr.havelsan.ueransim.utils.console.LogEntry;
 import tr.havelsan.ueransim.utils.console.Logger;
@@ -50,7 +51,7 @@ public class WebApp {
         }
 
         new Thread(() -> {
-            Log.registerLogger(Thread.currentThread(), Logger.GLOBAL);
+            Log.bind(Logger.GLOBAL);
 
             while (true) {
                 String cmd;
@@ -84,6 +85,8 @@ public class WebApp {
             if (w instanceof SwCommand) {
                 SwCommand ew = (SwCommand) w;
                 commandQueue.add(ew.commandName);
+            } else if (w instanceof SwItmsStatsRequest) {
+                ctx.send(SocketWrapperSerializer.toJson(new SwItmsStats(ItmsMonitor.snapshot())));
             }
         }
 
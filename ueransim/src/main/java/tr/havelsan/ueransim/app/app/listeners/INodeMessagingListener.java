@@ -10,14 +10,16 @@ import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 public interface INodeMessagingListener {
 
     /**
-     * Triggered when a simulation node has send a message.
+     * Triggered when a simulation node has send a message, at the given time of Utils.currentTimeMillis(). The
+     * listeners that are added to AppBuilder are triggered later on another thread, see MessagingEventBus.
      * WARNING: Do not mutate any of the parameters.
      */
-    void onSend(BaseSimContext ctx, Object message);
+    void onSend(BaseSimContext ctx, Object message, long timeMillis);
 
     /**
-     * Triggered when a simulation node has received a message.
+     * Triggered when a simulation node has received a message, at the given time of Utils.currentTimeMillis(). The
+     * listeners that are added to AppBuilder are triggered later on another thread, see MessagingEventBus.
      * WARNING: Do not mutate any of the parameters.
      */
-    void onReceive(BaseSimContext ctx, Object message);
+    void onReceive(BaseSimContext ctx, Object message, long timeMillis);
 }
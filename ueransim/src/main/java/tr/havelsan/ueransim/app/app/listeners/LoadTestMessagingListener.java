@@ -5,98 +5,229 @@
 
 package tr.havelsan.ueransim.app.app.listeners;
 
+import tr.havelsan.ueransim.app.app.stats.ProcedureStats;
+import tr.havelsan.ueransim.app.common.enums.EProcedure;
 import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
+import tr.havelsan.ueransim.itms.ItmsTimerService;
+import tr.havelsan.ueransim.nas.impl.ies.IEDeRegistrationType;
 import tr.havelsan.ueransim.nas.impl.messages.*;
 import tr.havelsan.ueransim.ngap0.msg.NGAP_NGSetupFailure;
 import tr.havelsan.ueransim.ngap0.msg.NGAP_NGSetupRequest;
 import tr.havelsan.ueransim.ngap0.msg.NGAP_NGSetupResponse;
+import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.console.BaseConsole;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Measures the latency of the procedures of the UEs and gNBs.
+ * <p>
+ * The start times are kept in arrays indexed by the position of the UE in the fleet, so a message costs a few array
+ * accesses and no allocation. The messages of a UE are causally ordered by the ITMS queues, so the entry of a UE is
+ * not accessed concurrently. Instead of a line for each UE, a summary of all procedures is written periodically.
+ */
 public class LoadTestMessagingListener implements INodeMessagingListener {
-    private final BaseConsole console;
 
+    private static final int SUMMARY_INTERVAL = 5000; // ms
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final BaseConsole console;
+    private final EnumMap<EProcedure, ProcedureStats> stats;
+    // Start time of each procedure of each UE, or NONE
+    private final long[][] startTimes;
     private final Map<Integer, Long> ngSetupTimers = new ConcurrentHashMap<>();
-    private final Map<String, Long> registrationTimers = new ConcurrentHashMap<>();
-    private final Map<String, Long> authenticationTimers = new ConcurrentHashMap<>();
-    private final Map<String, Long> securityModeControlTimers = new ConcurrentHashMap<>();
-    private final Map<String, Long> phase1Timers = new ConcurrentHashMap<>();
-    private final Map<String, Long> phase2Timers = new ConcurrentHashMap<>();
-    private final Map<String, Long> phase3Timers = new ConcurrentHashMap<>();
-    private final Map<String, Long> deregistrationTimers = new ConcurrentHashMap<>();
-
-    public LoadTestMessagingListener(BaseConsole console) {
+    private long lastSummaryAttempts;
+
+    public LoadTestMessagingListener(BaseConsole console, int numberOfUes, ItmsTimerService timerService) {
         this.console = console;
+        this.stats = new EnumMap<>(EProcedure.class);
+        for (var procedure : EProcedure.values()) {
+            stats.put(procedure, new ProcedureStats(procedure));
+        }
+        this.startTimes = new long[EProcedure.values().length][numberOfUes];
+        for (var times : startTimes) {
+            Arrays.fill(times, NONE);
+        }
+
+        schedulePeriodicSummary(timerService);
+    }
+
+    /**
+     * Returns the statistics of the given procedure.
+     */
+    public ProcedureStats getStats(EProcedure procedure) {
+        return stats.get(procedure);
+    }
+
+    /**
+     * Writes the statistics of the procedures that are attempted at least once.
+     */
+    public void printSummary() {
+        synchronized (console) {
+            console.println(null, "Summary at %d ms", Utils.currentTimeMillis());
+            for (var item : stats.values()) {
+                if (item.getAttempts() > 0) {
+                    console.println(null, "%s", item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the attempts of the given UE that are not completed, because the UE is given up, e.g. its response is
+     * lost. Otherwise the next attempt of the UE is taken as a retransmission of the stale one.
+     */
+    public void discard(UeSimContext ue) {
+        for (var procedure : EProcedure.values()) {
+            if (procedure != EProcedure.NG_SETUP) {
+                discard(procedure, ue);
+            }
+        }
+    }
+
+    private void schedulePeriodicSummary(ItmsTimerService timerService) {
+        timerService.schedule(SUMMARY_INTERVAL, () -> {
+            // Nothing is written while idle
+            long attempts = 0;
+            for (var item : stats.values()) {
+                attempts += item.getAttempts() + item.getSuccesses() + item.getFailures();
+            }
+            if (attempts != lastSummaryAttempts) {
+                lastSummaryAttempts = attempts;
+                printSummary();
+            }
+            schedulePeriodicSummary(timerService);
+        });
+    }
+
+    private void begin(EProcedure procedure, UeSimContext ue, long time) {
+        int index = ue.index;
+        if (index < 0 || index >= startTimes[procedure.ordinal()].length)
+            return;
+        // A retransmission is a part of the same attempt.
+        if (startTimes[procedure.ordinal()][index] != NONE)
+            return;
+        startTimes[procedure.ordinal()][index] = time;
+        stats.get(procedure).onAttempt();
+    }
+
+    /**
+     * Forgets an attempt that is not completed, because the procedure is skipped by the network.
+     */
+    private void discard(EProcedure procedure, UeSimContext ue) {
+        int index = ue.index;
+        if (index < 0 || index >= startTimes[procedure.ordinal()].length)
+            return;
+        if (startTimes[procedure.ordinal()][index] == NONE)
+            return;
+        startTimes[procedure.ordinal()][index] = NONE;
+        stats.get(procedure).onDiscard();
+    }
+
+    private void end(EProcedure procedure, UeSimContext ue, boolean isSuccess, long time) {
+        int index = ue.index;
+        if (index < 0 || index >= startTimes[procedure.ordinal()].length)
+            return;
+        long startTime = startTimes[procedure.ordinal()][index];
+        if (startTime == NONE)
+            return;
+        startTimes[procedure.ordinal()][index] = NONE;
+
+        long delta = time - startTime;
+        if (isSuccess) {
+            stats.get(procedure).onSuccess(delta);
+        } else {
+            stats.get(procedure).onFailure();
+            console.println(null, "\u2718 [%s] [ue: %s] [%d ms]", procedure.displayName, ue.ueConfig.supi, delta);
+        }
     }
 
     @Override
-    public void onSend(BaseSimContext ctx, Object message) {
+    public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
         if (message instanceof NGAP_NGSetupRequest) {
             int gnbId = ((GnbSimContext) ctx).config.gnbId;
-            ngSetupTimers.put(gnbId, System.currentTimeMillis());
-        } else if (message instanceof RegistrationRequest) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            registrationTimers.put(supi, System.currentTimeMillis());
-            phase1Timers.put(supi, System.currentTimeMillis());
-        } else if (message instanceof AuthenticationResponse) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            phase2Timers.put(supi, System.currentTimeMillis());
+            ngSetupTimers.put(gnbId, timeMillis);
+            stats.get(EProcedure.NG_SETUP).onAttempt();
+        }
 
-            long delta = System.currentTimeMillis() - authenticationTimers.get(supi);
-            console.println(null, "\u2714 [Authentication (UE/RAN)] [ue: %s] [%d ms]", supi, delta);
-        } else if (message instanceof SecurityModeComplete) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            phase3Timers.put(supi, System.currentTimeMillis());
+        if (!(ctx instanceof UeSimContext))
+            return;
+        var ue = (UeSimContext) ctx;
 
-            long delta = System.currentTimeMillis() - securityModeControlTimers.get(supi);
-            console.println(null, "\u2714 [Security Mode Control (UE/RAN)] [ue: %s] [%d ms]", supi, delta);
+        if (message instanceof RegistrationRequest) {
+            begin(EProcedure.REGISTRATION, ue, timeMillis);
+            begin(EProcedure.PHASE_1, ue, timeMillis);
+        } else if (message instanceof AuthenticationResponse) {
+            end(EProcedure.AUTHENTICATION, ue, true, timeMillis);
+            begin(EProcedure.PHASE_2, ue, timeMillis);
+        } else if (message instanceof AuthenticationFailure) {
+            end(EProcedure.AUTHENTICATION, ue, false, timeMillis);
+        } else if (message instanceof SecurityModeComplete) {
+            end(EProcedure.SECURITY_MODE_CONTROL, ue, true, timeMillis);
+            begin(EProcedure.PHASE_3, ue, timeMillis);
+        } else if (message instanceof SecurityModeReject) {
+            end(EProcedure.SECURITY_MODE_CONTROL, ue, false, timeMillis);
+        } else if (message instanceof PduSessionEstablishmentRequest) {
+            begin(EProcedure.PDU_SESSION_ESTABLISHMENT, ue, timeMillis);
         } else if (message instanceof DeRegistrationRequestUeOriginating) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            deregistrationTimers.put(supi, System.currentTimeMillis());
+            // There is no response to a switch-off
+            var type = ((DeRegistrationRequestUeOriginating) message).deRegistrationType;
+            if (!type.switchOff.equals(IEDeRegistrationType.ESwitchOff.SWITCH_OFF)) {
+                begin(EProcedure.DEREGISTRATION, ue, timeMillis);
+            }
         }
     }
 
     @Override
-    public void onReceive(BaseSimContext ctx, Object message) {
-        if (message instanceof NGAP_NGSetupFailure) {
-            int gnbId = ((GnbSimContext) ctx).config.gnbId;
-            long delta = System.currentTimeMillis() - ngSetupTimers.get(gnbId);
-            console.println(null, "\u2718 [NGSetup] [gnbId: %d] [%d ms]", gnbId, delta);
-        } else if (message instanceof NGAP_NGSetupResponse) {
+    public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+        if (message instanceof NGAP_NGSetupFailure || message instanceof NGAP_NGSetupResponse) {
             int gnbId = ((GnbSimContext) ctx).config.gnbId;
-            long delta = System.currentTimeMillis() - ngSetupTimers.get(gnbId);
-            console.println(null, "\u2714 [NGSetup] [gnbId: %d] [%d ms]", gnbId, delta);
-        } else if (message instanceof RegistrationReject) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            long delta = System.currentTimeMillis() - registrationTimers.get(supi);
-            console.println(null, "\u2718 [Registration] [ue: %s] [%d ms]", supi, delta);
-        } else if (message instanceof RegistrationAccept) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            long delta = System.currentTimeMillis() - registrationTimers.get(supi);
-            console.println(null, "\u2714 [Registration] [ue: %s] [%d ms]", supi, delta);
+            var startTime = ngSetupTimers.remove(gnbId);
+            if (startTime == null)
+                return;
+            long delta = timeMillis - startTime;
+            if (message instanceof NGAP_NGSetupResponse) {
+                stats.get(EProcedure.NG_SETUP).onSuccess(delta);
+                console.println(null, "\u2714 [NGSetup] [gnbId: %d] [%d ms]", gnbId, delta);
+            } else {
+                stats.get(EProcedure.NG_SETUP).onFailure();
+                console.println(null, "\u2718 [NGSetup] [gnbId: %d] [%d ms]", gnbId, delta);
+            }
+            return;
+        }
 
-            long delta2 = System.currentTimeMillis() - phase3Timers.get(supi);
-            console.println(null, "\u2714 [Phase 3 (Network)] [SecurityModeControl-RegistrationAccept] [ue: %s] [%d ms]", supi, delta2);
-        } else if (message instanceof AuthenticationRequest) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            authenticationTimers.put(supi, System.currentTimeMillis());
+        if (!(ctx instanceof UeSimContext))
+            return;
+        var ue = (UeSimContext) ctx;
 
-            long delta = System.currentTimeMillis() - phase1Timers.get(supi);
-            console.println(null, "\u2714 [Phase 1 (Network)] [Registration-Authentication] [ue: %s] [%d ms]", supi, delta);
+        if (message instanceof RegistrationReject) {
+            end(EProcedure.REGISTRATION, ue, false, timeMillis);
+            end(EProcedure.PHASE_1, ue, false, timeMillis);
+            end(EProcedure.PHASE_2, ue, false, timeMillis);
+            end(EProcedure.PHASE_3, ue, false, timeMillis);
+        } else if (message instanceof RegistrationAccept) {
+            end(EProcedure.REGISTRATION, ue, true, timeMillis);
+            end(EProcedure.PHASE_3, ue, true, timeMillis);
+            // The authentication and the security mode control are optional for the network.
+            discard(EProcedure.PHASE_1, ue);
+            discard(EProcedure.PHASE_2, ue);
+        } else if (message instanceof AuthenticationRequest) {
+            end(EProcedure.PHASE_1, ue, true, timeMillis);
+            begin(EProcedure.AUTHENTICATION, ue, timeMillis);
         } else if (message instanceof SecurityModeCommand) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            securityModeControlTimers.put(supi, System.currentTimeMillis());
-
-            long delta = System.currentTimeMillis() - phase2Timers.get(supi);
-            console.println(null, "\u2714 [Phase 2 (Network)] [Authentication-SecurityModeControl] [ue: %s] [%d ms]", supi, delta);
+            end(EProcedure.PHASE_2, ue, true, timeMillis);
+            begin(EProcedure.SECURITY_MODE_CONTROL, ue, timeMillis);
+        } else if (message instanceof PduSessionEstablishmentAccept) {
+            end(EProcedure.PDU_SESSION_ESTABLISHMENT, ue, true, timeMillis);
+        } else if (message instanceof PduSessionEstablishmentReject) {
+            end(EProcedure.PDU_SESSION_ESTABLISHMENT, ue, false, timeMillis);
         } else if (message instanceof DeRegistrationAcceptUeOriginating) {
-            String supi = (((UeSimContext) ctx).ueConfig.supi).toString();
-            long delta = System.currentTimeMillis() - deregistrationTimers.get(supi);
-            console.println(null, "\u2714 [De-Registration] [ue: %s] [%d ms]", supi, delta);
+            end(EProcedure.DEREGISTRATION, ue, true, timeMillis);
         }
     }
-}
\ No newline at end of file
+}
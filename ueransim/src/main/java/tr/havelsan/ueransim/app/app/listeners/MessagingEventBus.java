@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.listeners;
+
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
+import tr.havelsan.ueransim.utils.IdleStrategy;
+import tr.havelsan.ueransim.utils.Tag;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.console.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Delivers the messaging events to listeners on a thread of their own, so that a slow listener does not hold up the
+ * tasks that send and receive the messages.
+ * <p>
+ * The events are kept in a bounded ring of preallocated slots, in the manner of the LMAX Disruptor. A publisher
+ * claims a slot with a compare-and-set on the claim sequence, stores the references and the timestamp of the event,
+ * and publishes it by an ordered store of its sequence. It neither locks nor allocates. When the ring is full, the
+ * event is dropped and counted instead of waiting for the consumer. An idle consumer is parked until the next
+ * event, see {@link IdleStrategy}.
+ */
+public class MessagingEventBus {
+
+    private final List<INodeMessagingListener> listeners;
+    private final int capacity;
+    private final int mask;
+
+    // The sequence of the next event to claim, and of the next event to consume
+    private final AtomicLong claimed;
+    private final AtomicLong consumed;
+    // Sequence of the event in each slot plus one, when its fields are written
+    private final AtomicLongArray published;
+    private final BaseSimContext[] contexts;
+    private final Object[] messages;
+    private final boolean[] isSend;
+    private final long[] times;
+
+    private final LongAdder dropped;
+    private final Thread consumer;
+    private final IdleStrategy idleStrategy;
+    private final BooleanSupplier hasEvent = this::hasEvent;
+    private volatile boolean isRunning;
+
+    /**
+     * Creates a bus for the given listeners, with room for the given number of events, which is rounded up to a
+     * power of two.
+     */
+    public MessagingEventBus(List<INodeMessagingListener> listeners, int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.listeners = new ArrayList<>(listeners);
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.claimed = new AtomicLong();
+        this.consumed = new AtomicLong();
+        this.published = new AtomicLongArray(this.capacity);
+        this.contexts = new BaseSimContext[this.capacity];
+        this.messages = new Object[this.capacity];
+        this.isSend = new boolean[this.capacity];
+        this.times = new long[this.capacity];
+        this.dropped = new LongAdder();
+
+        this.consumer = new Thread(Log.withLogger(Logger.GLOBAL, this::consume), "messaging-event-bus");
+        this.consumer.setDaemon(true);
+        this.idleStrategy = new IdleStrategy(consumer);
+    }
+
+    public void start() {
+        isRunning = true;
+        consumer.start();
+    }
+
+    /**
+     * Stops the consumer after the events that are already published are delivered.
+     */
+    public void stop() {
+        isRunning = false;
+        idleStrategy.signal();
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of events that are dropped because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of events that are published but not delivered yet.
+     */
+    public long getPendingCount() {
+        return claimed.get() - consumed.get();
+    }
+
+    public void publishSend(BaseSimContext ctx, Object message, long timeMillis) {
+        publish(ctx, message, true, timeMillis);
+    }
+
+    public void publishReceive(BaseSimContext ctx, Object message, long timeMillis) {
+        publish(ctx, message, false, timeMillis);
+    }
+
+    private void publish(BaseSimContext ctx, Object message, boolean send, long timeMillis) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        contexts[slot] = ctx;
+        messages[slot] = message;
+        isSend[slot] = send;
+        times[slot] = timeMillis;
+        // The plain stores above are visible to the consumer once it sees this one.
+        published.lazySet(slot, sequence + 1);
+        idleStrategy.signal();
+    }
+
+    private void consume() {
+        while (true) {
+            long sequence = consumed.get();
+            int slot = (int) (sequence & mask);
+
+            if (published.get(slot) != sequence + 1) {
+                // A claimed event may not be published yet, the stop waits for it.
+                if (!isRunning && claimed.get() == sequence)
+                    return;
+                idleStrategy.idle(hasEvent);
+                continue;
+            }
+            idleStrategy.reset();
+
+            var ctx = contexts[slot];
+            var message = messages[slot];
+            boolean send = isSend[slot];
+            long time = times[slot];
+            contexts[slot] = null;
+            messages[slot] = null;
+            // The slot may be claimed again after this.
+            consumed.lazySet(sequence + 1);
+
+            deliver(ctx, message, send, time);
+        }
+    }
+
+    /**
+     * Returns true if the next event is published, or the bus is stopped.
+     */
+    private boolean hasEvent() {
+        long sequence = consumed.get();
+        return !isRunning || published.get((int) (sequence & mask)) == sequence + 1;
+    }
+
+    private void deliver(BaseSimContext ctx, Object message, boolean send, long time) {
+        for (var listener : listeners) {
+            try {
+                if (send) {
+                    listener.onSend(ctx, message, time);
+                } else {
+                    listener.onReceive(ctx, message, time);
+                }
+            } catch (Exception e) {
+                // A faulty listener does not stop the delivery to the others.
+                Log.error(Tag.SYSTEM, "Messaging listener %s failed: %s", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
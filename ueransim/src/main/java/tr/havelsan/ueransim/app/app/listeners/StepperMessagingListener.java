@@ -82,12 +82,12 @@ public class StepperMessagingListener implements INodeMessagingListener {
     }
 
     @Override
-    public void onSend(BaseSimContext ctx, Object message) {
+    public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
         onMessage(ctx, message);
     }
 
     @Override
-    public void onReceive(BaseSimContext ctx, Object message) {
+    public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
         onMessage(ctx, message);
     }
 
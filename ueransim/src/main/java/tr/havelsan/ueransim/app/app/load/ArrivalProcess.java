@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.load;
+
+import tr.havelsan.ueransim.app.common.configs.ArrivalConfig;
+import tr.havelsan.ueransim.app.common.enums.EArrivalProcess;
+
+import java.util.Random;
+
+/**
+ * Arrival times of an {@link ArrivalConfig}, in seconds since the start of the arrivals.
+ * <p>
+ * The rate is a piecewise linear function of time, which is constant after its last point. The next arrival is
+ * the time at which the integral of the rate reaches one, or an exponentially distributed amount for POISSON.
+ */
+public class ArrivalProcess {
+
+    private final EArrivalProcess process;
+    private final Random random;
+
+    // Points of the rate function
+    private final double[] times;
+    private final double[] rates;
+
+    public ArrivalProcess(ArrivalConfig config, Random random) {
+        this.process = config.process;
+        this.random = random;
+
+        switch (config.process) {
+            case IMMEDIATE:
+                this.times = new double[]{0};
+                this.rates = new double[]{Double.POSITIVE_INFINITY};
+                break;
+            case CONSTANT:
+            case POISSON:
+                this.times = new double[]{0};
+                this.rates = new double[]{config.rate};
+                break;
+            case RAMP:
+                this.times = new double[]{0, config.rampDuration};
+                this.rates = new double[]{config.rampStartRate, config.rate};
+                break;
+            case STEP: {
+                int count = config.stepRates.length;
+                if (count == 0)
+                    throw new IllegalArgumentException("no steps are given");
+                this.times = new double[2 * count];
+                this.rates = new double[2 * count];
+                double time = 0;
+                for (int i = 0; i < count; i++) {
+                    // A step is a constant segment, and the rate jumps between the steps.
+                    times[2 * i] = time;
+                    time += config.stepDurations[i];
+                    times[2 * i + 1] = time;
+                    rates[2 * i] = config.stepRates[i];
+                    rates[2 * i + 1] = config.stepRates[i];
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown arrival process: " + config.process);
+        }
+
+        for (int i = 0; i < times.length; i++) {
+            if (rates[i] < 0 || (i > 0 && times[i] < times[i - 1]))
+                throw new IllegalArgumentException("invalid arrival rates or durations");
+        }
+        if (!(rates[rates.length - 1] > 0))
+            throw new IllegalArgumentException("the final arrival rate must be positive");
+    }
+
+    /**
+     * Returns the rate in UEs per second at the given time.
+     */
+    public double rateAt(double time) {
+        int last = times.length - 1;
+        if (time >= times[last])
+            return rates[last];
+        int i = segmentOf(time);
+        return interpolate(i, time);
+    }
+
+    /**
+     * Returns the time of the arrival that follows an arrival at the given time.
+     */
+    public double nextArrival(double time) {
+        if (process == EArrivalProcess.IMMEDIATE)
+            return time;
+
+        double work = process == EArrivalProcess.POISSON ? -Math.log(1 - random.nextDouble()) : 1;
+        int last = times.length - 1;
+
+        double x = time;
+        int i = time >= times[last] ? last : segmentOf(time);
+        while (i < last) {
+            double end = times[i + 1];
+            if (end <= x) {
+                i++;
+                continue;
+            }
+            double startRate = interpolate(i, x);
+            double endRate = rates[i + 1];
+            double area = (startRate + endRate) / 2 * (end - x);
+            // The tolerance keeps the rounding errors from moving an arrival at the end of a segment past a gap.
+            if (area >= work - 1e-9) {
+                // Solve startRate * s + slope * s^2 / 2 = work
+                double slope = (endRate - startRate) / (end - x);
+                double s;
+                if (Math.abs(slope) < 1e-12) {
+                    s = work / startRate;
+                } else {
+                    s = (-startRate + Math.sqrt(Math.max(0, startRate * startRate + 2 * slope * work))) / slope;
+                }
+                return x + Math.min(s, end - x);
+            }
+            work -= area;
+            x = end;
+            i++;
+        }
+        return x + work / rates[last];
+    }
+
+    private int segmentOf(double time) {
+        int i = 0;
+        while (i < times.length - 2 && times[i + 1] <= time) {
+            i++;
+        }
+        return i;
+    }
+
+    private double interpolate(int i, double time) {
+        double span = times[i + 1] - times[i];
+        if (span <= 0)
+            return rates[i + 1];
+        return rates[i] + (rates[i + 1] - rates[i]) * (time - times[i]) / span;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.load;
+
+import tr.havelsan.ueransim.app.app.listeners.INodeMessagingListener;
+import tr.havelsan.ueransim.app.common.configs.ArrivalConfig;
+import tr.havelsan.ueransim.app.common.itms.IwUeTestCommand;
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
+import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
+import tr.havelsan.ueransim.app.common.testcmd.*;
+import tr.havelsan.ueransim.app.ue.UeNode;
+import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsSimExecutor;
+import tr.havelsan.ueransim.itms.ItmsTimer;
+import tr.havelsan.ueransim.itms.ItmsTimerService;
+import tr.havelsan.ueransim.nas.impl.messages.*;
+import tr.havelsan.ueransim.utils.Utils;
+import tr.havelsan.ueransim.utils.console.Console;
+import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Sends a test command to the UEs one by one, at the times of an {@link ArrivalProcess}, instead of sending it to
+ * all of them at once.
+ * <p>
+ * A UE is in flight from receiving the command until the procedure of the command completes, which is detected by
+ * watching the NAS messages of the UE. The number of UEs in flight can be limited, then the arrivals beyond the
+ * limit wait for a UE to complete. The arrivals are scheduled on the timer service, so they follow the virtual clock
+ * in the simulation mode. A UE that does not complete in the in-flight timeout is given up, and reported to the
+ * timeout handler, so that the measurements of its procedure can be dropped.
+ */
+public class LoadGenerator implements INodeMessagingListener {
+
+    private final ArrivalConfig config;
+    private final ItmsTimerService timerService;
+    private final ItmsSimExecutor simulation;
+    private final Random random;
+    private final Consumer<UeSimContext> timeoutHandler;
+
+    // Guarded by this, the state of the current command
+    private TestCmd command;
+    private List<UeSimContext> ues;
+    private ArrivalProcess process;
+    private HashMap<UUID, ItmsTimer> inFlight;
+    private ItmsTimer tickTimer;
+    private long startTime;
+    private double nextArrival;
+    private int arrived;
+    private int dispatched;
+    private int completed;
+    private int failed;
+    private int timedOut;
+    private int started;
+    private int peakInFlight;
+    private long lastArrivalTime;
+    private long lastCompletionTime;
+
+    /**
+     * Creates a generator on the given timer service. In the simulation mode, the simulation is given, which the
+     * caller of {@link #run} drives while it waits.
+     */
+    public LoadGenerator(ArrivalConfig config, ItmsTimerService timerService, ItmsSimExecutor simulation,
+                         Random random, Consumer<UeSimContext> timeoutHandler) {
+        this.config = config;
+        this.timerService = timerService;
+        this.simulation = simulation;
+        this.random = random;
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    /**
+     * Sends the command to the given UEs and waits until all of them are done with it, then reports the offered and
+     * the achieved rate.
+     */
+    public void run(TestCmd command, List<UeSimContext> ues) {
+        synchronized (this) {
+            this.command = command;
+            this.ues = ues;
+            this.process = new ArrivalProcess(config, random);
+            this.inFlight = new HashMap<>();
+            this.startTime = timerService.currentTimeMillis();
+            this.nextArrival = 0;
+            this.arrived = 0;
+            this.dispatched = 0;
+            this.completed = 0;
+            this.failed = 0;
+            this.timedOut = 0;
+            this.started = 0;
+            this.peakInFlight = 0;
+            this.lastArrivalTime = startTime;
+            this.lastCompletionTime = startTime;
+        }
+
+        tick();
+
+        if (simulation != null) {
+            // Nothing happens unless this thread runs the simulation.
+            while (!isFinished()) {
+                Utils.sleep(10);
+            }
+        } else {
+            awaitFinished();
+        }
+
+        report();
+    }
+
+    /**
+     * Waits until the UEs are done, which is signalled by the completions and the timeouts. The wait is bounded by
+     * the in-flight timeout, in case a signal is missed.
+     */
+    private synchronized void awaitFinished() {
+        while (!isFinished()) {
+            try {
+                wait(Math.max(1, config.inFlightTimeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private synchronized boolean isFinished() {
+        return dispatched == ues.size() && inFlight.isEmpty();
+    }
+
+    private void tick() {
+        var toDispatch = new ArrayList<UeSimContext>();
+
+        synchronized (this) {
+            // Called by the timer, or earlier if a UE in flight is done.
+            if (tickTimer != null) {
+                tickTimer.cancel();
+                tickTimer = null;
+            }
+
+            long now = timerService.currentTimeMillis();
+            double elapsed = (now - startTime) / 1000.0;
+            while (arrived < ues.size() && nextArrival <= elapsed) {
+                arrived++;
+                lastArrivalTime = now;
+                nextArrival = process.nextArrival(nextArrival);
+            }
+
+            while (dispatched < arrived && (config.maxInFlight <= 0 || inFlight.size() < config.maxInFlight)) {
+                var ue = ues.get(dispatched++);
+                toDispatch.add(ue);
+                if (completesOnSend(command)) {
+                    onCompleted(now);
+                } else {
+                    inFlight.put(ue.ctxId, timerService.schedule(config.inFlightTimeout, () -> onTimeout(ue)));
+                }
+            }
+            peakInFlight = Math.max(peakInFlight, inFlight.size());
+            signalIfFinished();
+
+            if (arrived < ues.size()) {
+                long delay = (long) Math.ceil((nextArrival - elapsed) * 1000);
+                tickTimer = timerService.schedule(Math.max(1, delay), this::tick);
+            }
+        }
+
+        // The messages are sent without holding the lock, since the UEs may call back to this listener.
+        for (var ue : toDispatch) {
+            if (UeNode.ensureRunning(ue)) {
+                synchronized (this) {
+                    started++;
+                }
+            }
+            ue.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeTestCommand(command));
+        }
+    }
+
+    private void complete(UUID ue, boolean isFailure) {
+        synchronized (this) {
+            if (inFlight == null)
+                return;
+            var timer = inFlight.remove(ue);
+            if (timer == null)
+                return;
+            timer.cancel();
+            onCompleted(timerService.currentTimeMillis());
+            if (isFailure) {
+                failed++;
+            }
+            signalIfFinished();
+            if (!isWaitingForSlot())
+                return;
+        }
+        tick();
+    }
+
+    private void onTimeout(UeSimContext ue) {
+        boolean isWaiting;
+        synchronized (this) {
+            if (inFlight == null || inFlight.remove(ue.ctxId) == null)
+                return;
+            timedOut++;
+            signalIfFinished();
+            isWaiting = isWaitingForSlot();
+        }
+        timeoutHandler.accept(ue);
+        if (isWaiting) {
+            tick();
+        }
+    }
+
+    private void onCompleted(long now) {
+        completed++;
+        lastCompletionTime = now;
+    }
+
+    private void signalIfFinished() {
+        if (isFinished()) {
+            notifyAll();
+        }
+    }
+
+    private boolean isWaitingForSlot() {
+        return dispatched < arrived;
+    }
+
+    private synchronized void report() {
+        double arrivalSeconds = Math.max(1, lastArrivalTime - startTime) / 1000.0;
+        double completionSeconds = Math.max(1, lastCompletionTime - startTime) / 1000.0;
+
+        Console.println(AnsiPalette.PAINT_IMPORTANT_INFO,
+                "INFO: %s to %d UEs (%s): offered %.1f UE/s, achieved %.1f UE/s, completed %d, failed %d, " +
+                        "timed out %d, peak in-flight %d, started %d UEs",
+                command.getClass().getSimpleName(), ues.size(), config.process,
+                arrived / arrivalSeconds, completed / completionSeconds, completed, failed, timedOut,
+                peakInFlight, started);
+
+        command = null;
+        ues = null;
+        inFlight = null;
+    }
+
+    /**
+     * Returns true if the procedure of the command cannot be observed, so the UE is not kept in flight.
+     */
+    private static boolean completesOnSend(TestCmd command) {
+        if (command instanceof TestCmd_InitialRegistration || command instanceof TestCmd_PeriodicRegistration)
+            return false;
+        if (command instanceof TestCmd_PduSessionEstablishment)
+            return false;
+        if (command instanceof TestCmd_Deregistration)
+            return ((TestCmd_Deregistration) command).isSwitchOff;
+        return true;
+    }
+
+    @Override
+    public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
+    }
+
+    @Override
+    public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+        if (!(ctx instanceof UeSimContext))
+            return;
+
+        if (message instanceof RegistrationAccept) {
+            complete(ctx.ctxId, false);
+        } else if (message instanceof RegistrationReject) {
+            complete(ctx.ctxId, true);
+        } else if (message instanceof DeRegistrationAcceptUeOriginating) {
+            complete(ctx.ctxId, false);
+        } else if (message instanceof PduSessionEstablishmentAccept) {
+            complete(ctx.ctxId, false);
+        } else if (message instanceof PduSessionEstablishmentReject) {
+            complete(ctx.ctxId, true);
+        }
+    }
+}
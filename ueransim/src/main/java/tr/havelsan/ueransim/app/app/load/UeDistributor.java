@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.load;
+
+import tr.havelsan.ueransim.app.common.Supi;
+import tr.havelsan.ueransim.app.common.enums.EUeDistribution;
+
+/**
+ * Decides which gNB a UE is connected to.
+ * <ul>
+ *     <li>ROUND_ROBIN: The UEs are given to the gNBs in turn, in the order of their SUPIs.</li>
+ *     <li>HASH: The gNB only depends on the SUPI, so a UE stays at the same gNB if the number of UEs changes.</li>
+ *     <li>WEIGHTED: Like round robin, but each gNB gets UEs in proportion to its weight. The UEs of a gNB are spread
+ *     over the cycle instead of being consecutive.</li>
+ * </ul>
+ */
+public class UeDistributor {
+
+    private final EUeDistribution policy;
+    private final int gnbCount;
+    // The gNB indexes of one weighted round, in order
+    private final int[] cycle;
+
+    public UeDistributor(EUeDistribution policy, int gnbCount, int[] weights) {
+        if (gnbCount <= 0)
+            throw new IllegalArgumentException("gnbCount <= 0");
+
+        this.policy = policy;
+        this.gnbCount = gnbCount;
+        this.cycle = policy == EUeDistribution.WEIGHTED ? weightedCycle(gnbCount, weights) : null;
+    }
+
+    /**
+     * Returns the index of the gNB of the UE with the given index and SUPI.
+     */
+    public int gnbIndexOf(int ueIndex, Supi supi) {
+        switch (policy) {
+            case HASH:
+                return Math.floorMod(mix(supi.toString().hashCode()), gnbCount);
+            case WEIGHTED:
+                return cycle[ueIndex % cycle.length];
+            case ROUND_ROBIN:
+            default:
+                return ueIndex % gnbCount;
+        }
+    }
+
+    /**
+     * Smooth weighted round robin: in each turn every gNB gains its weight, and the richest one is chosen and pays
+     * the total weight.
+     */
+    private static int[] weightedCycle(int gnbCount, int[] weights) {
+        if (weights == null || weights.length != gnbCount)
+            throw new IllegalArgumentException("a weight must be given for each gNB");
+
+        int total = 0;
+        for (int weight : weights) {
+            if (weight < 0)
+                throw new IllegalArgumentException("negative gNB weight");
+            total += weight;
+        }
+        if (total == 0)
+            throw new IllegalArgumentException("all gNB weights are zero");
+
+        var cycle = new int[total];
+        var current = new int[gnbCount];
+        for (int turn = 0; turn < total; turn++) {
+            int chosen = 0;
+            for (int i = 0; i < gnbCount; i++) {
+                current[i] += weights[i];
+                if (current[i] > current[chosen]) {
+                    chosen = i;
+                }
+            }
+            current[chosen] -= total;
+            cycle[turn] = chosen;
+        }
+        return cycle;
+    }
+
+    private static int mix(int h) {
+        // Final step of MurmurHash3, the hash codes of consecutive SUPIs are close to each other.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
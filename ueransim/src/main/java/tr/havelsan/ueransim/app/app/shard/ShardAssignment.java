@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+/**
+ * The part of a coordinated run that a worker runs. The workers have disjoint SUPI ranges, and the arrival rates
+ * are shared between them in proportion to their number of UEs.
+ */
+public class ShardAssignment {
+    public int index;
+    public int numberOfWorkers;
+    public int numberOfUes;
+    public long supiOffset;
+    public String scenario;
+    public String arrivalSpec; // As in BenchmarkApp, null for the arrival process of testing.yaml
+    public int maxInFlight;
+    public double rateFactor;
+    public long durationSeconds; // 0 means no limit
+    public String resultsDirectory;
+
+    /**
+     * Splits the given number of UEs between the workers, the first workers taking one more UE if it is not
+     * divisible. The SUPI offsets follow each other from 0.
+     */
+    public static ShardAssignment[] split(int numberOfUes, int numberOfWorkers) {
+        if (numberOfWorkers <= 0)
+            throw new IllegalArgumentException("number of workers must be positive");
+
+        var res = new ShardAssignment[numberOfWorkers];
+        long offset = 0;
+        for (int i = 0; i < numberOfWorkers; i++) {
+            res[i] = new ShardAssignment();
+            res[i].index = i;
+            res[i].numberOfWorkers = numberOfWorkers;
+            res[i].numberOfUes = numberOfUes / numberOfWorkers + (i < numberOfUes % numberOfWorkers ? 1 : 0);
+            res[i].supiOffset = offset;
+            res[i].rateFactor = numberOfUes == 0 ? 0 : (double) res[i].numberOfUes / numberOfUes;
+            offset += res[i].numberOfUes;
+        }
+        return res;
+    }
+}
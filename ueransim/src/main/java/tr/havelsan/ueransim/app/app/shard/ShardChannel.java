@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+import tr.havelsan.ueransim.app.common.enums.EShardMessage;
+import tr.havelsan.ueransim.utils.Json;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TCP connection between the coordinator and a worker. Each message is a {@link ShardMessage} in JSON, preceded by
+ * its length.
+ */
+class ShardChannel implements Closeable {
+
+    private static final int MAX_MESSAGE_LENGTH = 64 * 1024 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+
+    ShardChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    synchronized void send(ShardMessage message) throws IOException {
+        var bytes = Json.toJson(message).getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+        output.flush();
+    }
+
+    /**
+     * Receives the next message, which must be of the given type, and throws a
+     * {@link java.net.SocketTimeoutException} if it does not arrive in the given time. A timeout of 0 means no limit.
+     */
+    ShardMessage receive(EShardMessage expected, long timeoutMillis) throws IOException {
+        socket.setSoTimeout((int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+        try {
+            return receive(expected);
+        } finally {
+            socket.setSoTimeout(0);
+        }
+    }
+
+    /**
+     * Receives the next message, which must be of the given type.
+     */
+    ShardMessage receive(EShardMessage expected) throws IOException {
+        int length;
+        try {
+            length = input.readInt();
+        } catch (EOFException e) {
+            throw new IOException("connection closed by " + socket.getRemoteSocketAddress() + ", expected "
+                    + expected);
+        }
+        if (length < 0 || length > MAX_MESSAGE_LENGTH)
+            throw new IOException("invalid message length: " + length);
+        var bytes = new byte[length];
+        input.readFully(bytes);
+
+        ShardMessage message = Json.fromJson(new String(bytes, StandardCharsets.UTF_8), ShardMessage.class);
+        if (message == null || message.type != expected)
+            throw new IOException("expected " + expected + " from " + socket.getRemoteSocketAddress() + ", received "
+                    + (message == null ? null : message.type));
+        return message;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
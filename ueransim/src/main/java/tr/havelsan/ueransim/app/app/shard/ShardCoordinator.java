@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+import tr.havelsan.ueransim.app.common.enums.EShardMessage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a test case on several worker processes, each with its own shard of the UEs and gNBs, because a single JVM
+ * saturates well before the core network. The workers are either launched on this host, or started on other hosts
+ * with the address of the coordinator; in both cases they connect to the coordinator over TCP.
+ * <p>
+ * A run goes as follows: each worker receives its {@link ShardAssignment} when it connects, creates its UEs and
+ * gNBs, and reports that it is ready. When all workers are ready, they are told to start the test case at the same
+ * time. At the end, each worker sends its summary with the latency histograms, which are merged into the summary
+ * of the whole run.
+ * <p>
+ * A worker that does not report in time fails the run: the workers have 5 minutes to connect and to get ready, and
+ * the time limit of the test case plus a minute to send their results.
+ */
+public class ShardCoordinator implements Closeable {
+
+    private static final int CONNECT_TIMEOUT = 5 * 60 * 1000; // ms
+    private static final int ACCEPT_POLL_INTERVAL = 1000; // ms
+    private static final int RESULT_GRACE = 60 * 1000; // ms
+    private static final int EXIT_TIMEOUT = 10; // s
+
+    private final int numberOfWorkers;
+    private final ServerSocket serverSocket;
+    private final List<ShardChannel> channels;
+    private final List<Process> processes;
+
+    /**
+     * Listens on the given port for the workers, or on a free port if it is 0.
+     */
+    public ShardCoordinator(int numberOfWorkers, int port) throws IOException {
+        if (numberOfWorkers <= 0)
+            throw new IllegalArgumentException("number of workers must be positive");
+        this.numberOfWorkers = numberOfWorkers;
+        this.serverSocket = new ServerSocket(port);
+        this.channels = new ArrayList<>();
+        this.processes = new ArrayList<>();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Launches all workers on this host, as JVMs with the same options and class path as this one. The given
+     * arguments follow the address of the coordinator, and the output of each worker is written to the given
+     * directory.
+     */
+    public void launchLocalWorkers(String mainClass, List<String> args, Path logDirectory) throws IOException {
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var jvmOptions = ManagementFactory.getRuntimeMXBean().getInputArguments();
+
+        for (int i = 0; i < numberOfWorkers; i++) {
+            var command = new ArrayList<String>();
+            command.add(java);
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(mainClass);
+            command.add("--coordinator");
+            command.add("127.0.0.1:" + getPort());
+            command.addAll(args);
+
+            var output = new File(logDirectory.toFile(), "worker-" + i + ".log");
+            processes.add(new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output)
+                    .start());
+        }
+    }
+
+    /**
+     * Runs the given assignments, one per worker, in the order the workers connect. Returns the results of the
+     * workers in the same order.
+     */
+    public List<ShardResult> run(ShardAssignment[] assignments) throws IOException {
+        if (assignments.length != numberOfWorkers)
+            throw new IllegalArgumentException("one assignment is needed for each worker");
+
+        acceptWorkers();
+
+        for (int i = 0; i < numberOfWorkers; i++) {
+            var message = new ShardMessage(EShardMessage.ASSIGN);
+            message.assignment = assignments[i];
+            channels.get(i).send(message);
+        }
+
+        // The slowest worker determines when the test case starts.
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        for (int i = 0; i < numberOfWorkers; i++) {
+            receive(i, assignments[i], EShardMessage.READY, deadline);
+        }
+        for (var channel : channels) {
+            channel.send(new ShardMessage(EShardMessage.START));
+        }
+
+        long duration = 0;
+        for (var assignment : assignments) {
+            duration = Math.max(duration, assignment.durationSeconds * 1000);
+        }
+        deadline = duration > 0 ? System.currentTimeMillis() + duration + RESULT_GRACE : 0;
+
+        var results = new ArrayList<ShardResult>();
+        for (int i = 0; i < numberOfWorkers; i++) {
+            var message = receive(i, assignments[i], EShardMessage.RESULT, deadline);
+            results.add(new ShardResult(assignments[i].index, message.summary, message.isCompleted));
+        }
+        return results;
+    }
+
+    /**
+     * Receives the next message of the worker of the given channel until the given deadline, or without a limit if
+     * the deadline is 0.
+     */
+    private ShardMessage receive(int channel, ShardAssignment assignment, EShardMessage expected, long deadline)
+            throws IOException {
+        long timeout = deadline == 0 ? 0 : Math.max(1, deadline - System.currentTimeMillis());
+        try {
+            return channels.get(channel).receive(expected, timeout);
+        } catch (SocketTimeoutException e) {
+            throw new IOException(String.format("worker %d did not send %s in time", assignment.index, expected));
+        } catch (IOException e) {
+            throw new IOException(String.format("worker %d failed: %s", assignment.index, e.getMessage()), e);
+        }
+    }
+
+    private void acceptWorkers() throws IOException {
+        serverSocket.setSoTimeout(ACCEPT_POLL_INTERVAL);
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+
+        while (channels.size() < numberOfWorkers) {
+            try {
+                var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                channels.add(new ShardChannel(socket));
+            } catch (SocketTimeoutException e) {
+                for (var process : processes) {
+                    if (!process.isAlive())
+                        throw new IOException("a worker exited with status " + process.exitValue() + " before connecting");
+                }
+                if (System.currentTimeMillis() > deadline)
+                    throw new IOException(String.format("%d of %d workers connected in %d s", channels.size(),
+                            numberOfWorkers, CONNECT_TIMEOUT / 1000));
+            }
+        }
+    }
+
+    /**
+     * Closes the connections, and stops the local workers that do not exit by themselves.
+     */
+    @Override
+    public void close() throws IOException {
+        for (var channel : channels) {
+            channel.close();
+        }
+        serverSocket.close();
+
+        for (var process : processes) {
+            try {
+                if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Merges the summaries of the given results.
+     */
+    public static RunSummary merge(List<ShardResult> results) {
+        var summaries = new ArrayList<RunSummary>();
+        for (var result : results) {
+            summaries.add(result.summary);
+        }
+        return RunSummary.merge(summaries);
+    }
+
+    public static class ShardResult {
+        public final int index;
+        public final RunSummary summary;
+        public final boolean isCompleted;
+
+        public ShardResult(int index, RunSummary summary, boolean isCompleted) {
+            this.index = index;
+            this.summary = summary;
+            this.isCompleted = isCompleted;
+        }
+    }
+}
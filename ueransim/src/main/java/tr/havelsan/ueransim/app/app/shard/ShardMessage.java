@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+import tr.havelsan.ueransim.app.common.enums.EShardMessage;
+
+/**
+ * A message of {@link ShardChannel}. Only the fields of its type are set.
+ */
+class ShardMessage {
+    EShardMessage type;
+    ShardAssignment assignment; // ASSIGN
+    RunSummary summary; // RESULT
+    boolean isCompleted; // RESULT
+
+    ShardMessage(EShardMessage type) {
+        this.type = type;
+    }
+}
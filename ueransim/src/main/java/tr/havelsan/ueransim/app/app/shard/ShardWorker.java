@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+import tr.havelsan.ueransim.app.common.enums.EShardMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Worker side of a coordinated run, see {@link ShardCoordinator}.
+ */
+public class ShardWorker implements Closeable {
+
+    private final ShardChannel channel;
+
+    private ShardWorker(ShardChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Connects to the coordinator at the given address, in host:port form.
+     */
+    public static ShardWorker connect(String address) throws IOException {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0)
+            throw new IllegalArgumentException("coordinator address must be host:port");
+
+        var socket = new Socket(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+        socket.setTcpNoDelay(true);
+        return new ShardWorker(new ShardChannel(socket));
+    }
+
+    public ShardAssignment receiveAssignment() throws IOException {
+        return channel.receive(EShardMessage.ASSIGN).assignment;
+    }
+
+    /**
+     * Reports that this worker is ready, and waits until all workers are.
+     */
+    public void awaitStart() throws IOException {
+        channel.send(new ShardMessage(EShardMessage.READY));
+        channel.receive(EShardMessage.START);
+    }
+
+    public void sendResult(RunSummary summary, boolean isCompleted) throws IOException {
+        var message = new ShardMessage(EShardMessage.RESULT);
+        message.summary = summary;
+        message.isCompleted = isCompleted;
+        channel.send(message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values in the layout of HdrHistogram with two significant digits: values below 128 have
+ * their own buckets, and every power of two above is split into 64 buckets. So a percentile is accurate to 1.6%
+ * whatever the magnitude of the values, and the histogram has a fixed size of a few thousand counters.
+ * <p>
+ * Recording is lock-free and does not allocate. Histograms can be added together, for example the histograms of
+ * several processes.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong();
+    }
+
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        if (value < min.get()) {
+            min.accumulateAndGet(value, Math::min);
+        }
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Adds the values of the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        min.accumulateAndGet(other.min.get(), Math::min);
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Returns the histogram as count, sum, min and max, followed by the index and the count of each non-empty bucket.
+     */
+    public long[] encode() {
+        var res = new long[4 + 2 * BUCKET_COUNT];
+        res[0] = count.get();
+        res[1] = sum.get();
+        res[2] = min.get();
+        res[3] = max.get();
+        int length = 4;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                res[length++] = i;
+                res[length++] = c;
+            }
+        }
+        return Arrays.copyOf(res, length);
+    }
+
+    /**
+     * Creates a histogram from the result of {@link #encode()}.
+     */
+    public static LatencyHistogram decode(long[] encoded) {
+        if (encoded.length < 4 || encoded.length % 2 != 0)
+            throw new IllegalArgumentException("invalid encoded histogram");
+
+        var res = new LatencyHistogram();
+        res.count.set(encoded[0]);
+        res.sum.set(encoded[1]);
+        res.min.set(encoded[2]);
+        res.max.set(encoded[3]);
+        for (int i = 4; i < encoded.length; i += 2) {
+            if (encoded[i] < 0 || encoded[i] >= BUCKET_COUNT)
+                throw new IllegalArgumentException("invalid encoded histogram");
+            res.counts.addAndGet((int) encoded[i], encoded[i + 1]);
+        }
+        return res;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Returns the given percentile (0-100) of the recorded values, as the highest value of its bucket.
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        // The shift that brings the value into [64, 128)
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+        int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (bucket - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import tr.havelsan.ueransim.app.common.enums.EProcedure;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a procedure, and the histogram of its latency in milliseconds. Only the successful attempts are in
+ * the histogram.
+ */
+public final class ProcedureStats {
+
+    public final EProcedure procedure;
+
+    private final LongAdder attempts;
+    private final LongAdder successes;
+    private final LongAdder failures;
+    private final LatencyHistogram latency;
+    private final AtomicReference<LatencyHistogram> intervalLatency;
+
+    public ProcedureStats(EProcedure procedure) {
+        this.procedure = procedure;
+        this.attempts = new LongAdder();
+        this.successes = new LongAdder();
+        this.failures = new LongAdder();
+        this.latency = new LatencyHistogram();
+        this.intervalLatency = new AtomicReference<>(new LatencyHistogram());
+    }
+
+    public void onAttempt() {
+        attempts.increment();
+    }
+
+    /**
+     * Takes back an attempt that is neither a success nor a failure.
+     */
+    public void onDiscard() {
+        attempts.decrement();
+    }
+
+    public void onSuccess(long latencyMillis) {
+        successes.increment();
+        latency.record(latencyMillis);
+        intervalLatency.get().record(latencyMillis);
+    }
+
+    public void onFailure() {
+        failures.increment();
+    }
+
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns the number of attempts that have neither succeeded nor failed yet.
+     */
+    public long getInFlight() {
+        return Math.max(0, getAttempts() - getSuccesses() - getFailures());
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the latencies since the previous call and starts a new interval. A latency that is recorded during the
+     * call may be left out of the intervals, but not out of {@link #getLatency()}.
+     */
+    public LatencyHistogram takeIntervalLatency() {
+        return intervalLatency.getAndSet(new LatencyHistogram());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] attempts: %d, success: %d, failure: %d, in-flight: %d, " +
+                        "latency ms: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d",
+                procedure.displayName, getAttempts(), getSuccesses(), getFailures(), getInFlight(),
+                latency.getPercentile(50), latency.getPercentile(90), latency.getPercentile(99),
+                latency.getPercentile(99.9), latency.getMax());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+/**
+ * Result of a procedure at the end of a run, as written to the summary files. The latencies are in milliseconds.
+ */
+public class ProcedureSummary {
+    public String procedure;
+    public long attempts;
+    public long successes;
+    public long failures;
+    public long inFlight;
+    public double meanMillis;
+    public long p50Millis;
+    public long p90Millis;
+    public long p99Millis;
+    public long p999Millis;
+    public long maxMillis;
+    // See LatencyHistogram.encode
+    public long[] histogram;
+
+    public ProcedureSummary() {
+    }
+
+    public ProcedureSummary(String procedure, long attempts, long successes, long failures, LatencyHistogram latency) {
+        this.procedure = procedure;
+        this.attempts = attempts;
+        this.successes = successes;
+        this.failures = failures;
+        this.inFlight = Math.max(0, attempts - successes - failures);
+        this.meanMillis = latency.getMean();
+        this.p50Millis = latency.getPercentile(50);
+        this.p90Millis = latency.getPercentile(90);
+        this.p99Millis = latency.getPercentile(99);
+        this.p999Millis = latency.getPercentile(99.9);
+        this.maxMillis = latency.getMax();
+        this.histogram = latency.encode();
+    }
+
+    public static ProcedureSummary of(ProcedureStats stats) {
+        return new ProcedureSummary(stats.procedure.name(), stats.getAttempts(), stats.getSuccesses(),
+                stats.getFailures(), stats.getLatency());
+    }
+
+    /**
+     * Returns the successful percentage of the completed attempts, or 100 if none is completed.
+     */
+    public double getSuccessRate() {
+        long completed = successes + failures;
+        return completed == 0 ? 100 : 100.0 * successes / completed;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import tr.havelsan.ueransim.app.app.listeners.LoadTestMessagingListener;
+import tr.havelsan.ueransim.app.common.enums.EProcedure;
+import tr.havelsan.ueransim.itms.ItmsTimerService;
+import tr.havelsan.ueransim.utils.Json;
+import tr.havelsan.ueransim.utils.console.Console;
+import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes the results of a load testing run into its own directory:
+ * <ul>
+ *     <li>timeseries.csv and timeseries.jsonl: A row for each procedure every second, with the attempts, successes,
+ *     failures and latency percentiles of that second, and the number of attempts in flight at its end. Seconds
+ *     without activity are left out.</li>
+ *     <li>summary.csv and summary.json: The results of the whole run, rewritten at the end of each test case.</li>
+ * </ul>
+ * The counters are taken on the timer thread every second, and the rows are written and flushed on a writer thread of
+ * the sink, so that a slow disk does not hold the timers back. A failed write of the time series is reported and the
+ * next seconds are still tried.
+ */
+public class ResultSink {
+
+    private static final int INTERVAL = 1000; // ms
+    private static final String CSV_HEADER =
+            "procedure,attempts,successes,failures,in_flight,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private final Path directory;
+    private final LoadTestMessagingListener listener;
+    private final ItmsTimerService timerService;
+    private final int numberOfUes;
+    private final String startTime;
+    private final long startMillis;
+    private final BufferedWriter csv;
+    private final BufferedWriter jsonl;
+    private final ExecutorService writer;
+    // Counters at the end of the previous interval: attempts, successes and failures of each procedure
+    private final long[][] previous;
+    private boolean isClosed;
+
+    public ResultSink(Path baseDirectory, LoadTestMessagingListener listener, ItmsTimerService timerService,
+                      int numberOfUes) throws IOException {
+        this.startTime = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        this.directory = baseDirectory.resolve("run-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        this.listener = listener;
+        this.timerService = timerService;
+        this.numberOfUes = numberOfUes;
+        this.startMillis = timerService.currentTimeMillis();
+        this.previous = new long[EProcedure.values().length][3];
+
+        Files.createDirectories(directory);
+        this.csv = Files.newBufferedWriter(directory.resolve("timeseries.csv"), StandardCharsets.UTF_8);
+        this.jsonl = Files.newBufferedWriter(directory.resolve("timeseries.jsonl"), StandardCharsets.UTF_8);
+        csv.write("time_ms," + CSV_HEADER);
+        csv.newLine();
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "result-sink");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduleInterval();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void scheduleInterval() {
+        timerService.schedule(INTERVAL, () -> {
+            synchronized (this) {
+                if (isClosed)
+                    return;
+                long time = timerService.currentTimeMillis() - startMillis;
+                var rows = takeInterval();
+                writer.execute(() -> writeInterval(time, rows));
+            }
+            scheduleInterval();
+        });
+    }
+
+    /**
+     * Returns a row for each procedure with activity since the previous interval.
+     */
+    private List<ProcedureSummary> takeInterval() {
+        var rows = new ArrayList<ProcedureSummary>();
+
+        for (var procedure : EProcedure.values()) {
+            var stats = listener.getStats(procedure);
+            var latency = stats.takeIntervalLatency();
+            var last = previous[procedure.ordinal()];
+
+            long attempts = stats.getAttempts() - last[0];
+            long successes = stats.getSuccesses() - last[1];
+            long failures = stats.getFailures() - last[2];
+            long inFlight = stats.getInFlight();
+            last[0] += attempts;
+            last[1] += successes;
+            last[2] += failures;
+
+            if (attempts == 0 && successes == 0 && failures == 0 && inFlight == 0)
+                continue;
+
+            var row = new ProcedureSummary(procedure.name(), attempts, successes, failures, latency);
+            row.inFlight = inFlight;
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private void writeInterval(long time, List<ProcedureSummary> rows) {
+        try {
+            for (var row : rows) {
+                csv.write(time + "," + csvRow(row));
+                csv.newLine();
+
+                jsonl.write(String.format("{\"timeMillis\":%d,\"procedure\":\"%s\",\"attempts\":%d,\"successes\":%d," +
+                                "\"failures\":%d,\"inFlight\":%d,\"p50Millis\":%d,\"p90Millis\":%d,\"p99Millis\":%d," +
+                                "\"p999Millis\":%d,\"maxMillis\":%d}",
+                        time, row.procedure, row.attempts, row.successes, row.failures, row.inFlight, row.p50Millis,
+                        row.p90Millis, row.p99Millis, row.p999Millis, row.maxMillis));
+                jsonl.newLine();
+            }
+
+            csv.flush();
+            jsonl.flush();
+        } catch (IOException e) {
+            Console.println(AnsiPalette.PAINT_IMPORTANT_WARNING, "WARNING: Load testing time series at %d ms could " +
+                    "not be written: %s", time, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the results of the run so far.
+     */
+    public RunSummary createSummary() {
+        var summary = new RunSummary();
+        summary.startTime = startTime;
+        summary.durationMillis = timerService.currentTimeMillis() - startMillis;
+        summary.numberOfUes = numberOfUes;
+        for (var procedure : EProcedure.values()) {
+            var stats = listener.getStats(procedure);
+            if (stats.getAttempts() > 0) {
+                summary.procedures.add(ProcedureSummary.of(stats));
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Writes the results of the run so far into the summary files, and returns them.
+     */
+    public synchronized RunSummary writeSummary() {
+        var summary = createSummary();
+        if (isClosed)
+            return summary;
+        await(writer.submit(() -> {
+            writeSummary(directory, summary);
+            csv.flush();
+            jsonl.flush();
+            return null;
+        }));
+        return summary;
+    }
+
+    /**
+     * Writes the given results into summary.json and summary.csv of the given directory.
+     */
+    public static void writeSummary(Path directory, RunSummary summary) throws IOException {
+        Files.writeString(directory.resolve("summary.json"), Json.toJson(summary), StandardCharsets.UTF_8);
+
+        try (var writer = Files.newBufferedWriter(directory.resolve("summary.csv"), StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (var item : summary.procedures) {
+                writer.write(csvRow(item));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes the summary and closes the time series.
+     */
+    public synchronized RunSummary close() {
+        if (isClosed)
+            return createSummary();
+        var summary = writeSummary();
+        isClosed = true;
+        try {
+            await(writer.submit(() -> {
+                csv.close();
+                jsonl.close();
+                return null;
+            }));
+        } finally {
+            writer.shutdown();
+        }
+        return summary;
+    }
+
+    /**
+     * Waits for a task of the writer thread, and rethrows its failure.
+     */
+    private static void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw new UncheckedIOException((IOException) e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static String csvRow(ProcedureSummary item) {
+        return item.procedure + "," + item.attempts + "," + item.successes + "," + item.failures + "," +
+                item.inFlight + "," + item.p50Millis + "," + item.p90Millis + "," + item.p99Millis + "," +
+                item.p999Millis + "," + item.maxMillis;
+    }
+}
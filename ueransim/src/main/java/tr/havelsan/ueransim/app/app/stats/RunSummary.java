@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Results of a load testing run, as written to summary.json.
+ */
+public class RunSummary {
+    public String startTime;
+    public long durationMillis;
+    public int numberOfUes;
+    public List<ProcedureSummary> procedures = new ArrayList<>();
+
+    /**
+     * Merges the results of several processes that ran at the same time: the counters are added, and the latency
+     * percentiles are computed from the sum of the histograms.
+     */
+    public static RunSummary merge(List<RunSummary> summaries) {
+        var res = new RunSummary();
+        var latencies = new LinkedHashMap<String, LatencyHistogram>();
+
+        for (var summary : summaries) {
+            if (res.startTime == null || (summary.startTime != null && summary.startTime.compareTo(res.startTime) < 0)) {
+                res.startTime = summary.startTime;
+            }
+            res.durationMillis = Math.max(res.durationMillis, summary.durationMillis);
+            res.numberOfUes += summary.numberOfUes;
+
+            for (var item : summary.procedures) {
+                var merged = res.find(item.procedure);
+                if (merged == null) {
+                    merged = new ProcedureSummary();
+                    merged.procedure = item.procedure;
+                    res.procedures.add(merged);
+                    latencies.put(item.procedure, new LatencyHistogram());
+                }
+                merged.attempts += item.attempts;
+                merged.successes += item.successes;
+                merged.failures += item.failures;
+                if (item.histogram != null) {
+                    latencies.get(item.procedure).add(LatencyHistogram.decode(item.histogram));
+                }
+            }
+        }
+
+        for (int i = 0; i < res.procedures.size(); i++) {
+            var item = res.procedures.get(i);
+            res.procedures.set(i, new ProcedureSummary(item.procedure, item.attempts, item.successes, item.failures,
+                    latencies.get(item.procedure)));
+        }
+        return res;
+    }
+
+    public ProcedureSummary find(String procedure) {
+        for (var item : procedures) {
+            if (item.procedure.equals(procedure))
+                return item;
+        }
+        return null;
+    }
+}
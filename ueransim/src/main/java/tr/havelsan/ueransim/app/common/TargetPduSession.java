@@ -5,13 +5,11 @@
 
 package tr.havelsan.ueransim.app.common;
 
-import java.util.UUID;
-
 public class TargetPduSession {
-    public final UUID ueId;
+    public final int ueId;
     public final int psi;
 
-    public TargetPduSession(UUID ueId, int psi) {
+    public TargetPduSession(int ueId, int psi) {
         this.ueId = ueId;
         this.psi = psi;
     }
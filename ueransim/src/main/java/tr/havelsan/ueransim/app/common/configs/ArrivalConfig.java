@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.configs;
+
+import tr.havelsan.ueransim.app.common.enums.EArrivalProcess;
+
+/**
+ * How the UEs receive a test command over time. The rates are in UEs per second and the durations are in seconds.
+ */
+public class ArrivalConfig {
+    public final EArrivalProcess process;
+    public final double rate;
+    public final double rampStartRate;
+    public final double rampDuration;
+    public final double[] stepDurations;
+    public final double[] stepRates;
+    public final int maxInFlight;
+    public final int inFlightTimeout; // ms
+
+    public ArrivalConfig(EArrivalProcess process, double rate, double rampStartRate, double rampDuration,
+                         double[] stepDurations, double[] stepRates, int maxInFlight, int inFlightTimeout) {
+        this.process = process;
+        this.rate = rate;
+        this.rampStartRate = rampStartRate;
+        this.rampDuration = rampDuration;
+        this.stepDurations = stepDurations;
+        this.stepRates = stepRates;
+        this.maxInFlight = maxInFlight;
+        this.inFlightTimeout = inFlightTimeout;
+    }
+
+    /**
+     * Returns this arrival process with all rates and the in-flight limit multiplied by the given factor, for
+     * sharing the load between several processes.
+     */
+    public ArrivalConfig scaled(double factor) {
+        var scaledStepRates = new double[stepRates.length];
+        for (int i = 0; i < stepRates.length; i++) {
+            scaledStepRates[i] = stepRates[i] * factor;
+        }
+        int scaledMaxInFlight = maxInFlight > 0 ? Math.max(1, (int) Math.ceil(maxInFlight * factor)) : 0;
+        return new ArrivalConfig(process, rate * factor, rampStartRate * factor, rampDuration, stepDurations,
+                scaledStepRates, scaledMaxInFlight, inFlightTimeout);
+    }
+}
@@ -11,6 +11,7 @@ import tr.havelsan.ueransim.utils.bits.BitString;
 
 public class GnbConfig {
     public final int gnbId;
+    public final int gnbIdLength; // bits, the NCI starts with the gNB ID
     public final int tac;
     public final BitString nci;
     public final VPlmn gnbPlmn;
@@ -20,8 +21,12 @@ public class GnbConfig {
     public final String host;
     public final int gtpPort;
 
-    public GnbConfig(int gnbId, int tac, String nci, VPlmn gnbPlmn, GnbAmfConfig[] amfConfigs, SupportedTA[] supportedTAs, boolean ignoreStreamIds, String host, int gtpPort) {
+    public GnbConfig(int gnbId, int tac, String nci, VPlmn gnbPlmn, GnbAmfConfig[] amfConfigs, SupportedTA[] supportedTAs, boolean ignoreStreamIds, String host, int gtpPort, Integer gnbIdLength) {
+        if (gnbIdLength != null && (gnbIdLength < 22 || gnbIdLength > 32))
+            throw new IllegalArgumentException("gnbIdLength must be between 22 and 32");
+
         this.gnbId = gnbId;
+        this.gnbIdLength = gnbIdLength != null ? gnbIdLength : 32;
         this.tac = tac;
         this.nci = BitString.fromBits(nci);
         this.gnbPlmn = gnbPlmn;
@@ -5,10 +5,47 @@
 
 package tr.havelsan.ueransim.app.common.configs;
 
+import tr.havelsan.ueransim.app.common.enums.EExecutionMode;
+import tr.havelsan.ueransim.app.common.enums.EUeDistribution;
+import tr.havelsan.ueransim.itms.ItmsOverflowPolicy;
+
 public class LoadTestConfig {
     public final int numberOfUes;
+    public final int numberOfGnbs;
+    public final EUeDistribution ueDistribution;
+    public final int[] gnbWeights;
+    public final EExecutionMode executionMode;
+    public final int carrierThreads;
+    public final long simulationSeed;
+    public final int queueCapacity;
+    public final ItmsOverflowPolicy overflowPolicy;
+    public final int eventRingCapacity;
+    public final ArrivalConfig arrival;
+    public final String resultsDirectory;
+    // The SUPIs and the gNB IDs start this much after the ones in ue.yaml and gnb.yaml, see AppBuilder.setShard
+    public final long supiOffset;
+    public final int gnbOffset;
+    // True if this process is a worker of a coordinated run, which may share the host with the other workers
+    public final boolean isShard;
 
-    public LoadTestConfig(int numberOfUes) {
+    public LoadTestConfig(int numberOfUes, int numberOfGnbs, EUeDistribution ueDistribution, int[] gnbWeights,
+                          EExecutionMode executionMode, int carrierThreads, long simulationSeed,
+                          int queueCapacity, ItmsOverflowPolicy overflowPolicy, int eventRingCapacity, ArrivalConfig arrival,
+                          String resultsDirectory, long supiOffset, int gnbOffset, boolean isShard) {
         this.numberOfUes = numberOfUes;
+        this.numberOfGnbs = numberOfGnbs;
+        this.ueDistribution = ueDistribution;
+        this.gnbWeights = gnbWeights;
+        this.executionMode = executionMode;
+        this.carrierThreads = carrierThreads;
+        this.simulationSeed = simulationSeed;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.eventRingCapacity = eventRingCapacity;
+        this.arrival = arrival;
+        this.resultsDirectory = resultsDirectory;
+        this.supiOffset = supiOffset;
+        this.gnbOffset = gnbOffset;
+        this.isShard = isShard;
     }
 }
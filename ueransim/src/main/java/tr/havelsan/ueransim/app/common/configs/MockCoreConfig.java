@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.configs;
+
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+/**
+ * The in-process core network that answers the gNBs instead of a real one. All subscribers share the key, OP and
+ * AMF of the UE configuration. The addresses are IPv4 addresses in dotted notation.
+ */
+public class MockCoreConfig {
+    public final OctetString key;
+    public final OctetString op;
+    public final OctetString amf;
+    public final String upfAddress;
+    public final String ueAddressPool; // First address given to the UEs
+
+    public MockCoreConfig(OctetString key, OctetString op, OctetString amf, String upfAddress, String ueAddressPool) {
+        this.key = key;
+        this.op = op;
+        this.amf = amf;
+        this.upfAddress = upfAddress;
+        this.ueAddressPool = ueAddressPool;
+    }
+}
@@ -15,10 +15,8 @@ import tr.havelsan.ueransim.ngap0.ies.sequences.NGAP_MobilityRestrictionList;
 import tr.havelsan.ueransim.ngap0.ies.sequences.NGAP_UEAggregateMaximumBitRate;
 import tr.havelsan.ueransim.ngap0.ies.sequences.NGAP_UESecurityCapabilities;
 
-import java.util.UUID;
-
 public class GnbUeContext {
-    public final UUID ueCtxId;
+    public final int ueCtxId;
 
     public Long amfUeNgapId;
     public long ranUeNgapId;
@@ -35,7 +33,7 @@ public class GnbUeContext {
     public NGAP_SecurityKey securityKey;
     public NGAP_PagingPriority pagingPriority;
 
-    public GnbUeContext(UUID ueCtxId) {
+    public GnbUeContext(int ueCtxId) {
         this.ueCtxId = ueCtxId;
     }
 }
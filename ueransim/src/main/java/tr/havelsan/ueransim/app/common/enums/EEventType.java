@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.enums;
+
+import tr.havelsan.ueransim.nas.core.ProtocolEnum;
+
+/**
+ * Types of the events in the event log, see {@link tr.havelsan.ueransim.app.utils.EventLogging}. The values are
+ * written into the log, so they are not changed.
+ */
+public class EEventType extends ProtocolEnum {
+    public static final EEventType NAS_PLAIN_SENT = new EEventType(1, "Plain NAS sent");
+    public static final EEventType NAS_SECURED_SENT = new EEventType(2, "Secured NAS sent");
+    public static final EEventType NAS_SECURED_RECEIVED = new EEventType(3, "Secured NAS received");
+    public static final EEventType NAS_PLAIN_RECEIVED = new EEventType(4, "Plain NAS received");
+    public static final EEventType NGAP_SENT = new EEventType(5, "NGAP sent");
+    public static final EEventType NGAP_RECEIVED = new EEventType(6, "NGAP received");
+
+    private EEventType(int value, String name) {
+        super(value, name);
+    }
+
+    public static EEventType fromValue(int value) {
+        return fromValueGeneric(EEventType.class, value, null);
+    }
+}
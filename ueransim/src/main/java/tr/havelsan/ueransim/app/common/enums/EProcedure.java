@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.enums;
+
+public enum EProcedure {
+    NG_SETUP("NGSetup"),
+    REGISTRATION("Registration"),
+    AUTHENTICATION("Authentication (UE/RAN)"),
+    SECURITY_MODE_CONTROL("Security Mode Control (UE/RAN)"),
+    PDU_SESSION_ESTABLISHMENT("PDU Session Establishment"),
+    DEREGISTRATION("De-Registration"),
+    PHASE_1("Phase 1 (Network)"),
+    PHASE_2("Phase 2 (Network)"),
+    PHASE_3("Phase 3 (Network)");
+
+    public final String displayName;
+
+    EProcedure(String displayName) {
+        this.displayName = displayName;
+    }
+}
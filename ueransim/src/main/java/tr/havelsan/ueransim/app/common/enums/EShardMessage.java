@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.enums;
+
+/**
+ * Messages between the coordinator and the workers of a sharded run, in the order they are sent.
+ */
+public enum EShardMessage {
+    // Coordinator to worker: the shard of the worker
+    ASSIGN,
+    // Worker to coordinator: the UEs and gNBs are ready
+    READY,
+    // Coordinator to worker: all workers are ready, start the test case
+    START,
+    // Worker to coordinator: the results of the test case
+    RESULT
+}
@@ -5,26 +5,26 @@
 
 package tr.havelsan.ueransim.app.common.exceptions;
 
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.ngap0.core.NGAP_Enumerated;
 import tr.havelsan.ueransim.ngap0.ies.enumerations.NGAP_CauseMisc;
 
-import java.util.UUID;
-
 public class NgapErrorException extends RuntimeException {
 
     public final NGAP_Enumerated cause;
-    public final UUID associatedUe;
+    // Handle of the UE context, or NO_HANDLE
+    public final int associatedUe;
 
-    public NgapErrorException(NGAP_Enumerated cause, UUID associatedUe) {
+    public NgapErrorException(NGAP_Enumerated cause, int associatedUe) {
         this.cause = cause;
         this.associatedUe = associatedUe;
     }
 
     public NgapErrorException(NGAP_Enumerated cause) {
-        this(cause, null);
+        this(cause, BaseSimContext.NO_HANDLE);
     }
 
     public NgapErrorException() {
-        this(NGAP_CauseMisc.UNSPECIFIED, null);
+        this(NGAP_CauseMisc.UNSPECIFIED, BaseSimContext.NO_HANDLE);
     }
 }
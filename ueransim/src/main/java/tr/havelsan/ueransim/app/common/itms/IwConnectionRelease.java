@@ -5,12 +5,10 @@
 
 package tr.havelsan.ueransim.app.common.itms;
 
-import java.util.UUID;
-
 public class IwConnectionRelease {
-    public final UUID ue;
+    public final int ue;
 
-    public IwConnectionRelease(UUID ue) {
+    public IwConnectionRelease(int ue) {
         this.ue = ue;
     }
 }
@@ -5,15 +5,14 @@
 
 package tr.havelsan.ueransim.app.common.itms;
 
+import tr.havelsan.ueransim.itms.IUserPlaneMessage;
 import tr.havelsan.ueransim.utils.octets.OctetString;
 
-import java.util.UUID;
-
-public class IwDownlinkData {
-    public final UUID ueId;
+public class IwDownlinkData implements IUserPlaneMessage {
+    public final int ueId;
     public final OctetString ipPacket;
 
-    public IwDownlinkData(UUID ueId, OctetString ipPacket) {
+    public IwDownlinkData(int ueId, OctetString ipPacket) {
         this.ueId = ueId;
         this.ipPacket = ipPacket;
     }
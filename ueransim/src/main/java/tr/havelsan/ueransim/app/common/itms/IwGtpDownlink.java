@@ -5,11 +5,12 @@
 
 package tr.havelsan.ueransim.app.common.itms;
 
+import tr.havelsan.ueransim.itms.IUserPlaneMessage;
 import tr.havelsan.ueransim.utils.octets.OctetString;
 
 import java.net.InetAddress;
 
-public class IwGtpDownlink {
+public class IwGtpDownlink implements IUserPlaneMessage {
     public final OctetString data;
     public final InetAddress address;
     public final int port;
@@ -12,10 +12,12 @@ public class IwNgapReceive {
     public final Guami associatedAmf;
     public final int stream;
     public final NGAP_PDU ngapPdu;
+    public final byte[] aperPdu; // The PDU as it is received, for the event log
 
-    public IwNgapReceive(Guami associatedAmf, int stream, NGAP_PDU ngapPdu) {
+    public IwNgapReceive(Guami associatedAmf, int stream, NGAP_PDU ngapPdu, byte[] aperPdu) {
         this.associatedAmf = associatedAmf;
         this.stream = stream;
         this.ngapPdu = ngapPdu;
+        this.aperPdu = aperPdu;
     }
 }
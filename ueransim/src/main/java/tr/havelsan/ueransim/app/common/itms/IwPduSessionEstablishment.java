@@ -7,14 +7,12 @@ package tr.havelsan.ueransim.app.common.itms;
 
 import tr.havelsan.ueransim.app.common.PduSession;
 
-import java.util.UUID;
-
 public class IwPduSessionEstablishment {
 
-    public final UUID ueId;
+    public final int ueId;
     public final PduSession pduSession;
 
-    public IwPduSessionEstablishment(UUID ueId, PduSession pduSession) {
+    public IwPduSessionEstablishment(int ueId, PduSession pduSession) {
         this.ueId = ueId;
         this.pduSession = pduSession;
     }
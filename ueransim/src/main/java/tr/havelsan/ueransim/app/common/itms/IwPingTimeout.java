@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.itms;
+
+public class IwPingTimeout {
+    public final int pingId;
+
+    public IwPingTimeout(int pingId) {
+        this.pingId = pingId;
+    }
+}
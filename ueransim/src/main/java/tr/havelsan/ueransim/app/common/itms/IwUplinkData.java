@@ -5,16 +5,15 @@
 
 package tr.havelsan.ueransim.app.common.itms;
 
+import tr.havelsan.ueransim.itms.IUserPlaneMessage;
 import tr.havelsan.ueransim.utils.octets.OctetString;
 
-import java.util.UUID;
-
-public class IwUplinkData {
-    public final UUID ueId;
+public class IwUplinkData implements IUserPlaneMessage {
+    public final int ueId;
     public final int pduSessionId;
     public final OctetString ipData;
 
-    public IwUplinkData(UUID ueId, int pduSessionId, OctetString ipData) {
+    public IwUplinkData(int ueId, int pduSessionId, OctetString ipData) {
         this.ueId = ueId;
         this.pduSessionId = pduSessionId;
         this.ipData = ipData;
@@ -7,13 +7,11 @@ package tr.havelsan.ueransim.app.common.itms;
 
 import tr.havelsan.ueransim.utils.octets.OctetString;
 
-import java.util.UUID;
-
 public class IwUplinkNas {
-    public final UUID ue;
+    public final int ue;
     public final OctetString nasPdu;
 
-    public IwUplinkNas(UUID ue, OctetString nasPdu) {
+    public IwUplinkNas(int ue, OctetString nasPdu) {
         this.ue = ue;
         this.nasPdu = nasPdu;
     }
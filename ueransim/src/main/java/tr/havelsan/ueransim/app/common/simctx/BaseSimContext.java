@@ -11,13 +11,27 @@ import tr.havelsan.ueransim.itms.Itms;
 import java.util.UUID;
 
 public class BaseSimContext {
+    // Handle of a context that is not in the table of a simulation
+    public static final int NO_HANDLE = -1;
+
     public final UeRanSim sim;
     public final UUID ctxId;
+    // Dense handle of the context, see SimContextTable
+    public final int handle;
     public final Itms itms;
 
     public BaseSimContext(UeRanSim sim) {
+        this(sim, sim != null ? sim.newContextId() : UUID.randomUUID());
+    }
+
+    public BaseSimContext(UeRanSim sim, UUID ctxId) {
+        this(sim, ctxId, sim != null ? sim.allocateHandle() : NO_HANDLE);
+    }
+
+    public BaseSimContext(UeRanSim sim, UUID ctxId, int handle) {
         this.sim = sim;
-        this.ctxId = UUID.randomUUID();
+        this.ctxId = ctxId;
+        this.handle = handle;
         this.itms = new Itms();
     }
 }
@@ -14,14 +14,13 @@ import tr.havelsan.ueransim.app.common.contexts.GtpUContext;
 import tr.havelsan.ueransim.utils.console.Logger;
 
 import java.util.HashMap;
-import java.util.UUID;
 
 public class GnbSimContext extends BaseSimContext {
     public Logger logger;
     public GnbConfig config;
 
     public HashMap<Guami, GnbAmfContext> amfContexts;
-    public HashMap<UUID, GnbUeContext> ueContexts;
+    public HashMap<Integer, GnbUeContext> ueContexts;
     public long ueNgapIdCounter;
 
     public GtpUContext gtpUCtx;
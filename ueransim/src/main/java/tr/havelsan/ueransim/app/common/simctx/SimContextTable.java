@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.simctx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Maps the dense handles of the contexts to the contexts, so that finding the destination of a message between the
+ * nodes is an array load instead of a map lookup under a lock.
+ * <p>
+ * The handles are given in order from 0. The contexts are kept in chunks of a fixed size, which are created when
+ * the first handle in them is given, so the table grows without copying and without locking its readers.
+ */
+public class SimContextTable {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << 12;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<BaseSimContext>> chunks;
+    private final AtomicInteger nextHandle;
+
+    public SimContextTable() {
+        this.chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+        this.nextHandle = new AtomicInteger();
+    }
+
+    /**
+     * Returns a new handle, which is not used by any context yet.
+     */
+    public int allocate() {
+        int handle = nextHandle.getAndIncrement();
+        if (handle >= MAX_CHUNKS * CHUNK_SIZE)
+            throw new IllegalStateException("context table is full");
+        return handle;
+    }
+
+    public void put(BaseSimContext ctx) {
+        if (ctx.handle < 0 || ctx.handle >= nextHandle.get())
+            throw new IllegalArgumentException("handle is not allocated: " + ctx.handle);
+
+        int index = ctx.handle >>> CHUNK_BITS;
+        var chunk = chunks.get(index);
+        if (chunk == null) {
+            chunks.compareAndSet(index, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(index);
+        }
+        chunk.set(ctx.handle & CHUNK_MASK, ctx);
+    }
+
+    /**
+     * Returns the context with the given handle, or null if there is no such context.
+     */
+    public BaseSimContext get(int handle) {
+        if (handle < 0 || handle >= MAX_CHUNKS * CHUNK_SIZE)
+            return null;
+        var chunk = chunks.get(handle >>> CHUNK_BITS);
+        return chunk == null ? null : chunk.get(handle & CHUNK_MASK);
+    }
+
+    public int size() {
+        return nextHandle.get();
+    }
+}
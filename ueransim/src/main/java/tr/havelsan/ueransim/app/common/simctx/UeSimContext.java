@@ -18,20 +18,34 @@ import java.util.UUID;
 
 public class UeSimContext extends BaseSimContext {
     public Logger logger;
+    // Position of the UE in the fleet of the simulation, or -1
+    public int index = -1;
 
     public UeData ueData;
     public UeConfig ueConfig;
     public UeTimers ueTimers;
 
-    public UUID connectedGnb;
+    // Handle of the gNB context
+    public int connectedGnb = NO_HANDLE;
 
     public MmContext mmCtx;
     public SmContext smCtx;
     public NasSecurityContext currentNsCtx;
     public NasSecurityContext nonCurrentNsCtx;
 
+    // True after the tasks of the UE are created, see UeNode.ensureRunning
+    public volatile boolean isRunning;
+
     public UeSimContext(UeRanSim sim) {
-        super(sim);
+        this(sim, sim != null ? sim.newContextId() : UUID.randomUUID());
+    }
+
+    public UeSimContext(UeRanSim sim, UUID ctxId) {
+        this(sim, ctxId, sim != null ? sim.allocateHandle() : NO_HANDLE);
+    }
+
+    public UeSimContext(UeRanSim sim, UUID ctxId, int handle) {
+        super(sim, ctxId, handle);
         this.ueTimers = new UeTimers(this);
         this.mmCtx = new MmContext();
         this.smCtx = new SmContext();
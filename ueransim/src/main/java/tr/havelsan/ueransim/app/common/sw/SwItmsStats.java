@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.sw;
+
+import tr.havelsan.ueransim.itms.ItmsTaskStats;
+
+import java.util.Map;
+
+public class SwItmsStats extends SocketWrapper {
+    public final Map<String, Map<Integer, ItmsTaskStats>> data;
+
+    public SwItmsStats(Map<String, Map<Integer, ItmsTaskStats>> data) {
+        this.data = data;
+    }
+}
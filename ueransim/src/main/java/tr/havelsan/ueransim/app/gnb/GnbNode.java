@@ -16,8 +16,8 @@ import tr.havelsan.ueransim.app.gnb.ngap.NgapTask;
 import tr.havelsan.ueransim.app.gnb.sctp.SctpTask;
 import tr.havelsan.ueransim.app.utils.ConfigUtils;
 import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsMonitor;
 import tr.havelsan.ueransim.itms.ItmsTask;
-import tr.havelsan.ueransim.utils.console.Log;
 
 public class GnbNode {
 
@@ -44,9 +44,11 @@ public class GnbNode {
     }
 
     public static void run(GnbSimContext ctx) {
-        ctx.logger = ConfigUtils.createLoggerFor(ConfigUtils.generateNodeName(ctx));
+        var nodeName = ConfigUtils.generateNodeName(ctx);
+        ctx.logger = ConfigUtils.createLoggerFor(ctx);
 
         var itms = ctx.itms;
+        ItmsMonitor.register(nodeName, itms);
 
         var tasks = new ItmsTask[]{
                 new SctpTask(itms, ItmsId.GNB_TASK_SCTP, ctx),
@@ -57,7 +59,7 @@ public class GnbNode {
         };
 
         for (var task : tasks) {
-            Log.registerLogger(task.thread, ctx.logger);
+            task.setLogger(ctx.logger);
         }
         for (var task : tasks) {
             itms.createTask(task);
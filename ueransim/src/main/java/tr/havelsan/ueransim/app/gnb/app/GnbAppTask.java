@@ -8,12 +8,12 @@ package tr.havelsan.ueransim.app.gnb.app;
 import tr.havelsan.ueransim.app.common.itms.IwInitialSctpReady;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.itms.Itms;
-import tr.havelsan.ueransim.itms.ItmsTask;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 
-public class GnbAppTask extends ItmsTask {
+public class GnbAppTask extends ItmsEventTask {
 
     private final GnbSimContext ctx;
-    private boolean initialSctpReady;
+    private volatile boolean initialSctpReady;
 
     public GnbAppTask(Itms itms, int taskId, GnbSimContext ctx) {
         super(itms, taskId);
@@ -21,12 +21,9 @@ public class GnbAppTask extends ItmsTask {
     }
 
     @Override
-    public void main() {
-        while (true) {
-            var msg = ctx.itms.receiveMessage(this);
-            if (msg instanceof IwInitialSctpReady) {
-                initialSctpReady = true;
-            }
+    protected void onMessage(Object msg) {
+        if (msg instanceof IwInitialSctpReady) {
+            initialSctpReady = true;
         }
     }
 
@@ -28,9 +28,13 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 public class GtpTask extends ItmsTask {
 
+    // Maximum number of messages handled per wake-up
+    private static final int BATCH_SIZE = 64;
+
     private final GnbSimContext ctx;
     private GtpUContext gtpCtx;
     private DatagramSocket socket;
@@ -50,7 +54,7 @@ public class GtpTask extends ItmsTask {
             return;
         }
 
-        var receiverThread = new Thread(() -> {
+        var receiverThread = new Thread(Log.withLogger(getLogger(), () -> {
             var buffer = new byte[65535];
 
             var datagram = new DatagramPacket(buffer, buffer.length);
@@ -63,21 +67,23 @@ public class GtpTask extends ItmsTask {
                 }
                 itms.sendMessage(ItmsId.GNB_TASK_GTP, new IwGtpDownlink(new OctetString(datagram.getData(), datagram.getOffset(), datagram.getLength()), datagram.getAddress(), datagram.getPort()));
             }
-        });
-
-        Log.registerLogger(receiverThread, Log.getLoggerOrDefault(thread));
+        }));
 
         receiverThread.start();
 
+        Consumer<Object> handler = this::handleMessage;
         while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwPduSessionResourceCreate) {
-                handleTunnelCreate(((IwPduSessionResourceCreate) msg).pduSessionResource);
-            } else if (msg instanceof IwUplinkData) {
-                handleUplinkData((IwUplinkData) msg);
-            } else if (msg instanceof IwGtpDownlink) {
-                handleDownlinkGtp((IwGtpDownlink) msg);
-            }
+            itms.receiveMessages(this, BATCH_SIZE, handler);
+        }
+    }
+
+    private void handleMessage(Object msg) {
+        if (msg instanceof IwPduSessionResourceCreate) {
+            handleTunnelCreate(((IwPduSessionResourceCreate) msg).pduSessionResource);
+        } else if (msg instanceof IwUplinkData) {
+            handleUplinkData((IwUplinkData) msg);
+        } else if (msg instanceof IwGtpDownlink) {
+            handleDownlinkGtp((IwGtpDownlink) msg);
         }
     }
 
@@ -89,7 +95,7 @@ public class GtpTask extends ItmsTask {
         }
 
         var pduSessionOpt = this.gtpCtx.pduSessions.stream()
-                .filter(r -> r.ueId.equals(msg.ueId) && r.pduSessionId == msg.pduSessionId)
+                .filter(r -> r.ueId == msg.ueId && r.pduSessionId == msg.pduSessionId)
                 .findFirst();
         if (pduSessionOpt.isEmpty()) {
             Log.error(Tag.GTP, "TEID not found on GTP-U Uplink");
@@ -9,11 +9,22 @@ import tr.havelsan.ueransim.app.common.itms.*;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.app.gnb.ngap.NgapNasTransport;
 import tr.havelsan.ueransim.itms.Itms;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.itms.ItmsId;
-import tr.havelsan.ueransim.itms.ItmsTask;
 import tr.havelsan.ueransim.nas.NasDecoder;
 
-public class MrTask extends ItmsTask {
+public class MrTask extends ItmsEventTask {
+
+    private static final ItmsDispatcher<MrTask> DISPATCHER = new ItmsDispatcher<MrTask>()
+            .on(IwUplinkNas.class, (task, w) -> NgapNasTransport.receiveUplinkNasTransport(task.ctx, w.ue, NasDecoder.nasPdu(w.nasPdu)))
+            .on(IwDownlinkNas.class, (task, w) -> task.ctx.sim.findUe(w.ue).itms.sendMessage(ItmsId.UE_TASK_MR, new IwDownlinkNas(w.ue, w.nasPdu)))
+            .on(IwConnectionRelease.class, (task, w) -> task.ctx.sim.findUe(w.ue).itms.sendMessage(ItmsId.UE_TASK_MR, new IwConnectionRelease(w.ue)))
+            .on(IwUplinkData.class, (task, w) -> task.itms.sendMessage(ItmsId.GNB_TASK_GTP, w))
+            .on(IwDownlinkData.class, (task, w) -> {
+                task.ctx.sim.getAirCtx().itms.sendMessage(ItmsId.AIR_TASK_TB, w);
+                task.ctx.sim.findUe(w.ueId).itms.sendMessage(ItmsId.UE_TASK_MR, w);
+            });
 
     private final GnbSimContext ctx;
 
@@ -23,26 +34,7 @@ public class MrTask extends ItmsTask {
     }
 
     @Override
-    public void main() {
-        while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwUplinkNas) {
-                var w = (IwUplinkNas) msg;
-                NgapNasTransport.receiveUplinkNasTransport(ctx, w.ue, NasDecoder.nasPdu(w.nasPdu));
-            } else if (msg instanceof IwDownlinkNas) {
-                var w = (IwDownlinkNas) msg;
-                ctx.sim.findUe(w.ue).itms.sendMessage(ItmsId.UE_TASK_MR, new IwDownlinkNas(w.ue, w.nasPdu));
-            } else if (msg instanceof IwConnectionRelease) {
-                var w = (IwConnectionRelease) msg;
-                ctx.sim.findUe(w.ue).itms.sendMessage(ItmsId.UE_TASK_MR, new IwConnectionRelease(w.ue));
-            } else if (msg instanceof IwUplinkData) {
-                itms.sendMessage(ItmsId.GNB_TASK_GTP, msg);
-            } else if (msg instanceof IwDownlinkData) {
-                var w = (IwDownlinkData) msg;
-
-                ctx.sim.getAirCtx().itms.sendMessage(ItmsId.AIR_TASK_TB, msg);
-                ctx.sim.findUe(w.ueId).itms.sendMessage(ItmsId.UE_TASK_MR, msg);
-            }
-        }
+    protected void onMessage(Object msg) {
+        DISPATCHER.dispatch(this, msg);
     }
 }
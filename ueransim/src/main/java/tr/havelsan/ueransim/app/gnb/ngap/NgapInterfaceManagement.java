@@ -22,7 +22,7 @@ public class NgapInterfaceManagement {
         Log.info(Tag.PROCEDURE_RESULT, "NGSetup procedure is starting");
 
         var msg = new NGAP_NGSetupRequest();
-        msg.addProtocolIe(NgapUtils.createGlobalGnbId(ctx.config.gnbId, ctx.config.gnbPlmn));
+        msg.addProtocolIe(NgapUtils.createGlobalGnbId(ctx.config.gnbId, ctx.config.gnbIdLength, ctx.config.gnbPlmn));
         msg.addProtocolIe(NgapUtils.createSupportedTAList(ctx.config.supportedTAs));
         msg.addProtocolIe(NGAP_PagingDRX.V64);
 
@@ -28,11 +28,10 @@ import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.bits.Bit10;
 import tr.havelsan.ueransim.utils.console.Log;
 
-import java.util.UUID;
 
 public class NgapNasTransport {
 
-    public static void receiveUplinkNasTransport(GnbSimContext ctx, UUID associatedUe, NasMessage nasMessage) {
+    public static void receiveUplinkNasTransport(GnbSimContext ctx, int associatedUe, NasMessage nasMessage) {
         Log.funcIn("Handling Uplink NAS Transport");
 
         NGAP_BaseMessage ngap;
@@ -6,14 +6,17 @@
 package tr.havelsan.ueransim.app.gnb.ngap;
 
 import tr.havelsan.ueransim.app.common.Guami;
+import tr.havelsan.ueransim.app.common.enums.EEventType;
 import tr.havelsan.ueransim.app.common.exceptions.NgapErrorException;
 import tr.havelsan.ueransim.app.common.itms.IwNgapReceive;
 import tr.havelsan.ueransim.app.common.itms.IwSctpAssociationSetup;
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
+import tr.havelsan.ueransim.app.utils.EventLogging;
 import tr.havelsan.ueransim.itms.Itms;
-import tr.havelsan.ueransim.itms.ItmsTask;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.ngap0.Ngap;
-import tr.havelsan.ueransim.ngap0.NgapXerEncoder;
 import tr.havelsan.ueransim.ngap0.core.NGAP_Value;
 import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_Cause;
 import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_UE_NGAP_IDs;
@@ -22,34 +25,45 @@ import tr.havelsan.ueransim.ngap0.ies.integers.NGAP_RAN_UE_NGAP_ID;
 import tr.havelsan.ueransim.ngap0.msg.*;
 import tr.havelsan.ueransim.ngap0.pdu.NGAP_PDU;
 import tr.havelsan.ueransim.utils.Tag;
-import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.console.Log;
 
 
-public class NgapTask extends ItmsTask {
+public class NgapTask extends ItmsEventTask {
+
+    private static final ItmsDispatcher<NgapTask> TASK_DISPATCHER = new ItmsDispatcher<NgapTask>()
+            .on(IwNgapReceive.class, (task, w) -> task.receiveNgap(w.associatedAmf, w.stream, w.ngapPdu, w.aperPdu))
+            .on(IwSctpAssociationSetup.class, (task, w) -> NgapInterfaceManagement.sendNgSetupRequest(task.ctx, w.guami));
+
+    private static final ItmsDispatcher<NgapTask> NGAP_DISPATCHER = new ItmsDispatcher<NgapTask>()
+            .on(NGAP_NGSetupResponse.class, (task, m) -> NgapInterfaceManagement.receiveNgSetupResponse(task.ctx, m))
+            .on(NGAP_NGSetupFailure.class, (task, m) -> NgapInterfaceManagement.receiveNgSetupFailure(task.ctx, m))
+            .on(NGAP_DownlinkNASTransport.class, (task, m) -> NgapNasTransport.receiveDownlinkNasTransport(task.ctx, m))
+            .on(NGAP_InitialContextSetupRequest.class, (task, m) -> NgapUeContextManagement.receiveInitialContextSetup(task.ctx, m))
+            .on(NGAP_RerouteNASRequest.class, (task, m) -> NgapNasTransport.receiveRerouteNasRequest(task.ctx, task.associatedAmf, m))
+            .on(NGAP_UEContextReleaseCommand.class, (task, m) -> NgapUeContextManagement.receiveContextReleaseCommand(task.ctx, m))
+            .on(NGAP_UEContextModificationRequest.class, (task, m) -> NgapUeContextManagement.receiveContextModificationRequest(task.ctx, m))
+            .on(NGAP_PDUSessionResourceSetupRequest.class, (task, m) -> NgapPduSessionManagement.receiveResourceSetupRequest(task.ctx, m))
+            .on(NGAP_ErrorIndication.class, (task, m) -> Log.error(Tag.PROC, "Error indication received."))
+            .otherwise((task, m) -> Log.error(Tag.MESSAGING, "Unhandled message received: %s", m.getClass().getSimpleName()));
 
     private final GnbSimContext ctx;
 
+    // AMF of the NGAP message that is being handled
+    private Guami associatedAmf;
+
     public NgapTask(Itms itms, int taskId, GnbSimContext ctx) {
         super(itms, taskId);
         this.ctx = ctx;
     }
 
     @Override
-    public void main() {
-        while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwNgapReceive) {
-                receiveNgap(((IwNgapReceive) msg).associatedAmf, ((IwNgapReceive) msg).stream, ((IwNgapReceive) msg).ngapPdu);
-            } else if (msg instanceof IwSctpAssociationSetup) {
-                NgapInterfaceManagement.sendNgSetupRequest(ctx, ((IwSctpAssociationSetup) msg).guami);
-            }
-        }
+    protected void onMessage(Object msg) {
+        TASK_DISPATCHER.dispatch(this, msg);
     }
 
-    private void receiveNgap(Guami associatedAmf, int stream, NGAP_PDU ngapPdu) {
+    private void receiveNgap(Guami associatedAmf, int stream, NGAP_PDU ngapPdu, byte[] aperPdu) {
         Log.debug(Tag.MESSAGING, "Received NGAP: %s", ngapPdu.getClass().getSimpleName());
-        Log.debug(Tag.MESSAGING, Utils.xmlToJson(NgapXerEncoder.encode(ngapPdu)));
+        EventLogging.ngap(EEventType.NGAP_RECEIVED, ngapPdu, aperPdu);
 
         var ngapMessage = Ngap.getMessageFromPdu(ngapPdu);
         if (ngapMessage == null) {
@@ -96,34 +110,15 @@ public class NgapTask extends ItmsTask {
                 }
             }
 
-            if (ngapMessage instanceof NGAP_NGSetupResponse) {
-                NgapInterfaceManagement.receiveNgSetupResponse(ctx, (NGAP_NGSetupResponse) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_NGSetupFailure) {
-                NgapInterfaceManagement.receiveNgSetupFailure(ctx, (NGAP_NGSetupFailure) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_DownlinkNASTransport) {
-                NgapNasTransport.receiveDownlinkNasTransport(ctx, (NGAP_DownlinkNASTransport) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_InitialContextSetupRequest) {
-                NgapUeContextManagement.receiveInitialContextSetup(ctx, (NGAP_InitialContextSetupRequest) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_RerouteNASRequest) {
-                NgapNasTransport.receiveRerouteNasRequest(ctx, associatedAmf, (NGAP_RerouteNASRequest) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_UEContextReleaseCommand) {
-                NgapUeContextManagement.receiveContextReleaseCommand(ctx, (NGAP_UEContextReleaseCommand) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_UEContextModificationRequest) {
-                NgapUeContextManagement.receiveContextModificationRequest(ctx, (NGAP_UEContextModificationRequest) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_PDUSessionResourceSetupRequest) {
-                NgapPduSessionManagement.receiveResourceSetupRequest(ctx, (NGAP_PDUSessionResourceSetupRequest) ngapMessage);
-            } else if (ngapMessage instanceof NGAP_ErrorIndication) {
-                Log.error(Tag.PROC, "Error indication received.");
-            } else {
-                Log.error(Tag.MESSAGING, "Unhandled message received: %s", ngapMessage.getClass().getSimpleName());
-            }
+            this.associatedAmf = associatedAmf;
+            NGAP_DISPATCHER.dispatch(this, ngapMessage);
         } catch (NgapErrorException e) {
             var errorIndication = new NGAP_ErrorIndication();
             var ngapCause = new NGAP_Cause();
             ngapCause.setPresentValue(e.cause);
 
             errorIndication.addProtocolIe(ngapCause);
-            if (e.associatedUe != null) {
+            if (e.associatedUe != BaseSimContext.NO_HANDLE) {
                 NgapTransfer.sendNgapUeAssociated(ctx, e.associatedUe, errorIndication);
             } else {
                 NgapTransfer.sendNgapNonUe(ctx, associatedAmf, errorIndication);
@@ -6,36 +6,36 @@
 package tr.havelsan.ueransim.app.gnb.ngap;
 
 import tr.havelsan.ueransim.app.common.Guami;
+import tr.havelsan.ueransim.app.common.enums.EEventType;
 import tr.havelsan.ueransim.app.common.itms.IwNgapSend;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.app.gnb.utils.NgapUtils;
+import tr.havelsan.ueransim.app.utils.EventLogging;
 import tr.havelsan.ueransim.itms.ItmsId;
 import tr.havelsan.ueransim.nas.impl.values.VTrackingAreaIdentity;
 import tr.havelsan.ueransim.ngap0.NgapEncoding;
-import tr.havelsan.ueransim.ngap0.NgapXerEncoder;
 import tr.havelsan.ueransim.ngap0.core.NGAP_BaseMessage;
 import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_UserLocationInformation;
 import tr.havelsan.ueransim.ngap0.ies.integers.NGAP_AMF_UE_NGAP_ID;
 import tr.havelsan.ueransim.ngap0.ies.integers.NGAP_RAN_UE_NGAP_ID;
 import tr.havelsan.ueransim.utils.Tag;
-import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.console.Log;
 
-import java.util.UUID;
 
 public class NgapTransfer {
 
     public static void sendNgapNonUe(GnbSimContext ctx, Guami associatedAmf, NGAP_BaseMessage message) {
         var ngapPdu = message.buildPdu();
+        var aperPdu = NgapEncoding.encodeAper(ngapPdu);
 
         Log.debug(Tag.MESSAGING, "Sending NGAP: %s", message.getClass().getSimpleName());
-        Log.debug(Tag.MESSAGING, Utils.xmlToJson(NgapXerEncoder.encode(ngapPdu)));
+        EventLogging.ngap(EEventType.NGAP_SENT, ngapPdu, aperPdu);
 
-        ctx.itms.sendMessage(ItmsId.GNB_TASK_SCTP, new IwNgapSend(0, NgapEncoding.encodeAper(ngapPdu), associatedAmf));
+        ctx.itms.sendMessage(ItmsId.GNB_TASK_SCTP, new IwNgapSend(0, aperPdu, associatedAmf));
         ctx.sim.triggerOnSend(ctx, message);
     }
 
-    public static void sendNgapUeAssociated(GnbSimContext ctx, UUID ueId, NGAP_BaseMessage message) {
+    public static void sendNgapUeAssociated(GnbSimContext ctx, int ueId, NGAP_BaseMessage message) {
         var ueCtx = ctx.ueContexts.get(ueId);
 
         // Adding AMF-UE-NGAP-ID (if any)
@@ -60,11 +60,12 @@ public class NgapTransfer {
         }
 
         var ngapPdu = message.buildPdu();
+        var aperPdu = NgapEncoding.encodeAper(ngapPdu);
 
         Log.debug(Tag.MESSAGING, "Sending NGAP: %s", message.getClass().getSimpleName());
-        Log.debug(Tag.MESSAGING, Utils.xmlToJson(NgapXerEncoder.encode(ngapPdu)));
+        EventLogging.ngap(EEventType.NGAP_SENT, ngapPdu, aperPdu);
 
-        ctx.itms.sendMessage(ItmsId.GNB_TASK_SCTP, new IwNgapSend(ueCtx.uplinkStream, NgapEncoding.encodeAper(ngapPdu), ueCtx.associatedAmf));
+        ctx.itms.sendMessage(ItmsId.GNB_TASK_SCTP, new IwNgapSend(ueCtx.uplinkStream, aperPdu, ueCtx.associatedAmf));
         ctx.sim.triggerOnSend(ctx, message);
     }
 }
@@ -8,6 +8,7 @@ package tr.havelsan.ueransim.app.gnb.ngap;
 import tr.havelsan.ueransim.app.common.Guami;
 import tr.havelsan.ueransim.app.common.contexts.GnbUeContext;
 import tr.havelsan.ueransim.app.common.exceptions.NgapErrorException;
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.ngap0.core.NGAP_BaseMessage;
 import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_UE_NGAP_IDs;
@@ -20,11 +21,9 @@ import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.bits.Bit10;
 import tr.havelsan.ueransim.utils.console.Log;
 
-import java.util.UUID;
-
 public class NgapUeManagement {
 
-    public static void createUeContext(GnbSimContext ctx, UUID ueId) {
+    public static void createUeContext(GnbSimContext ctx, int ueId) {
         var gnbUeCtx = new GnbUeContext(ueId);
         gnbUeCtx.ranUeNgapId = ++ctx.ueNgapIdCounter;
         gnbUeCtx.amfUeNgapId = null;
@@ -33,24 +32,24 @@ public class NgapUeManagement {
         selectAmfForUe(ctx, gnbUeCtx);
     }
 
-    private static UUID findUeByRanId(GnbSimContext ctx, long ranUeNgapId) {
+    private static int findUeByRanId(GnbSimContext ctx, long ranUeNgapId) {
         // todo: make O(1)
         for (var entry : ctx.ueContexts.entrySet()) {
             if (entry.getValue().ranUeNgapId == ranUeNgapId) {
                 return entry.getKey();
             }
         }
-        return null;
+        return BaseSimContext.NO_HANDLE;
     }
 
-    private static UUID findUeByAmfId(GnbSimContext ctx, long amfUeNgapId) {
+    private static int findUeByAmfId(GnbSimContext ctx, long amfUeNgapId) {
         // todo: make O(1)
         for (var entry : ctx.ueContexts.entrySet()) {
             if (entry.getValue().amfUeNgapId == amfUeNgapId) {
                 return entry.getKey();
             }
         }
-        return null;
+        return BaseSimContext.NO_HANDLE;
     }
 
     private static void selectAmfForUe(GnbSimContext ctx, GnbUeContext ueCtx) {
@@ -86,7 +85,7 @@ public class NgapUeManagement {
         return res;
     }
 
-    private static UUID findAssociatedUeId(GnbSimContext ctx, NGAP_AMF_UE_NGAP_ID amfUeNgapId, NGAP_RAN_UE_NGAP_ID ranUeNgapId) {
+    private static int findAssociatedUeId(GnbSimContext ctx, NGAP_AMF_UE_NGAP_ID amfUeNgapId, NGAP_RAN_UE_NGAP_ID ranUeNgapId) {
         if (amfUeNgapId == null || ranUeNgapId == null) {
             throw new NgapErrorException(NGAP_CauseProtocol.ABSTRACT_SYNTAX_ERROR_FALSELY_CONSTRUCTED_MESSAGE);
         }
@@ -95,7 +94,7 @@ public class NgapUeManagement {
         long ran = ranUeNgapId.value;
 
         var associatedUe = NgapUeManagement.findUeByRanId(ctx, ran);
-        if (associatedUe == null) {
+        if (associatedUe == BaseSimContext.NO_HANDLE) {
             throw new NgapErrorException(NGAP_CauseRadioNetwork.UNKNOWN_LOCAL_UE_NGAP_ID);
         }
 
@@ -109,7 +108,7 @@ public class NgapUeManagement {
         return associatedUe;
     }
 
-    private static UUID findAssociatedUeId(GnbSimContext ctx, NGAP_UE_NGAP_IDs ueNgapIDs) {
+    private static int findAssociatedUeId(GnbSimContext ctx, NGAP_UE_NGAP_IDs ueNgapIDs) {
         if (ueNgapIDs == null) {
             throw new NgapErrorException(NGAP_CauseProtocol.ABSTRACT_SYNTAX_ERROR_FALSELY_CONSTRUCTED_MESSAGE);
         }
@@ -118,19 +117,19 @@ public class NgapUeManagement {
         }
         if (ueNgapIDs.aMF_UE_NGAP_ID != null) {
             var ue = findUeByAmfId(ctx, ueNgapIDs.aMF_UE_NGAP_ID.value);
-            if (ue != null) return ue;
+            if (ue != BaseSimContext.NO_HANDLE) return ue;
             throw new NgapErrorException(NGAP_CauseRadioNetwork.INCONSISTENT_REMOTE_UE_NGAP_ID);
         }
         throw new NgapErrorException(NGAP_CauseProtocol.ABSTRACT_SYNTAX_ERROR_FALSELY_CONSTRUCTED_MESSAGE);
     }
 
-    public static UUID findAssociatedUeIdDefault(GnbSimContext ctx, NGAP_BaseMessage ngapMessage) {
+    public static int findAssociatedUeIdDefault(GnbSimContext ctx, NGAP_BaseMessage ngapMessage) {
         var ieAmfUeNgapId = ngapMessage.getProtocolIe(NGAP_AMF_UE_NGAP_ID.class);
         var ieRanUeNgapId = ngapMessage.getProtocolIe(NGAP_RAN_UE_NGAP_ID.class);
         return findAssociatedUeId(ctx, ieAmfUeNgapId, ieRanUeNgapId);
     }
 
-    public static UUID findAssociatedUeForUeNgapIds(GnbSimContext ctx, NGAP_BaseMessage message) {
+    public static int findAssociatedUeForUeNgapIds(GnbSimContext ctx, NGAP_BaseMessage message) {
         var ie = message.getProtocolIe(NGAP_UE_NGAP_IDs.class);
         return findAssociatedUeId(ctx, ie);
     }
@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.gnb.sctp;
+
+import tr.havelsan.ueransim.app.common.Guami;
+import tr.havelsan.ueransim.app.common.SelectedAlgorithms;
+import tr.havelsan.ueransim.app.common.Supi;
+import tr.havelsan.ueransim.app.gnb.utils.NgapUtils;
+import tr.havelsan.ueransim.app.ue.mm.MmKeyManagement;
+import tr.havelsan.ueransim.app.ue.nas.NasSecurityContext;
+import tr.havelsan.ueransim.nas.NasDecoder;
+import tr.havelsan.ueransim.nas.NasEncoder;
+import tr.havelsan.ueransim.nas.core.messages.NasMessage;
+import tr.havelsan.ueransim.nas.core.messages.SecuredMmMessage;
+import tr.havelsan.ueransim.nas.impl.enums.EMmCause;
+import tr.havelsan.ueransim.nas.impl.enums.EPduSessionType;
+import tr.havelsan.ueransim.nas.impl.enums.ESecurityHeaderType;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfCipheringAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfIntegrityProtectionAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfSecurityContext;
+import tr.havelsan.ueransim.nas.impl.ies.*;
+import tr.havelsan.ueransim.nas.impl.messages.*;
+import tr.havelsan.ueransim.nas.impl.values.VPlmn;
+import tr.havelsan.ueransim.ngap0.Ngap;
+import tr.havelsan.ueransim.ngap0.NgapDataUnitType;
+import tr.havelsan.ueransim.ngap0.NgapEncoding;
+import tr.havelsan.ueransim.ngap0.NgapProtocolIeType;
+import tr.havelsan.ueransim.ngap0.core.NGAP_BaseMessage;
+import tr.havelsan.ueransim.ngap0.core.NGAP_OctetString;
+import tr.havelsan.ueransim.ngap0.core.NGAP_Value;
+import tr.havelsan.ueransim.ngap0.ies.bit_strings.NGAP_AMFPointer;
+import tr.havelsan.ueransim.ngap0.ies.bit_strings.NGAP_AMFRegionID;
+import tr.havelsan.ueransim.ngap0.ies.bit_strings.NGAP_AMFSetID;
+import tr.havelsan.ueransim.ngap0.ies.bit_strings.NGAP_TransportLayerAddress;
+import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_QosCharacteristics;
+import tr.havelsan.ueransim.ngap0.ies.choices.NGAP_UPTransportLayerInformation;
+import tr.havelsan.ueransim.ngap0.ies.enumerations.NGAP_Criticality;
+import tr.havelsan.ueransim.ngap0.ies.enumerations.NGAP_PDUSessionType;
+import tr.havelsan.ueransim.ngap0.ies.enumerations.NGAP_Pre_emptionCapability;
+import tr.havelsan.ueransim.ngap0.ies.enumerations.NGAP_Pre_emptionVulnerability;
+import tr.havelsan.ueransim.ngap0.ies.integers.*;
+import tr.havelsan.ueransim.ngap0.ies.octet_strings.NGAP_GTP_TEID;
+import tr.havelsan.ueransim.ngap0.ies.octet_strings.NGAP_NAS_PDU;
+import tr.havelsan.ueransim.ngap0.ies.octet_strings.NGAP_SD;
+import tr.havelsan.ueransim.ngap0.ies.octet_strings.NGAP_SST;
+import tr.havelsan.ueransim.ngap0.ies.printable_strings.NGAP_AMFName;
+import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_PDUSessionResourceSetupListSUReq;
+import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_PLMNSupportList;
+import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_QosFlowSetupRequestList;
+import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_ServedGUAMIList;
+import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_SliceSupportList;
+import tr.havelsan.ueransim.ngap0.ies.sequences.*;
+import tr.havelsan.ueransim.ngap0.msg.*;
+import tr.havelsan.ueransim.ngap0.pdu.NGAP_IEChoice;
+import tr.havelsan.ueransim.ngap0.pdu.NGAP_ProtocolIE;
+import tr.havelsan.ueransim.ngap0.pdu.NGAP_ProtocolIEContainer;
+import tr.havelsan.ueransim.sctp.MockedSctpClient;
+import tr.havelsan.ueransim.utils.Constants;
+import tr.havelsan.ueransim.utils.bits.Bit3;
+import tr.havelsan.ueransim.utils.octets.Octet2;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+import java.util.HashMap;
+import java.util.Queue;
+
+/**
+ * In-process stand-in for an AMF. It answers just enough of NGAP and NAS to let the UEs register, establish PDU
+ * sessions and deregister without a core network. The NG Setup is always accepted, and other messages than the
+ * ones below are ignored.
+ * <p>
+ * The context of a UE is kept from its Initial UE Message until its deregistration, the release of its UE context,
+ * or the next Initial UE Message with the same RAN UE NGAP ID.
+ * <p>
+ * Without a {@link MockCore}, as in the simulation mode of the other profiles, a Registration Request is accepted
+ * right away, without authentication and security mode control. With a {@link MockCore}, a registration runs
+ * 5G-AKA and the security mode control, then the NAS messages are integrity protected with 128-NIA2 and not
+ * ciphered (5G-EA0). A PDU Session Establishment Request is answered by a PDU Session Resource Setup Request, with
+ * a tunnel to the UPF address and an IPv4 address from the pool of the {@link MockCore}.
+ */
+public class AmfStub implements MockedSctpClient.IMockedRemote {
+
+    private static final String AMF_NAME = "ueransim-amf-stub";
+
+    // The default QoS rule of TS 24.501 9.11.4.13: rule ID 1, length 6, create new rule as the default with one
+    // packet filter (31), bidirectional packet filter 1 (31) with one match-all component (01 01), precedence 255
+    // (FF) and QFI 1 (01)
+    private static final OctetString DEFAULT_QOS_RULE = new OctetString("01000631310101FF01");
+    private static final int QOS_FLOW_IDENTIFIER = 1;
+    private static final int FIVE_QI = 9;
+    private static final long SESSION_AMBR = 1000; // Mbps
+
+    // Protocol IE IDs of TS 38.413
+    private static final int ID_PDU_SESSION_AGGREGATE_MAXIMUM_BIT_RATE = 130;
+    private static final int ID_PDU_SESSION_TYPE = 134;
+    private static final int ID_QOS_FLOW_SETUP_REQUEST_LIST = 136;
+    private static final int ID_UL_NGU_UP_TNL_INFORMATION = 139;
+
+    private final Guami guami;
+    private final MockCore core;
+    private final String snn;
+    private final HashMap<Long, UeContext> ues;
+    // AMF UE NGAP IDs of the contexts, by their RAN UE NGAP IDs
+    private final HashMap<Long, Long> amfUeNgapIds;
+    private long amfUeNgapIdCounter;
+
+    public AmfStub(Guami guami) {
+        this(guami, null);
+    }
+
+    public AmfStub(Guami guami, MockCore core) {
+        this.guami = guami;
+        this.core = core;
+        this.snn = MmKeyManagement.constructServingNetworkName(new VPlmn(guami.mcc, guami.mnc));
+        this.ues = new HashMap<>();
+        this.amfUeNgapIds = new HashMap<>();
+    }
+
+    @Override
+    public void onMessage(byte[] data, Queue<Byte[]> queue) {
+        var message = Ngap.getMessageFromPdu(NgapEncoding.decodeAper(data));
+
+        NGAP_BaseMessage response = null;
+        if (message instanceof NGAP_NGSetupRequest) {
+            response = ngSetupResponse();
+        } else if (message instanceof NGAP_InitialUEMessage || message instanceof NGAP_UplinkNASTransport) {
+            response = nasResponse(message);
+        } else if (message instanceof NGAP_UEContextReleaseRequest
+                || message instanceof NGAP_UEContextReleaseComplete) {
+            var ie = message.getProtocolIe(NGAP_AMF_UE_NGAP_ID.class);
+            if (ie != null && ues.containsKey(ie.value)) {
+                release(ues.get(ie.value));
+            }
+        }
+
+        if (response != null) {
+            var bytes = NgapEncoding.encodeAper(response.buildPdu());
+            var boxed = new Byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                boxed[i] = bytes[i];
+            }
+            queue.add(boxed);
+        }
+    }
+
+    private NGAP_BaseMessage ngSetupResponse() {
+        var plmn = NgapUtils.plmnEncode(new VPlmn(guami.mcc, guami.mnc));
+
+        var servedGuami = new NGAP_ServedGUAMIItem();
+        servedGuami.gUAMI = new NGAP_GUAMI();
+        servedGuami.gUAMI.pLMNIdentity = plmn;
+        servedGuami.gUAMI.aMFRegionID = new NGAP_AMFRegionID(new byte[]{(byte) guami.amfRegionId.intValue()});
+        servedGuami.gUAMI.aMFSetID = new NGAP_AMFSetID(guami.amfSetId.toBinaryString().substring(2));
+        servedGuami.gUAMI.aMFPointer = new NGAP_AMFPointer(guami.amfPointer.toBinaryString().substring(2));
+        var servedGuamiList = new NGAP_ServedGUAMIList();
+        servedGuamiList.list.add(servedGuami);
+
+        var slice = new NGAP_SliceSupportItem();
+        slice.s_NSSAI = new NGAP_S_NSSAI();
+        slice.s_NSSAI.sST = new NGAP_SST(new byte[]{1});
+        var plmnSupport = new NGAP_PLMNSupportItem();
+        plmnSupport.pLMNIdentity = plmn;
+        plmnSupport.sliceSupportList = new NGAP_SliceSupportList();
+        plmnSupport.sliceSupportList.list.add(slice);
+        var plmnSupportList = new NGAP_PLMNSupportList();
+        plmnSupportList.list.add(plmnSupport);
+
+        var response = new NGAP_NGSetupResponse();
+        response.addProtocolIe(new NGAP_AMFName(AMF_NAME));
+        response.addProtocolIe(servedGuamiList);
+        response.addProtocolIe(new NGAP_RelativeAMFCapacity(255));
+        response.addProtocolIe(plmnSupportList);
+        return response;
+    }
+
+    private NGAP_BaseMessage nasResponse(NGAP_BaseMessage message) {
+        var nasMessage = message.getNasMessage();
+        var ranUeNgapId = message.getProtocolIe(NGAP_RAN_UE_NGAP_ID.class);
+        if (nasMessage == null || ranUeNgapId == null)
+            return null;
+
+        UeContext ue;
+        if (message instanceof NGAP_InitialUEMessage) {
+            var previous = amfUeNgapIds.get(ranUeNgapId.value);
+            if (previous != null) {
+                release(ues.get(previous));
+            }
+            ue = new UeContext(++amfUeNgapIdCounter, ranUeNgapId.value);
+            ues.put(ue.amfUeNgapId, ue);
+            amfUeNgapIds.put(ue.ranUeNgapId, ue.amfUeNgapId);
+        } else {
+            var ie = message.getProtocolIe(NGAP_AMF_UE_NGAP_ID.class);
+            if (ie == null)
+                return null;
+            ue = ues.get(ie.value);
+            if (ue == null)
+                return null;
+        }
+
+        if (nasMessage instanceof SecuredMmMessage) {
+            nasMessage = unprotect(ue, (SecuredMmMessage) nasMessage);
+            if (nasMessage == null)
+                return null;
+        }
+
+        if (nasMessage instanceof DeRegistrationRequestUeOriginating && (core == null || ue.securityContext != null)) {
+            release(ue);
+            return downlinkNas(ue, deregistrationResponse((DeRegistrationRequestUeOriginating) nasMessage));
+        }
+
+        if (core == null)
+            return downlinkNas(ue, unauthenticatedResponse(nasMessage));
+
+        if (nasMessage instanceof RegistrationRequest) {
+            return downlinkNas(ue, receiveRegistrationRequest(ue, (RegistrationRequest) nasMessage));
+        } else if (nasMessage instanceof AuthenticationResponse) {
+            return downlinkNas(ue, receiveAuthenticationResponse(ue, (AuthenticationResponse) nasMessage));
+        } else if (nasMessage instanceof AuthenticationFailure) {
+            ue.authVector = null;
+            return downlinkNas(ue, new AuthenticationReject());
+        } else if (nasMessage instanceof SecurityModeComplete) {
+            return downlinkNas(ue, receiveSecurityModeComplete(ue));
+        } else if (nasMessage instanceof SecurityModeReject) {
+            ue.newSecurityContext = null;
+            return downlinkNas(ue, registrationReject(EMmCause.UNSPECIFIED_PROTOCOL_ERROR));
+        } else if (nasMessage instanceof UlNasTransport && ue.securityContext != null) {
+            return receiveUlNasTransport(ue, (UlNasTransport) nasMessage);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the plain message of a protected one, or null if it is not acceptable.
+     */
+    private static NasMessage unprotect(UeContext ue, SecuredMmMessage message) {
+        var sht = message.securityHeaderType;
+        if (sht.equals(ESecurityHeaderType.INTEGRITY_PROTECTED_WITH_NEW_SECURITY_CONTEXT)
+                || sht.equals(ESecurityHeaderType.INTEGRITY_PROTECTED_AND_CIPHERED_WITH_NEW_SECURITY_CONTEXT)) {
+            return ue.newSecurityContext != null ? MockNasSecurity.unprotect(ue.newSecurityContext, message) : null;
+        }
+
+        NasMessage plain = null;
+        if (ue.securityContext != null) {
+            plain = MockNasSecurity.unprotect(ue.securityContext, message);
+        }
+        if (plain == null) {
+            // A registration is accepted without the integrity, the UE is authenticated again anyway. The message
+            // is never actually ciphered, since only the null ciphering algorithm is selected.
+            plain = NasDecoder.nasPdu(message.plainNasMessage);
+            if (!(plain instanceof RegistrationRequest))
+                plain = null;
+        }
+        return plain;
+    }
+
+    private NasMessage unauthenticatedResponse(NasMessage message) {
+        if (message instanceof RegistrationRequest)
+            return registrationAccept();
+        return null;
+    }
+
+    private void release(UeContext ue) {
+        ues.remove(ue.amfUeNgapId);
+        amfUeNgapIds.remove(ue.ranUeNgapId, ue.amfUeNgapId);
+    }
+
+    private NasMessage receiveRegistrationRequest(UeContext ue, RegistrationRequest message) {
+        if (!(message.mobileIdentity instanceof IEImsiMobileIdentity))
+            return registrationReject(EMmCause.UE_IDENTITY_CANNOT_BE_DERIVED_FROM_NETWORK);
+        var suci = (IEImsiMobileIdentity) message.mobileIdentity;
+        if (!suci.protectionSchemaId.equals(IEImsiMobileIdentity.EProtectionSchemeIdentifier.NULL_SCHEME))
+            return registrationReject(EMmCause.UE_IDENTITY_CANNOT_BE_DERIVED_FROM_NETWORK);
+
+        var mnc = String.format(Constants.USE_LONG_MNC ? "%03d" : "%02d", suci.mnc.intValue());
+        ue.supi = new Supi("imsi", String.format("%03d", suci.mcc.intValue()) + mnc + suci.schemeOutput);
+        ue.securityCapability = message.ueSecurityCapability;
+        ue.ngKsi = (ue.ngKsi + 1) % 7;
+        ue.authVector = core.generateAuthVector(ue.supi.value, snn);
+
+        var request = new AuthenticationRequest();
+        request.ngKSI = new IENasKeySetIdentifier(ETypeOfSecurityContext.NATIVE_SECURITY_CONTEXT, new Bit3(ue.ngKsi));
+        request.abba = new IEAbba(new OctetString("0000"));
+        request.authParamRAND = new IEAuthenticationParameterRand(ue.authVector.rand);
+        request.authParamAUTN = new IEAuthenticationParameterAutn(ue.authVector.autn);
+        return request;
+    }
+
+    private NasMessage receiveAuthenticationResponse(UeContext ue, AuthenticationResponse message) {
+        var authVector = ue.authVector;
+        ue.authVector = null;
+        if (authVector == null)
+            return null;
+        if (message.authenticationResponseParameter == null
+                || !authVector.xresStar.equals(message.authenticationResponseParameter.rawData))
+            return new AuthenticationReject();
+
+        var securityContext = new NasSecurityContext(null, ETypeOfSecurityContext.NATIVE_SECURITY_CONTEXT,
+                new Bit3(ue.ngKsi));
+        securityContext.keys.kAusf = authVector.kAusf;
+        securityContext.keys.abba = new OctetString("0000");
+        MmKeyManagement.deriveKeysSeafAmf(snn, ue.supi, securityContext);
+        securityContext.selectedAlgorithms = new SelectedAlgorithms(ETypeOfIntegrityProtectionAlgorithm.IA2_128,
+                ETypeOfCipheringAlgorithm.EA0);
+        MmKeyManagement.deriveNasKeys(securityContext);
+        ue.newSecurityContext = securityContext;
+
+        var command = new SecurityModeCommand();
+        command.selectedNasSecurityAlgorithms = new IENasSecurityAlgorithms(
+                securityContext.selectedAlgorithms.integrity, securityContext.selectedAlgorithms.ciphering);
+        command.ngKsi = securityContext.ngKsi;
+        command.replayedUeSecurityCapabilities = ue.securityCapability;
+        return MockNasSecurity.protect(securityContext, command, true);
+    }
+
+    private NasMessage receiveSecurityModeComplete(UeContext ue) {
+        if (ue.newSecurityContext == null)
+            return null;
+        ue.securityContext = ue.newSecurityContext;
+        ue.newSecurityContext = null;
+        return registrationAccept();
+    }
+
+    private NGAP_BaseMessage receiveUlNasTransport(UeContext ue, UlNasTransport message) {
+        if (!message.payloadContainerType.payloadContainerType.equals(
+                IEPayloadContainerType.EPayloadContainerType.N1_SM_INFORMATION))
+            return null;
+        var smMessage = NasDecoder.nasPdu(message.payloadContainer.payload);
+        if (!(smMessage instanceof PduSessionEstablishmentRequest))
+            return null;
+        var request = (PduSessionEstablishmentRequest) smMessage;
+
+        var accept = new PduSessionEstablishmentAccept();
+        accept.pduSessionId = request.pduSessionId;
+        accept.pti = request.pti;
+        accept.selectedPduSessionType = new IEPduSessionType(EPduSessionType.IPV4);
+        accept.selectedSscMode = new IESscMode(IESscMode.ESscMode.SSC_MODE_1);
+        accept.authorizedQoSRules = new IEQoSRules(DEFAULT_QOS_RULE);
+        accept.sessionAmbr = new IESessionAmbr(IESessionAmbr.EUnitForSessionAmbr.MULT_1Mbps, new Octet2(SESSION_AMBR),
+                IESessionAmbr.EUnitForSessionAmbr.MULT_1Mbps, new Octet2(SESSION_AMBR));
+        accept.pduAddress = new IEPduAddress(EPduSessionType.IPV4, core.allocateUeAddress());
+        accept.sNssai = message.sNssa;
+        accept.dnn = message.dnn;
+
+        var transport = new DlNasTransport();
+        transport.payloadContainerType = new IEPayloadContainerType(
+                IEPayloadContainerType.EPayloadContainerType.N1_SM_INFORMATION);
+        transport.payloadContainer = new IEPayloadContainer(new OctetString(NasEncoder.nasPdu(accept)));
+        transport.pduSessionId = new IEPduSessionIdentity2(request.pduSessionId.intValue());
+        var nasPdu = NasEncoder.nasPdu(MockNasSecurity.protect(ue.securityContext, transport, false));
+
+        var item = new NGAP_PDUSessionResourceSetupItemSUReq();
+        item.pDUSessionID = new NGAP_PDUSessionID(request.pduSessionId.intValue());
+        item.pDUSessionNAS_PDU = new NGAP_NAS_PDU(nasPdu);
+        item.s_NSSAI = sNssai(message.sNssa);
+        item.pDUSessionResourceSetupRequestTransfer = new NGAP_OctetString(NgapEncoding.encodeAper(
+                resourceSetupRequestTransfer(), NgapDataUnitType.PDUSessionResourceSetupRequestTransfer));
+        var list = new NGAP_PDUSessionResourceSetupListSUReq();
+        list.list.add(item);
+
+        var response = new NGAP_PDUSessionResourceSetupRequest();
+        response.addProtocolIe(new NGAP_AMF_UE_NGAP_ID(ue.amfUeNgapId));
+        response.addProtocolIe(new NGAP_RAN_UE_NGAP_ID(ue.ranUeNgapId));
+        response.addProtocolIe(list);
+        return response;
+    }
+
+    private NGAP_PDUSessionResourceSetupRequestTransfer resourceSetupRequestTransfer() {
+        var ambr = new NGAP_PDUSessionAggregateMaximumBitRate();
+        ambr.pDUSessionAggregateMaximumBitRateDL = new NGAP_BitRate(SESSION_AMBR * 1000000);
+        ambr.pDUSessionAggregateMaximumBitRateUL = new NGAP_BitRate(SESSION_AMBR * 1000000);
+
+        var upLayer = new NGAP_UPTransportLayerInformation();
+        upLayer.gTPTunnel = new NGAP_GTPTunnel();
+        upLayer.gTPTunnel.transportLayerAddress = new NGAP_TransportLayerAddress(core.getUpfAddress());
+        upLayer.gTPTunnel.gTP_TEID = new NGAP_GTP_TEID(core.allocateTeid());
+
+        var qosFlow = new NGAP_QosFlowSetupRequestItem();
+        qosFlow.qosFlowIdentifier = new NGAP_QosFlowIdentifier(QOS_FLOW_IDENTIFIER);
+        qosFlow.qosFlowLevelQosParameters = new NGAP_QosFlowLevelQosParameters();
+        qosFlow.qosFlowLevelQosParameters.qosCharacteristics = new NGAP_QosCharacteristics();
+        qosFlow.qosFlowLevelQosParameters.qosCharacteristics.nonDynamic5QI = new NGAP_NonDynamic5QIDescriptor();
+        qosFlow.qosFlowLevelQosParameters.qosCharacteristics.nonDynamic5QI.fiveQI = new NGAP_FiveQI(FIVE_QI);
+        qosFlow.qosFlowLevelQosParameters.allocationAndRetentionPriority = new NGAP_AllocationAndRetentionPriority();
+        qosFlow.qosFlowLevelQosParameters.allocationAndRetentionPriority.priorityLevelARP = new NGAP_PriorityLevelARP(8);
+        qosFlow.qosFlowLevelQosParameters.allocationAndRetentionPriority.pre_emptionCapability =
+                NGAP_Pre_emptionCapability.SHALL_NOT_TRIGGER_PRE_EMPTION;
+        qosFlow.qosFlowLevelQosParameters.allocationAndRetentionPriority.pre_emptionVulnerability =
+                NGAP_Pre_emptionVulnerability.NOT_PRE_EMPTABLE;
+        var qosFlows = new NGAP_QosFlowSetupRequestList();
+        qosFlows.list.add(qosFlow);
+
+        var transfer = new NGAP_PDUSessionResourceSetupRequestTransfer();
+        transfer.protocolIEs = new NGAP_ProtocolIEContainer();
+        addTransferIe(transfer, ID_PDU_SESSION_AGGREGATE_MAXIMUM_BIT_RATE, ambr);
+        addTransferIe(transfer, ID_UL_NGU_UP_TNL_INFORMATION, upLayer);
+        addTransferIe(transfer, ID_PDU_SESSION_TYPE, NGAP_PDUSessionType.IPV4);
+        addTransferIe(transfer, ID_QOS_FLOW_SETUP_REQUEST_LIST, qosFlows);
+        return transfer;
+    }
+
+    private static void addTransferIe(NGAP_PDUSessionResourceSetupRequestTransfer transfer, int id, NGAP_Value value) {
+        var ie = new NGAP_ProtocolIE(NgapProtocolIeType.PDUSessionResourceSetupRequestTransferIEs);
+        ie.id = new NGAP_ProtocolIE_ID(id);
+        ie.criticality = NGAP_Criticality.REJECT;
+        ie.value = new NGAP_IEChoice();
+        ie.value.setPresentValue(value);
+        transfer.protocolIEs.list.add(ie);
+    }
+
+    private static NGAP_S_NSSAI sNssai(IESNssai nssai) {
+        var res = new NGAP_S_NSSAI();
+        res.sST = new NGAP_SST(new byte[]{(byte) (nssai != null ? nssai.sst.value.intValue() : 1)});
+        if (nssai != null && nssai.sd != null) {
+            res.sD = new NGAP_SD(nssai.sd.value.toOctetString());
+        }
+        return res;
+    }
+
+    private static NasMessage registrationAccept() {
+        var accept = new RegistrationAccept();
+        accept.registrationResult = new IE5gsRegistrationResult(
+                IE5gsRegistrationResult.ESmsOverNasTransportAllowed.NOT_ALLOWED,
+                IE5gsRegistrationResult.E5gsRegistrationResult.THREEGPP_ACCESS);
+        return accept;
+    }
+
+    private static NasMessage registrationReject(EMmCause cause) {
+        var reject = new RegistrationReject();
+        reject.mmCause = new IE5gMmCause(cause);
+        return reject;
+    }
+
+    private static NasMessage deregistrationResponse(DeRegistrationRequestUeOriginating message) {
+        // There is no response to a switch-off
+        if (message.deRegistrationType.switchOff.equals(IEDeRegistrationType.ESwitchOff.SWITCH_OFF))
+            return null;
+        return new DeRegistrationAcceptUeOriginating();
+    }
+
+    /**
+     * Wraps the given NAS message into a Downlink NAS Transport, protecting it if the UE has a security context.
+     */
+    private NGAP_BaseMessage downlinkNas(UeContext ue, NasMessage reply) {
+        if (reply == null)
+            return null;
+        if (ue.securityContext != null && !(reply instanceof SecuredMmMessage)) {
+            reply = MockNasSecurity.protect(ue.securityContext, reply, false);
+        }
+
+        var response = new NGAP_DownlinkNASTransport();
+        response.addProtocolIe(new NGAP_AMF_UE_NGAP_ID(ue.amfUeNgapId));
+        response.addProtocolIe(new NGAP_RAN_UE_NGAP_ID(ue.ranUeNgapId));
+        response.addProtocolIe(new NGAP_NAS_PDU(NasEncoder.nasPdu(reply)));
+        return response;
+    }
+
+    private static class UeContext {
+        final long amfUeNgapId;
+        final long ranUeNgapId;
+        Supi supi;
+        IEUeSecurityCapability securityCapability;
+        int ngKsi;
+        MockCore.AuthVector authVector;
+        // The context of the running security mode control, and the one in use
+        NasSecurityContext newSecurityContext;
+        NasSecurityContext securityContext;
+
+        UeContext(long amfUeNgapId, long ranUeNgapId) {
+            this.amfUeNgapId = amfUeNgapId;
+            this.ranUeNgapId = ranUeNgapId;
+        }
+    }
+}
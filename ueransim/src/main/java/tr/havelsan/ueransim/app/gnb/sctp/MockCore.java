@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.gnb.sctp;
+
+import threegpp.milenage.MilenageResult;
+import tr.havelsan.ueransim.app.common.configs.MockCoreConfig;
+import tr.havelsan.ueransim.app.ue.mm.MmAuthentication;
+import tr.havelsan.ueransim.app.ue.mm.MmKeyManagement;
+import tr.havelsan.ueransim.utils.Utils;
+import tr.havelsan.ueransim.utils.octets.Octet4;
+import tr.havelsan.ueransim.utils.octets.Octet6;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The part of the mocked core network that is shared by the {@link AmfStub}s of all gNBs: the subscription data
+ * of the UDM, the sequence numbers of the subscribers, and the user plane resources of the SMF. It is used from
+ * the SCTP tasks of several gNBs at the same time.
+ */
+public class MockCore {
+
+    private final MockCoreConfig config;
+    private final Random random;
+    private final ConcurrentHashMap<String, Long> sequenceNumbers;
+    private final AtomicLong teidCounter;
+    private final AtomicLong ueAddressCounter;
+    private final byte[] upfAddress;
+    private final long firstUeAddress;
+
+    /**
+     * The random numbers of the authentications are taken from the given random, so they are repeated in the
+     * simulation mode.
+     */
+    public MockCore(MockCoreConfig config, Random random) {
+        this.config = config;
+        this.random = random;
+        this.sequenceNumbers = new ConcurrentHashMap<>();
+        this.teidCounter = new AtomicLong();
+        this.ueAddressCounter = new AtomicLong();
+        this.upfAddress = Utils.getAddress(config.upfAddress);
+        this.firstUeAddress = new OctetString(Utils.getAddress(config.ueAddressPool)).get4(0).longValue();
+    }
+
+    /**
+     * Generates a 5G-AKA authentication vector of the given subscriber, as specified in 3GPP TS 33.501 6.1.3.2.
+     */
+    public AuthVector generateAuthVector(String supi, String snn) {
+        var randBytes = new byte[16];
+        random.nextBytes(randBytes);
+        var rand = new OctetString(randBytes);
+
+        long sqnValue = sequenceNumbers.merge(supi, 1L, Long::sum);
+        var sqn = new Octet6(sqnValue).toOctetString();
+
+        var milenage = MmAuthentication.calculateMilenage(config.key, config.op, config.amf, sqn, rand);
+        var res = milenage.get(MilenageResult.RES);
+        var ck = milenage.get(MilenageResult.CK);
+        var ik = milenage.get(MilenageResult.IK);
+        var sqnXorAk = OctetString.xor(sqn, milenage.get(MilenageResult.AK));
+
+        var autn = OctetString.concat(sqnXorAk, config.amf, milenage.get(MilenageResult.MAC_A));
+        var xresStar = MmKeyManagement.calculateResStar(OctetString.concat(ck, ik), snn, rand, res);
+        var kAusf = MmKeyManagement.calculateKAusfFor5gAka(ck, ik, snn, sqnXorAk);
+        return new AuthVector(rand, autn, xresStar, kAusf);
+    }
+
+    /**
+     * Returns a new uplink tunnel endpoint ID of the UPF.
+     */
+    public OctetString allocateTeid() {
+        return new Octet4(teidCounter.incrementAndGet()).toOctetString();
+    }
+
+    /**
+     * Returns a new IPv4 address for a PDU session.
+     */
+    public OctetString allocateUeAddress() {
+        long address = (firstUeAddress + ueAddressCounter.getAndIncrement()) & 0xFFFFFFFFL;
+        return new Octet4(address).toOctetString();
+    }
+
+    public OctetString getUpfAddress() {
+        return new OctetString(upfAddress);
+    }
+
+    public static class AuthVector {
+        public final OctetString rand;
+        public final OctetString autn;
+        public final OctetString xresStar;
+        public final OctetString kAusf;
+
+        public AuthVector(OctetString rand, OctetString autn, OctetString xresStar, OctetString kAusf) {
+            this.rand = rand;
+            this.autn = autn;
+            this.xresStar = xresStar;
+            this.kAusf = kAusf;
+        }
+    }
+}
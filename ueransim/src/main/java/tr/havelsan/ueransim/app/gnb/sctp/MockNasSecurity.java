@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.gnb.sctp;
+
+import tr.havelsan.ueransim.app.common.NasCount;
+import tr.havelsan.ueransim.app.ue.nas.NasEncryption;
+import tr.havelsan.ueransim.app.ue.nas.NasSecurityContext;
+import tr.havelsan.ueransim.nas.NasDecoder;
+import tr.havelsan.ueransim.nas.NasEncoder;
+import tr.havelsan.ueransim.nas.core.messages.NasMessage;
+import tr.havelsan.ueransim.nas.core.messages.SecuredMmMessage;
+import tr.havelsan.ueransim.nas.impl.enums.ESecurityHeaderType;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfCipheringAlgorithm;
+import tr.havelsan.ueransim.utils.octets.Octet;
+import tr.havelsan.ueransim.utils.octets.Octet2;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+/**
+ * Network side of the NAS security, for the mocked core network. The directions are the opposite of
+ * {@link NasEncryption}: the downlink count of the context is used for the sent messages, and the uplink count for
+ * the received ones. Only the null ciphering algorithm is supported, the integrity algorithm can be any of them.
+ */
+class MockNasSecurity {
+
+    /**
+     * Protects a message that is sent to the UE, then increments the downlink count.
+     */
+    static SecuredMmMessage protect(NasSecurityContext securityContext, NasMessage message, boolean isNewContext) {
+        if (!securityContext.selectedAlgorithms.ciphering.equals(ETypeOfCipheringAlgorithm.EA0))
+            throw new IllegalArgumentException("only the null ciphering algorithm is supported");
+
+        var count = securityContext.downlinkCount;
+        var plain = NasEncoder.nasPdu(message);
+
+        var secured = new SecuredMmMessage();
+        secured.securityHeaderType = isNewContext
+                ? ESecurityHeaderType.INTEGRITY_PROTECTED_WITH_NEW_SECURITY_CONTEXT
+                : ESecurityHeaderType.INTEGRITY_PROTECTED_AND_CIPHERED;
+        secured.messageAuthenticationCode = NasEncryption.computeMac(securityContext.selectedAlgorithms.integrity,
+                count, securityContext.connectionIdentifier, false, securityContext.keys.kNasInt, plain);
+        secured.sequenceNumber = count.sqn;
+        secured.plainNasMessage = new OctetString(plain);
+
+        securityContext.downlinkCount = next(count);
+        return secured;
+    }
+
+    /**
+     * Returns the plain message of a message that is received from the UE, or null if its integrity cannot be
+     * verified. The uplink count is updated only for the verified messages.
+     */
+    static NasMessage unprotect(NasSecurityContext securityContext, SecuredMmMessage message) {
+        var count = new NasCount();
+        count.overflow = securityContext.uplinkCount.overflow;
+        count.sqn = message.sequenceNumber;
+        if (securityContext.uplinkCount.sqn.intValue() > message.sequenceNumber.intValue()) {
+            count.overflow = new Octet2((count.overflow.intValue() + 1) & 0xFFFF);
+        }
+
+        var mac = NasEncryption.computeMac(securityContext.selectedAlgorithms.integrity, count,
+                securityContext.connectionIdentifier, true, securityContext.keys.kNasInt,
+                message.plainNasMessage.toByteArray());
+        if (!mac.equals(message.messageAuthenticationCode))
+            return null;
+
+        securityContext.uplinkCount = next(count);
+        return NasDecoder.nasPdu(message.plainNasMessage);
+    }
+
+    private static NasCount next(NasCount count) {
+        var res = new NasCount();
+        res.sqn = new Octet((count.sqn.intValue() + 1) & 0xFF);
+        res.overflow = res.sqn.intValue() == 0 ? new Octet2((count.overflow.intValue() + 1) & 0xFFFF) : count.overflow;
+        return res;
+    }
+}
@@ -14,40 +14,40 @@ import tr.havelsan.ueransim.app.common.itms.IwSctpAssociationSetup;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.itms.Itms;
 import tr.havelsan.ueransim.itms.ItmsId;
-import tr.havelsan.ueransim.itms.ItmsTask;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.ngap0.NgapEncoding;
 import tr.havelsan.ueransim.sctp.ISctpAssociationHandler;
+import tr.havelsan.ueransim.sctp.MockedSctpClient;
 import tr.havelsan.ueransim.sctp.SctpAssociation;
 import tr.havelsan.ueransim.sctp.SctpClient;
 import tr.havelsan.ueransim.utils.Tag;
-import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.console.Log;
 
 import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class SctpTask extends ItmsTask {
+public class SctpTask extends ItmsEventTask {
 
     private static final int NGAP_PROTOCOL_ID = 60;
 
     private final GnbSimContext ctx;
     private final HashMap<Guami, GnbAmfContext> amfs;
+    private final AtomicInteger setupCount;
 
     public SctpTask(Itms itms, int taskId, GnbSimContext ctx) {
         super(itms, taskId);
         this.ctx = ctx;
         this.amfs = new HashMap<>();
+        this.setupCount = new AtomicInteger(0);
     }
 
     @Override
-    public void main() {
+    protected void onStart() {
         if (ctx.amfContexts.isEmpty()) {
             Log.error(Tag.CONFIG, "AMF contexts in GNB{%s} is empty", ctx.ctxId);
             return;
         }
 
-        var setupCount = new AtomicInteger(0);
-
         for (var amf : ctx.amfContexts.values()) {
             amfs.put(amf.guami, amf);
 
@@ -56,7 +56,9 @@ public class SctpTask extends ItmsTask {
                 public void onSetup(SctpAssociation sctpAssociation) {
                     amf.association = sctpAssociation;
                     itms.sendMessage(ItmsId.GNB_TASK_NGAP, new IwSctpAssociationSetup(amf.guami, sctpAssociation));
-                    setupCount.incrementAndGet();
+                    if (setupCount.incrementAndGet() == ctx.amfContexts.size()) {
+                        ctx.itms.sendMessage(ItmsId.GNB_TASK_APP, new IwInitialSctpReady());
+                    }
                 }
 
                 @Override
@@ -65,9 +67,21 @@ public class SctpTask extends ItmsTask {
                 }
             };
 
+            if (ctx.sim.isSimulation() || ctx.sim.getMockCore() != null) {
+                // The AMF is mocked in-process, its responses are received right after each send.
+                amf.sctpClient = new MockedSctpClient(new AmfStub(amf.guami, ctx.sim.getMockCore()),
+                        associationHandler);
+                try {
+                    amf.sctpClient.start();
+                } catch (Exception e) {
+                    Log.error(Tag.CONNECTION, "SCTP connection could not established: " + e.getMessage());
+                }
+                continue;
+            }
+
             amf.sctpClient = new SctpClient(ctx.config.host, amf.host, amf.port, NGAP_PROTOCOL_ID, associationHandler);
 
-            var receiverThread = new Thread(() -> {
+            var receiverThread = new Thread(Log.withLogger(getLogger(), () -> {
                 try {
                     amf.sctpClient.start();
                 } catch (Exception e) {
@@ -81,31 +95,32 @@ public class SctpTask extends ItmsTask {
                     Log.error(Tag.CONNECTION, "SCTP connection error: " + e.getMessage());
                     return;
                 }
-            });
-
-            Log.registerLogger(receiverThread, Log.getLoggerOrDefault(thread));
+            }));
 
             receiverThread.start();
         }
+    }
 
-        while (setupCount.get() != ctx.amfContexts.size()) {
-            // just wait
-            Utils.sleep(1000);
-        }
-
-        ctx.itms.sendMessage(ItmsId.GNB_TASK_APP, new IwInitialSctpReady());
+    @Override
+    protected void onMessage(Object msg) {
+        if (msg instanceof IwNgapSend) {
+            var wrapper = (IwNgapSend) msg;
+            var client = amfs.get(wrapper.associatedAmf).sctpClient;
+            client.send(wrapper.streamNumber, wrapper.data);
 
-        while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwNgapSend) {
-                var wrapper = (IwNgapSend) msg;
-                amfs.get(wrapper.associatedAmf).sctpClient.send(wrapper.streamNumber, wrapper.data);
+            if (client instanceof MockedSctpClient) {
+                try {
+                    ((MockedSctpClient) client).receivePending((receivedBytes, streamNumber)
+                            -> handleSCTPMessage(wrapper.associatedAmf, receivedBytes, streamNumber));
+                } catch (Exception e) {
+                    Log.error(Tag.CONNECTION, "SCTP connection error: " + e.getMessage());
+                }
             }
         }
     }
 
     public void handleSCTPMessage(Guami associatedAmf, byte[] receivedBytes, int streamNumber) {
         var pdu = NgapEncoding.decodeAper(receivedBytes);
-        itms.sendMessage(ItmsId.GNB_TASK_NGAP, new IwNgapReceive(associatedAmf, streamNumber, pdu));
+        itms.sendMessage(ItmsId.GNB_TASK_NGAP, new IwNgapReceive(associatedAmf, streamNumber, pdu, receivedBytes));
     }
 }
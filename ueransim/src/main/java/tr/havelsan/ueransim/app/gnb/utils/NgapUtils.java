@@ -22,6 +22,7 @@ import tr.havelsan.ueransim.ngap0.ies.sequence_ofs.NGAP_SupportedTAList;
 import tr.havelsan.ueransim.ngap0.ies.sequences.*;
 import tr.havelsan.ueransim.utils.Constants;
 import tr.havelsan.ueransim.utils.OctetInputStream;
+import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.bits.BitString;
 import tr.havelsan.ueransim.utils.exceptions.EncodingException;
 import tr.havelsan.ueransim.utils.octets.Octet3;
@@ -108,11 +109,12 @@ public class NgapUtils {
         return userLocationInformationNr;
     }
 
-    public static NGAP_GlobalRANNodeID createGlobalGnbId(int globalGnbId, VPlmn gnbPlmn) {
+    public static NGAP_GlobalRANNodeID createGlobalGnbId(int globalGnbId, int gnbIdLength, VPlmn gnbPlmn) {
         var res = new NGAP_GlobalGNB_ID();
         res.pLMNIdentity = NgapUtils.plmnEncode(gnbPlmn);
         res.gNB_ID = new NGAP_GNB_ID();
-        res.gNB_ID.gNB_ID = new NGAP_BitString(new Octet4(globalGnbId).toByteArray(true), 32);
+        res.gNB_ID.gNB_ID = new NGAP_BitString(BitString.fromBits(Utils.padLeft(
+                Long.toBinaryString(globalGnbId & ((1L << gnbIdLength) - 1)), gnbIdLength, '0')));
 
         var ret = new NGAP_GlobalRANNodeID();
         ret.globalGNB_ID = res;
@@ -7,40 +7,72 @@ package tr.havelsan.ueransim.app.ue;
 
 import tr.havelsan.ueransim.app.app.UeRanSim;
 import tr.havelsan.ueransim.app.common.configs.UeConfig;
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.app.ue.app.UeAppTask;
 import tr.havelsan.ueransim.app.ue.mr.MrTask;
 import tr.havelsan.ueransim.app.ue.nas.NasTask;
-import tr.havelsan.ueransim.app.ue.nas.NasTimersTask;
 import tr.havelsan.ueransim.app.utils.ConfigUtils;
 import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsMonitor;
 import tr.havelsan.ueransim.itms.ItmsTask;
-import tr.havelsan.ueransim.utils.console.Log;
+
+import java.util.UUID;
 
 public class UeNode {
 
     public static final boolean AUTO = false;
 
     public static UeSimContext createContext(UeRanSim sim, UeConfig config) {
-        var ctx = new UeSimContext(sim);
+        return createContext(sim, config, sim != null ? sim.newContextId() : UUID.randomUUID());
+    }
+
+    /**
+     * Creates the context of a UE without starting it. This does no I/O and starts no thread, so the contexts of
+     * a fleet can be created in parallel.
+     */
+    public static UeSimContext createContext(UeRanSim sim, UeConfig config, UUID ctxId) {
+        return createContext(sim, config, ctxId, sim != null ? sim.allocateHandle() : BaseSimContext.NO_HANDLE);
+    }
+
+    public static UeSimContext createContext(UeRanSim sim, UeConfig config, UUID ctxId, int handle) {
+        var ctx = new UeSimContext(sim, ctxId, handle);
         ctx.ueConfig = config;
+        // The log file is not opened until something is logged.
+        ctx.logger = ConfigUtils.createLoggerFor(ctx);
         return ctx;
     }
 
+    /**
+     * Creates and starts the tasks of the UE unless they are already started. Returns true if they are started by
+     * this call.
+     */
+    public static boolean ensureRunning(UeSimContext ctx) {
+        if (ctx.isRunning)
+            return false;
+        synchronized (ctx) {
+            if (ctx.isRunning)
+                return false;
+            run(ctx);
+            ctx.isRunning = true;
+            return true;
+        }
+    }
+
     public static void run(UeSimContext ctx) {
-        ctx.logger = ConfigUtils.createLoggerFor(ConfigUtils.generateNodeName(ctx));
+        var nodeName = ConfigUtils.generateNodeName(ctx);
 
         var itms = ctx.itms;
+        ItmsMonitor.register(nodeName, itms);
 
         var tasks = new ItmsTask[]{
-                new NasTimersTask(itms, ItmsId.UE_TASK_NAS_TIMERS, ctx),
                 new MrTask(itms, ItmsId.UE_TASK_MR, ctx),
                 new NasTask(itms, ItmsId.UE_TASK_NAS, ctx),
                 new UeAppTask(itms, ItmsId.UE_TASK_APP, ctx)
         };
 
         for (var task : tasks) {
-            Log.registerLogger(task.thread, ctx.logger);
+            task.setLogger(ctx.logger);
         }
         for (var task : tasks) {
             itms.createTask(task);
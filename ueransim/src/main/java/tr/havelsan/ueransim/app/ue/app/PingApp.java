@@ -6,6 +6,7 @@
 package tr.havelsan.ueransim.app.ue.app;
 
 import tr.havelsan.ueransim.app.common.UeConnectionInfo;
+import tr.havelsan.ueransim.app.common.itms.IwPingTimeout;
 import tr.havelsan.ueransim.app.common.itms.IwUplinkData;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.app.common.testcmd.TestCmd_Ping;
@@ -18,7 +19,6 @@ import tr.havelsan.ueransim.utils.octets.OctetString;
 
 import java.net.InetAddress;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 
 class PingApp {
@@ -28,7 +28,6 @@ class PingApp {
 
     private short idCounter;
     private short seqCounter;
-    private long lastTimeoutControl;
 
     public PingApp(UeSimContext ctx, UeConnectionInfo connectionInfo) {
         this.ctx = ctx;
@@ -75,10 +74,15 @@ class PingApp {
             if (id == 0) id++;
             if (seq == 0) seq++;
 
-            pingEntries.put(id << 16 | seq, new PingEntry(System.currentTimeMillis(), ping.address, destAddrName, ping.timeoutSec));
+            int pingId = id << 16 | seq;
+            var entry = new PingEntry(Utils.currentTimeMillis(), ping.address, destAddrName, ping.timeoutSec);
+            if (ping.timeoutSec > 0) {
+                entry.timeoutTimer = ctx.itms.sendMessageDelayed(ItmsId.UE_TASK_APP, new IwPingTimeout(pingId), ping.timeoutSec * 1000L);
+            }
+            pingEntries.put(pingId, entry);
 
             var packet = createPingPacket(source, dest, id, seq);
-            ctx.itms.sendMessage(ItmsId.UE_TASK_MR, new IwUplinkData(ctx.ctxId, connectionInfo.pduSessionId, new OctetString(packet)));
+            ctx.itms.sendMessage(ItmsId.UE_TASK_MR, new IwUplinkData(ctx.handle, connectionInfo.pduSessionId, new OctetString(packet)));
         }
     }
 
@@ -97,42 +101,21 @@ class PingApp {
         }
 
         pingEntries.remove(r);
+        if (entry.timeoutTimer != null) {
+            entry.timeoutTimer.cancel();
+        }
 
-        long delta = System.currentTimeMillis() - entry.timestamp;
+        long delta = Utils.currentTimeMillis() - entry.timestamp;
 
         Log.success(Tag.UE_APP, "Ping reply from %s in %d ms", entry.getAddressDisplay(), delta);
     }
 
-    public void timeoutControl() {
-        long current = System.currentTimeMillis();
-        {
-            long delta = current - lastTimeoutControl;
-            if (delta <= 1000)
-                return;
-        }
-
-        lastTimeoutControl = current;
-
-        var entriesToDelete = new HashSet<Integer>();
-
-        for (var item : pingEntries.entrySet()) {
-            var value = item.getValue();
-
-            if (value.timeoutSec <= 0)
-                continue;
-
-            var delta = current - value.timestamp;
-
-            if (delta > value.timeoutSec * 1000) {
-                entriesToDelete.add(item.getKey());
-            }
+    public void handleTimeout(int pingId) {
+        var entry = pingEntries.remove(pingId);
+        if (entry == null) {
+            return;
         }
 
-        for (var key : entriesToDelete) {
-            var value = pingEntries.get(key);
-            pingEntries.remove(key);
-
-            Log.error(Tag.UE_APP, "Ping timeout for %s after %d sec no response", value.getAddressDisplay(), value.timeoutSec);
-        }
+        Log.error(Tag.UE_APP, "Ping timeout for %s after %d sec no response", entry.getAddressDisplay(), entry.timeoutSec);
     }
 }
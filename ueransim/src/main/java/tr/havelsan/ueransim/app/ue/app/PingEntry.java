@@ -5,11 +5,14 @@
 
 package tr.havelsan.ueransim.app.ue.app;
 
+import tr.havelsan.ueransim.itms.ItmsTimer;
+
 class PingEntry {
     public final long timestamp; // TODO: Use packet receive time instead since UeAppTask thread may add some overhead
     public final String name;
     public final String address;
     public final int timeoutSec;
+    public ItmsTimer timeoutTimer;
 
     public PingEntry(long timestamp, String name, String address, int timeoutSec) {
         this.timestamp = timestamp;
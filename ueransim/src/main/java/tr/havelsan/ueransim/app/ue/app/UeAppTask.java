@@ -7,19 +7,34 @@ package tr.havelsan.ueransim.app.ue.app;
 
 import tr.havelsan.ueransim.app.common.UeConnectionInfo;
 import tr.havelsan.ueransim.app.common.itms.IwDownlinkData;
+import tr.havelsan.ueransim.app.common.itms.IwPingTimeout;
 import tr.havelsan.ueransim.app.common.itms.IwUeConnectionSetup;
 import tr.havelsan.ueransim.app.common.itms.IwUeTestCommand;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.app.common.testcmd.*;
 import tr.havelsan.ueransim.itms.Itms;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.itms.ItmsId;
-import tr.havelsan.ueransim.itms.ItmsTask;
 import tr.havelsan.ueransim.nas.impl.enums.EPduSessionType;
 import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.console.Log;
 
-public class UeAppTask extends ItmsTask {
+public class UeAppTask extends ItmsEventTask {
+
+    private static final ItmsDispatcher<UeAppTask> COMMAND_DISPATCHER = new ItmsDispatcher<UeAppTask>()
+            .on(TestCmd_InitialRegistration.class, UeAppTask::forwardToNas)
+            .on(TestCmd_PeriodicRegistration.class, UeAppTask::forwardToNas)
+            .on(TestCmd_PduSessionEstablishment.class, UeAppTask::forwardToNas)
+            .on(TestCmd_Deregistration.class, UeAppTask::forwardToNas)
+            .on(TestCmd_Ping.class, (task, cmd) -> task.pingApp.sendPing(cmd));
+
+    private static final ItmsDispatcher<UeAppTask> DISPATCHER = new ItmsDispatcher<UeAppTask>()
+            .on(IwUeTestCommand.class, (task, w) -> COMMAND_DISPATCHER.dispatch(task, w.cmd))
+            .on(IwUeConnectionSetup.class, UeAppTask::connectionSetup)
+            .on(IwDownlinkData.class, (task, w) -> task.pingApp.handlePacket(w.ipPacket))
+            .on(IwPingTimeout.class, (task, w) -> task.pingApp.handleTimeout(w.pingId));
 
     private final UeSimContext ctx;
     private final PingApp pingApp;
@@ -33,31 +48,12 @@ public class UeAppTask extends ItmsTask {
     }
 
     @Override
-    public void main() {
-        while (true) {
-            var msg = ctx.itms.receiveMessage(this, 1000);
-            pingApp.timeoutControl();
-
-            if (msg instanceof IwUeTestCommand) {
-                var cmd = ((IwUeTestCommand) msg).cmd;
+    protected void onMessage(Object msg) {
+        DISPATCHER.dispatch(this, msg);
+    }
 
-                if (cmd instanceof TestCmd_InitialRegistration) {
-                    ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-                } else if (cmd instanceof TestCmd_PeriodicRegistration) {
-                    ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-                } else if (cmd instanceof TestCmd_PduSessionEstablishment) {
-                    ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-                } else if (cmd instanceof TestCmd_Deregistration) {
-                    ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-                } else if (cmd instanceof TestCmd_Ping) {
-                    pingApp.sendPing((TestCmd_Ping) cmd);
-                }
-            } else if (msg instanceof IwUeConnectionSetup) {
-                connectionSetup((IwUeConnectionSetup) msg);
-            } else if (msg instanceof IwDownlinkData) {
-                pingApp.handlePacket(((IwDownlinkData) msg).ipPacket);
-            }
-        }
+    private void forwardToNas(TestCmd cmd) {
+        ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, new IwUeTestCommand(cmd));
     }
 
     private void connectionSetup(IwUeConnectionSetup msg) {
@@ -26,7 +26,7 @@ import tr.havelsan.ueransim.utils.octets.OctetString;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class MmAuthentication {
 
@@ -330,13 +330,23 @@ public class MmAuthentication {
     }
 
     private static Map<MilenageResult, OctetString> calculateMilenage(UeConfig ueConfig, OctetString sqn, OctetString rand) {
+        return calculateMilenage(ueConfig.key, ueConfig.op, ueConfig.amf, sqn, rand);
+    }
+
+    /**
+     * Calculates the Milenage outputs of the given subscription. It is also used by the network side of the mocked
+     * core network.
+     */
+    public static Map<MilenageResult, OctetString> calculateMilenage(OctetString key, OctetString op, OctetString amf,
+                                                                     OctetString sqn, OctetString rand) {
         var factory = BigIntegerBufferFactory.getInstance();
-        var cipher = Ciphers.createRijndaelCipher(ueConfig.key.toByteArray());
-        byte[] opc = threegpp.milenage.Milenage.calculateOPc(ueConfig.op.toByteArray(), cipher, factory);
+        var cipher = Ciphers.createRijndaelCipher(key.toByteArray());
+        byte[] opc = threegpp.milenage.Milenage.calculateOPc(op.toByteArray(), cipher, factory);
         var milenage = new threegpp.milenage.Milenage<>(opc, cipher, factory);
         try {
+            // A shared pool, instead of a new one that is never shut down for each authentication
             var calc = milenage.calculateAll(rand.toByteArray(), sqn.toByteArray(),
-                    ueConfig.amf.toByteArray(), Executors.newCachedThreadPool());
+                    amf.toByteArray(), ForkJoinPool.commonPool());
             var res = new HashMap<MilenageResult, OctetString>();
             for (var entry : calc.entrySet()) {
                 res.put(entry.getKey(), new OctetString(entry.getValue()));
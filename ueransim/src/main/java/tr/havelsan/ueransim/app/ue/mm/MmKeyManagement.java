@@ -28,9 +28,13 @@ public class MmKeyManagement {
     private static final int N_UP_int_alg = 0x06;
 
     public static void deriveKeysSeafAmf(UeConfig ueConfig, NasSecurityContext nasSecurityContext) {
+        deriveKeysSeafAmf(ueConfig.snn, ueConfig.supi, nasSecurityContext);
+    }
+
+    public static void deriveKeysSeafAmf(String snn, Supi supi, NasSecurityContext nasSecurityContext) {
         var keys = nasSecurityContext.keys;
-        keys.kSeaf = KDF.calculateKey(keys.kAusf, 0x6C, KDF.encodeString(ueConfig.snn));
-        keys.kAmf = KDF.calculateKey(keys.kSeaf, 0x6D, KDF.encodeString(ueConfig.supi.value), keys.abba);
+        keys.kSeaf = KDF.calculateKey(keys.kAusf, 0x6C, KDF.encodeString(snn));
+        keys.kAmf = KDF.calculateKey(keys.kSeaf, 0x6D, KDF.encodeString(supi.value), keys.abba);
     }
 
     public static void deriveNasKeys(NasSecurityContext securityContext) {
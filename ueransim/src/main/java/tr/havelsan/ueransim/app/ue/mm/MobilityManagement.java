@@ -17,6 +17,7 @@ import tr.havelsan.ueransim.app.ue.UeNode;
 import tr.havelsan.ueransim.app.ue.nas.NasTimer;
 import tr.havelsan.ueransim.app.ue.nas.NasTransport;
 import tr.havelsan.ueransim.app.ue.sm.SessionManagement;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
 import tr.havelsan.ueransim.nas.core.messages.PlainMmMessage;
 import tr.havelsan.ueransim.nas.impl.enums.EFollowOnRequest;
 import tr.havelsan.ueransim.nas.impl.enums.ERegistrationType;
@@ -29,42 +30,29 @@ import tr.havelsan.ueransim.utils.exceptions.NotImplementedException;
 
 public class MobilityManagement {
 
+    private static final ItmsDispatcher<UeSimContext> DISPATCHER = new ItmsDispatcher<UeSimContext>()
+            .on(AuthenticationRequest.class, MmAuthentication::receiveAuthenticationRequest)
+            .on(AuthenticationResult.class, MmAuthentication::receiveAuthenticationResult)
+            .on(AuthenticationResponse.class, MmAuthentication::receiveAuthenticationResponse)
+            .on(AuthenticationReject.class, MmAuthentication::receiveAuthenticationReject)
+            .on(RegistrationReject.class, MmRegistration::receiveRegistrationReject)
+            .on(IdentityRequest.class, MmIdentity::receiveIdentityRequest)
+            .on(RegistrationAccept.class, MmRegistration::receiveRegistrationAccept)
+            .on(ServiceAccept.class, MmService::receiveServiceAccept)
+            .on(ServiceReject.class, MmService::receiveServiceReject)
+            .on(SecurityModeCommand.class, MmSecurity::receiveSecurityModeCommand)
+            .on(ConfigurationUpdateCommand.class, MmConfiguration::receiveConfigurationUpdate)
+            .on(DeRegistrationAcceptUeOriginating.class, MmDeregistration::receiveDeregistrationAccept)
+            .on(DeRegistrationRequestUeTerminated.class, MmDeregistration::receiveDeregistrationRequest)
+            .on(DlNasTransport.class, SessionManagement::receiveDl)
+            .otherwise((ctx, message) -> Log.error(Tag.MESSAGING, "Unhandled message received: %s", message.getClass().getSimpleName()));
+
     public static void sendMm(UeSimContext ctx, PlainMmMessage message) {
         NasTransport.sendNas(ctx, message);
     }
 
     public static void receiveMm(UeSimContext ctx, PlainMmMessage message) {
-        if (message instanceof AuthenticationRequest) {
-            MmAuthentication.receiveAuthenticationRequest(ctx, (AuthenticationRequest) message);
-        } else if (message instanceof AuthenticationResult) {
-            MmAuthentication.receiveAuthenticationResult(ctx, (AuthenticationResult) message);
-        } else if (message instanceof AuthenticationResponse) {
-            MmAuthentication.receiveAuthenticationResponse(ctx, (AuthenticationResponse) message);
-        } else if (message instanceof AuthenticationReject) {
-            MmAuthentication.receiveAuthenticationReject(ctx, (AuthenticationReject) message);
-        } else if (message instanceof RegistrationReject) {
-            MmRegistration.receiveRegistrationReject(ctx, (RegistrationReject) message);
-        } else if (message instanceof IdentityRequest) {
-            MmIdentity.receiveIdentityRequest(ctx, (IdentityRequest) message);
-        } else if (message instanceof RegistrationAccept) {
-            MmRegistration.receiveRegistrationAccept(ctx, (RegistrationAccept) message);
-        } else if (message instanceof ServiceAccept) {
-            MmService.receiveServiceAccept(ctx, (ServiceAccept) message);
-        } else if (message instanceof ServiceReject) {
-            MmService.receiveServiceReject(ctx, (ServiceReject) message);
-        } else if (message instanceof SecurityModeCommand) {
-            MmSecurity.receiveSecurityModeCommand(ctx, (SecurityModeCommand) message);
-        } else if (message instanceof ConfigurationUpdateCommand) {
-            MmConfiguration.receiveConfigurationUpdate(ctx, (ConfigurationUpdateCommand) message);
-        } else if (message instanceof DeRegistrationAcceptUeOriginating) {
-            MmDeregistration.receiveDeregistrationAccept(ctx, (DeRegistrationAcceptUeOriginating) message);
-        } else if (message instanceof DeRegistrationRequestUeTerminated) {
-            MmDeregistration.receiveDeregistrationRequest(ctx, (DeRegistrationRequestUeTerminated) message);
-        } else if (message instanceof DlNasTransport) {
-            SessionManagement.receiveDl(ctx, (DlNasTransport) message);
-        } else {
-            Log.error(Tag.MESSAGING, "Unhandled message received: %s", message.getClass().getSimpleName());
-        }
+        DISPATCHER.dispatch(ctx, message);
     }
 
     public static void receiveTimerExpire(UeSimContext ctx, NasTimer timer) {
@@ -109,7 +97,24 @@ public class MobilityManagement {
         Log.info(Tag.STATE, "UE switches to state: %s", state);
     }
 
+    /**
+     * Runs the MM state machine until it settles. Must be called after every event that may cause a state transition,
+     * i.e. after each received message, timer expiry and command.
+     */
     public static void cycle(UeSimContext ctx) {
+        while (true) {
+            var state = ctx.mmCtx.mmState;
+            var subState = ctx.mmCtx.mmSubState;
+
+            cycleOnce(ctx);
+
+            // A state transition may enable another one, otherwise the state machine is settled.
+            if (state == ctx.mmCtx.mmState && subState == ctx.mmCtx.mmSubState)
+                return;
+        }
+    }
+
+    private static void cycleOnce(UeSimContext ctx) {
         if (ctx.mmCtx.mmState == EMmState.MM_NULL) {
             switchState(ctx, EMmState.MM_DEREGISTERED, EMmSubState.MM_DEREGISTERED__PLMN_SEARCH);
             return;
@@ -8,10 +8,18 @@ package tr.havelsan.ueransim.app.ue.mr;
 import tr.havelsan.ueransim.app.common.itms.*;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.itms.Itms;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.itms.ItmsId;
-import tr.havelsan.ueransim.itms.ItmsTask;
 
-public class MrTask extends ItmsTask {
+public class MrTask extends ItmsEventTask {
+
+    private static final ItmsDispatcher<MrTask> DISPATCHER = new ItmsDispatcher<MrTask>()
+            .on(IwDownlinkNas.class, (task, w) -> task.ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, w))
+            .on(IwUplinkNas.class, (task, w) -> task.ctx.sim.findGnb(task.ctx.connectedGnb).itms.sendMessage(ItmsId.GNB_TASK_MR, w))
+            .on(IwUplinkData.class, (task, w) -> task.ctx.sim.findGnb(task.ctx.connectedGnb).itms.sendMessage(ItmsId.GNB_TASK_MR, w))
+            .on(IwDownlinkData.class, (task, w) -> task.ctx.itms.sendMessage(ItmsId.UE_TASK_APP, w))
+            .on(IwConnectionRelease.class, (task, w) -> task.ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, w));
 
     private final UeSimContext ctx;
 
@@ -21,20 +29,7 @@ public class MrTask extends ItmsTask {
     }
 
     @Override
-    public void main() {
-        while (true) {
-            var msg = itms.receiveMessage(this);
-            if (msg instanceof IwDownlinkNas) {
-                ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-            } else if (msg instanceof IwUplinkNas) {
-                ctx.sim.findGnb(ctx.connectedGnb).itms.sendMessage(ItmsId.GNB_TASK_MR, msg);
-            } else if (msg instanceof IwUplinkData) {
-                ctx.sim.findGnb(ctx.connectedGnb).itms.sendMessage(ItmsId.GNB_TASK_MR, msg);
-            } else if (msg instanceof IwDownlinkData) {
-                ctx.itms.sendMessage(ItmsId.UE_TASK_APP, msg);
-            } else if (msg instanceof IwConnectionRelease) {
-                ctx.itms.sendMessage(ItmsId.UE_TASK_NAS, msg);
-            }
-        }
+    protected void onMessage(Object msg) {
+        DISPATCHER.dispatch(this, msg);
     }
 }
@@ -196,7 +196,7 @@ public class NasEncryption {
         Log.debug(Tag.VALUE, "count: %s", count.toOctet4());
         Log.debug(Tag.VALUE, "bearer: %s", bearer);
         Log.debug(Tag.VALUE, "direction: %s", direction);
-        Log.debug(Tag.VALUE, "message: %s", message.toHexString(false));
+        Log.debug(Tag.VALUE, () -> "message: " + message.toHexString(false));
         Log.debug(Tag.VALUE, "key: %s", key);
 
         Octet4 res = null;
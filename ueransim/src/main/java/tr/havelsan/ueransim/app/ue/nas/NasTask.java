@@ -15,13 +15,22 @@ import tr.havelsan.ueransim.app.common.testcmd.TestCmd;
 import tr.havelsan.ueransim.app.ue.mm.MobilityManagement;
 import tr.havelsan.ueransim.app.ue.sm.SessionManagement;
 import tr.havelsan.ueransim.itms.Itms;
-import tr.havelsan.ueransim.itms.ItmsTask;
+import tr.havelsan.ueransim.itms.ItmsDispatcher;
+import tr.havelsan.ueransim.itms.ItmsEventTask;
 import tr.havelsan.ueransim.nas.NasDecoder;
 import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.console.Log;
 
 
-public class NasTask extends ItmsTask {
+public class NasTask extends ItmsEventTask {
+
+    private static final ItmsDispatcher<NasTask> DISPATCHER = new ItmsDispatcher<NasTask>()
+            .on(IwDownlinkNas.class, (task, w) -> NasTransport.receiveNas(task.ctx, NasDecoder.nasPdu(w.nasPdu)))
+            .on(IwNasTimerExpire.class, NasTask::receiveTimerExpire)
+            .on(IwUeTestCommand.class, (task, w) -> executeCommand(task.ctx, w.cmd))
+            .on(IwConnectionRelease.class, (task, w) -> {
+                // TODO
+            });
 
     private final UeSimContext ctx;
 
@@ -39,28 +48,28 @@ public class NasTask extends ItmsTask {
     }
 
     @Override
-    public void main() {
-        // TODO: Make this task sleepable/wakeable like other tasks.
-        while (true) {
-            MobilityManagement.cycle(ctx);
+    protected void onStart() {
+        MobilityManagement.cycle(ctx);
+    }
 
-            var msg = ctx.itms.receiveMessageNonBlocking(this);
-            if (msg instanceof IwDownlinkNas) {
-                NasTransport.receiveNas(ctx, NasDecoder.nasPdu(((IwDownlinkNas) msg).nasPdu));
-            } else if (msg instanceof IwNasTimerExpire) {
-                var timer = ((IwNasTimerExpire) msg).timer;
-                Log.info(Tag.NAS_TIMER, "NAS Timer expired: %s", timer);
+    @Override
+    protected void onMessage(Object msg) {
+        DISPATCHER.dispatch(this, msg);
+        // The state machine can only move on after an event, there is no need to run it otherwise.
+        MobilityManagement.cycle(ctx);
+    }
 
-                if (timer.isMmTimer) {
-                    MobilityManagement.receiveTimerExpire(ctx, timer);
-                } else {
-                    SessionManagement.receiveTimerExpire(ctx, timer);
-                }
-            } else if (msg instanceof IwUeTestCommand) {
-                executeCommand(ctx, ((IwUeTestCommand) msg).cmd);
-            } else if (msg instanceof IwConnectionRelease) {
-                // TODO
-            }
+    private void receiveTimerExpire(IwNasTimerExpire msg) {
+        var timer = msg.timer;
+        if (!timer.onExpire(msg)) {
+            return;
+        }
+        Log.info(Tag.NAS_TIMER, "NAS Timer expired: %s", timer);
+
+        if (timer.isMmTimer) {
+            MobilityManagement.receiveTimerExpire(ctx, timer);
+        } else {
+            SessionManagement.receiveTimerExpire(ctx, timer);
         }
     }
 }
@@ -5,7 +5,10 @@
 
 package tr.havelsan.ueransim.app.ue.nas;
 
+import tr.havelsan.ueransim.app.common.itms.IwNasTimerExpire;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
+import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.itms.ItmsTimer;
 import tr.havelsan.ueransim.nas.impl.ies.IEGprsTimer2;
 import tr.havelsan.ueransim.nas.impl.ies.IEGprsTimer3;
 import tr.havelsan.ueransim.utils.Tag;
@@ -17,10 +20,9 @@ public class NasTimer {
     public final boolean isMmTimer;
 
     private int interval;
-    private long startMillis;
     private boolean isRunning;
-
-    private long _lastDebugPrintMs;
+    private ItmsTimer expiry;
+    private IwNasTimerExpire pendingExpire;
 
     public NasTimer(UeSimContext ctx, int timerCode, boolean isMmTimer, int defaultInterval) {
         this.ctx = ctx;
@@ -30,8 +32,7 @@ public class NasTimer {
     }
 
     public synchronized void start() {
-        startMillis = System.currentTimeMillis();
-        isRunning = true;
+        schedule();
 
         Log.debug(Tag.NAS_TIMER, "NAS Timer %s started with interval: %ss", timerCode, interval);
     }
@@ -43,8 +44,7 @@ public class NasTimer {
         }
 
         interval = v.value.intValue();
-        startMillis = System.currentTimeMillis();
-        isRunning = true;
+        schedule();
 
         Log.debug(Tag.NAS_TIMER, "NAS Timer %s started with interval: %ss", timerCode, interval);
     }
@@ -67,15 +67,14 @@ public class NasTimer {
         else if (v.unit == IEGprsTimer3.EGprsTimerValueUnit3.MULTIPLES_OF_320HOUR) secs = val * 60 * 60 * 320;
 
         interval = secs;
-        startMillis = System.currentTimeMillis();
-        isRunning = true;
+        schedule();
 
         Log.debug(Tag.NAS_TIMER, "NAS Timer %s started with interval: %ss", timerCode, interval);
     }
 
     public synchronized void stop() {
         if (isRunning) {
-            startMillis = System.currentTimeMillis();
+            cancelExpiry();
             isRunning = false;
 
             Log.debug(Tag.NAS_TIMER, "NAS Timer %s stopped", timerCode);
@@ -86,23 +85,32 @@ public class NasTimer {
         return isRunning;
     }
 
-    public synchronized boolean performTick() {
-        if (isRunning) {
-            long currentMs = System.currentTimeMillis();
-            long deltaSec = (currentMs - startMillis) / 1000;
-            long remainingSec = interval - deltaSec;
-
-            if (currentMs - _lastDebugPrintMs > 10 * 1000) {
-                _lastDebugPrintMs = currentMs;
-                Log.debug(Tag.NAS_TIMER, "NAS Timer %s int:%ss rem:%ss", timerCode, interval, remainingSec);
-            }
-
-            if (remainingSec < 0) {
-                stop();
-                return true;
-            }
+    /**
+     * Called when an expiry message of this timer is received by the NAS task. Returns false if the message belongs
+     * to a run of the timer that is already stopped or restarted, otherwise the timer is stopped and true is returned.
+     */
+    public synchronized boolean onExpire(IwNasTimerExpire msg) {
+        if (!isRunning || msg != pendingExpire)
+            return false;
+        pendingExpire = null;
+        expiry = null;
+        isRunning = false;
+        return true;
+    }
+
+    private void schedule() {
+        cancelExpiry();
+        pendingExpire = new IwNasTimerExpire(this);
+        expiry = ctx.itms.sendMessageDelayed(ItmsId.UE_TASK_NAS, pendingExpire, interval * 1000L);
+        isRunning = true;
+    }
+
+    private void cancelExpiry() {
+        if (expiry != null) {
+            expiry.cancel();
+            expiry = null;
         }
-        return false;
+        pendingExpire = null;
     }
 
     @Override
@@ -6,17 +6,17 @@
 package tr.havelsan.ueransim.app.ue.nas;
 
 
+import tr.havelsan.ueransim.app.common.enums.EEventType;
 import tr.havelsan.ueransim.app.common.itms.IwUplinkNas;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
 import tr.havelsan.ueransim.app.ue.mm.MobilityManagement;
 import tr.havelsan.ueransim.app.ue.sm.SessionManagement;
+import tr.havelsan.ueransim.app.utils.EventLogging;
 import tr.havelsan.ueransim.itms.ItmsId;
 import tr.havelsan.ueransim.nas.NasEncoder;
 import tr.havelsan.ueransim.nas.core.messages.NasMessage;
 import tr.havelsan.ueransim.nas.core.messages.PlainMmMessage;
 import tr.havelsan.ueransim.nas.core.messages.PlainSmMessage;
-import tr.havelsan.ueransim.utils.Json;
-import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.console.Log;
 
 public class NasTransport {
@@ -27,12 +27,10 @@ public class NasTransport {
         var securedNas = NasSecurity.encryptNasMessage(ctx.currentNsCtx, message);
         var securedNasPdu = NasEncoder.nasPduS(securedNas);
 
-        Log.debug(Tag.MESSAGING, "Plain NAS as JSON: %s", Json.toJson(message));
-        Log.debug(Tag.MESSAGING, "Plain NAS PDU: %s", NasEncoder.nasPduS(message));
-        Log.debug(Tag.MESSAGING, "Secured NAS as JSON %s", Json.toJson(securedNas));
-        Log.debug(Tag.MESSAGING, "Secured NAS PDU: %s", securedNasPdu);
+        EventLogging.nas(EEventType.NAS_PLAIN_SENT, message);
+        EventLogging.nas(EEventType.NAS_SECURED_SENT, securedNas, securedNasPdu);
 
-        ctx.itms.sendMessage(ItmsId.UE_TASK_MR, new IwUplinkNas(ctx.ctxId, securedNasPdu));
+        ctx.itms.sendMessage(ItmsId.UE_TASK_MR, new IwUplinkNas(ctx.handle, securedNasPdu));
         ctx.sim.triggerOnSend(ctx, message);
         Log.funcOut();
     }
@@ -40,13 +38,11 @@ public class NasTransport {
     public static void receiveNas(UeSimContext ctx, NasMessage message) {
         Log.funcIn("Receiving NAS message: %s", message.getClass().getSimpleName());
 
-        Log.debug(Tag.MESSAGING, "Secured NAS as JSON %s", Json.toJson(message));
-        Log.debug(Tag.MESSAGING, "Secured NAS PDU: %s", NasEncoder.nasPduS(message));
+        EventLogging.nas(EEventType.NAS_SECURED_RECEIVED, message);
 
         message = NasSecurity.decryptNasMessage(ctx.currentNsCtx, message);
 
-        Log.debug(Tag.MESSAGING, "Plain NAS as JSON %s", Json.toJson(message));
-        Log.debug(Tag.MESSAGING, "Plain NAS PDU: %s", NasEncoder.nasPduS(message));
+        EventLogging.nas(EEventType.NAS_PLAIN_RECEIVED, message);
 
         ctx.sim.triggerOnReceive(ctx, message);
 
@@ -38,10 +38,14 @@ public class SessionManagement {
         ulNasTransport.dnn = ctx.ueConfig.dnn;
 
         MobilityManagement.sendMm(ctx, ulNasTransport);
+        // The listeners only see the transport message otherwise.
+        ctx.sim.triggerOnSend(ctx, message);
     }
 
     public static void receiveDl(UeSimContext ctx, DlNasTransport message) {
-        receiveSm(ctx, (PlainSmMessage) NasDecoder.nasPdu(message.payloadContainer.payload));
+        var smMessage = (PlainSmMessage) NasDecoder.nasPdu(message.payloadContainer.payload);
+        ctx.sim.triggerOnReceive(ctx, smMessage);
+        receiveSm(ctx, smMessage);
     }
 
     public static void receiveSm(UeSimContext ctx, PlainSmMessage message) {
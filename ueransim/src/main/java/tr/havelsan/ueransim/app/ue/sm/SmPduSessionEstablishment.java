@@ -98,7 +98,7 @@ class SmPduSessionEstablishment {
         pduSession.pduAddress = message.pduAddress;
 
         ctx.itms.sendMessage(ItmsId.UE_TASK_APP, new IwUeConnectionSetup(pduSession));
-        ctx.sim.getAirCtx().itms.sendMessage(ItmsId.AIR_TASK_TB, new IwPduSessionEstablishment(ctx.ctxId, pduSession));
+        ctx.sim.getAirCtx().itms.sendMessage(ItmsId.AIR_TASK_TB, new IwPduSessionEstablishment(ctx.handle, pduSession));
 
         Log.info(Tag.PROC, "PDU session established: %s", message.pduSessionId);
         Log.success(Tag.PROCEDURE_RESULT, "PDU Session Establishment is successful");
@@ -9,37 +9,95 @@ import tr.havelsan.ueransim.app.common.simctx.AirSimContext;
 import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
 import tr.havelsan.ueransim.app.common.simctx.GnbSimContext;
 import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.console.AsyncLogAppender;
+import tr.havelsan.ueransim.utils.console.BinaryEventLog;
 import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.console.ShardedLogStore;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigUtils {
 
+    // Minimum severities of the loggers by the prefix of their names
+    private static final Map<String, Severity> minSeverities = new ConcurrentHashMap<>();
+    // The store of the logs of the nodes, or null for a file for each node
+    private static volatile ShardedLogStore logStore;
+    // The log of the protocol events of the nodes, or null to log them as text
+    private static volatile BinaryEventLog eventLog;
+
+    /**
+     * Creates the logger of the given node, which records its events into the event log if there is one.
+     */
+    public static Logger createLoggerFor(BaseSimContext ctx) {
+        var name = generateNodeName(ctx);
+        var logger = createLoggerFor(name);
+        var log = eventLog;
+        if (log != null && ctx.handle != BaseSimContext.NO_HANDLE) {
+            logger.setEventLog(log.open(ctx.handle, name));
+        }
+        return logger;
+    }
+
     public static Logger createLoggerFor(String name) {
         var logger = new Logger(name);
-        loggingToFile(logger, name, false);
+        var store = logStore;
+        if (store != null) {
+            logger.getConsole().setStandardPrintEnabled(false);
+            logger.setLogFile(store.open(name));
+        } else {
+            loggingToFile(logger, name, false);
+        }
+        applyMinSeverity(logger);
         return logger;
     }
 
+    /**
+     * Writes the logs of the loggers that are created after this into the given store, instead of a file for each.
+     */
+    public static void setLogStore(ShardedLogStore store) {
+        logStore = store;
+    }
+
+    /**
+     * Records the events of the nodes that are created after this into the given log, see
+     * {@link tr.havelsan.ueransim.app.utils.EventLogging}.
+     */
+    public static void setEventLog(BinaryEventLog log) {
+        eventLog = log;
+    }
+
+    /**
+     * Sets the minimum severity of the loggers whose names start with the given prefix, which are created after
+     * this.
+     */
+    public static void setMinSeverity(String namePrefix, Severity severity) {
+        minSeverities.put(namePrefix, severity);
+    }
+
+    /**
+     * Sets the minimum severity of the given logger, if its name matches a prefix. The longest prefix wins.
+     */
+    public static void applyMinSeverity(Logger logger) {
+        String match = null;
+        for (var prefix : minSeverities.keySet()) {
+            if (logger.getLoggerName().startsWith(prefix) && (match == null || prefix.length() > match.length())) {
+                match = prefix;
+            }
+        }
+        if (match != null) {
+            logger.setMinSeverity(minSeverities.get(match));
+        }
+    }
+
     public static void loggingToFile(Logger logger, String name, boolean standardPrint) {
         if (name.contains(".") || name.contains("/"))
             throw new IllegalArgumentException("name contains '.' or '/'");
 
         logger.getConsole().setStandardPrintEnabled(standardPrint);
-        logger.getConsole().addPrintHandler(str -> {
-            final Path path = Paths.get("logs/" + name + ".log");
-            try {
-                Files.write(path, str.getBytes(StandardCharsets.UTF_8),
-                        Files.exists(path) ? StandardOpenOption.APPEND : StandardOpenOption.CREATE);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
+        logger.setLogFile(AsyncLogAppender.getDefault().open(Paths.get("logs/" + name + ".log")));
     }
 
     public static String generateNodeName(BaseSimContext ctx) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.utils;
+
+import tr.havelsan.ueransim.app.common.enums.EEventType;
+import tr.havelsan.ueransim.nas.NasDecoder;
+import tr.havelsan.ueransim.nas.NasEncoder;
+import tr.havelsan.ueransim.nas.core.messages.NasMessage;
+import tr.havelsan.ueransim.ngap0.NgapEncoding;
+import tr.havelsan.ueransim.ngap0.NgapXerEncoder;
+import tr.havelsan.ueransim.ngap0.pdu.NGAP_PDU;
+import tr.havelsan.ueransim.utils.Json;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+import tr.havelsan.ueransim.utils.Utils;
+import tr.havelsan.ueransim.utils.console.BinaryEventLog;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dumps of the NAS and NGAP messages. If the logger has an event log, only the encoded message is recorded, and
+ * the dump is rendered from it after the run by {@link #render}. Otherwise, the dump is logged as text. Both give
+ * the same lines.
+ */
+public class EventLogging {
+
+    public static void nas(EEventType type, NasMessage message) {
+        nas(type, message, null);
+    }
+
+    /**
+     * Dumps the given NAS message, whose PDU is given if it is already encoded.
+     */
+    public static void nas(EEventType type, NasMessage message, OctetString pdu) {
+        if (message != null && Log.event(Severity.DEBUG, Tag.MESSAGING, type.intValue(),
+                () -> pdu != null ? pdu.toByteArray() : NasEncoder.nasPdu(message)))
+            return;
+
+        Log.debug(Tag.MESSAGING, () -> jsonPrefix(type) + Json.toJson(message));
+        Log.debug(Tag.MESSAGING, () -> pduPrefix(type) + (pdu != null ? pdu : NasEncoder.nasPduS(message)));
+    }
+
+    /**
+     * Dumps the given NGAP PDU, whose APER encoding is given.
+     */
+    public static void ngap(EEventType type, NGAP_PDU ngapPdu, byte[] aperPdu) {
+        if (Log.event(Severity.DEBUG, Tag.MESSAGING, type.intValue(), () -> aperPdu))
+            return;
+
+        Log.debug(Tag.MESSAGING, () -> Utils.xmlToJson(NgapXerEncoder.encode(ngapPdu)));
+    }
+
+    /**
+     * Returns the lines that the given event stands for, without their timestamps.
+     */
+    public static List<String> render(BinaryEventLog.Record record) {
+        var type = EEventType.fromValue(record.type);
+        var res = new ArrayList<String>();
+
+        if (type == EEventType.NGAP_SENT || type == EEventType.NGAP_RECEIVED) {
+            res.add(Utils.xmlToJson(NgapXerEncoder.encode(NgapEncoding.decodeAper(record.payload))));
+        } else if (type != null) {
+            var message = NasDecoder.nasPdu(record.payload);
+            res.add(jsonPrefix(type) + Json.toJson(message));
+            res.add(pduPrefix(type) + new OctetString(record.payload));
+        } else {
+            res.add("Unknown event type " + record.type + ": " + new OctetString(record.payload));
+        }
+        return res;
+    }
+
+    private static String jsonPrefix(EEventType type) {
+        if (type == EEventType.NAS_PLAIN_SENT)
+            return "Plain NAS as JSON: ";
+        if (type == EEventType.NAS_PLAIN_RECEIVED)
+            return "Plain NAS as JSON ";
+        return "Secured NAS as JSON ";
+    }
+
+    private static String pduPrefix(EEventType type) {
+        if (type == EEventType.NAS_PLAIN_SENT || type == EEventType.NAS_PLAIN_RECEIVED)
+            return "Plain NAS PDU: ";
+        return "Secured NAS PDU: ";
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.configs.GnbAmfConfig;
+import tr.havelsan.ueransim.app.common.configs.GnbConfig;
+import tr.havelsan.ueransim.app.gnb.utils.SupportedTA;
+
+public class Test_UeRanSim {
+
+    @Test
+    public void testNthGnbConfig() {
+        // 32-bit gNB ID 1 and 4-bit cell ID 0
+        var template = gnbConfig(1, "000000000000000000000000000000010000", null);
+        var config = UeRanSim.nthGnbConfig(template, 2);
+        Assert.assertEquals(3, config.gnbId);
+        Assert.assertEquals(32, config.gnbIdLength);
+        Assert.assertEquals("000000000000000000000000000000110000", config.nci.toBinaryString(false));
+        Assert.assertEquals(2152 + 2, config.gtpPort);
+    }
+
+    @Test
+    public void testNthGnbConfigWithShortGnbId() {
+        // 22-bit gNB ID 5 and 14-bit cell ID 3
+        var template = gnbConfig(5, "0000000000000000000101" + "00000000000011", 22);
+        var config = UeRanSim.nthGnbConfig(template, 3);
+        Assert.assertEquals(8, config.gnbId);
+        Assert.assertEquals(22, config.gnbIdLength);
+        Assert.assertEquals("0000000000000000001000" + "00000000000011", config.nci.toBinaryString(false));
+    }
+
+    @Test
+    public void testNthGnbConfigWrapsGnbId() {
+        // The gNB ID wraps in its bits instead of spilling into the cell ID
+        var template = gnbConfig((1 << 22) - 1, "1111111111111111111111" + "00000000000001", 22);
+        var config = UeRanSim.nthGnbConfig(template, 1);
+        Assert.assertEquals(0, config.gnbId);
+        Assert.assertEquals("0000000000000000000000" + "00000000000001", config.nci.toBinaryString(false));
+    }
+
+    private static GnbConfig gnbConfig(int gnbId, String nci, Integer gnbIdLength) {
+        return new GnbConfig(gnbId, 1, nci, null, new GnbAmfConfig[0], new SupportedTA[0], true, "127.0.0.1", 2152,
+                gnbIdLength);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.entry;
+
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+import tr.havelsan.ueransim.utils.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Runs {@link BenchmarkApp} in a JVM of its own, for the tests that go through the whole stack, since a process
+ * builds only one UeRanSim. The JVM runs in a temporary directory with the mock profile and the given test cases,
+ * and loads the native libraries from the build directory of the project.
+ */
+public class BenchmarkProcess {
+
+    private static final long TIMEOUT = 180; // s
+
+    private static final String LOAD_TESTING = String.join("\n",
+            "load-testing:",
+            "  number-of-UE: 1",
+            "  execution-mode: CARRIER",
+            "  carrier-threads: 2",
+            "  arrival:",
+            "    process: IMMEDIATE",
+            "    in-flight-timeout: 10000",
+            "",
+            "logging:",
+            "  min-severity: WARNING",
+            "");
+
+    private final Path directory;
+
+    /**
+     * Prepares a directory with the given test cases, in the form of the test-cases section of testing.yaml.
+     */
+    public BenchmarkProcess(String testCases) throws IOException {
+        var project = findProject();
+        if (project == null)
+            throw new IllegalStateException("the native libraries are not built");
+
+        this.directory = Files.createTempDirectory("benchmark");
+        var config = Files.createDirectories(directory.resolve("config"));
+        var mock = Files.createDirectories(config.resolve("mock"));
+        try (var files = Files.list(project.resolve("config").resolve("mock"))) {
+            for (var file : files.collect(Collectors.toList())) {
+                Files.copy(file, mock.resolve(file.getFileName().toString()));
+            }
+        }
+        Files.writeString(config.resolve("profile.yaml"), "selected-profile: 'mock'\n", StandardCharsets.UTF_8);
+        Files.writeString(config.resolve("testing.yaml"), "test-cases:\n" + testCases + "\n" + LOAD_TESTING,
+                StandardCharsets.UTF_8);
+        Files.createSymbolicLink(directory.resolve("build"), project.resolve("build"));
+    }
+
+    /**
+     * Returns true if the native libraries are built, which the UEs and gNBs need for NGAP and the ciphers.
+     */
+    public static boolean isSupported() {
+        return findProject() != null;
+    }
+
+    /**
+     * Returns the project directory, the one with the config and the build directories, or null if there is not
+     * one with the native libraries above the working directory.
+     */
+    private static Path findProject() {
+        var dir = Path.of(System.getProperty("user.dir")).toAbsolutePath();
+        for (; dir != null; dir = dir.getParent()) {
+            if (Files.isDirectory(dir.resolve("config").resolve("mock"))
+                    && Files.exists(dir.resolve("build").resolve("libngap-native.so")))
+                return dir;
+        }
+        return null;
+    }
+
+    /**
+     * Runs BenchmarkApp with the given arguments and returns its exit status. Its output is kept in benchmark.log.
+     */
+    public int run(String... args) throws IOException, InterruptedException {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkApp.class.getName());
+        command.addAll(List.of(args));
+
+        var process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("benchmark.log").toFile())
+                .start();
+        if (!process.waitFor(TIMEOUT, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("BenchmarkApp did not exit in " + TIMEOUT + " s, see " + getOutput());
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * Returns the path of the output of BenchmarkApp, to be named in the assertion messages.
+     */
+    public String getOutput() {
+        return directory.resolve("benchmark.log").toString();
+    }
+
+    /**
+     * Returns the summaries that are written in the results directory, in the order of their paths. The merged
+     * summary of a sharded run comes before the ones of its workers.
+     */
+    public List<RunSummary> readSummaries() throws IOException {
+        List<Path> paths;
+        try (var files = Files.walk(directory.resolve("results"))) {
+            paths = files.filter(path -> path.getFileName().toString().equals("summary.json"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        var res = new ArrayList<RunSummary>();
+        for (var path : paths) {
+            res.add(Json.fromJson(Files.readString(path, StandardCharsets.UTF_8), RunSummary.class));
+        }
+        return res;
+    }
+}
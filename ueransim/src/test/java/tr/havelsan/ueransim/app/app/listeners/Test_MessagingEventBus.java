@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.listeners;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.simctx.BaseSimContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class Test_MessagingEventBus {
+
+    @Test
+    public void testOrderAndTimestamps() {
+        var events = new ArrayList<String>();
+        var bus = new MessagingEventBus(List.of(new INodeMessagingListener() {
+            @Override
+            public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
+                events.add("send " + message + " " + timeMillis);
+            }
+
+            @Override
+            public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+                events.add("receive " + message + " " + timeMillis);
+            }
+        }), 10);
+        Assert.assertEquals(16, bus.getCapacity());
+
+        bus.start();
+        for (int i = 0; i < 100; i++) {
+            bus.publishSend(null, i, 1000 + i);
+            bus.publishReceive(null, i, 2000 + i);
+            while (bus.getPendingCount() > 8) {
+                Thread.onSpinWait();
+            }
+        }
+        bus.stop();
+
+        Assert.assertEquals(0, bus.getDroppedCount());
+        Assert.assertEquals(200, events.size());
+        Assert.assertEquals("send 0 1000", events.get(0));
+        Assert.assertEquals("receive 0 2000", events.get(1));
+        Assert.assertEquals("receive 99 2099", events.get(199));
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var delivered = new ArrayList<Object>();
+        var bus = new MessagingEventBus(List.of(new INodeMessagingListener() {
+            @Override
+            public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                delivered.add(message);
+            }
+
+            @Override
+            public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+            }
+        }), 4);
+        bus.start();
+
+        // The first event blocks the consumer, and leaves room for 4 more.
+        bus.publishSend(null, 0, 0);
+        blocked.await();
+        for (int i = 1; i <= 10; i++) {
+            bus.publishSend(null, i, 0);
+        }
+        Assert.assertEquals(6, bus.getDroppedCount());
+
+        release.countDown();
+        bus.stop();
+        Assert.assertEquals(List.of(0, 1, 2, 3, 4), delivered);
+    }
+
+    @Test
+    public void testConcurrentPublishers() throws Exception {
+        var seen = ConcurrentHashMap.<Object>newKeySet();
+        var bus = new MessagingEventBus(List.of(new INodeMessagingListener() {
+            @Override
+            public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
+                seen.add(message);
+            }
+
+            @Override
+            public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+            }
+        }), 1 << 16);
+        bus.start();
+
+        var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 10000;
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    bus.publishSend(null, offset + i, 0);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        bus.stop();
+
+        Assert.assertEquals(40000, seen.size() + bus.getDroppedCount());
+        Assert.assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    public void testWakeUpWhenIdle() throws Exception {
+        var delivered = new ArrayList<CountDownLatch>();
+        for (int i = 0; i < 20; i++) {
+            delivered.add(new CountDownLatch(1));
+        }
+        var bus = new MessagingEventBus(List.of(new INodeMessagingListener() {
+            @Override
+            public void onSend(BaseSimContext ctx, Object message, long timeMillis) {
+                delivered.get((Integer) message).countDown();
+            }
+
+            @Override
+            public void onReceive(BaseSimContext ctx, Object message, long timeMillis) {
+            }
+        }), 16);
+        bus.start();
+
+        // The consumer is parked between the events, and each event wakes it up
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(5);
+            bus.publishSend(null, i, 0);
+            Assert.assertTrue("event " + i + " is not delivered", delivered.get(i).await(5, TimeUnit.SECONDS));
+        }
+
+        Thread.sleep(5);
+        bus.stop();
+    }
+}
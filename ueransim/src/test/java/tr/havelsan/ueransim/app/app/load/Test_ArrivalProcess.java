@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.load;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.configs.ArrivalConfig;
+import tr.havelsan.ueransim.app.common.enums.EArrivalProcess;
+
+import java.util.Random;
+
+public class Test_ArrivalProcess {
+
+    @Test
+    public void testConstant() {
+        var process = create(EArrivalProcess.CONSTANT, 100, 0, 0, new double[0], new double[0]);
+        Assert.assertEquals(0.01, process.nextArrival(0), 1e-9);
+        Assert.assertEquals(5.01, process.nextArrival(5), 1e-9);
+    }
+
+    @Test
+    public void testImmediate() {
+        var process = create(EArrivalProcess.IMMEDIATE, 0, 0, 0, new double[0], new double[0]);
+        Assert.assertEquals(0, process.nextArrival(0), 0);
+    }
+
+    @Test
+    public void testPoisson() {
+        var process = create(EArrivalProcess.POISSON, 200, 0, 0, new double[0], new double[0]);
+        Assert.assertEquals(10000 / 200.0, arrivalTime(process, 10000), 2.5);
+    }
+
+    @Test
+    public void testRamp() {
+        // From 0 to 100 UE/s in 10 s, that is 500 UEs in the first 10 s
+        var process = create(EArrivalProcess.RAMP, 100, 0, 10, new double[0], new double[0]);
+        Assert.assertEquals(50, process.rateAt(5), 1e-9);
+        Assert.assertEquals(10, arrivalTime(process, 500), 1e-6);
+        Assert.assertEquals(11, arrivalTime(process, 600), 1e-6);
+    }
+
+    @Test
+    public void testStep() {
+        // 10 UE/s for 2 s, nothing for 3 s, then 100 UE/s
+        var process = create(EArrivalProcess.STEP, 0, 0, 0, new double[]{2, 3, 1}, new double[]{10, 0, 100});
+        Assert.assertEquals(0, process.rateAt(3), 0);
+        Assert.assertEquals(2, arrivalTime(process, 20), 1e-6);
+        Assert.assertEquals(5.01, arrivalTime(process, 21), 1e-6);
+        Assert.assertEquals(7, arrivalTime(process, 220), 1e-6);
+    }
+
+    @Test
+    public void testZeroFinalRate() {
+        boolean isRejected = false;
+        try {
+            create(EArrivalProcess.STEP, 0, 0, 0, new double[]{2, 3}, new double[]{10, 0});
+        } catch (IllegalArgumentException e) {
+            isRejected = true;
+        }
+        Assert.assertTrue(isRejected);
+    }
+
+    private static double arrivalTime(ArrivalProcess process, int count) {
+        double time = 0;
+        for (int i = 0; i < count; i++) {
+            time = process.nextArrival(time);
+        }
+        return time;
+    }
+
+    private static ArrivalProcess create(EArrivalProcess type, double rate, double rampStartRate, double rampDuration,
+                                         double[] stepDurations, double[] stepRates) {
+        var config = new ArrivalConfig(type, rate, rampStartRate, rampDuration, stepDurations, stepRates, 0, 0);
+        return new ArrivalProcess(config, new Random(1));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.load;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.Supi;
+import tr.havelsan.ueransim.app.common.enums.EUeDistribution;
+
+public class Test_UeDistributor {
+
+    @Test
+    public void testRoundRobin() {
+        var distributor = new UeDistributor(EUeDistribution.ROUND_ROBIN, 3, null);
+        var counts = distribute(distributor, 3, 9);
+        Assert.assertArrayEquals(new int[]{3, 3, 3}, counts);
+        Assert.assertEquals(1, distributor.gnbIndexOf(4, supi(4)));
+    }
+
+    @Test
+    public void testHash() {
+        var distributor = new UeDistributor(EUeDistribution.HASH, 4, null);
+        var counts = distribute(distributor, 4, 10000);
+        for (int count : counts) {
+            Assert.assertTrue(count > 2200 && count < 2800);
+        }
+        // Only the SUPI matters
+        Assert.assertEquals(distributor.gnbIndexOf(0, supi(7)), distributor.gnbIndexOf(5, supi(7)));
+    }
+
+    @Test
+    public void testWeighted() {
+        var distributor = new UeDistributor(EUeDistribution.WEIGHTED, 3, new int[]{1, 2, 5});
+        var counts = distribute(distributor, 3, 800);
+        Assert.assertArrayEquals(new int[]{100, 200, 500}, counts);
+
+        // The heaviest gNB does not get all of its UEs in a row.
+        Assert.assertNotEquals(2, distributor.gnbIndexOf(3, supi(3)));
+    }
+
+    private static int[] distribute(UeDistributor distributor, int gnbCount, int ueCount) {
+        var counts = new int[gnbCount];
+        for (int i = 0; i < ueCount; i++) {
+            counts[distributor.gnbIndexOf(i, supi(i))]++;
+        }
+        return counts;
+    }
+
+    private static Supi supi(int i) {
+        return new Supi("imsi", String.valueOf(286010000000000L + i));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.shard;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.app.entry.BenchmarkProcess;
+import tr.havelsan.ueransim.app.app.stats.LatencyHistogram;
+import tr.havelsan.ueransim.app.app.stats.ProcedureSummary;
+import tr.havelsan.ueransim.app.app.stats.RunSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+public class Test_ShardCoordinator {
+
+    @Test
+    public void testSplit() {
+        var assignments = ShardAssignment.split(10, 3);
+        Assert.assertEquals(3, assignments.length);
+        Assert.assertEquals(4, assignments[0].numberOfUes);
+        Assert.assertEquals(3, assignments[1].numberOfUes);
+        Assert.assertEquals(3, assignments[2].numberOfUes);
+        Assert.assertEquals(0, assignments[0].supiOffset);
+        Assert.assertEquals(4, assignments[1].supiOffset);
+        Assert.assertEquals(7, assignments[2].supiOffset);
+        Assert.assertEquals(0.4, assignments[0].rateFactor, 1e-9);
+        Assert.assertEquals(0.3, assignments[2].rateFactor, 1e-9);
+    }
+
+    @Test
+    public void testLoopbackRun() throws Exception {
+        int numberOfWorkers = 3;
+        var assignments = ShardAssignment.split(30, numberOfWorkers);
+        for (var assignment : assignments) {
+            assignment.scenario = "initial-registration";
+        }
+
+        // Each worker records the number of its SUPIs as the latencies, 1 ms for the first one
+        var started = new CountDownLatch(numberOfWorkers);
+        var threads = new ArrayList<Thread>();
+        try (var coordinator = new ShardCoordinator(numberOfWorkers, 0)) {
+            for (int i = 0; i < numberOfWorkers; i++) {
+                var thread = new Thread(() -> {
+                    try (var worker = ShardWorker.connect("127.0.0.1:" + coordinator.getPort())) {
+                        var assignment = worker.receiveAssignment();
+                        worker.awaitStart();
+                        started.countDown();
+
+                        var latency = new LatencyHistogram();
+                        for (int n = 0; n < assignment.numberOfUes; n++) {
+                            latency.record(assignment.supiOffset + n + 1);
+                        }
+                        var summary = new RunSummary();
+                        summary.numberOfUes = assignment.numberOfUes;
+                        summary.durationMillis = 1000 + assignment.index;
+                        summary.procedures.add(new ProcedureSummary("REGISTRATION", assignment.numberOfUes,
+                                assignment.numberOfUes, 0, latency));
+                        worker.sendResult(summary, true);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+
+            var results = coordinator.run(assignments);
+            Assert.assertEquals(numberOfWorkers, results.size());
+            Assert.assertEquals(0, started.getCount());
+
+            var merged = ShardCoordinator.merge(results);
+            Assert.assertEquals(30, merged.numberOfUes);
+            Assert.assertEquals(1002, merged.durationMillis);
+            var registration = merged.find("REGISTRATION");
+            Assert.assertEquals(30, registration.attempts);
+            Assert.assertEquals(30, registration.successes);
+            Assert.assertEquals(0, registration.inFlight);
+            // The SUPI ranges are disjoint and cover 1..30
+            Assert.assertEquals(30, registration.maxMillis);
+            Assert.assertEquals(15, registration.p50Millis);
+            Assert.assertEquals(15.5, registration.meanMillis, 1e-9);
+        }
+        for (var thread : threads) {
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    public void testLostWorker() throws Exception {
+        var assignments = ShardAssignment.split(10, 1);
+
+        // The worker leaves without reporting that it is ready
+        try (var coordinator = new ShardCoordinator(1, 0)) {
+            var thread = new Thread(() -> {
+                try (var worker = ShardWorker.connect("127.0.0.1:" + coordinator.getPort())) {
+                    worker.receiveAssignment();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            thread.start();
+
+            try {
+                coordinator.run(assignments);
+                Assert.fail("the run is not failed");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("worker 0 failed"));
+            }
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    public void testShardedRun() throws Exception {
+        Assumptions.assumeTrue(BenchmarkProcess.isSupported(), "the native libraries are not built");
+
+        // Two worker JVMs register their UEs against the mock core network of their own
+        var process = new BenchmarkProcess(String.join("\n",
+                "  registration:",
+                "    - \"@cmd\": INITIAL_REGISTRATION",
+                "      followOn: FOR_PENDING"));
+        int status = process.run("--scenario", "registration", "--workers", "2", "--ues", "5", "--duration", "60",
+                "--min-success-rate", "REGISTRATION=100");
+        Assert.assertEquals(process.getOutput(), 0, status);
+
+        var summaries = process.readSummaries();
+        Assert.assertEquals(3, summaries.size());
+        var merged = summaries.get(0);
+        var workers = summaries.subList(1, 3);
+
+        Assert.assertEquals(5, merged.numberOfUes);
+        Assert.assertEquals(5, workers.get(0).numberOfUes + workers.get(1).numberOfUes);
+        Assert.assertEquals(5, merged.find("REGISTRATION").successes);
+        Assert.assertEquals(2, merged.find("NG_SETUP").successes);
+        for (var item : merged.procedures) {
+            long attempts = 0;
+            long successes = 0;
+            long failures = 0;
+            for (var worker : workers) {
+                var workerItem = worker.find(item.procedure);
+                if (workerItem != null) {
+                    attempts += workerItem.attempts;
+                    successes += workerItem.successes;
+                    failures += workerItem.failures;
+                }
+            }
+            Assert.assertEquals(item.procedure, attempts, item.attempts);
+            Assert.assertEquals(item.procedure, successes, item.successes);
+            Assert.assertEquals(item.procedure, failures, item.failures);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+public class Test_LatencyHistogram {
+
+    @Test
+    public void testBuckets() {
+        for (long value = 0; value < 1_000_000; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assert.assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            if (bucket > 0) {
+                Assert.assertTrue(LatencyHistogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+        Assert.assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        var histogram = new LatencyHistogram();
+        for (int value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(1, histogram.getMin());
+        Assert.assertEquals(10000, histogram.getMax());
+        Assert.assertEquals(5000.5, histogram.getMean(), 1e-9);
+        assertClose(5000, histogram.getPercentile(50));
+        assertClose(9000, histogram.getPercentile(90));
+        assertClose(9900, histogram.getPercentile(99));
+        assertClose(9990, histogram.getPercentile(99.9));
+        Assert.assertEquals(10000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testAdd() {
+        var a = new LatencyHistogram();
+        var b = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            a.record(value);
+            b.record(value + 100);
+        }
+        a.add(b);
+
+        Assert.assertEquals(200, a.getCount());
+        Assert.assertEquals(1, a.getMin());
+        Assert.assertEquals(200, a.getMax());
+        assertClose(100, a.getPercentile(50));
+    }
+
+    @Test
+    public void testEncode() {
+        var histogram = new LatencyHistogram();
+        for (int value = 0; value < 5000; value += 7) {
+            histogram.record(value);
+        }
+
+        var decoded = LatencyHistogram.decode(histogram.encode());
+        Assert.assertEquals(histogram.getCount(), decoded.getCount());
+        Assert.assertEquals(histogram.getMin(), decoded.getMin());
+        Assert.assertEquals(histogram.getMax(), decoded.getMax());
+        Assert.assertEquals(histogram.getMean(), decoded.getMean(), 1e-9);
+        Assert.assertEquals(histogram.getPercentile(99), decoded.getPercentile(99));
+        Assert.assertEquals(0, LatencyHistogram.decode(new LatencyHistogram().encode()).getCount());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue(expected + " ~ " + actual, Math.abs(expected - actual) <= expected / 50 + 1);
+    }
+}
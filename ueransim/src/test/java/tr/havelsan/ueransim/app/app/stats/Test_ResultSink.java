@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.app.stats;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.app.listeners.LoadTestMessagingListener;
+import tr.havelsan.ueransim.app.common.enums.EProcedure;
+import tr.havelsan.ueransim.itms.ItmsSimExecutor;
+import tr.havelsan.ueransim.utils.Json;
+import tr.havelsan.ueransim.utils.console.BaseConsole;
+
+import java.nio.file.Files;
+
+public class Test_ResultSink {
+
+    @Test
+    public void testTimeSeriesAndSummary() throws Exception {
+        var simulation = new ItmsSimExecutor();
+        var console = new BaseConsole();
+        console.setStandardPrintEnabled(false);
+        var listener = new LoadTestMessagingListener(console, 10, simulation.getTimerService());
+        var sink = new ResultSink(Files.createTempDirectory("results"), listener, simulation.getTimerService(), 10);
+
+        var registration = listener.getStats(EProcedure.REGISTRATION);
+        for (int i = 0; i < 10; i++) {
+            registration.onAttempt();
+        }
+        for (int i = 0; i < 8; i++) {
+            registration.onSuccess(100 + i);
+        }
+        simulation.runFor(1000);
+        registration.onFailure();
+        simulation.runFor(1000);
+
+        var summary = sink.close();
+        Assert.assertEquals(1, summary.procedures.size());
+
+        var lines = Files.readAllLines(sink.getDirectory().resolve("timeseries.csv"));
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("1000,REGISTRATION,10,8,0,2,103,107,107,107,107", lines.get(1));
+        Assert.assertEquals("2000,REGISTRATION,0,0,1,1,0,0,0,0,0", lines.get(2));
+        Assert.assertEquals(2, Files.readAllLines(sink.getDirectory().resolve("timeseries.jsonl")).size());
+
+        var json = Files.readString(sink.getDirectory().resolve("summary.json"));
+        var read = (RunSummary) Json.fromJson(json, RunSummary.class);
+        var item = read.find("REGISTRATION");
+        Assert.assertEquals(10, item.attempts);
+        Assert.assertEquals(8, item.successes);
+        Assert.assertEquals(1, item.failures);
+        Assert.assertEquals(1, item.inFlight);
+        Assert.assertEquals(107, LatencyHistogram.decode(item.histogram).getMax());
+        Assert.assertEquals(2, Files.readAllLines(sink.getDirectory().resolve("summary.csv")).size());
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.common.simctx;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+public class Test_SimContextTable {
+
+    @Test
+    public void testPutAndGet() {
+        var table = new SimContextTable();
+        Assert.assertNull(table.get(0));
+        Assert.assertNull(table.get(BaseSimContext.NO_HANDLE));
+
+        // More than one chunk
+        int count = 40_000;
+        var contexts = new BaseSimContext[count];
+        for (int i = 0; i < count; i++) {
+            contexts[i] = new BaseSimContext(null, UUID.randomUUID(), table.allocate());
+            Assert.assertEquals(i, contexts[i].handle);
+        }
+        IntStream.range(0, count).parallel().forEach(i -> table.put(contexts[i]));
+
+        Assert.assertEquals(count, table.size());
+        for (int i = 0; i < count; i++) {
+            Assert.assertSame(contexts[i], table.get(i));
+        }
+        Assert.assertNull(table.get(count));
+        Assert.assertNull(table.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testUnallocatedHandle() {
+        var table = new SimContextTable();
+        try {
+            table.put(new BaseSimContext(null, UUID.randomUUID(), 5));
+            Assert.fail("handle is accepted without allocation");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
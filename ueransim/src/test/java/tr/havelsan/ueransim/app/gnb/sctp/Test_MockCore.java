@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.gnb.sctp;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.app.entry.BenchmarkProcess;
+
+public class Test_MockCore {
+
+    @Test
+    public void testRegistrationAndPduSession() throws Exception {
+        Assumptions.assumeTrue(BenchmarkProcess.isSupported(), "the native libraries are not built");
+
+        // A UE of the mock profile goes through 5G-AKA, the security mode control and the PDU session establishment,
+        // and each message passes the checks of the UE side.
+        var process = new BenchmarkProcess(String.join("\n",
+                "  registration:",
+                "    - \"@cmd\": INITIAL_REGISTRATION",
+                "      followOn: FOR_PENDING",
+                "    - \"@cmd\": PDU_SESSION_ESTABLISHMENT"));
+        int status = process.run("--scenario", "registration",
+                "--min-success-rate", "REGISTRATION=100", "--min-success-rate", "PDU_SESSION_ESTABLISHMENT=100");
+        Assert.assertEquals(process.getOutput(), 0, status);
+
+        var summaries = process.readSummaries();
+        Assert.assertEquals(1, summaries.size());
+        var summary = summaries.get(0);
+        Assert.assertEquals(1, summary.find("AUTHENTICATION").successes);
+        Assert.assertEquals(1, summary.find("SECURITY_MODE_CONTROL").successes);
+        Assert.assertEquals(1, summary.find("REGISTRATION").successes);
+        Assert.assertEquals(1, summary.find("PDU_SESSION_ESTABLISHMENT").successes);
+    }
+}
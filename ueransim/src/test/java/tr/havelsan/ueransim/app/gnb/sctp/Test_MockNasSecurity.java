@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.gnb.sctp;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.SelectedAlgorithms;
+import tr.havelsan.ueransim.app.ue.nas.NasEncryption;
+import tr.havelsan.ueransim.app.ue.nas.NasSecurity;
+import tr.havelsan.ueransim.app.ue.nas.NasSecurityContext;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfCipheringAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfIntegrityProtectionAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfSecurityContext;
+import tr.havelsan.ueransim.nas.impl.ies.IE5gsRegistrationResult;
+import tr.havelsan.ueransim.nas.impl.messages.RegistrationAccept;
+import tr.havelsan.ueransim.nas.impl.messages.RegistrationComplete;
+import tr.havelsan.ueransim.utils.bits.Bit3;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.octets.Octet4;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+public class Test_MockNasSecurity {
+
+    @Test
+    public void testDownlink() {
+        withTestLogger(() -> {
+            var amf = securityContext();
+            var ue = securityContext();
+
+            for (int i = 0; i < 3; i++) {
+                var secured = MockNasSecurity.protect(amf, registrationAccept(), false);
+                Assert.assertEquals(i, secured.sequenceNumber.intValue());
+                Assert.assertTrue(NasSecurity.decryptNasMessage(ue, secured) instanceof RegistrationAccept);
+            }
+            Assert.assertEquals(3, amf.downlinkCount.sqn.intValue());
+        });
+    }
+
+    @Test
+    public void testUplink() {
+        withTestLogger(() -> {
+            var amf = securityContext();
+            var ue = securityContext();
+
+            for (int i = 0; i < 3; i++) {
+                var secured = NasEncryption.encrypt(new RegistrationComplete(), ue);
+                Assert.assertTrue(MockNasSecurity.unprotect(amf, secured) instanceof RegistrationComplete);
+            }
+            Assert.assertEquals(3, amf.uplinkCount.sqn.intValue());
+        });
+    }
+
+    @Test
+    public void testUplinkMacFailure() {
+        withTestLogger(() -> {
+            var amf = securityContext();
+            var ue = securityContext();
+
+            var secured = NasEncryption.encrypt(new RegistrationComplete(), ue);
+            secured.messageAuthenticationCode = new Octet4(secured.messageAuthenticationCode.longValue() ^ 1);
+            Assert.assertNull(MockNasSecurity.unprotect(amf, secured));
+            Assert.assertEquals(0, amf.uplinkCount.sqn.intValue());
+        });
+    }
+
+    private static void withTestLogger(Runnable test) {
+        // The UE side of the NAS security logs to the logger of the thread
+        var logger = new Logger("test-nas-security");
+        logger.getConsole().setStandardPrintEnabled(false);
+        Log.withLogger(logger, test).run();
+    }
+
+    private static NasSecurityContext securityContext() {
+        var ctx = new NasSecurityContext(null, ETypeOfSecurityContext.NATIVE_SECURITY_CONTEXT, new Bit3(1));
+        ctx.selectedAlgorithms = new SelectedAlgorithms(ETypeOfIntegrityProtectionAlgorithm.IA2_128,
+                ETypeOfCipheringAlgorithm.EA0);
+        ctx.keys.kNasInt = new OctetString("2BD6459F82C5B300952C49104881FF48");
+        ctx.keys.kNasEnc = new OctetString("D3C5D592327FB11C4035C6680AF8C6D1");
+        return ctx;
+    }
+
+    private static RegistrationAccept registrationAccept() {
+        var accept = new RegistrationAccept();
+        accept.registrationResult = new IE5gsRegistrationResult(
+                IE5gsRegistrationResult.ESmsOverNasTransportAllowed.NOT_ALLOWED,
+                IE5gsRegistrationResult.E5gsRegistrationResult.THREEGPP_ACCESS);
+        return accept;
+    }
+}
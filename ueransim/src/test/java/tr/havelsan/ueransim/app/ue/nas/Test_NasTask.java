@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.ue.nas;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.enums.EMmState;
+import tr.havelsan.ueransim.app.common.enums.EMmSubState;
+import tr.havelsan.ueransim.app.common.simctx.UeSimContext;
+import tr.havelsan.ueransim.itms.ItmsId;
+import tr.havelsan.ueransim.utils.console.Logger;
+
+import java.lang.management.ManagementFactory;
+
+public class Test_NasTask {
+
+    @Test
+    public void testIdleRegisteredUe() throws Exception {
+        var threadBean = ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadCpuTimeSupported())
+            return;
+        threadBean.setThreadCpuTimeEnabled(true);
+
+        var ctx = new UeSimContext(null);
+        ctx.mmCtx.mmState = EMmState.MM_REGISTERED;
+        ctx.mmCtx.mmSubState = EMmSubState.MM_REGISTERED__NORMAL_SERVICE;
+
+        var logger = new Logger("test-ue");
+        logger.getConsole().setStandardPrintEnabled(false);
+
+        var task = new NasTask(ctx.itms, ItmsId.UE_TASK_NAS, ctx);
+        task.setLogger(logger);
+        ctx.itms.createTask(task);
+        ctx.itms.startTask(task);
+
+        // Let the task start and settle
+        Thread.sleep(200);
+        Assert.assertNotNull(task.getThread());
+
+        long threadId = task.getThread().getId();
+        long cpuBefore = threadBean.getThreadCpuTime(threadId);
+        Thread.sleep(1000);
+        long cpuNanos = threadBean.getThreadCpuTime(threadId) - cpuBefore;
+
+        // A spinning task would use the whole second
+        Assert.assertTrue("idle NAS task used " + cpuNanos / 1000 + " us CPU", cpuNanos < 20_000_000);
+        Assert.assertEquals(EMmState.MM_REGISTERED, ctx.mmCtx.mmState);
+        Assert.assertEquals(EMmSubState.MM_REGISTERED__NORMAL_SERVICE, ctx.mmCtx.mmSubState);
+    }
+}
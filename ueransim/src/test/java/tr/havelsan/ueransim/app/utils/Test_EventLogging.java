@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.app.utils;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.app.common.SelectedAlgorithms;
+import tr.havelsan.ueransim.app.common.enums.EEventType;
+import tr.havelsan.ueransim.app.ue.nas.NasEncryption;
+import tr.havelsan.ueransim.app.ue.nas.NasSecurityContext;
+import tr.havelsan.ueransim.nas.NasEncoder;
+import tr.havelsan.ueransim.nas.core.messages.NasMessage;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfCipheringAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfIntegrityProtectionAlgorithm;
+import tr.havelsan.ueransim.nas.impl.enums.ETypeOfSecurityContext;
+import tr.havelsan.ueransim.nas.impl.messages.RegistrationComplete;
+import tr.havelsan.ueransim.utils.bits.Bit3;
+import tr.havelsan.ueransim.utils.console.BinaryEventLog;
+import tr.havelsan.ueransim.utils.console.Log;
+import tr.havelsan.ueransim.utils.console.Logger;
+import tr.havelsan.ueransim.utils.octets.OctetString;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Test_EventLogging {
+
+    @Test
+    public void testRenderedAsLogged() throws Exception {
+        var plain = new RegistrationComplete();
+        var ctx = new NasSecurityContext(null, ETypeOfSecurityContext.NATIVE_SECURITY_CONTEXT, new Bit3(1));
+        ctx.selectedAlgorithms = new SelectedAlgorithms(ETypeOfIntegrityProtectionAlgorithm.IA2_128,
+                ETypeOfCipheringAlgorithm.EA0);
+        ctx.keys.kNasInt = new OctetString("2BD6459F82C5B300952C49104881FF48");
+        ctx.keys.kNasEnc = new OctetString("D3C5D592327FB11C4035C6680AF8C6D1");
+
+        var text = new Logger("ue-text");
+        text.getConsole().setStandardPrintEnabled(false);
+        var logged = new ArrayList<String>();
+        text.addLogHandler(entry -> logged.add(entry.message));
+
+        var directory = Files.createTempDirectory("event-log").resolve("events");
+        var log = new BinaryEventLog(directory, 1 << 16);
+        var events = new Logger("ue-events");
+        events.getConsole().setStandardPrintEnabled(false);
+        events.setEventLog(log.open(1, "ue-events"));
+
+        // Encrypted once, so both loggers are given the same secured message. The encryption logs to the logger of
+        // the thread.
+        var security = new Logger("test-nas-security");
+        security.getConsole().setStandardPrintEnabled(false);
+        Log.bind(security);
+        var secured = NasEncryption.encrypt(plain, ctx);
+        Log.bind(null);
+        for (var logger : List.of(text, events)) {
+            Log.withLogger(logger, () -> {
+                EventLogging.nas(EEventType.NAS_PLAIN_SENT, plain);
+                EventLogging.nas(EEventType.NAS_SECURED_SENT, secured, NasEncoder.nasPduS(secured));
+                EventLogging.nas(EEventType.NAS_SECURED_RECEIVED, secured);
+                EventLogging.nas(EEventType.NAS_PLAIN_RECEIVED, (NasMessage) plain);
+            }).run();
+        }
+        log.close();
+
+        var rendered = new ArrayList<String>();
+        BinaryEventLog.read(directory, record -> rendered.addAll(EventLogging.render(record)));
+        Assert.assertEquals(8, logged.size());
+        Assert.assertEquals(logged, rendered);
+        Assert.assertTrue(rendered.get(0).startsWith("Plain NAS as JSON: "));
+        Assert.assertTrue(rendered.get(3).startsWith("Secured NAS PDU: "));
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils;
+
+/**
+ * Source of the time that is used by {@link Utils#currentTimeMillis()} and {@link Utils#sleep(int)}.
+ */
+public interface IClock {
+
+    IClock SYSTEM = new IClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long ms) {
+            try {
+                Thread.sleep(ms);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    long currentTimeMillis();
+
+    void sleep(long ms);
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lets the single consumer of a ring wait for the producers. The consumer spins for a while, then yields, then parks
+ * until a producer wakes it up, so an idle consumer takes no CPU. A producer calls {@link #signal()} after it
+ * publishes, which only reads a flag unless the consumer is parked.
+ */
+public class IdleStrategy {
+
+    private static final int SPIN_LIMIT = 100;
+    private static final int YIELD_LIMIT = 200;
+
+    private final Thread consumer;
+    private volatile boolean isParked;
+    // Number of idle rounds since the consumer found work, only used by the consumer
+    private int idle;
+
+    public IdleStrategy(Thread consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Called by the consumer when it finds no work. The given condition is checked again after the consumer is
+     * marked as parked, so that a signal in between is not lost; it should also be true if the consumer is stopped.
+     */
+    public void idle(BooleanSupplier hasWork) {
+        if (idle < SPIN_LIMIT) {
+            idle++;
+            Thread.onSpinWait();
+        } else if (idle < YIELD_LIMIT) {
+            idle++;
+            Thread.yield();
+        } else {
+            isParked = true;
+            if (!hasWork.getAsBoolean()) {
+                LockSupport.park(this);
+            }
+            isParked = false;
+        }
+    }
+
+    /**
+     * Called by the consumer when it finds work.
+     */
+    public void reset() {
+        idle = 0;
+    }
+
+    /**
+     * Wakes the consumer up if it is parked. Called by the producers after they publish, and by the one that stops
+     * the consumer.
+     */
+    public void signal() {
+        // The publication may be a lazy store, which must not be reordered after the read of the flag.
+        VarHandle.fullFence();
+        if (isParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
@@ -14,6 +14,24 @@ public enum Severity {
     FUNC_IN,
     FUNC_OUT;
 
+    /**
+     * Returns the level of the severity, which is compared to the minimum severity of a logger. The function traces
+     * are at the level of debug, and the successes at the level of info.
+     */
+    public int level() {
+        switch (this) {
+            case WARNING:
+                return 3;
+            case ERROR:
+                return 4;
+            case SUCCESS:
+            case INFO:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
     public boolean dispatch() {
         switch (this) {
             case SUCCESS:
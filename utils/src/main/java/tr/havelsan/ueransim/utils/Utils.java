@@ -41,6 +41,8 @@ import java.util.stream.Stream;
 
 public final class Utils {
 
+    private static volatile IClock clock = IClock.SYSTEM;
+
     public static <T> T[] decodeList(OctetInputStream stream, Function<OctetInputStream, T> decoder, int length, Class<T> componentType) {
         int readLen = 0;
         var res = new ArrayList<T>();
@@ -345,12 +347,23 @@ public final class Utils {
         }
     }
 
+    public static IClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Replaces the clock of {@link #currentTimeMillis()} and {@link #sleep(int)}, e.g. with a simulated one.
+     */
+    public static void setClock(IClock clock) {
+        Utils.clock = clock;
+    }
+
+    public static long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
     public static void sleep(int ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
+        clock.sleep(ms);
     }
 
     public static String xmlToJson(String xml) {
@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import tr.havelsan.ueransim.utils.IdleStrategy;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+import tr.havelsan.ueransim.utils.jcolor.AnsiColor;
+import tr.havelsan.ueransim.utils.jcolor.AnsiColorFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Writes the log files on a thread of its own, so that logging neither opens nor writes a file on the thread that
+ * logs.
+ * <p>
+ * A log call puts a record of its arguments into a bounded ring, without locking, and the line is formatted by the
+ * writer thread. The writer keeps the files open, and writes the lines into them in batches through a buffer for
+ * each file. The buffers are written when the ring is empty, when they are full, and at most every
+ * {@value FLUSH_INTERVAL} ms. When the ring is full, the line is dropped and counted, and a note with the number of
+ * dropped lines is written into the file later. The writer flushes the buffers before it goes idle, so an idle
+ * writer has nothing to do until the next line, and is parked until then, see {@link IdleStrategy}.
+ * <p>
+ * The default appender is closed by a shutdown hook, which writes all lines that are logged until then.
+ */
+public class AsyncLogAppender {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // A load test has a log file for each UE, so the least recently written files are closed beyond this by default
+    private static final int DEFAULT_MAX_OPEN_FILES = 512;
+    private static final long FLUSH_INTERVAL = 200; // ms
+    private static final long FLUSH_POLL_NANOS = 1_000_000;
+
+    private static AsyncLogAppender defaultAppender;
+
+    private final int capacity;
+    private final int mask;
+
+    // The sequence of the next record to claim, and of the next record to consume
+    private final AtomicLong claimed;
+    private final AtomicLong consumed;
+    // Sequence of the record in each slot plus one, when its fields are written
+    private final AtomicLongArray published;
+    private final LogFile[] files;
+    private final long[] times;
+    private final Severity[] severities;
+    private final AnsiColorFormat[] colors;
+    private final int[] depths;
+    private final Tag[] tags;
+    private final String[] messages;
+    private final Object[][] arguments;
+
+    private final LongAdder dropped;
+    private final Thread writer;
+    private final IdleStrategy idleStrategy;
+    private final BooleanSupplier hasRecord = this::hasRecord;
+    private volatile boolean isRunning;
+    private volatile int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    // All records before this sequence are written into the files
+    private volatile long flushedSequence;
+
+    // Only used by the writer thread
+    private final LinkedHashMap<LogFile, Boolean> openFiles;
+    private final ArrayDeque<ByteBuffer> freeBuffers;
+    private final IdentityHashMap<AnsiColorFormat, String> colorCodes;
+    private final IdentityHashMap<ShardedLogStore, Boolean> stores;
+    // The timestamp of the previous line, which is mostly the same to the second
+    private long lastSecond = Long.MIN_VALUE;
+    private String lastSecondPrefix;
+
+    /**
+     * Creates an appender with room for the given number of records, which is rounded up to a power of two.
+     */
+    public AsyncLogAppender(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.capacity = size;
+        this.mask = size - 1;
+        this.claimed = new AtomicLong();
+        this.consumed = new AtomicLong();
+        this.published = new AtomicLongArray(size);
+        this.files = new LogFile[size];
+        this.times = new long[size];
+        this.severities = new Severity[size];
+        this.colors = new AnsiColorFormat[size];
+        this.depths = new int[size];
+        this.tags = new Tag[size];
+        this.messages = new String[size];
+        this.arguments = new Object[size][];
+        this.dropped = new LongAdder();
+        this.openFiles = new LinkedHashMap<>(16, 0.75f, true);
+        this.freeBuffers = new ArrayDeque<>();
+        this.colorCodes = new IdentityHashMap<>();
+        this.stores = new IdentityHashMap<>();
+
+        this.writer = new Thread(this::write, "log-appender");
+        this.writer.setDaemon(true);
+        this.idleStrategy = new IdleStrategy(writer);
+    }
+
+    /**
+     * Returns the appender of the log files, which is started on the first call.
+     */
+    public static synchronized AsyncLogAppender getDefault() {
+        if (defaultAppender == null) {
+            defaultAppender = new AsyncLogAppender(DEFAULT_CAPACITY);
+            defaultAppender.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(defaultAppender::close, "log-appender-shutdown"));
+        }
+        return defaultAppender;
+    }
+
+    public void start() {
+        isRunning = true;
+        writer.start();
+    }
+
+    /**
+     * Writes the lines that are logged until now, closes the files and stops the writer. The lines that are logged
+     * after this are dropped.
+     */
+    public void close() {
+        if (!isRunning)
+            return;
+        isRunning = false;
+        idleStrategy.signal();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long count = dropped.sum();
+        if (count > 0) {
+            System.err.printf("WARNING: %d log lines are dropped because the log appender could not keep up.%n", count);
+        }
+    }
+
+    /**
+     * Waits until the lines that are logged until now are written into the files.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (flushedSequence < target && writer.isAlive()) {
+            LockSupport.parkNanos(FLUSH_POLL_NANOS);
+        }
+    }
+
+    /**
+     * Returns a log file at the given path, which is opened for appending when the first line is written.
+     */
+    public LogFile open(Path path) {
+        return new LogFile(this, path, null, 0, null);
+    }
+
+    LogFile open(ShardedLogStore store, int handle, String name) {
+        return new LogFile(this, null, store, handle, name);
+    }
+
+    /**
+     * Sets the number of files that are kept open, beyond which the least recently written ones are closed. Each
+     * file that is closed this way is reopened when a line is written into it again.
+     */
+    public void setMaxOpenFiles(int maxOpenFiles) {
+        if (maxOpenFiles <= 0)
+            throw new IllegalArgumentException("invalid number of open files: " + maxOpenFiles);
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of lines that are dropped because the ring was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Puts a line into the ring. If the arguments are null, the message is already formatted, and if the severity
+     * is null too, it is written as it is.
+     */
+    void append(LogFile file, long time, Severity severity, AnsiColorFormat color, int depth, Tag tag, String message,
+                Object[] args) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (!isRunning || sequence - consumed.get() >= capacity) {
+                dropped.increment();
+                file.dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int slot = (int) (sequence & mask);
+        files[slot] = file;
+        times[slot] = time;
+        severities[slot] = severity;
+        colors[slot] = color;
+        depths[slot] = depth;
+        tags[slot] = tag;
+        messages[slot] = message;
+        arguments[slot] = args;
+        // The plain stores above are visible to the writer once it sees this one.
+        published.lazySet(slot, sequence + 1);
+        idleStrategy.signal();
+    }
+
+    private void write() {
+        var dirtyFiles = new IdentityHashMap<LogFile, Boolean>();
+        long lastFlush = System.currentTimeMillis();
+
+        while (true) {
+            long sequence = consumed.get();
+            int slot = (int) (sequence & mask);
+
+            if (published.get(slot) != sequence + 1) {
+                if (!dirtyFiles.isEmpty()) {
+                    flushAll(dirtyFiles);
+                    lastFlush = System.currentTimeMillis();
+                }
+                flushedSequence = sequence;
+
+                // A claimed record may not be published yet, the close waits for it.
+                if (!isRunning && claimed.get() == sequence) {
+                    closeAll();
+                    return;
+                }
+                idleStrategy.idle(hasRecord);
+                continue;
+            }
+            idleStrategy.reset();
+
+            var file = files[slot];
+            long time = times[slot];
+            var severity = severities[slot];
+            var color = colors[slot];
+            int depth = depths[slot];
+            var tag = tags[slot];
+            var message = messages[slot];
+            var args = arguments[slot];
+            files[slot] = null;
+            messages[slot] = null;
+            arguments[slot] = null;
+            // The slot may be claimed again after this.
+            consumed.lazySet(sequence + 1);
+
+            if (severity == null) {
+                writeLine(file, message);
+                dirtyFiles.put(file, Boolean.TRUE);
+                continue;
+            }
+
+            String timestamp = timestamp(time);
+            String line;
+            try {
+                String str = args == null ? message : String.format(Locale.ENGLISH, message, args);
+                line = Logger.formatLine(timestamp, severity, depth, tag, str);
+            } catch (RuntimeException e) {
+                line = Logger.formatLine(timestamp, severity, depth, tag, "Log line could not be formatted: " + e);
+            }
+            if (color != null) {
+                line = AnsiColor.colorize(line, colorCodes.computeIfAbsent(color, AnsiColor::generateCode));
+            }
+
+            writeDropNote(file, time);
+            writeLine(file, line + System.lineSeparator());
+            dirtyFiles.put(file, Boolean.TRUE);
+
+            if (System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL) {
+                flushAll(dirtyFiles);
+                lastFlush = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private String timestamp(long time) {
+        long second = Math.floorDiv(time, 1000);
+        if (second != lastSecond) {
+            var full = Logger.getTime(time);
+            // Up to the milliseconds, e.g. "[2020-01-01 00:00:00."
+            lastSecondPrefix = full.substring(0, full.length() - 5);
+            lastSecond = second;
+        }
+        int millis = Math.floorMod(time, 1000);
+        return lastSecondPrefix + (char) ('0' + millis / 100) + (char) ('0' + millis / 10 % 10) + (char) ('0' + millis % 10) + "] ";
+    }
+
+    private void writeDropNote(LogFile file, long time) {
+        long count = file.dropped.sum();
+        if (count == file.reportedDrops)
+            return;
+        writeLine(file, Logger.formatLine(time, Severity.WARNING, 0, null,
+                String.format("%d log lines are dropped before this line", count - file.reportedDrops))
+                + System.lineSeparator());
+        file.reportedDrops = count;
+    }
+
+    private void writeLine(LogFile file, String line) {
+        if (file.store != null) {
+            file.store.write(file, line);
+            stores.put(file.store, Boolean.TRUE);
+            return;
+        }
+        if (file.isFailed)
+            return;
+
+        var bytes = line.getBytes(StandardCharsets.UTF_8);
+        try {
+            ensureOpen(file);
+            if (bytes.length > file.buffer.remaining()) {
+                flush(file);
+            }
+            if (bytes.length > file.buffer.capacity()) {
+                writeFully(file.channel, ByteBuffer.wrap(bytes));
+            } else {
+                file.buffer.put(bytes);
+            }
+        } catch (IOException e) {
+            fail(file, e);
+        }
+    }
+
+    private void ensureOpen(LogFile file) throws IOException {
+        // Also marks the file as recently used.
+        if (openFiles.get(file) != null)
+            return;
+
+        if (openFiles.size() >= maxOpenFiles) {
+            // Not forced, as it is reopened for the next line anyway
+            var eldest = openFiles.keySet().iterator().next();
+            closeFile(eldest, false);
+        }
+
+        var parent = file.path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        file.channel = FileChannel.open(file.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        file.buffer = freeBuffers.isEmpty() ? ByteBuffer.allocateDirect(BUFFER_SIZE) : freeBuffers.pop();
+        openFiles.put(file, Boolean.TRUE);
+    }
+
+    private void flushAll(IdentityHashMap<LogFile, Boolean> dirtyFiles) {
+        for (var file : dirtyFiles.keySet()) {
+            if (file.channel == null || file.isFailed)
+                continue;
+            try {
+                flush(file);
+            } catch (IOException e) {
+                fail(file, e);
+            }
+        }
+        dirtyFiles.clear();
+        for (var store : stores.keySet()) {
+            store.flush();
+        }
+    }
+
+    private static void flush(LogFile file) throws IOException {
+        file.buffer.flip();
+        writeFully(file.channel, file.buffer);
+        file.buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void closeFile(LogFile file, boolean isForced) {
+        openFiles.remove(file);
+        try {
+            if (!file.isFailed) {
+                flush(file);
+                if (isForced) {
+                    file.channel.force(false);
+                }
+            }
+            file.channel.close();
+        } catch (IOException e) {
+            fail(file, e);
+        }
+        file.buffer.clear();
+        freeBuffers.push(file.buffer);
+        file.buffer = null;
+        file.channel = null;
+    }
+
+    private void closeAll() {
+        for (var file : new ArrayList<>(openFiles.keySet())) {
+            closeFile(file, true);
+        }
+        for (var store : stores.keySet()) {
+            store.close();
+        }
+    }
+
+    private static void fail(LogFile file, IOException e) {
+        if (!file.isFailed) {
+            file.isFailed = true;
+            System.err.printf("ERROR: Log file %s could not be written: %s%n", file.path, e);
+        }
+    }
+
+    /**
+     * Returns true if the next record is published, or the appender is closed.
+     */
+    private boolean hasRecord() {
+        long sequence = consumed.get();
+        return !isRunning || published.get((int) (sequence & mask)) == sequence + 1;
+    }
+
+    /**
+     * A file of an {@link AsyncLogAppender}, see {@link Logger#setLogFile}. It is either a file of its own, or a node
+     * in a {@link ShardedLogStore}.
+     */
+    public static class LogFile {
+        private final AsyncLogAppender appender;
+        private final Path path;
+        private final LongAdder dropped;
+        final ShardedLogStore store;
+        final int handle;
+        final String name;
+
+        // Only used by the writer thread
+        private FileChannel channel;
+        private ByteBuffer buffer;
+        private long reportedDrops;
+        private boolean isFailed;
+        boolean isRegistered;
+
+        private LogFile(AsyncLogAppender appender, Path path, ShardedLogStore store, int handle, String name) {
+            this.appender = appender;
+            this.path = path;
+            this.dropped = new LongAdder();
+            this.store = store;
+            this.handle = handle;
+            this.name = name;
+        }
+
+        /**
+         * Returns the path of the file, or null if it is in a store.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the store of the file, or null if it is a file of its own.
+         */
+        public ShardedLogStore getStore() {
+            return store;
+        }
+
+        public AsyncLogAppender getAppender() {
+            return appender;
+        }
+
+        /**
+         * Returns the number of lines of this file that are dropped because the ring was full.
+         */
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        /**
+         * Appends the given text as it is, which includes its line separators.
+         */
+        public void appendText(String text) {
+            appender.append(this, 0, null, null, 0, null, text, null);
+        }
+
+        void append(long time, Severity severity, AnsiColorFormat color, int depth, Tag tag, String message,
+                    Object[] args) {
+            appender.append(this, time, severity, color, depth, tag, message, args);
+        }
+    }
+}
@@ -48,6 +48,13 @@ public class BaseConsole {
         this.standardPrintEnabled = standardPrintEnabled;
     }
 
+    /**
+     * Returns true if the printed strings go anywhere.
+     */
+    public boolean hasOutput() {
+        return standardPrintEnabled || !printHandlers.isEmpty();
+    }
+
     public synchronized void println() {
         outputLine();
     }
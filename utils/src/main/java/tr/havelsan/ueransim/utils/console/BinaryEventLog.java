@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Records the protocol events of the nodes in binary, so that their dumps are rendered after the run instead of
+ * while the messages are handled, see {@link Logger#event}.
+ * <p>
+ * The records are appended to memory-mapped segment files of a fixed size, {@code events-<index>.bin}, without
+ * locking: a thread claims the room of its record by adding its size to the position of the segment, stores the
+ * size of the room first, writes the record into the mapping, and stores its length last. When a segment is full,
+ * the next one is created. Each segment starts with a header of {@value SEGMENT_HEADER_SIZE} bytes: the magic
+ * number, the version, the size of the record header, the index of the segment, the size of the segment, and the
+ * end of the claimed room, which is written when the segment is full or the log is closed. A record is aligned to
+ * {@value ALIGNMENT} bytes and has the following layout, in network byte order:
+ * <pre>
+ *     int   length of the record, with this header
+ *     int   size of the room of the record
+ *     long  time in milliseconds
+ *     int   handle of the node
+ *     short type of the event, which is defined by the user of the log
+ *     byte  ordinal of the tag, or 0xFF for none
+ *     byte  ordinal of the severity
+ *     byte  function depth of the logger
+ *     byte[7] reserved
+ *     byte[length - 32] payload, e.g. the encoded PDU
+ * </pre>
+ * A length of 0 marks a room whose record is not complete, e.g. because the process exited while it was written.
+ * Such rooms are skipped up to the claimed end, or to the end of the file if the segment has no end. The names of
+ * the nodes are listed in {@value NODES_FILE}, in the same form as in a {@link ShardedLogStore}, as soon as they are
+ * opened. The records are read back with {@link #read}.
+ */
+public class BinaryEventLog {
+
+    public static final String NODES_FILE = "nodes.tsv";
+
+    // "UEV1" only tells that the file is a segment of an event log, the layout of the segment is given by VERSION.
+    static final int MAGIC = 0x55455631;
+    static final int VERSION = 2;
+    static final int SEGMENT_HEADER_SIZE = 24;
+    static final int RECORD_HEADER_SIZE = 32;
+    private static final int ALIGNMENT = 8;
+    private static final int NO_TAG = 0xFF;
+
+    // The length of a record is stored with release semantics, after the rest of the record.
+    private static final VarHandle LENGTH = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final LongAdder dropped;
+    private volatile Segment current;
+    // Guarded by this
+    private final FileChannel nodesChannel;
+    private boolean isClosed;
+
+    /**
+     * Creates a log in the given directory, with segments of the given size in bytes.
+     */
+    public BinaryEventLog(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE || segmentSize % ALIGNMENT != 0)
+            throw new IllegalArgumentException("invalid segment size: " + segmentSize);
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.dropped = new LongAdder();
+
+        Files.createDirectories(directory);
+        this.nodesChannel = FileChannel.open(directory.resolve(NODES_FILE), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        this.current = createSegment(0);
+    }
+
+    /**
+     * Returns the events of the node with the given handle and name. The name is written at once, so that the events
+     * of the node can be read even if the log is not closed.
+     */
+    public synchronized Node open(int handle, String nodeName) {
+        if (nodeName.indexOf('\t') >= 0 || nodeName.indexOf('\n') >= 0)
+            throw new IllegalArgumentException("node name contains a tab or a line separator");
+        if (!isClosed) {
+            try {
+                var bytes = StandardCharsets.UTF_8.encode(handle + "\t" + nodeName + "\n");
+                while (bytes.hasRemaining()) {
+                    nodesChannel.write(bytes);
+                }
+            } catch (IOException e) {
+                System.err.printf("ERROR: Event log %s could not be written: %s%n", directory, e);
+            }
+        }
+        return new Node(this, handle);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the number of events that are dropped, because they do not fit into a segment or the log is closed.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public static String segmentFileName(int index) {
+        return "events-" + index + ".bin";
+    }
+
+    //======================================================================================================
+    //                                          WRITER
+    //======================================================================================================
+
+    private boolean append(long time, int handle, int type, Tag tag, Severity severity, int depth, byte[] payload) {
+        int length = RECORD_HEADER_SIZE + payload.length;
+        int size = align(length);
+        if (size > segmentSize - SEGMENT_HEADER_SIZE) {
+            dropped.increment();
+            return false;
+        }
+
+        while (true) {
+            var segment = current;
+            if (segment == null) {
+                dropped.increment();
+                return false;
+            }
+            int position = segment.position.getAndAdd(size);
+            if (position >= SEGMENT_HEADER_SIZE && position <= segmentSize - size) {
+                segment.write(position, length, time, handle, type, tag, severity, depth, payload);
+                return true;
+            }
+            roll(segment);
+        }
+    }
+
+    private synchronized void roll(Segment full) {
+        if (current != full || isClosed)
+            return;
+        try {
+            // The full segment is not forced, so that the threads do not wait for the disk while rolling.
+            current = createSegment(full.index + 1);
+            full.seal();
+        } catch (IOException e) {
+            current = null;
+            System.err.printf("ERROR: Event log %s could not be written: %s%n", directory, e);
+        }
+    }
+
+    private Segment createSegment(int index) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(directory.resolve(segmentFileName(index)), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putShort(4, (short) VERSION);
+        buffer.putShort(6, (short) RECORD_HEADER_SIZE);
+        buffer.putInt(8, index);
+        buffer.putInt(12, segmentSize);
+        // The claimed end at 16 stays 0 until the segment is sealed.
+        return new Segment(index, buffer);
+    }
+
+    /**
+     * Writes the mapped segment. The events that are recorded after this are dropped.
+     */
+    public synchronized void close() {
+        if (isClosed)
+            return;
+        isClosed = true;
+
+        var segment = current;
+        current = null;
+        try {
+            if (segment != null) {
+                segment.seal();
+                segment.buffer.force();
+            }
+            nodesChannel.close();
+        } catch (IOException e) {
+            System.err.printf("ERROR: Event log %s could not be written: %s%n", directory, e);
+        }
+
+        long count = dropped.sum();
+        if (count > 0) {
+            System.err.printf("WARNING: %d events are dropped from the event log.%n", count);
+        }
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static class Segment {
+        final int index;
+        final MappedByteBuffer buffer;
+        final AtomicInteger position;
+
+        Segment(int index, MappedByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+            this.position = new AtomicInteger(SEGMENT_HEADER_SIZE);
+        }
+
+        /**
+         * Stops the claims, and writes the end of the claimed room into the header.
+         */
+        void seal() {
+            // Any later claim starts at the size of the segment, so it fails.
+            int end = position.getAndSet(buffer.capacity());
+            buffer.putInt(16, Math.min(end, buffer.capacity()));
+        }
+
+        void write(int position, int length, long time, int handle, int type, Tag tag, Severity severity, int depth,
+                   byte[] payload) {
+            // Absolute puts do not change the state of the buffer, so the threads do not interfere. The size of the
+            // room is stored before the rest, so that the reader can skip the room if the length is never stored.
+            buffer.putInt(position + 4, align(length));
+            VarHandle.storeStoreFence();
+            buffer.putLong(position + 8, time);
+            buffer.putInt(position + 16, handle);
+            buffer.putShort(position + 20, (short) type);
+            buffer.put(position + 22, (byte) (tag == null ? NO_TAG : tag.ordinal()));
+            buffer.put(position + 23, (byte) severity.ordinal());
+            buffer.put(position + 24, (byte) Math.min(depth, 255));
+            if (payload.length > 0) {
+                var view = buffer.duplicate();
+                view.position(position + RECORD_HEADER_SIZE);
+                view.put(payload);
+            }
+            LENGTH.setRelease(buffer, position, length);
+        }
+    }
+
+    /**
+     * The events of a node, see {@link Logger#setEventLog}.
+     */
+    public static class Node {
+        private final BinaryEventLog log;
+        private final int handle;
+
+        private Node(BinaryEventLog log, int handle) {
+            this.log = log;
+            this.handle = handle;
+        }
+
+        public int getHandle() {
+            return handle;
+        }
+
+        public BinaryEventLog getLog() {
+            return log;
+        }
+
+        /**
+         * Records an event, and returns false if it is dropped.
+         */
+        public boolean append(long time, int type, Tag tag, Severity severity, int depth, byte[] payload) {
+            return log.append(time, handle, type, tag, severity, depth, payload);
+        }
+    }
+
+    //======================================================================================================
+    //                                          READER
+    //======================================================================================================
+
+    /**
+     * Returns the names of the nodes in the event log in the given directory, by their handles.
+     */
+    public static Map<Integer, String> readNodes(Path directory) throws IOException {
+        return ShardedLogStore.readNodes(directory);
+    }
+
+    /**
+     * Gives the records of the event log in the given directory to the consumer, segment by segment, in the order
+     * their room is claimed. The records that are not complete are skipped.
+     */
+    public static void read(Path directory, Consumer<Record> consumer) throws IOException {
+        var tags = Tag.values();
+        var severities = Severity.values();
+
+        for (int index = 0; ; index++) {
+            var file = directory.resolve(segmentFileName(index));
+            if (!Files.exists(file))
+                return;
+
+            ByteBuffer buffer;
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.limit() < SEGMENT_HEADER_SIZE || buffer.getInt(0) != MAGIC)
+                throw new IOException("not an event log segment: " + file);
+            if (buffer.getShort(4) != VERSION)
+                throw new IOException("unsupported event log version " + buffer.getShort(4) + ": " + file);
+            int headerSize = buffer.getShort(6);
+            int end = buffer.getInt(16);
+            if (end == 0 || end > buffer.limit()) {
+                // Not sealed, the process did not close the log.
+                end = buffer.limit();
+            }
+
+            int position = SEGMENT_HEADER_SIZE;
+            while (position <= end - RECORD_HEADER_SIZE) {
+                int length = buffer.getInt(position);
+                int size = buffer.getInt(position + 4);
+                if (length == 0) {
+                    // An incomplete record is skipped by its size. If even the size is not stored, the room is
+                    // still zero, up to the next record.
+                    if (size < 0 || size % ALIGNMENT != 0 || size > end - position)
+                        throw new IOException("invalid record at offset " + position + " of " + file);
+                    position += size == 0 ? ALIGNMENT : size;
+                    continue;
+                }
+                if (length < headerSize || size != align(length) || size > end - position)
+                    throw new IOException("invalid record at offset " + position + " of " + file);
+
+                var record = new Record();
+                record.time = buffer.getLong(position + 8);
+                record.handle = buffer.getInt(position + 16);
+                record.type = buffer.getShort(position + 20) & 0xFFFF;
+                int tag = buffer.get(position + 22) & 0xFF;
+                record.tag = tag == NO_TAG ? null : tags[tag];
+                record.severity = severities[buffer.get(position + 23)];
+                record.depth = buffer.get(position + 24) & 0xFF;
+                record.payload = new byte[length - headerSize];
+                buffer.duplicate().position(position + headerSize).get(record.payload);
+
+                consumer.accept(record);
+                position += size;
+            }
+        }
+    }
+
+    public static class Record {
+        public long time;
+        public int handle;
+        public int type;
+        public Tag tag;
+        public Severity severity;
+        public int depth;
+        public byte[] payload;
+    }
+}
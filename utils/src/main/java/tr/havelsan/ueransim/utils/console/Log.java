@@ -9,22 +9,36 @@ import tr.havelsan.ueransim.utils.Severity;
 import tr.havelsan.ueransim.utils.Tag;
 import tr.havelsan.ueransim.utils.jcolor.AnsiColorFormat;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 // WARNING: This class is caller sensitive
 public class Log {
 
-    private static final ConcurrentHashMap<Long, Logger> loggers = new ConcurrentHashMap<>();
+    // The logger of the task that is running on each thread, which the ITMS executors bind before running a task
+    private static final ThreadLocal<Logger> currentLogger = new ThreadLocal<>();
+    private static final AtomicBoolean isFallbackReported = new AtomicBoolean();
 
     public static void debug(Tag tag, String message, Object... args) {
         findLogger().debug(tag, message, args);
     }
 
+    /**
+     * Logs the message of the supplier, which is only called if the debug lines of the tag are enabled.
+     */
+    public static void debug(Tag tag, Supplier<String> message) {
+        findLogger().debug(tag, message);
+    }
+
     public static void info(Tag tag, String message, Object... args) {
         findLogger().info(tag, message, args);
     }
 
+    public static void info(Tag tag, Supplier<String> message) {
+        findLogger().info(tag, message);
+    }
+
     public static void success(Tag tag, String message, Object... args) {
         findLogger().success(tag, message, args);
     }
@@ -37,6 +51,13 @@ public class Log {
         findLogger().error(tag, message, args);
     }
 
+    /**
+     * Records an event into the event log of the logger, see {@link Logger#event}.
+     */
+    public static boolean event(Severity severity, Tag tag, int type, Supplier<byte[]> payload) {
+        return findLogger().event(severity, tag, type, payload);
+    }
+
     public static void funcIn(String name, Object... args) {
         findLogger().funcIn(name, args);
     }
@@ -49,29 +70,56 @@ public class Log {
         findLogger().log(severity, ansiColorFormat, depth, tag, message, args);
     }
 
+    public static boolean isEnabled(Severity severity, Tag tag) {
+        return findLogger().isEnabled(severity, tag);
+    }
+
     public static void addLogHandler(Consumer<LogEntry> handler) {
         findLogger().addLogHandler(handler);
     }
 
-    public static void registerLogger(Thread thread, Logger logger) {
-        loggers.put(thread.getId(), logger);
+    /**
+     * Binds the given logger to the current thread, or unbinds it if null.
+     */
+    public static void bind(Logger logger) {
+        if (logger == null) {
+            currentLogger.remove();
+        } else {
+            currentLogger.set(logger);
+        }
     }
 
-    public static void unregisterLogger(Thread thread) {
-        loggers.remove(thread.getId());
+    /**
+     * Returns the logger that is bound to the current thread, or null.
+     */
+    public static Logger current() {
+        return currentLogger.get();
     }
 
-    public static Logger getLoggerOrDefault(Thread thread) {
-        return loggers.getOrDefault(thread.getId(), null);
+    /**
+     * Returns a runnable that runs the given one with the given logger bound to its thread.
+     */
+    public static Runnable withLogger(Logger logger, Runnable runnable) {
+        return () -> {
+            bind(logger);
+            try {
+                runnable.run();
+            } finally {
+                bind(null);
+            }
+        };
     }
 
     private static Logger findLogger() {
-        var logger = getLoggerOrDefault(Thread.currentThread());
-        if (logger == null) {
-            System.err.println("Smart Logger failure.");
-            System.err.println("No logger registered for thread: " + Thread.currentThread().getName());
-            System.exit(1);
+        var logger = currentLogger.get();
+        if (logger != null)
+            return logger;
+
+        // A thread of a pool may log outside of a task, its lines go to the global logger.
+        if (isFallbackReported.compareAndSet(false, true)) {
+            System.err.println("WARNING: No logger is bound to thread '" + Thread.currentThread().getName()
+                    + "', the global logger is used for such threads.");
         }
-        return logger;
+        return Logger.GLOBAL;
     }
 }
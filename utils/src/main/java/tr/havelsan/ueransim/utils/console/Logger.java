@@ -8,6 +8,7 @@ package tr.havelsan.ueransim.utils.console;
 import tr.havelsan.ueransim.utils.Constants;
 import tr.havelsan.ueransim.utils.Severity;
 import tr.havelsan.ueransim.utils.Tag;
+import tr.havelsan.ueransim.utils.Utils;
 import tr.havelsan.ueransim.utils.exceptions.FatalTreatedErrorException;
 import tr.havelsan.ueransim.utils.jcolor.AnsiColor;
 import tr.havelsan.ueransim.utils.jcolor.AnsiColorFormat;
@@ -15,32 +16,92 @@ import tr.havelsan.ueransim.utils.jcolor.AnsiPalette;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Logger {
 
+    // Minimum levels of the severities, see Severity.level. The general one is at 0 and the one of each tag is after
+    // it, and 0 means that it is not set. The levels of a logger override the default ones.
+    private static int[] defaultLevels = new int[Tag.values().length + 1];
+    private static volatile int defaultLevelsVersion;
+
+    // Created after the levels above
     public static final Logger GLOBAL = new Logger("global");
 
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
 
     private final List<Consumer<LogEntry>> printHandlers = new ArrayList<>();
     private final AtomicInteger functionDepth = new AtomicInteger(0);
     private final BaseConsole console = new BaseConsole();
     private final String loggerName;
+    private volatile AsyncLogAppender.LogFile logFile;
+    private volatile BinaryEventLog.Node eventNode;
+    private final int[] levels = new int[Tag.values().length + 1];
+    private volatile ResolvedLevels resolvedLevels;
 
     public Logger(String loggerName) {
         this.loggerName = loggerName;
+        this.resolvedLevels = resolveLevels();
+    }
+
+    /**
+     * Sets the default minimum severity of the loggers. The lines below it are neither formatted nor written.
+     */
+    public static void setDefaultMinSeverity(Severity severity) {
+        setDefaultLevel(0, severity);
+    }
+
+    /**
+     * Sets the default minimum severity of the lines of the given tag, which overrides the general one.
+     */
+    public static void setDefaultMinSeverity(Tag tag, Severity severity) {
+        setDefaultLevel(tag.ordinal() + 1, severity);
+    }
+
+    private static synchronized void setDefaultLevel(int index, Severity severity) {
+        var levels = defaultLevels.clone();
+        levels[index] = severity == null ? 0 : severity.level();
+        defaultLevels = levels;
+        defaultLevelsVersion++;
     }
 
-    private static String getTime() {
-        Calendar cal = Calendar.getInstance();
-        return String.format("[%s] ", DATE_FORMAT.format(cal.getTime()));
+    static String getTime(long time) {
+        return "[" + DATE_FORMAT.format(Instant.ofEpochMilli(time)) + "] ";
+    }
+
+    /**
+     * Returns a line as it is written by a logger, without its color.
+     */
+    public static String formatLine(long time, Severity severity, int depth, Tag tag, String str) {
+        return formatLine(getTime(time), severity, depth, tag, str);
+    }
+
+    static String formatLine(String timestamp, Severity severity, int depth, Tag tag, String str) {
+        String spacing = (" ").repeat(Math.max(0, depth * 2));
+        String tagging = tag == null ? "" : "[" + tag + "] ";
+        return timestamp + spacing + "[" + severity + "] " + tagging + str;
+    }
+
+    // The arguments are formatted later on the writer thread, so the ones that may change are formatted now.
+    private static Object[] snapshot(Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            var arg = args[i];
+            if (arg != null && !(arg instanceof String || arg instanceof Number || arg instanceof Boolean
+                    || arg instanceof Character || arg instanceof Enum || arg instanceof UUID)) {
+                args[i] = String.valueOf(arg);
+            }
+        }
+        return args;
     }
 
     private static Object[] concat(Object o, Object[] arr) {
@@ -51,6 +112,62 @@ public class Logger {
         return a;
     }
 
+    /**
+     * Sets the minimum severity of this logger, which overrides the default ones, or clears it if null.
+     */
+    public synchronized void setMinSeverity(Severity severity) {
+        levels[0] = severity == null ? 0 : severity.level();
+        resolvedLevels = resolveLevels();
+    }
+
+    /**
+     * Sets the minimum severity of the lines of the given tag in this logger, or clears it if null.
+     */
+    public synchronized void setMinSeverity(Tag tag, Severity severity) {
+        levels[tag.ordinal() + 1] = severity == null ? 0 : severity.level();
+        resolvedLevels = resolveLevels();
+    }
+
+    /**
+     * Returns true if the lines of the given severity and tag are logged. The tag is null for the function traces.
+     */
+    public boolean isEnabled(Severity severity, Tag tag) {
+        var resolved = resolvedLevels;
+        if (resolved.version != defaultLevelsVersion) {
+            resolved = refreshLevels();
+        }
+        return severity.level() >= resolved.levels[tag == null ? 0 : tag.ordinal() + 1];
+    }
+
+    private synchronized ResolvedLevels refreshLevels() {
+        resolvedLevels = resolveLevels();
+        return resolvedLevels;
+    }
+
+    // The most specific level that is set wins: of the tag in this logger, of this logger, of the tag, the default.
+    private ResolvedLevels resolveLevels() {
+        int[] defaults;
+        int version;
+        synchronized (Logger.class) {
+            defaults = defaultLevels;
+            version = defaultLevelsVersion;
+        }
+
+        var res = new int[levels.length];
+        for (int i = 0; i < res.length; i++) {
+            if (levels[i] != 0) {
+                res[i] = levels[i];
+            } else if (levels[0] != 0) {
+                res[i] = levels[0];
+            } else if (defaults[i] != 0) {
+                res[i] = defaults[i];
+            } else {
+                res[i] = defaults[0];
+            }
+        }
+        return new ResolvedLevels(res, version);
+    }
+
     public BaseConsole getConsole() {
         return console;
     }
@@ -59,10 +176,20 @@ public class Logger {
         log(Severity.DEBUG, AnsiPalette.PAINT_LOG_NORMAL, functionDepth.get(), tag, message, args);
     }
 
+    public void debug(Tag tag, Supplier<String> message) {
+        if (isEnabled(Severity.DEBUG, tag))
+            log(Severity.DEBUG, AnsiPalette.PAINT_LOG_NORMAL, functionDepth.get(), tag, "%s", message.get());
+    }
+
     public void info(Tag tag, String message, Object... args) {
         log(Severity.INFO, AnsiPalette.PAINT_LOG_NORMAL, functionDepth.get(), tag, message, args);
     }
 
+    public void info(Tag tag, Supplier<String> message) {
+        if (isEnabled(Severity.INFO, tag))
+            log(Severity.INFO, AnsiPalette.PAINT_LOG_NORMAL, functionDepth.get(), tag, "%s", message.get());
+    }
+
     public void success(Tag tag, String message, Object... args) {
         log(Severity.SUCCESS, AnsiPalette.PAINT_LOG_SUCCESS, functionDepth.get(), tag, message, args);
     }
@@ -75,6 +202,24 @@ public class Logger {
         log(Severity.ERROR, AnsiPalette.PAINT_LOG_ERROR, functionDepth.get(), tag, message, args);
     }
 
+    /**
+     * Records an event of the given type into the event log of this logger, with the payload of the supplier, which
+     * is only called if the lines of the severity and tag are enabled. Returns false if there is no event log or the
+     * payload is null, in which case the event may be logged as text instead.
+     */
+    public boolean event(Severity severity, Tag tag, int type, Supplier<byte[]> payload) {
+        var node = eventNode;
+        if (node == null)
+            return false;
+        if (!isEnabled(severity, tag))
+            return true;
+        var bytes = payload.get();
+        if (bytes == null)
+            return false;
+        node.append(Utils.currentTimeMillis(), type, tag, severity, functionDepth.get(), bytes);
+        return true;
+    }
+
     public void funcIn(String name, Object... args) {
         log(Severity.FUNC_IN, AnsiPalette.PAINT_LOG_NORMAL, functionDepth.getAndIncrement(), null, name, args);
     }
@@ -85,12 +230,10 @@ public class Logger {
 
     public void log(Severity severity, AnsiColorFormat ansiColorFormat, int depth, Tag tag, String message, Object... args) {
         if (severity == null) severity = Severity.DEBUG;
+        if (!isEnabled(severity, tag)) return;
         if (message == null) message = "";
         if (args == null) args = new Object[0];
 
-        String spacing = (" ").repeat(Math.max(0, depth * 2));
-        String tagging = tag == null ? "" : "[" + tag + "] ";
-
         for (int i = 0; i < args.length; i++) {
             if (args[i] instanceof Throwable) {
                 var sw = new StringWriter();
@@ -99,17 +242,29 @@ public class Logger {
             }
         }
 
-        String str = String.format(Locale.ENGLISH, message, args);
-        String timestamp = getTime();
+        long time = Utils.currentTimeMillis();
+        var file = logFile;
+        boolean isFatal = severity == Severity.ERROR && Constants.TREAT_ERRORS_AS_FATAL;
 
-        for (var handler : printHandlers)
-            handler.accept(new LogEntry(loggerName, severity, depth, tag, str, timestamp, AnsiColor.generateCode(ansiColorFormat)));
+        // A line that only goes to the log file is formatted by the appender.
+        if (file == null || isFatal || !printHandlers.isEmpty() || console.hasOutput()) {
+            String str = String.format(Locale.ENGLISH, message, args);
 
-        String display = String.format(Locale.ENGLISH, "%s%s[%s] %s%s", getTime(), spacing, severity, tagging, str);
-        console.println(ansiColorFormat, display);
+            for (var handler : printHandlers)
+                handler.accept(new LogEntry(loggerName, severity, depth, tag, str, getTime(time), AnsiColor.generateCode(ansiColorFormat)));
 
-        if (severity == Severity.ERROR && Constants.TREAT_ERRORS_AS_FATAL) {
-            throw new FatalTreatedErrorException(str);
+            if (console.hasOutput()) {
+                console.println(ansiColorFormat, formatLine(time, severity, depth, tag, str));
+            }
+            if (file != null) {
+                file.append(time, severity, ansiColorFormat, depth, tag, str, null);
+            }
+
+            if (isFatal) {
+                throw new FatalTreatedErrorException(str);
+            }
+        } else {
+            file.append(time, severity, ansiColorFormat, depth, tag, message, snapshot(args));
         }
 
         if (this != GLOBAL) {
@@ -119,6 +274,28 @@ public class Logger {
         }
     }
 
+    /**
+     * Sets the file that the lines of this logger are appended to, or null.
+     */
+    public void setLogFile(AsyncLogAppender.LogFile logFile) {
+        this.logFile = logFile;
+    }
+
+    public AsyncLogAppender.LogFile getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Sets the node in the event log that the events of this logger are recorded into, or null, see {@link #event}.
+     */
+    public void setEventLog(BinaryEventLog.Node eventNode) {
+        this.eventNode = eventNode;
+    }
+
+    public BinaryEventLog.Node getEventLog() {
+        return eventNode;
+    }
+
     public void addLogHandler(Consumer<LogEntry> handler) {
         printHandlers.add(handler);
     }
@@ -126,4 +303,14 @@ public class Logger {
     public String getLoggerName() {
         return loggerName;
     }
+
+    private static class ResolvedLevels {
+        final int[] levels;
+        final int version;
+
+        ResolvedLevels(int[] levels, int version) {
+            this.levels = levels;
+            this.version = version;
+        }
+    }
 }
@@ -0,0 +1,478 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the logs of many nodes into a few shard files, instead of a file for each node. A load test with tens of
+ * thousands of UEs otherwise keeps creating and reopening as many files.
+ * <p>
+ * Each node gets a handle when it is opened, and its lines go to the shard of its handle. Every line in a shard file
+ * starts with the handle and a tab, so that the files can be searched as they are. A shard file is rotated when it
+ * would exceed the maximum size, as {@code shard-<shard>-<sequence>.log}, and each one has an index beside it with
+ * the extension {@code .idx}, whose lines give the handle, the offset and the length of each run of consecutive
+ * lines of a node. The lines are grouped by their nodes until the appender flushes, so that a node gets a single run
+ * per flush even if the nodes of a shard log in turns. The handles and the names of the nodes are listed in
+ * {@value NODES_FILE}.
+ * <p>
+ * The log of a node is read back with {@link #extract}, which only reads the index and the runs of that node. The
+ * files are written by the writer thread of the appender, see {@link AsyncLogAppender}.
+ */
+public class ShardedLogStore {
+
+    public static final String NODES_FILE = "nodes.tsv";
+
+    private static final String SHARDS_HEADER = "# shards\t";
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final AsyncLogAppender appender;
+    private final Path directory;
+    private final int shardCount;
+    private final long maxFileSize;
+    private final AtomicInteger nextHandle;
+
+    // Only used by the writer thread
+    private final Shard[] shards;
+    private final StringBuilder pendingNodes;
+    private FileChannel nodesChannel;
+    private boolean isDirty;
+    private boolean isFailed;
+
+    /**
+     * Creates a store in the given directory, which is created when the first line is written. The shard files are
+     * rotated when they would exceed the given size in bytes.
+     */
+    public ShardedLogStore(AsyncLogAppender appender, Path directory, int shardCount, long maxFileSize) {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("number of shards must be positive");
+        if (maxFileSize <= 0)
+            throw new IllegalArgumentException("maximum file size must be positive");
+
+        this.appender = appender;
+        this.directory = directory;
+        this.shardCount = shardCount;
+        this.maxFileSize = maxFileSize;
+        this.nextHandle = new AtomicInteger();
+        this.shards = new Shard[shardCount];
+        this.pendingNodes = new StringBuilder();
+    }
+
+    /**
+     * Returns the log file of a node with the given name, in the shard of a new handle.
+     */
+    public AsyncLogAppender.LogFile open(String nodeName) {
+        if (nodeName.indexOf('\t') >= 0 || nodeName.indexOf('\n') >= 0)
+            throw new IllegalArgumentException("node name contains a tab or a line separator");
+        return appender.open(this, nextHandle.getAndIncrement(), nodeName);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public static String shardFileName(int shard, int sequence) {
+        return "shard-" + shard + "-" + sequence + ".log";
+    }
+
+    public static String indexFileName(int shard, int sequence) {
+        return "shard-" + shard + "-" + sequence + ".idx";
+    }
+
+    //======================================================================================================
+    //                                          WRITER
+    //======================================================================================================
+
+    void write(AsyncLogAppender.LogFile file, String text) {
+        if (isFailed)
+            return;
+
+        try {
+            if (nodesChannel == null) {
+                Files.createDirectories(directory);
+                nodesChannel = FileChannel.open(directory.resolve(NODES_FILE), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                pendingNodes.append(SHARDS_HEADER).append(shardCount).append('\n');
+            }
+            if (!file.isRegistered) {
+                pendingNodes.append(file.handle).append('\t').append(file.name).append('\n');
+                file.isRegistered = true;
+            }
+
+            int index = file.handle % shardCount;
+            if (shards[index] == null) {
+                shards[index] = new Shard(index);
+            }
+            shards[index].write(file.handle, tag(file.handle, text));
+            isDirty = true;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes the buffered lines, and then the index entries of their runs.
+     */
+    void flush() {
+        if (!isDirty || isFailed)
+            return;
+        try {
+            for (var shard : shards) {
+                if (shard != null) {
+                    shard.flush();
+                }
+            }
+            if (pendingNodes.length() > 0) {
+                writeFully(nodesChannel, StandardCharsets.UTF_8.encode(pendingNodes.toString()));
+                pendingNodes.setLength(0);
+            }
+            isDirty = false;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void close() {
+        flush();
+        try {
+            for (var shard : shards) {
+                if (shard != null) {
+                    shard.close();
+                }
+            }
+            if (nodesChannel != null) {
+                nodesChannel.close();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (!isFailed) {
+            isFailed = true;
+            System.err.printf("ERROR: Log store %s could not be written: %s%n", directory, e);
+        }
+    }
+
+    /**
+     * Puts the handle in front of each line of the given text.
+     */
+    private static byte[] tag(int handle, String text) {
+        var prefix = Integer.toString(handle);
+        var sb = new StringBuilder(text.length() + 2 * (prefix.length() + 1));
+
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            sb.append(prefix).append('\t').append(text, start, end);
+            start = end;
+        }
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '\n') {
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private class Shard {
+        private final int index;
+        private final ByteBuffer buffer;
+        private final StringBuilder pendingIndex;
+        // The lines that are not written yet, grouped by their handles in the order the nodes first wrote
+        private final LinkedHashMap<Integer, Run> runs;
+        private int runBytes;
+        private int sequence = -1;
+        private FileChannel channel;
+        private FileChannel indexChannel;
+        // Size of the current file, including the buffered lines
+        private long size;
+
+        Shard(int index) {
+            this.index = index;
+            this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            this.pendingIndex = new StringBuilder();
+            this.runs = new LinkedHashMap<>();
+        }
+
+        void write(int handle, byte[] bytes) throws IOException {
+            var run = runs.get(handle);
+            if (run == null) {
+                run = new Run();
+                runs.put(handle, run);
+            }
+            run.append(bytes);
+            runBytes += bytes.length;
+            if (runBytes >= BUFFER_SIZE) {
+                writeRuns();
+            }
+        }
+
+        void flush() throws IOException {
+            writeRuns();
+            writeFiles();
+        }
+
+        void close() throws IOException {
+            flush();
+            closeFiles();
+        }
+
+        private void writeRuns() throws IOException {
+            for (var entry : runs.entrySet()) {
+                var run = entry.getValue();
+                writeRun(entry.getKey(), run.bytes, run.length);
+            }
+            runs.clear();
+            runBytes = 0;
+        }
+
+        /**
+         * Writes the lines of a node, and adds the index entries of them. The lines that would exceed the maximum
+         * size go to the next file.
+         */
+        private void writeRun(int handle, byte[] bytes, int length) throws IOException {
+            int start = 0;
+            while (start < length) {
+                if (channel == null) {
+                    rotate();
+                }
+                int end = length;
+                if (size + (length - start) > maxFileSize) {
+                    end = fittingEnd(bytes, start, length, maxFileSize - size);
+                    if (end == start && size == 0) {
+                        // A line that does not fit even into an empty file is written as it is, with its newline.
+                        while (end < length && bytes[end] != '\n') {
+                            end++;
+                        }
+                        if (end < length) {
+                            end++;
+                        }
+                    }
+                }
+                if (end > start) {
+                    pendingIndex.append(handle).append(' ').append(size).append(' ').append(end - start).append('\n');
+                    put(bytes, start, end - start);
+                    start = end;
+                }
+                if (start < length) {
+                    rotate();
+                }
+            }
+        }
+
+        private void put(byte[] bytes, int offset, int length) throws IOException {
+            size += length;
+            if (length > buffer.remaining()) {
+                flushBuffer();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(channel, ByteBuffer.wrap(bytes, offset, length));
+            } else {
+                buffer.put(bytes, offset, length);
+            }
+        }
+
+        private void writeFiles() throws IOException {
+            if (channel == null)
+                return;
+            // The lines are written before their entries, so the index never points past the end of the file.
+            flushBuffer();
+            if (pendingIndex.length() > 0) {
+                writeFully(indexChannel, StandardCharsets.UTF_8.encode(pendingIndex.toString()));
+                pendingIndex.setLength(0);
+            }
+        }
+
+        private void rotate() throws IOException {
+            writeFiles();
+            closeFiles();
+            sequence++;
+            size = 0;
+            channel = FileChannel.open(directory.resolve(shardFileName(index, sequence)),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            indexChannel = FileChannel.open(directory.resolve(indexFileName(index, sequence)),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        private void closeFiles() throws IOException {
+            if (channel == null)
+                return;
+            channel.force(false);
+            channel.close();
+            indexChannel.close();
+            channel = null;
+            indexChannel = null;
+        }
+
+        private void flushBuffer() throws IOException {
+            buffer.flip();
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Returns the end of the last whole line from the given start that fits into the given room, or the start if
+     * none fits.
+     */
+    private static int fittingEnd(byte[] bytes, int start, int length, long room) {
+        int end = start;
+        for (int i = start; i < length && i - start < room; i++) {
+            if (bytes[i] == '\n') {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * The buffered lines of a node.
+     */
+    private static class Run {
+        byte[] bytes = new byte[256];
+        int length;
+
+        void append(byte[] line) {
+            if (length + line.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + line.length));
+            }
+            System.arraycopy(line, 0, bytes, length, line.length);
+            length += line.length;
+        }
+    }
+
+    //======================================================================================================
+    //                                          READER
+    //======================================================================================================
+
+    /**
+     * Returns the names of the nodes in the store in the given directory, by their handles.
+     */
+    public static Map<Integer, String> readNodes(Path directory) throws IOException {
+        var res = new LinkedHashMap<Integer, String>();
+        try (var reader = Files.newBufferedReader(directory.resolve(NODES_FILE), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                int tab = line.indexOf('\t');
+                res.put(Integer.parseInt(line.substring(0, tab)), line.substring(tab + 1));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the handle of the given node, which is either its name or its handle, or -1 if it is not in the
+     * store.
+     */
+    public static int findHandle(Path directory, String node) throws IOException {
+        var nodes = readNodes(directory);
+        for (var entry : nodes.entrySet()) {
+            if (entry.getValue().equals(node))
+                return entry.getKey();
+        }
+        try {
+            int handle = Integer.parseInt(node);
+            return nodes.containsKey(handle) ? handle : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the lines of the node with the given handle into the given stream, without their handles, and returns
+     * the number of bytes written. Only the files of the shard of the node are read, through their indexes.
+     */
+    public static long extract(Path directory, int handle, OutputStream out) throws IOException {
+        int shard = handle % readShardCount(directory);
+        var key = handle + " ";
+        int prefixLength = Integer.toString(handle).length() + 1;
+
+        long written = 0;
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int sequence = 0; ; sequence++) {
+            var indexFile = directory.resolve(indexFileName(shard, sequence));
+            if (!Files.exists(indexFile))
+                break;
+
+            try (var reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8);
+                 var channel = FileChannel.open(directory.resolve(shardFileName(shard, sequence)),
+                         StandardOpenOption.READ)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith(key))
+                        continue;
+                    int space = line.indexOf(' ', key.length());
+                    long offset = Long.parseLong(line.substring(key.length(), space));
+                    int length = Integer.parseInt(line.substring(space + 1));
+
+                    if (buffer.capacity() < length) {
+                        buffer = ByteBuffer.allocate(length);
+                    }
+                    buffer.clear().limit(length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, offset + buffer.position()) < 0)
+                            throw new IOException("index of " + indexFile + " points past the end of the file");
+                    }
+                    written += writeUntagged(buffer.array(), length, prefixLength, out);
+                }
+            }
+        }
+        return written;
+    }
+
+    private static int readShardCount(Path directory) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(directory.resolve(NODES_FILE), StandardCharsets.UTF_8)) {
+            var header = reader.readLine();
+            if (header == null || !header.startsWith(SHARDS_HEADER))
+                throw new IOException("not a log store: " + directory);
+            return Integer.parseInt(header.substring(SHARDS_HEADER.length()));
+        }
+    }
+
+    /**
+     * Writes the given lines, leaving out the handle at the start of each.
+     */
+    private static int writeUntagged(byte[] bytes, int length, int prefixLength, OutputStream out) throws IOException {
+        int written = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && bytes[end] != '\n') {
+                end++;
+            }
+            end = Math.min(end + 1, length);
+            out.write(bytes, start + prefixLength, end - start - prefixLength);
+            written += end - start - prefixLength;
+            start = end;
+        }
+        return written;
+    }
+}
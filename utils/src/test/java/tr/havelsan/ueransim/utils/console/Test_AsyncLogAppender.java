@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Test_AsyncLogAppender {
+
+    @Test
+    public void testLinesAreWritten() throws Exception {
+        var directory = Files.createTempDirectory("log-appender");
+        // Room for all lines, so that none is dropped
+        var appender = new AsyncLogAppender(4096);
+        appender.start();
+
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            var logger = new Logger("node-" + i);
+            logger.getConsole().setStandardPrintEnabled(false);
+            logger.setLogFile(appender.open(directory.resolve("node-" + i + ".log")));
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    logger.info(Tag.VALUE, "line %d of %s", j, logger.getLoggerName());
+                }
+            }));
+        }
+        for (var thread : threads) thread.start();
+        for (var thread : threads) thread.join();
+
+        appender.flush();
+        Assert.assertEquals(0, appender.getDroppedCount());
+        for (int i = 0; i < 4; i++) {
+            var lines = readLines(directory.resolve("node-" + i + ".log"));
+            Assert.assertEquals(500, lines.size());
+            for (int j = 0; j < 500; j++) {
+                Assert.assertTrue(lines.get(j).contains("[INFO] [VALUE] line " + j + " of node-" + i));
+            }
+        }
+        appender.close();
+    }
+
+    @Test
+    public void testDroppedLinesAreReported() throws Exception {
+        var directory = Files.createTempDirectory("log-appender");
+        var appender = new AsyncLogAppender(16);
+        var file = appender.open(directory.resolve("sub/node.log"));
+
+        // Nothing is accepted before the writer is started.
+        file.appendText("lost\n");
+        file.appendText("lost\n");
+        Assert.assertEquals(2, file.getDroppedCount());
+        Assert.assertEquals(2, appender.getDroppedCount());
+
+        appender.start();
+        var logger = new Logger("node");
+        logger.getConsole().setStandardPrintEnabled(false);
+        logger.setLogFile(file);
+        logger.warning(Tag.VALUE, "after %s", "start");
+        // Durable when closed, without a flush.
+        appender.close();
+
+        var lines = readLines(directory.resolve("sub/node.log"));
+        Assert.assertEquals(2, lines.size());
+        Assert.assertTrue(lines.get(0).contains("2 log lines are dropped"));
+        Assert.assertTrue(lines.get(1).contains("[WARNING] [VALUE] after start"));
+
+        logger.info(Tag.VALUE, "after close");
+        Assert.assertEquals(3, file.getDroppedCount());
+    }
+
+    @Test
+    public void testClosedFilesAreReopened() throws Exception {
+        var directory = Files.createTempDirectory("log-appender");
+        var appender = new AsyncLogAppender(4096);
+        appender.setMaxOpenFiles(2);
+        appender.start();
+
+        var files = new ArrayList<AsyncLogAppender.LogFile>();
+        for (int i = 0; i < 5; i++) {
+            files.add(appender.open(directory.resolve("node-" + i + ".log")));
+        }
+        for (int j = 0; j < 20; j++) {
+            for (var file : files) {
+                file.appendText("line " + j + "\n");
+            }
+            appender.flush();
+        }
+        appender.close();
+
+        for (int i = 0; i < 5; i++) {
+            var lines = readLines(directory.resolve("node-" + i + ".log"));
+            Assert.assertEquals(20, lines.size());
+            Assert.assertEquals("line 19", lines.get(19));
+        }
+    }
+
+    @Test
+    public void testWriterWakesUpWhenIdle() throws Exception {
+        var directory = Files.createTempDirectory("log-appender");
+        var appender = new AsyncLogAppender(16);
+        appender.start();
+        var file = appender.open(directory.resolve("node.log"));
+
+        // The writer is parked between the lines, and each line wakes it up
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(5);
+            file.appendText("line " + i + "\n");
+            appender.flush();
+            Assert.assertEquals(i + 1, readLines(directory.resolve("node.log")).size());
+        }
+
+        Thread.sleep(5);
+        appender.close();
+    }
+
+    private static List<String> readLines(Path path) throws IOException {
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+}
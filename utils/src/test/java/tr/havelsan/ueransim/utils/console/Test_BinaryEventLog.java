@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+public class Test_BinaryEventLog {
+
+    @Test
+    public void testEventsAreRead() throws Exception {
+        var directory = Files.createTempDirectory("event-log").resolve("events");
+        // Small segments, so that new ones are created while the threads append
+        var log = new BinaryEventLog(directory, 4096);
+
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            var node = log.open(10 + i, "ue-" + i);
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 500; j++) {
+                    var payload = new byte[j % 40];
+                    if (payload.length > 0) {
+                        payload[payload.length - 1] = (byte) j;
+                    }
+                    Assert.assertTrue(node.append(j, j % 7, Tag.MESSAGING, Severity.DEBUG, 2, payload));
+                }
+            }));
+        }
+        for (var thread : threads) thread.start();
+        for (var thread : threads) thread.join();
+        log.close();
+
+        Assert.assertEquals(0, log.getDroppedCount());
+        Assert.assertTrue(Files.exists(directory.resolve(BinaryEventLog.segmentFileName(1))));
+        Assert.assertEquals(4, BinaryEventLog.readNodes(directory).size());
+        Assert.assertEquals("ue-3", BinaryEventLog.readNodes(directory).get(13));
+
+        var next = new int[4];
+        BinaryEventLog.read(directory, record -> {
+            int i = record.handle - 10;
+            // The events of a thread are read in their order.
+            int j = next[i]++;
+            Assert.assertEquals(j, record.time);
+            Assert.assertEquals(j % 7, record.type);
+            Assert.assertEquals(Tag.MESSAGING, record.tag);
+            Assert.assertEquals(Severity.DEBUG, record.severity);
+            Assert.assertEquals(2, record.depth);
+            Assert.assertEquals(j % 40, record.payload.length);
+            if (record.payload.length > 0) {
+                Assert.assertEquals((byte) j, record.payload[record.payload.length - 1]);
+            }
+        });
+        Assert.assertArrayEquals(new int[]{500, 500, 500, 500}, next);
+    }
+
+    @Test
+    public void testEventsOfLogger() throws Exception {
+        var directory = Files.createTempDirectory("event-log").resolve("events");
+        var log = new BinaryEventLog(directory, 1 << 16);
+
+        var logger = new Logger("gnb-1");
+        logger.getConsole().setStandardPrintEnabled(false);
+        logger.setMinSeverity(Tag.VALUE, Severity.INFO);
+        Assert.assertFalse(logger.event(Severity.DEBUG, Tag.MESSAGING, 1, () -> new byte[]{1}));
+
+        logger.setEventLog(log.open(1, "gnb-1"));
+        Assert.assertTrue(logger.event(Severity.DEBUG, Tag.MESSAGING, 1, () -> new byte[]{1}));
+        // Disabled, so the supplier is not called
+        Assert.assertTrue(logger.event(Severity.DEBUG, Tag.VALUE, 2, () -> {
+            throw new AssertionError();
+        }));
+        // No payload, so the event may be logged as text
+        Assert.assertFalse(logger.event(Severity.DEBUG, Tag.MESSAGING, 3, () -> null));
+        log.close();
+        // Dropped after the close
+        logger.event(Severity.DEBUG, Tag.MESSAGING, 4, () -> new byte[0]);
+        Assert.assertEquals(1, log.getDroppedCount());
+
+        var records = new ArrayList<BinaryEventLog.Record>();
+        BinaryEventLog.read(directory, records::add);
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(1, records.get(0).type);
+        Assert.assertArrayEquals(new int[]{1}, new int[]{records.get(0).payload[0]});
+    }
+
+    @Test
+    public void testNodesAreWrittenWhenOpened() throws Exception {
+        var directory = Files.createTempDirectory("event-log").resolve("events");
+        var log = new BinaryEventLog(directory, 4096);
+        log.open(1, "gnb-1");
+        log.open(2, "ue-1");
+
+        // The names are there while the log is still open, e.g. if the process is killed.
+        var nodes = BinaryEventLog.readNodes(directory);
+        Assert.assertEquals(2, nodes.size());
+        Assert.assertEquals("ue-1", nodes.get(2));
+        log.close();
+    }
+
+    @Test
+    public void testIncompleteRecordsAreSkipped() throws Exception {
+        var directory = Files.createTempDirectory("event-log").resolve("events");
+        var log = new BinaryEventLog(directory, 4096);
+        var node = log.open(1, "ue-1");
+        for (int j = 0; j < 3; j++) {
+            Assert.assertTrue(node.append(j, 0, Tag.MESSAGING, Severity.DEBUG, 0, new byte[10]));
+        }
+        log.close();
+
+        // Each record takes 48 bytes. The length of the first one is not stored, and nothing of the second one.
+        int first = BinaryEventLog.SEGMENT_HEADER_SIZE;
+        try (var channel = FileChannel.open(directory.resolve(BinaryEventLog.segmentFileName(0)),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), first);
+            channel.write(ByteBuffer.allocate(48), first + 48);
+        }
+
+        var records = new ArrayList<BinaryEventLog.Record>();
+        BinaryEventLog.read(directory, records::add);
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(2, records.get(0).time);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Test_Log {
+
+    private static Logger newLogger(String name, List<String> lines) {
+        var logger = new Logger(name);
+        logger.getConsole().setStandardPrintEnabled(false);
+        logger.addLogHandler(entry -> lines.add(name + ": " + entry.message));
+        return logger;
+    }
+
+    @Test
+    public void testBoundLogger() throws Exception {
+        var lines = new ArrayList<String>();
+        var first = newLogger("first", lines);
+        var second = newLogger("second", lines);
+
+        // A pooled thread runs one task after another.
+        var thread = new Thread(() -> {
+            Log.bind(first);
+            Log.info(Tag.STATE, "a");
+            Log.bind(second);
+            Log.info(Tag.STATE, "b");
+            Log.bind(null);
+            Assert.assertNull(Log.current());
+        });
+        thread.start();
+        thread.join();
+
+        Log.withLogger(first, () -> Log.info(Tag.STATE, "c")).run();
+        Assert.assertNotEquals(first, Log.current());
+
+        Assert.assertEquals(List.of("first: a", "second: b", "first: c"), lines);
+    }
+
+    @Test
+    public void testBoundWhenStarted() throws Exception {
+        var lines = new ArrayList<String>();
+        var logger = newLogger("receiver", lines);
+
+        var thread = new Thread(Log.withLogger(logger, () -> {
+            Assert.assertSame(logger, Log.current());
+            Log.info(Tag.STATE, "received");
+        }));
+        thread.start();
+        thread.join();
+
+        Assert.assertEquals(List.of("receiver: received"), lines);
+    }
+
+    @Test
+    public void testUnboundThreadUsesGlobalLogger() throws Exception {
+        var failures = new ArrayList<Throwable>();
+        var thread = new Thread(() -> Log.debug(Tag.STATE, "no logger is bound"));
+        thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+        Logger.GLOBAL.getConsole().setStandardPrintEnabled(false);
+        try {
+            thread.start();
+            thread.join();
+        } finally {
+            Logger.GLOBAL.getConsole().setStandardPrintEnabled(true);
+        }
+        Assert.assertTrue(failures.isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.Severity;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.util.ArrayList;
+
+public class Test_Logger {
+
+    @Test
+    public void testMinSeverity() {
+        var logger = new Logger("node");
+        Assert.assertTrue(logger.isEnabled(Severity.DEBUG, Tag.MESSAGING));
+
+        try {
+            Logger.setDefaultMinSeverity(Severity.INFO);
+            Logger.setDefaultMinSeverity(Tag.VALUE, Severity.ERROR);
+            Assert.assertFalse(logger.isEnabled(Severity.DEBUG, Tag.MESSAGING));
+            Assert.assertFalse(logger.isEnabled(Severity.FUNC_IN, null));
+            Assert.assertTrue(logger.isEnabled(Severity.SUCCESS, Tag.MESSAGING));
+            Assert.assertFalse(logger.isEnabled(Severity.WARNING, Tag.VALUE));
+            Assert.assertTrue(logger.isEnabled(Severity.ERROR, Tag.VALUE));
+
+            // The levels of the logger override the default ones, and the level of a tag the general one.
+            logger.setMinSeverity(Severity.WARNING);
+            Assert.assertFalse(logger.isEnabled(Severity.INFO, Tag.MESSAGING));
+            Assert.assertTrue(logger.isEnabled(Severity.WARNING, Tag.VALUE));
+            logger.setMinSeverity(Tag.MESSAGING, Severity.DEBUG);
+            Assert.assertTrue(logger.isEnabled(Severity.DEBUG, Tag.MESSAGING));
+
+            logger.setMinSeverity(null);
+            Assert.assertFalse(logger.isEnabled(Severity.WARNING, Tag.VALUE));
+        } finally {
+            Logger.setDefaultMinSeverity(null);
+            Logger.setDefaultMinSeverity(Tag.VALUE, null);
+        }
+        Assert.assertTrue(logger.isEnabled(Severity.DEBUG, Tag.VALUE));
+    }
+
+    @Test
+    public void testSupplierIsNotCalledWhenDisabled() {
+        var logger = new Logger("node");
+        logger.getConsole().setStandardPrintEnabled(false);
+        var lines = new ArrayList<String>();
+        logger.addLogHandler(entry -> lines.add(entry.message));
+
+        logger.setMinSeverity(Tag.MESSAGING, Severity.INFO);
+        logger.debug(Tag.MESSAGING, () -> {
+            throw new AssertionError("supplier is called");
+        });
+        logger.debug(Tag.MESSAGING, "not %s", "logged");
+        logger.info(Tag.MESSAGING, () -> "100% logged");
+        logger.debug(Tag.STATE, () -> "logged");
+
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("100% logged", lines.get(0));
+        Assert.assertEquals("logged", lines.get(1));
+    }
+}
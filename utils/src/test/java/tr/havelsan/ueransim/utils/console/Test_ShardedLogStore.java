@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2020 ALİ GÜNGÖR (aligng1620@gmail.com)
+ * This software and all associated files are licensed under GPL-3.0.
+ */
+
+package tr.havelsan.ueransim.utils.console;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.Test;
+import tr.havelsan.ueransim.utils.Tag;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Test_ShardedLogStore {
+
+    @Test
+    public void testLogsAreExtracted() throws Exception {
+        var directory = Files.createTempDirectory("log-store").resolve("nodes");
+        var appender = new AsyncLogAppender(4096);
+        appender.start();
+        // Small files, so that they are rotated
+        var store = new ShardedLogStore(appender, directory, 2, 2000);
+
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 5; i++) {
+            var logger = new Logger("ue-" + i);
+            logger.getConsole().setStandardPrintEnabled(false);
+            logger.setLogFile(store.open("ue-" + i));
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    logger.info(Tag.VALUE, "line %d of %s", j, logger.getLoggerName());
+                }
+                logger.getLogFile().appendText("first\nsecond\n");
+            }));
+        }
+        for (var thread : threads) thread.start();
+        for (var thread : threads) thread.join();
+        appender.close();
+
+        Assert.assertEquals(0, appender.getDroppedCount());
+        Assert.assertEquals(5, ShardedLogStore.readNodes(directory).size());
+        Assert.assertTrue(Files.exists(directory.resolve(ShardedLogStore.shardFileName(1, 1))));
+        Assert.assertTrue(Files.exists(directory.resolve(ShardedLogStore.indexFileName(1, 1))));
+
+        for (int i = 0; i < 5; i++) {
+            int handle = ShardedLogStore.findHandle(directory, "ue-" + i);
+            var out = new ByteArrayOutputStream();
+            long written = ShardedLogStore.extract(directory, handle, out);
+            Assert.assertEquals(out.size(), written);
+
+            var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+            Assert.assertEquals(102, lines.length);
+            for (int j = 0; j < 100; j++) {
+                Assert.assertTrue(lines[j].contains("[INFO] [VALUE] line " + j + " of ue-" + i));
+            }
+            Assert.assertEquals("first", lines[100]);
+            Assert.assertEquals("second", lines[101]);
+        }
+        Assert.assertEquals(-1, ShardedLogStore.findHandle(directory, "ue-5"));
+    }
+
+    @Test
+    public void testLinesAreTagged() throws Exception {
+        var directory = Files.createTempDirectory("log-store").resolve("nodes");
+        var appender = new AsyncLogAppender(16);
+        appender.start();
+        var store = new ShardedLogStore(appender, directory, 1, 1024 * 1024);
+
+        store.open("gnb-1").appendText("a\nb");
+        store.open("gnb-2").appendText("c\n");
+        appender.close();
+
+        var lines = Files.readAllLines(directory.resolve(ShardedLogStore.shardFileName(0, 0)));
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("0\ta", lines.get(0));
+        Assert.assertEquals("0\tb", lines.get(1));
+        Assert.assertEquals("1\tc", lines.get(2));
+
+        var index = Files.readAllLines(directory.resolve(ShardedLogStore.indexFileName(0, 0)));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals("0 0 8", index.get(0));
+        Assert.assertEquals("1 8 4", index.get(1));
+    }
+
+    @Test
+    public void testRunsAreGroupedByNode() throws Exception {
+        var directory = Files.createTempDirectory("log-store").resolve("nodes");
+        // The appender is not started, the test writes as its writer thread.
+        var appender = new AsyncLogAppender(16);
+        var store = new ShardedLogStore(appender, directory, 1, 20);
+        var first = store.open("ue-1");
+        var second = store.open("ue-2");
+
+        // The nodes log in turns, but each gets a single run in the flush.
+        for (int j = 0; j < 3; j++) {
+            store.write(first, "a" + j + "\n");
+            store.write(second, "b" + j + "\n");
+        }
+        store.flush();
+        store.write(first, "a3\n");
+        store.close();
+
+        // The run of the second node does not fit into the first file, so it goes to the next one.
+        var index = Files.readAllLines(directory.resolve(ShardedLogStore.indexFileName(0, 0)));
+        Assert.assertEquals(List.of("0 0 15", "1 15 5"), index);
+        index = Files.readAllLines(directory.resolve(ShardedLogStore.indexFileName(0, 1)));
+        Assert.assertEquals(List.of("1 0 10", "0 10 5"), index);
+
+        var out = new ByteArrayOutputStream();
+        ShardedLogStore.extract(directory, 1, out);
+        Assert.assertEquals("b0\nb1\nb2\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLongLinesAreWrittenAsTheyAre() throws Exception {
+        var directory = Files.createTempDirectory("log-store").resolve("nodes");
+        var appender = new AsyncLogAppender(16);
+        var store = new ShardedLogStore(appender, directory, 1, 8);
+        var node = store.open("ue-1");
+
+        // Neither tagged line fits into a file, so each file gets one of them.
+        store.write(node, "0123456789\n");
+        store.write(node, "abcdefghij");
+        store.close();
+
+        var index = Files.readAllLines(directory.resolve(ShardedLogStore.indexFileName(0, 0)));
+        Assert.assertEquals(List.of("0 0 13"), index);
+        index = Files.readAllLines(directory.resolve(ShardedLogStore.indexFileName(0, 1)));
+        Assert.assertEquals(List.of("0 0 13"), index);
+
+        var out = new ByteArrayOutputStream();
+        ShardedLogStore.extract(directory, 0, out);
+        Assert.assertEquals("0123456789\nabcdefghij\n", out.toString(StandardCharsets.UTF_8));
+    }
+}